@@ -28,7 +28,9 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -39,6 +41,7 @@ import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
 import javax.swing.LookAndFeel;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
@@ -103,9 +106,9 @@ import org.openstreetmap.josm.tools.PlatformHookUnixoid;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
 import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.StartupProfiler;
 import org.openstreetmap.josm.tools.Territories;
 import org.openstreetmap.josm.tools.Utils;
-import org.openstreetmap.josm.tools.bugreport.BugReport;
 
 /**
  * Abstract class holding various static global variables and methods used in large parts of JOSM application.
@@ -511,65 +514,71 @@ public abstract class Main {
     public void initialize() {
         fileWatcher.start();
 
-        new InitializationTask(tr("Executing platform startup hook"), platform::startupHook).call();
-
-        new InitializationTask(tr("Building main menu"), this::initializeMainWindow).call();
-
-        undoRedo.addCommandQueueListener(redoUndoListener);
-
-        // creating toolbar
-        GuiHelper.runInEDTAndWait(() -> contentPanePrivate.add(toolbar.control, BorderLayout.NORTH));
-
-        registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
-                KeyEvent.VK_F1, Shortcut.DIRECT));
-
-        // This needs to be done before RightAndLefthandTraffic::initialize is called
-        try {
-            new InitializationTask(tr("Initializing internal boundaries data"), Territories::initialize).call();
-        } catch (JosmRuntimeException e) {
-            // Can happen if the current projection needs NTV2 grid which is not available
-            // In this case we want the user be able to change his projection
-            BugReport.intercept(e).warn();
-        }
-
-        // contains several initialization tasks to be executed (in parallel) by a ExecutorService
-        List<Callable<Void>> tasks = new ArrayList<>();
-
-        tasks.add(new InitializationTask(tr("Initializing OSM API"), () -> {
-                // We try to establish an API connection early, so that any API
-                // capabilities are already known to the editor instance. However
-                // if it goes wrong that's not critical at this stage.
-                try {
-                    OsmApi.getOsmApi().initialize(null, true);
-                } catch (OsmTransferCanceledException | OsmApiInitializationException e) {
-                    Main.warn(getErrorMessage(Utils.getRootCause(e)));
-                }
-            }));
-
-        tasks.add(new InitializationTask(tr("Initializing internal traffic data"), RightAndLefthandTraffic::initialize));
+        // The initialization tasks are run in parallel, each one as soon as its prerequisites are done.
+        // Territories and RightAndLefthandTraffic are loaded in the background once the other tasks are done.
+        ExecutorService service = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
+        // Some tasks wait for the EDT, they are run one after the other if it is the calling thread
+        Executor executor = SwingUtilities.isEventDispatchThread() ? Runnable::run : service;
+
+        CompletableFuture<Void> platformHook = new InitializationTask(tr("Executing platform startup hook"),
+                platform::startupHook).schedule(executor);
+
+        CompletableFuture<Void> mainMenu = new InitializationTask(tr("Building main menu"), () -> {
+            initializeMainWindow();
+            undoRedo.addCommandQueueListener(redoUndoListener);
+
+            // creating toolbar
+            GuiHelper.runInEDTAndWait(() -> contentPanePrivate.add(toolbar.control, BorderLayout.NORTH));
+
+            registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
+                    KeyEvent.VK_F1, Shortcut.DIRECT));
+        }).schedule(executor, platformHook);
+
+        CompletableFuture<Void> osmApi = new InitializationTask(tr("Initializing OSM API"), () -> {
+            // We try to establish an API connection early, so that any API
+            // capabilities are already known to the editor instance. However
+            // if it goes wrong that's not critical at this stage.
+            try {
+                OsmApi.getOsmApi().initialize(null, true);
+            } catch (OsmTransferCanceledException | OsmApiInitializationException e) {
+                Main.warn(getErrorMessage(Utils.getRootCause(e)));
+            }
+        }).schedule(executor);
 
-        tasks.add(new InitializationTask(tr("Initializing validator"), OsmValidator::initialize));
+        CompletableFuture<Void> validator = new InitializationTask(tr("Initializing validator"),
+                OsmValidator::initialize).schedule(executor);
 
-        tasks.add(new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize));
+        CompletableFuture<Void> presets = new InitializationTask(tr("Loading presets"),
+                TaggingPresets::readFromPreferences).schedule(executor);
+        CompletableFuture<Void> presetsMenu = new InitializationTask(tr("Initializing presets"),
+                TaggingPresets::initializeMenus).schedule(executor, presets, mainMenu);
 
-        tasks.add(new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize));
+        // the map paint menu listens to the loading of styles
+        CompletableFuture<Void> mapStyles = new InitializationTask(tr("Initializing map styles"),
+                MapPaintPreference::initialize).schedule(executor, mainMenu);
 
-        tasks.add(new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize));
+        CompletableFuture<Void> imagery = new InitializationTask(tr("Loading imagery preferences"),
+                ImageryPreference::load).schedule(executor);
+        CompletableFuture<Void> imageryMenu = new InitializationTask(tr("Initializing imagery menu"),
+                ImageryPreference::initializeMenus).schedule(executor, imagery, mainMenu);
 
         try {
-            ExecutorService service = Executors.newFixedThreadPool(
-                    Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
-            for (Future<Void> i : service.invokeAll(tasks)) {
-                i.get();
-            }
-            // asynchronous initializations to be completed eventually
-            service.submit((Runnable) TMSLayer::getCache);
-            service.submit((Runnable) OsmValidator::initializeTests);
-            service.submit(OverpassTurboQueryWizard::getInstance);
-            service.shutdown();
-        } catch (InterruptedException | ExecutionException ex) {
-            throw new JosmRuntimeException(ex);
+            CompletableFuture.allOf(osmApi, validator, presetsMenu, mapStyles, imageryMenu).join();
+        } catch (CompletionException ex) {
+            throw new JosmRuntimeException(ex.getCause());
         }
+        // asynchronous initializations to be completed eventually
+        service.submit((Runnable) TMSLayer::getCache);
+        service.submit((Runnable) OsmValidator::initializeTests);
+        service.submit(OverpassTurboQueryWizard::getInstance);
+        // used by the validator, and by map paint styles (is_right_hand_traffic() and inside()),
+        // so that the first paint does not have to wait for them
+        service.submit(() -> {
+            Territories.initializeIfNeeded();
+            RightAndLefthandTraffic.initializeIfNeeded();
+        });
+        service.shutdown();
 
         // hooks for the jmapviewer component
         FeatureAdapter.registerBrowserAdapter(OpenBrowser::displayUrl);
@@ -605,12 +614,22 @@ public abstract class Main {
             if (initListener != null) {
                 status = initListener.updateStatus(name);
             }
-            task.run();
+            StartupProfiler.measure(name, task);
             if (initListener != null) {
                 initListener.finish(status);
             }
             return null;
         }
+
+        /**
+         * Runs this task once its prerequisites are done.
+         * @param executor the executor running the task
+         * @param prerequisites the tasks to be done before this one
+         * @return the completion of this task. It fails if this task or one of its prerequisites fails
+         */
+        CompletableFuture<Void> schedule(Executor executor, CompletableFuture<?>... prerequisites) {
+            return CompletableFuture.allOf(prerequisites).thenRunAsync(this::call, executor);
+        }
     }
 
     /**
@@ -863,6 +882,7 @@ public abstract class Main {
         }
         // Remove all layers because somebody may rely on layerRemoved events (like AutosaveTask)
         getLayerManager().resetState();
+        pref.flush();
         try {
             pref.saveDefaults();
         } catch (IOException ex) {
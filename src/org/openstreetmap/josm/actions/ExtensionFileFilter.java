@@ -26,6 +26,8 @@ import org.openstreetmap.josm.io.NMEAImporter;
 import org.openstreetmap.josm.io.NoteImporter;
 import org.openstreetmap.josm.io.OsmChangeImporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.OsmJournalImporter;
+import org.openstreetmap.josm.io.PbfImporter;
 import org.openstreetmap.josm.io.WMSLayerImporter;
 import org.openstreetmap.josm.io.session.SessionImporter;
 import org.openstreetmap.josm.tools.Utils;
@@ -38,84 +40,89 @@ import org.openstreetmap.josm.tools.Utils;
 public class ExtensionFileFilter extends FileFilter implements java.io.FileFilter {
 
     /**
-     * List of supported formats for import.
-     * @since 4869
+     * The supported formats, created on first use rather than when this class is initialized: the importers and
+     * exporters have static file filters of this class, which would otherwise be null for the importers and exporters
+     * created while their own class is being initialized.
      */
-    private static final ArrayList<FileImporter> importers;
-
-    /**
-     * List of supported formats for export.
-     * @since 4869
-     */
-    private static final ArrayList<FileExporter> exporters;
-
-    // add some file types only if the relevant classes are there.
-    // this gives us the option to painlessly drop them from the .jar
-    // and build JOSM versions without support for these formats
-
-    static {
-
-        importers = new ArrayList<>();
-
-        final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
-                OsmImporter.class,
-                OsmChangeImporter.class,
-                GpxImporter.class,
-                NMEAImporter.class,
-                NoteImporter.class,
-                JpgImporter.class,
-                WMSLayerImporter.class,
-                AllFormatsImporter.class,
-                SessionImporter.class
-        );
+    private static final class Handlers {
+        /**
+         * List of supported formats for import.
+         * @since 4869
+         */
+        private static final ArrayList<FileImporter> importers = new ArrayList<>();
+
+        /**
+         * List of supported formats for export.
+         * @since 4869
+         */
+        private static final ArrayList<FileExporter> exporters = new ArrayList<>();
+
+        // add some file types only if the relevant classes are there.
+        // this gives us the option to painlessly drop them from the .jar
+        // and build JOSM versions without support for these formats
+
+        static {
+            final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
+                    OsmImporter.class,
+                    OsmChangeImporter.class,
+                    PbfImporter.class,
+                    OsmJournalImporter.class,
+                    GpxImporter.class,
+                    NMEAImporter.class,
+                    NoteImporter.class,
+                    JpgImporter.class,
+                    WMSLayerImporter.class,
+                    AllFormatsImporter.class,
+                    SessionImporter.class
+            );
 
-        for (final Class<? extends FileImporter> importerClass : importerNames) {
-            try {
-                FileImporter importer = importerClass.getConstructor().newInstance();
-                importers.add(importer);
-            } catch (ReflectiveOperationException e) {
-                Main.debug(e);
-            } catch (ServiceConfigurationError e) {
-                // error seen while initializing WMSLayerImporter in plugin unit tests:
-                // -
-                // ServiceConfigurationError: javax.imageio.spi.ImageWriterSpi:
-                // Provider com.sun.media.imageioimpl.plugins.jpeg.CLibJPEGImageWriterSpi could not be instantiated
-                // Caused by: java.lang.IllegalArgumentException: vendorName == null!
-                //      at javax.imageio.spi.IIOServiceProvider.<init>(IIOServiceProvider.java:76)
-                //      at javax.imageio.spi.ImageReaderWriterSpi.<init>(ImageReaderWriterSpi.java:231)
-                //      at javax.imageio.spi.ImageWriterSpi.<init>(ImageWriterSpi.java:213)
-                //      at com.sun.media.imageioimpl.plugins.jpeg.CLibJPEGImageWriterSpi.<init>(CLibJPEGImageWriterSpi.java:84)
-                // -
-                // This is a very strange behaviour of JAI:
-                // http://thierrywasyl.wordpress.com/2009/07/24/jai-how-to-solve-vendorname-null-exception/
-                // -
-                // that can lead to various problems, see #8583 comments
-                Main.error(e);
+            for (final Class<? extends FileImporter> importerClass : importerNames) {
+                try {
+                    FileImporter importer = importerClass.getConstructor().newInstance();
+                    importers.add(importer);
+                } catch (ReflectiveOperationException e) {
+                    Main.debug(e);
+                } catch (ServiceConfigurationError e) {
+                    // error seen while initializing WMSLayerImporter in plugin unit tests:
+                    // -
+                    // ServiceConfigurationError: javax.imageio.spi.ImageWriterSpi:
+                    // Provider com.sun.media.imageioimpl.plugins.jpeg.CLibJPEGImageWriterSpi could not be instantiated
+                    // Caused by: java.lang.IllegalArgumentException: vendorName == null!
+                    //      at javax.imageio.spi.IIOServiceProvider.<init>(IIOServiceProvider.java:76)
+                    //      at javax.imageio.spi.ImageReaderWriterSpi.<init>(ImageReaderWriterSpi.java:231)
+                    //      at javax.imageio.spi.ImageWriterSpi.<init>(ImageWriterSpi.java:213)
+                    //      at com.sun.media.imageioimpl.plugins.jpeg.CLibJPEGImageWriterSpi.<init>(CLibJPEGImageWriterSpi.java:84)
+                    // -
+                    // This is a very strange behaviour of JAI:
+                    // http://thierrywasyl.wordpress.com/2009/07/24/jai-how-to-solve-vendorname-null-exception/
+                    // -
+                    // that can lead to various problems, see #8583 comments
+                    Main.error(e);
+                }
             }
-        }
-
-        exporters = new ArrayList<>();
 
-        final List<Class<? extends FileExporter>> exporterClasses = Arrays.asList(
-                org.openstreetmap.josm.io.GpxExporter.class,
-                org.openstreetmap.josm.io.OsmExporter.class,
-                org.openstreetmap.josm.io.OsmGzipExporter.class,
-                org.openstreetmap.josm.io.OsmBzip2Exporter.class,
-                org.openstreetmap.josm.io.GeoJSONExporter.class,
-                org.openstreetmap.josm.io.WMSLayerExporter.class,
-                org.openstreetmap.josm.io.NoteExporter.class
-        );
+            final List<Class<? extends FileExporter>> exporterClasses = Arrays.asList(
+                    org.openstreetmap.josm.io.GpxExporter.class,
+                    org.openstreetmap.josm.io.OsmExporter.class,
+                    org.openstreetmap.josm.io.OsmGzipExporter.class,
+                    org.openstreetmap.josm.io.OsmBzip2Exporter.class,
+                    org.openstreetmap.josm.io.PbfExporter.class,
+                    org.openstreetmap.josm.io.GeoJSONExporter.class,
+                    org.openstreetmap.josm.io.WMSLayerExporter.class,
+                    org.openstreetmap.josm.io.NoteExporter.class
+            );
 
-        for (final Class<? extends FileExporter> exporterClass : exporterClasses) {
-            try {
-                FileExporter exporter = exporterClass.getConstructor().newInstance();
-                exporters.add(exporter);
-                Main.getLayerManager().addAndFireActiveLayerChangeListener(exporter);
-            } catch (ReflectiveOperationException e) {
-                Main.debug(e);
-            } catch (ServiceConfigurationError e) {
-                // see above in importers initialization
-                Main.error(e);
+            for (final Class<? extends FileExporter> exporterClass : exporterClasses) {
+                try {
+                    FileExporter exporter = exporterClass.getConstructor().newInstance();
+                    exporters.add(exporter);
+                    Main.getLayerManager().addAndFireActiveLayerChangeListener(exporter);
+                } catch (ReflectiveOperationException e) {
+                    Main.debug(e);
+                } catch (ServiceConfigurationError e) {
+                    // see above in importers initialization
+                    Main.error(e);
+                }
             }
         }
     }
@@ -146,7 +153,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static void addImporter(FileImporter importer) {
         if (importer != null) {
-            importers.add(importer);
+            Handlers.importers.add(importer);
         }
     }
 
@@ -157,7 +164,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static void addImporterFirst(FileImporter importer) {
         if (importer != null) {
-            importers.add(0, importer);
+            Handlers.importers.add(0, importer);
         }
     }
 
@@ -168,7 +175,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static void addExporter(FileExporter exporter) {
         if (exporter != null) {
-            exporters.add(exporter);
+            Handlers.exporters.add(exporter);
         }
     }
 
@@ -179,26 +186,26 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static void addExporterFirst(FileExporter exporter) {
         if (exporter != null) {
-            exporters.add(0, exporter);
+            Handlers.exporters.add(0, exporter);
         }
     }
 
     /**
-     * Returns the list of file importers.
+     * Returns the list of file Handlers.importers.
      * @return unmodifiable list of file importers
      * @since 10407
      */
     public static List<FileImporter> getImporters() {
-        return Collections.unmodifiableList(importers);
+        return Collections.unmodifiableList(Handlers.importers);
     }
 
     /**
-     * Returns the list of file exporters.
+     * Returns the list of file Handlers.exporters.
      * @return unmodifiable list of file exporters
      * @since 10407
      */
     public static List<FileExporter> getExporters() {
-        return Collections.unmodifiableList(exporters);
+        return Collections.unmodifiableList(Handlers.exporters);
     }
 
     /**
@@ -212,9 +219,9 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      * @since 5131
      */
     public static void updateAllFormatsImporter() {
-        for (int i = 0; i < importers.size(); i++) {
-            if (importers.get(i) instanceof AllFormatsImporter) {
-                importers.set(i, new AllFormatsImporter());
+        for (int i = 0; i < Handlers.importers.size(); i++) {
+            if (Handlers.importers.get(i) instanceof AllFormatsImporter) {
+                Handlers.importers.set(i, new AllFormatsImporter());
             }
         }
     }
@@ -230,7 +237,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
     public static List<ExtensionFileFilter> getImportExtensionFileFilters() {
         updateAllFormatsImporter();
         List<ExtensionFileFilter> filters = new LinkedList<>();
-        for (FileImporter importer : importers) {
+        for (FileImporter importer : Handlers.importers) {
             filters.add(importer.filter);
         }
         sort(filters);
@@ -247,7 +254,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static List<ExtensionFileFilter> getExportExtensionFileFilters() {
         List<ExtensionFileFilter> filters = new LinkedList<>();
-        for (FileExporter exporter : exporters) {
+        for (FileExporter exporter : Handlers.exporters) {
             if (filters.contains(exporter.filter) || !exporter.isEnabled()) {
                 continue;
             }
@@ -266,7 +273,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static ExtensionFileFilter getDefaultImportExtensionFileFilter(String extension) {
         if (extension == null) return new AllFormatsImporter().filter;
-        for (FileImporter importer : importers) {
+        for (FileImporter importer : Handlers.importers) {
             if (extension.equals(importer.filter.getDefaultExtension()))
                 return importer.filter;
         }
@@ -282,14 +289,14 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
      */
     public static ExtensionFileFilter getDefaultExportExtensionFileFilter(String extension) {
         if (extension == null) return new AllFormatsImporter().filter;
-        for (FileExporter exporter : exporters) {
+        for (FileExporter exporter : Handlers.exporters) {
             if (extension.equals(exporter.filter.getDefaultExtension()))
                 return exporter.filter;
         }
         // if extension did not match defaultExtension of any exporter,
         // scan all supported extensions
         File file = new File("file." + extension);
-        for (FileExporter exporter : exporters) {
+        for (FileExporter exporter : Handlers.exporters) {
             if (exporter.filter.accept(file))
                 return exporter.filter;
         }
@@ -12,10 +12,13 @@ import java.util.List;
 import java.util.Optional;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.IncrementalValidator;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationRunner;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.layer.ValidatorLayer;
@@ -38,6 +41,9 @@ public class ValidateAction extends JosmAction {
     /** Last selection used to validate */
     private transient Collection<OsmPrimitive> lastSelection;
 
+    /** Validator of the whole edit data set, which only validates changed primitives again */
+    private transient IncrementalValidator incrementalValidator;
+
     /**
      * Constructor
      */
@@ -87,12 +93,35 @@ public class ValidateAction extends JosmAction {
                     () -> Main.getLayerManager().getEditDataSet().allNonDeletedPrimitives());
         }
 
-        Main.worker.submit(new ValidationTask(tests, selection, lastSelection));
+        IncrementalValidator validator = null;
+        if (lastSelection == null && ValidatorPreference.PREF_INCREMENTAL.get()) {
+            validator = getIncrementalValidator(Main.getLayerManager().getEditDataSet());
+        }
+        Main.worker.submit(new ValidationTask(tests, selection, lastSelection, validator));
+    }
+
+    private synchronized IncrementalValidator getIncrementalValidator(DataSet dataSet) {
+        if (incrementalValidator == null || incrementalValidator.getDataSet() != dataSet) {
+            destroyIncrementalValidator();
+            incrementalValidator = new IncrementalValidator(dataSet, new ValidationRunner());
+        }
+        return incrementalValidator;
+    }
+
+    private synchronized void destroyIncrementalValidator() {
+        if (incrementalValidator != null) {
+            incrementalValidator.destroy();
+            incrementalValidator = null;
+        }
     }
 
     @Override
     public void updateEnabledState() {
         setEnabled(getLayerManager().getEditLayer() != null);
+        // stop listening to a data set which is no longer edited
+        if (incrementalValidator != null && incrementalValidator.getDataSet() != getLayerManager().getEditDataSet()) {
+            destroyIncrementalValidator();
+        }
     }
 
     @Override
@@ -110,6 +139,7 @@ public class ValidateAction extends JosmAction {
         private Collection<Test> tests;
         private final Collection<OsmPrimitive> validatedPrimitives;
         private final Collection<OsmPrimitive> formerValidatedPrimitives;
+        private final IncrementalValidator incrementalValidator;
         private boolean canceled;
         private List<TestError> errors;
 
@@ -118,12 +148,14 @@ public class ValidateAction extends JosmAction {
          * @param tests  the tests to run
          * @param validatedPrimitives the collection of primitives to validate.
          * @param formerValidatedPrimitives the last collection of primitives being validates. May be null.
+         * @param incrementalValidator the validator of the whole data set. May be null.
          */
         ValidationTask(Collection<Test> tests, Collection<OsmPrimitive> validatedPrimitives,
-                Collection<OsmPrimitive> formerValidatedPrimitives) {
+                Collection<OsmPrimitive> formerValidatedPrimitives, IncrementalValidator incrementalValidator) {
             super(tr("Validating"), false /*don't ignore exceptions */);
             this.validatedPrimitives = validatedPrimitives;
             this.formerValidatedPrimitives = formerValidatedPrimitives;
+            this.incrementalValidator = incrementalValidator;
             this.tests = tests;
         }
 
@@ -151,21 +183,14 @@ public class ValidateAction extends JosmAction {
         OsmTransferException {
             if (tests == null || tests.isEmpty())
                 return;
-            errors = new ArrayList<>(200);
-            getProgressMonitor().setTicksCount(tests.size() * validatedPrimitives.size());
-            int testCounter = 0;
-            for (Test test : tests) {
-                if (canceled)
-                    return;
-                testCounter++;
-                getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
-                test.setPartialSelection(formerValidatedPrimitives != null);
-                test.startTest(getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false));
-                test.visit(validatedPrimitives);
-                test.endTest();
-                errors.addAll(test.getErrors());
+            if (incrementalValidator != null) {
+                errors = incrementalValidator.validate(tests, getProgressMonitor());
+            } else {
+                errors = new ValidationRunner().run(tests, validatedPrimitives, formerValidatedPrimitives != null, getProgressMonitor());
             }
             tests = null;
+            if (canceled)
+                return;
             if (ValidatorPreference.PREF_USE_IGNORE.get()) {
                 getProgressMonitor().subTask(tr("Updating ignored errors ..."));
                 for (TestError error : errors) {
@@ -62,6 +62,7 @@ import org.openstreetmap.josm.gui.widgets.HistoryComboBox;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -784,7 +785,7 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
         protected void realRun() {
             try {
                 foundMatches = 0;
-                SearchCompiler.Match matcher = SearchCompiler.compile(setting);
+                SearchCompiler.Match matcher = SearchCompiler.optimize(SearchCompiler.compile(setting));
 
                 if (setting.mode == SearchMode.replace) {
                     selection.clear();
@@ -792,11 +793,11 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<OsmPrimitive> all;
-                if (setting.allElements) {
-                    all = ds.allPrimitives();
-                } else {
-                    all = ds.getPrimitives(OsmPrimitive::isSelectable);
+                // unmatched primitives are only relevant when searching in the selection
+                Collection<OsmPrimitive> all = setting.mode == SearchMode.in_selection
+                        ? ds.allPrimitives() : SearchCompiler.getCandidates(matcher, ds);
+                if (!setting.allElements) {
+                    all = new SubclassFilteredCollection<>(all, OsmPrimitive::isSelectable);
                 }
                 final ProgressMonitor subMonitor = getProgressMonitor().createSubTaskMonitor(all.size(), false);
                 subMonitor.beginTask(trn("Searching in {0} object", "Searching in {0} objects", all.size(), all.size()));
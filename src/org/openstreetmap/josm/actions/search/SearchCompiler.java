@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -27,6 +29,7 @@ import org.openstreetmap.josm.actions.search.PushbackTokenizer.Range;
 import org.openstreetmap.josm.actions.search.PushbackTokenizer.Token;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
@@ -420,7 +423,7 @@ public class SearchCompiler {
         private final boolean defaultValue;
 
         BooleanMatch(String key, boolean defaultValue) {
-            this.key = key;
+            this.key = key.intern();
             this.defaultValue = defaultValue;
         }
 
@@ -627,7 +630,7 @@ public class SearchCompiler {
                 this.value = value;
 
             } else {
-                this.key = key;
+                this.key = key.intern();
                 this.value = value;
                 this.keyPattern = null;
                 this.valuePattern = null;
@@ -707,7 +710,7 @@ public class SearchCompiler {
         private static final Pattern ISO8601 = Pattern.compile("\\d+-\\d+-\\d+");
 
         public ValueComparison(String key, String referenceValue, int compareMode) {
-            this.key = key;
+            this.key = key.intern();
             this.referenceValue = referenceValue;
             Double v = null;
             try {
@@ -773,7 +776,7 @@ public class SearchCompiler {
         public ExactKeyValue(boolean regexp, String key, String value) throws ParseError {
             if ("".equals(key))
                 throw new ParseError(tr("Key cannot be empty when tag operator is used. Sample use: key=value"));
-            this.key = key;
+            this.key = key.intern();
             this.value = value == null ? "" : value;
             if ("".equals(this.value) && "*".equals(key)) {
                 mode = Mode.NONE;
@@ -1685,6 +1688,267 @@ public class SearchCompiler {
         }
     }
 
+    /**
+     * Optimizes a compiled search expression for being matched against many primitives.
+     * <p>
+     * Chains of {@link And} and {@link Or} are reordered so that cheap and decisive operands (e.g. type checks
+     * and tag lookups) are evaluated before expensive ones (e.g. regular expressions or geometry),
+     * constant operands are folded and double negations are removed. The returned match yields the same result
+     * for every primitive, but its string representation may differ from the original one.
+     * @param match the compiled search expression
+     * @return the optimized search expression
+     * @since 12608
+     */
+    public static Match optimize(Match match) {
+        if (match.getClass() == And.class || match.getClass() == Or.class) {
+            final boolean and = match instanceof And;
+            // the parser nests chains of the same operator on the right hand side, flatten them without recursion (see #14217)
+            List<Match> operands = new ArrayList<>();
+            Match m = match;
+            while (m.getClass() == match.getClass()) {
+                operands.add(optimize(((AbstractBinaryMatch) m).getLhs()));
+                m = ((AbstractBinaryMatch) m).getRhs();
+            }
+            operands.add(optimize(m));
+            // fold constant operands: Never decides an And, Always decides an Or
+            final Match neutral = and ? Always.INSTANCE : Never.INSTANCE;
+            final Match decisive = and ? Never.INSTANCE : Always.INSTANCE;
+            if (operands.stream().anyMatch(decisive.getClass()::isInstance)) {
+                return decisive;
+            }
+            operands.removeIf(neutral.getClass()::isInstance);
+            if (operands.isEmpty()) {
+                return neutral;
+            }
+            // evaluate first the operands which are cheap and likely to decide the result
+            Map<Match, Double> ranks = new IdentityHashMap<>();
+            for (Match o : operands) {
+                double selectivity = getEstimatedSelectivity(o);
+                ranks.put(o, (getEstimatedCost(o) + 1) / (and ? 1 - selectivity : selectivity));
+            }
+            operands.sort(Comparator.comparingDouble(ranks::get));
+            Match result = operands.get(operands.size() - 1);
+            for (int i = operands.size() - 2; i >= 0; i--) {
+                result = and ? new And(operands.get(i), result) : new Or(operands.get(i), result);
+            }
+            return result;
+        } else if (match.getClass() == Xor.class) {
+            return new Xor(optimize(((Xor) match).getLhs()), optimize(((Xor) match).getRhs()));
+        } else if (match.getClass() == Not.class) {
+            Match operand = optimize(((Not) match).getOperand());
+            if (operand.getClass() == Not.class) {
+                return ((Not) operand).getOperand();
+            } else if (operand instanceof Always) {
+                return Never.INSTANCE;
+            } else if (operand instanceof Never) {
+                return Always.INSTANCE;
+            }
+            return new Not(operand);
+        } else if (match.getClass() == Parent.class) {
+            return new Parent(optimize(((Parent) match).getOperand()));
+        } else if (match.getClass() == Child.class) {
+            return new Child(optimize(((Child) match).getOperand()));
+        }
+        return match;
+    }
+
+    /**
+     * Determines if the result of a search expression for a primitive may depend on other primitives,
+     * e.g. on its parents, children or on its position in a way or relation.
+     * <p>
+     * If not, the result only changes when the primitive itself is modified. Expressions depending on the
+     * geometry of nodes are not considered as depending on other primitives, nor are unknown criteria
+     * declared by plugins, which are assumed to depend on other primitives.
+     * @param match the search expression
+     * @return {@code true} if the result may depend on other primitives
+     * @since 12624
+     */
+    public static boolean dependsOnRelatives(Match match) {
+        if (match.getClass().isAnonymousClass() || match.getClass().getEnclosingClass() != SearchCompiler.class) {
+            return true;
+        } else if (match instanceof Not) {
+            return dependsOnRelatives(((Not) match).getOperand());
+        } else if (match instanceof AbstractBinaryMatch) {
+            return dependsOnRelatives(((AbstractBinaryMatch) match).getLhs())
+                || dependsOnRelatives(((AbstractBinaryMatch) match).getRhs());
+        }
+        return match instanceof Parent || match instanceof Child || match instanceof RoleMatch
+            || match instanceof Nth || match instanceof WayCountRange;
+    }
+
+    /**
+     * Returns the primitives of a data set which may match the given search expression.
+     * <p>
+     * If the expression requires some key or tag, the primitives having them are looked up in the tag index
+     * of the data set (see {@link DataSet#getPrimitivesWithKey} and {@link DataSet#getPrimitivesWithTag}).
+     * Otherwise, all primitives of the data set are returned.
+     * @param match the search expression
+     * @param ds the data set
+     * @return the primitives of the data set which may match, including deleted ones
+     * @since 12609
+     */
+    public static Collection<OsmPrimitive> getCandidates(Match match, DataSet ds) {
+        Collection<OsmPrimitive> candidates = getIndexedCandidates(match, ds);
+        return candidates != null ? candidates : ds.allPrimitives();
+    }
+
+    private static Collection<OsmPrimitive> getIndexedCandidates(Match m, DataSet ds) {
+        if (m instanceof ExactKeyValue) {
+            ExactKeyValue keyValue = (ExactKeyValue) m;
+            if (keyValue.mode == ExactKeyValue.Mode.EXACT) {
+                return ds.getPrimitivesWithTag(keyValue.key, keyValue.value);
+            } else if (keyValue.mode == ExactKeyValue.Mode.ANY_VALUE) {
+                return ds.getPrimitivesWithKey(keyValue.key);
+            }
+        } else if (m instanceof KeyValue) {
+            KeyValue keyValue = (KeyValue) m;
+            if (keyValue.keyPattern == null && keyValue.caseSensitive && !"timestamp".equals(keyValue.key)) {
+                return ds.getPrimitivesWithKey(keyValue.key);
+            }
+        } else if (m instanceof ValueComparison) {
+            return ds.getPrimitivesWithKey(((ValueComparison) m).key);
+        } else if (m instanceof BooleanMatch && !((BooleanMatch) m).defaultValue) {
+            return ds.getPrimitivesWithKey(((BooleanMatch) m).key);
+        } else if (m.getClass() == And.class) {
+            // every operand has to match, use the smallest set of candidates
+            Collection<OsmPrimitive> smallest = null;
+            Match operand = m;
+            while (operand != null) {
+                Collection<OsmPrimitive> candidates = getIndexedCandidates(
+                        operand.getClass() == And.class ? ((And) operand).getLhs() : operand, ds);
+                if (candidates != null && (smallest == null || candidates.size() < smallest.size())) {
+                    smallest = candidates;
+                }
+                operand = operand.getClass() == And.class ? ((And) operand).getRhs() : null;
+            }
+            return smallest;
+        } else if (m.getClass() == Or.class) {
+            // one operand has to match, all of them need to restrict the candidates
+            Collection<OsmPrimitive> union = Collections.newSetFromMap(new IdentityHashMap<>());
+            Match operand = m;
+            while (operand != null) {
+                Collection<OsmPrimitive> candidates = getIndexedCandidates(
+                        operand.getClass() == Or.class ? ((Or) operand).getLhs() : operand, ds);
+                if (candidates == null) {
+                    return null;
+                }
+                union.addAll(candidates);
+                operand = operand.getClass() == Or.class ? ((Or) operand).getRhs() : null;
+            }
+            return union;
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the relative cost of matching a single primitive.
+     * @param m the match
+     * @return the estimated cost, {@code 0} for checks of flags or the primitive type
+     */
+    private static int getEstimatedCost(Match m) {
+        if (m instanceof Always || m instanceof Never || m instanceof ExactType || m instanceof New
+                || m instanceof Modified || m instanceof Deleted || m instanceof Closed) {
+            return 0;
+        } else if (m instanceof Id || m instanceof ChangesetId || m instanceof Version || m instanceof Untagged
+                || m instanceof Incomplete) {
+            return 1;
+        } else if (m instanceof ExactKeyValue) {
+            switch (((ExactKeyValue) m).mode) {
+            case ANY_KEY:
+                return 3;
+            case ANY_KEY_REGEXP:
+            case ANY_VALUE_REGEXP:
+            case EXACT_REGEXP:
+            case MISSING_KEY_REGEXP:
+                return 5;
+            default:
+                return 2;
+            }
+        } else if (m instanceof BooleanMatch || m instanceof Selected || m instanceof UserMatch
+                || m instanceof TagCountRange || m instanceof TimestampRange) {
+            return 2;
+        } else if (m instanceof ValueComparison || m instanceof NodeCountRange || m instanceof HasRole) {
+            return 3;
+        } else if (m instanceof KeyValue) {
+            return ((KeyValue) m).keyPattern != null ? 5 : 3;
+        } else if (m instanceof Any) {
+            return ((Any) m).searchRegex != null ? 5 : 4;
+        } else if (m instanceof RoleMatch || m instanceof Nth || m instanceof WayCountRange) {
+            return 4;
+        } else if (m instanceof Not) {
+            return getEstimatedCost(((Not) m).getOperand());
+        } else if (m instanceof Parent || m instanceof Child) {
+            return 8 + getEstimatedCost(((UnaryMatch) m).getOperand());
+        } else if (m instanceof AbstractBinaryMatch) {
+            int cost = 0;
+            Match operand = m;
+            while (operand instanceof AbstractBinaryMatch) {
+                cost += getEstimatedCost(((AbstractBinaryMatch) operand).getLhs());
+                operand = ((AbstractBinaryMatch) operand).getRhs();
+            }
+            return cost + getEstimatedCost(operand);
+        } else if (m instanceof Preset) {
+            return 7;
+        }
+        // geometry, areas and unknown matches (e.g. from plugins)
+        return 6;
+    }
+
+    /**
+     * Estimates the fraction of primitives matched.
+     * @param m the match
+     * @return the estimated fraction of matched primitives, between {@code 0} and {@code 1}
+     */
+    private static double getEstimatedSelectivity(Match m) {
+        if (m instanceof ExactType) {
+            switch (((ExactType) m).type) {
+            case NODE:
+                return 0.85;
+            case WAY:
+                return 0.14;
+            default:
+                return 0.01;
+            }
+        } else if (m instanceof ExactKeyValue) {
+            switch (((ExactKeyValue) m).mode) {
+            case EXACT:
+            case EXACT_REGEXP:
+            case ANY_KEY:
+            case ANY_KEY_REGEXP:
+                return 0.05;
+            case ANY_VALUE:
+            case ANY_VALUE_REGEXP:
+                return 0.2;
+            case MISSING_KEY:
+            case MISSING_KEY_REGEXP:
+                return 0.8;
+            default:
+                return 0.5;
+            }
+        } else if (m instanceof KeyValue || m instanceof ValueComparison || m instanceof BooleanMatch || m instanceof Any
+                || m instanceof Id || m instanceof UserMatch || m instanceof Selected || m instanceof Closed) {
+            return 0.1;
+        } else if (m instanceof Untagged) {
+            return 0.8;
+        } else if (m instanceof Not) {
+            return 1 - getEstimatedSelectivity(((Not) m).getOperand());
+        } else if (m instanceof And || m instanceof Or) {
+            // assume independent operands
+            final boolean and = m instanceof And;
+            double selectivity = 1;
+            Match operand = m;
+            while (operand.getClass() == m.getClass()) {
+                double s = getEstimatedSelectivity(((AbstractBinaryMatch) operand).getLhs());
+                selectivity *= and ? s : 1 - s;
+                operand = ((AbstractBinaryMatch) operand).getRhs();
+            }
+            double s = getEstimatedSelectivity(operand);
+            selectivity *= and ? s : 1 - s;
+            return and ? selectivity : 1 - selectivity;
+        }
+        return 0.5;
+    }
+
     /**
      * Parse search string.
      *
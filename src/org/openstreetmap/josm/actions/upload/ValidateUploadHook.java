@@ -19,6 +19,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationRunner;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.dialogs.validator.ValidatorTreePanel;
@@ -54,22 +55,12 @@ public class ValidateUploadHook implements UploadHook {
         v.visit(apiDataSet.getPrimitivesToAdd());
         Collection<OsmPrimitive> selection = v.visit(apiDataSet.getPrimitivesToUpdate());
 
-        List<TestError> errors = new ArrayList<>(30);
         for (Test test : tests) {
             test.setBeforeUpload(true);
-            test.setPartialSelection(true);
-            test.startTest(null);
-            test.visit(selection);
-            test.endTest();
-            if (ValidatorPreference.PREF_OTHER.get() && ValidatorPreference.PREF_OTHER_UPLOAD.get()) {
-                errors.addAll(test.getErrors());
-            } else {
-                for (TestError e : test.getErrors()) {
-                    if (e.getSeverity() != Severity.OTHER) {
-                        errors.add(e);
-                    }
-                }
-            }
+        }
+        List<TestError> errors = new ValidationRunner().run(tests, selection, true, null);
+        if (!ValidatorPreference.PREF_OTHER.get() || !ValidatorPreference.PREF_OTHER_UPLOAD.get()) {
+            errors.removeIf(e -> e.getSeverity() == Severity.OTHER);
         }
         OsmDataLayer editLayer = Main.getLayerManager().getEditLayer();
         if (editLayer != null) {
@@ -2,13 +2,15 @@
 package org.openstreetmap.josm.command;
 
 import java.awt.GridBagLayout;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -130,8 +132,11 @@ public abstract class Command implements PseudoCommand {
         }
     }
 
-    /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
-    private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
+    /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state, values are null once compacted */
+    private Map<OsmPrimitive, PrimitiveData> cloneMap = Collections.emptyMap();
+
+    /** the compacted values of cloneMap, see {@link #compactUndoData()} */
+    private UndoDelta undoDelta;
 
     /** the layer which this command is applied to */
     private final OsmDataLayer layer;
@@ -188,6 +193,7 @@ public abstract class Command implements PseudoCommand {
             osm.accept(visitor);
         }
         cloneMap = visitor.orig;
+        undoDelta = null;
         return true;
     }
 
@@ -199,7 +205,8 @@ public abstract class Command implements PseudoCommand {
      * This implementation undoes all objects stored by a former call to executeCommand.
      */
     public void undoCommand() {
-        for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
+        Map<OsmPrimitive, PrimitiveData> orig = undoDelta != null ? undoDelta.decode(cloneMap.keySet()) : cloneMap;
+        for (Entry<OsmPrimitive, PrimitiveData> e : orig.entrySet()) {
             OsmPrimitive primitive = e.getKey();
             if (primitive.getDataSet() != null) {
                 e.getKey().load(e.getValue());
@@ -226,9 +233,64 @@ public abstract class Command implements PseudoCommand {
      * @return The original version of the requested object, if any
      */
     public PrimitiveData getOrig(OsmPrimitive osm) {
+        if (undoDelta != null && cloneMap.containsKey(osm)) {
+            return undoDelta.decode(cloneMap.keySet()).get(osm);
+        }
         return cloneMap.get(osm);
     }
 
+    /**
+     * Replaces the copies of the primitives kept for undo by the differences with their current state, which is
+     * much smaller when the command only changes some fields, like a tag. Called once the command has been executed.
+     * @since 12614
+     */
+    public void compactUndoData() {
+        compactUndoData(Collections.<OsmPrimitive>emptySet());
+    }
+
+    /**
+     * Replaces the copies of the primitives kept for undo by the differences with their current state.
+     * Commands executing other commands must override this method to compact the data of the other commands.
+     * @param changedLater the primitives changed after the execution of this command by the next commands of a
+     * sequence, whose current state is not the one after this command, and which must not be compacted
+     * @since 12614
+     */
+    protected void compactUndoData(Set<OsmPrimitive> changedLater) {
+        if (undoDelta == null && !cloneMap.isEmpty()) {
+            undoDelta = UndoDelta.encode(cloneMap, changedLater);
+            // keep the primitives, in a map sized for them
+            Map<OsmPrimitive, PrimitiveData> primitives = new LinkedHashMap<>(cloneMap.size() * 4 / 3 + 1);
+            for (OsmPrimitive p : cloneMap.keySet()) {
+                primitives.put(p, null);
+            }
+            cloneMap = primitives;
+        }
+    }
+
+    /**
+     * Returns the size of the compacted undo data kept in memory.
+     * @return the size in bytes of the compacted undo data kept in memory
+     * @see #compactUndoData()
+     * @since 12614
+     */
+    public long getUndoDataSize() {
+        return undoDelta != null ? undoDelta.getMemorySize() : 0;
+    }
+
+    /**
+     * Writes the compacted undo data to a file, and releases it from memory. It is read back on undo.
+     * Commands executing other commands must override this method to spill the data of the other commands.
+     * @param file the file
+     * @throws IOException if an I/O error occurs
+     * @see #compactUndoData()
+     * @since 12614
+     */
+    public void spillUndoData(UndoSpillFile file) throws IOException {
+        if (undoDelta != null) {
+            undoDelta.spill(file);
+        }
+    }
+
     /**
      * Replies the layer this command is (or was) applied to.
      * @return the layer this command is (or was) applied to
@@ -353,7 +415,7 @@ public abstract class Command implements PseudoCommand {
 
     @Override
     public int hashCode() {
-        return Objects.hash(cloneMap, layer, data);
+        return Objects.hash(cloneMap, undoDelta, layer, data);
     }
 
     @Override
@@ -362,6 +424,7 @@ public abstract class Command implements PseudoCommand {
         if (obj == null || getClass() != obj.getClass()) return false;
         Command command = (Command) obj;
         return Objects.equals(cloneMap, command.cloneMap) &&
+               Objects.equals(undoDelta, command.undoDelta) &&
                Objects.equals(layer, command.layer) &&
                Objects.equals(data, command.data);
     }
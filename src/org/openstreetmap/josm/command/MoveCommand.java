@@ -3,19 +3,27 @@ package org.openstreetmap.josm.command;
 
 import static org.openstreetmap.josm.tools.I18n.trn;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.swing.Icon;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.visitor.AllNodesVisitor;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.ImageProvider;
@@ -53,6 +61,11 @@ public class MoveCommand extends Command {
      */
     private final List<OldNodeState> oldState = new LinkedList<>();
 
+    /**
+     * The compacted old states of the objects, replacing {@link #oldState}, see {@link #compactUndoData()}.
+     */
+    private UndoDelta compactedState;
+
     /**
      * Constructs a new {@code MoveCommand} to move a primitive.
      * @param osm The primitive to move
@@ -208,6 +221,14 @@ public class MoveCommand extends Command {
     public boolean executeCommand() {
         ensurePrimitivesAreInDataset();
 
+        if (compactedState != null) {
+            // executed again after undo, the nodes are back in their old state
+            nodes = new HashSet<>(nodes);
+            for (Node n : nodes) {
+                oldState.add(new OldNodeState(n));
+            }
+            compactedState = null;
+        }
         for (Node n : nodes) {
             // in case #3892 happens again
             if (n == null)
@@ -225,6 +246,15 @@ public class MoveCommand extends Command {
     public void undoCommand() {
         ensurePrimitivesAreInDataset();
 
+        if (compactedState != null) {
+            for (Map.Entry<OsmPrimitive, PrimitiveData> e : compactedState.decode(nodes).entrySet()) {
+                NodeData data = (NodeData) e.getValue();
+                Node n = (Node) e.getKey();
+                n.setCoor(data.getCoor());
+                n.setModified(data.isModified());
+            }
+            return;
+        }
         Iterator<OldNodeState> it = oldState.iterator();
         for (Node n : nodes) {
             OldNodeState os = it.next();
@@ -233,6 +263,44 @@ public class MoveCommand extends Command {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The command can no longer be moved again once compacted, until it is executed again.
+     */
+    @Override
+    protected void compactUndoData(Set<OsmPrimitive> changedLater) {
+        super.compactUndoData(changedLater);
+        if (compactedState == null && !oldState.isEmpty()) {
+            List<Node> list = new ArrayList<>(nodes);
+            Map<OsmPrimitive, PrimitiveData> orig = new LinkedHashMap<>();
+            Iterator<OldNodeState> it = oldState.iterator();
+            for (Node n : nodes) {
+                OldNodeState os = it.next();
+                NodeData data = n.save();
+                data.setCoor(os.getLatLon());
+                data.setModified(os.isModified());
+                orig.put(n, data);
+            }
+            compactedState = UndoDelta.encode(orig, changedLater);
+            oldState.clear();
+            nodes = list;
+        }
+    }
+
+    @Override
+    public long getUndoDataSize() {
+        return super.getUndoDataSize() + (compactedState != null ? compactedState.getMemorySize() : 0);
+    }
+
+    @Override
+    public void spillUndoData(UndoSpillFile file) throws IOException {
+        super.spillUndoData(file);
+        if (compactedState != null) {
+            compactedState.spill(file);
+        }
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (OsmPrimitive osm : nodes) {
@@ -265,7 +333,7 @@ public class MoveCommand extends Command {
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), nodes, startEN, x, y, backupX, backupY, oldState);
+        return Objects.hash(super.hashCode(), nodes, startEN, x, y, backupX, backupY, oldState, compactedState);
     }
 
     @Override
@@ -280,6 +348,7 @@ public class MoveCommand extends Command {
                 Double.compare(that.backupY, backupY) == 0 &&
                 Objects.equals(nodes, that.nodes) &&
                 Objects.equals(startEN, that.startEN) &&
-                Objects.equals(oldState, that.oldState);
+                Objects.equals(oldState, that.oldState) &&
+                Objects.equals(compactedState, that.compactedState);
     }
 }
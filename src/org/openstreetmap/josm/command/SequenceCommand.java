@@ -3,10 +3,12 @@ package org.openstreetmap.josm.command;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.swing.Icon;
 
@@ -135,6 +137,34 @@ public class SequenceCommand extends Command {
         this.sequenceComplete = sequenceComplete;
     }
 
+    @Override
+    protected void compactUndoData(Set<OsmPrimitive> changedLater) {
+        super.compactUndoData(changedLater);
+        // the state of the primitives after a command is only known if the next commands do not change them
+        Set<OsmPrimitive> changed = new HashSet<>(changedLater);
+        for (int i = sequence.length - 1; i >= 0; i--) {
+            sequence[i].compactUndoData(changed);
+            changed.addAll(sequence[i].getParticipatingPrimitives());
+        }
+    }
+
+    @Override
+    public long getUndoDataSize() {
+        long size = super.getUndoDataSize();
+        for (Command c : sequence) {
+            size += c.getUndoDataSize();
+        }
+        return size;
+    }
+
+    @Override
+    public void spillUndoData(UndoSpillFile file) throws IOException {
+        super.spillUndoData(file);
+        for (Command c : sequence) {
+            c.spillUndoData(file);
+        }
+    }
+
     @Override
     public void invalidateAffectedLayers() {
         super.invalidateAffectedLayers();
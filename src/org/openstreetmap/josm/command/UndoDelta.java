@@ -0,0 +1,373 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+
+/**
+ * The undo data of a {@link Command}, encoded as the differences between the state of its primitives before and
+ * after its execution. Only the fields changed by the command are kept, so that for instance changing a tag of a way
+ * does not keep a copy of its nodes.
+ * <p>
+ * The original state is rebuilt from the current state of the primitives, so it must only be decoded when the
+ * primitives are in the state they had after the execution of the command, which is the case on undo.
+ * @since 12614
+ */
+final class UndoDelta {
+
+    private static final int KEYS = 1;
+    private static final int TIMESTAMP = 2;
+    private static final int USER = 4;
+    private static final int CHANGESET = 8;
+    private static final int VERSION = 16;
+    private static final int FLAGS = 32;
+    private static final int COOR = 64;
+    private static final int NODES = 128;
+    private static final int MEMBERS = 256;
+    private static final int ALL = 511;
+
+    private static final int FLAG_DELETED = 1;
+    private static final int FLAG_MODIFIED = 2;
+    private static final int FLAG_INCOMPLETE = 4;
+
+    private static final OsmPrimitiveType[] MEMBER_TYPES = {
+            OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+
+    /** The encoded differences, null once spilled */
+    private byte[] bytes;
+    private UndoSpillFile file;
+    private long offset;
+    private final int length;
+
+    private UndoDelta(byte[] bytes) {
+        this.bytes = bytes;
+        this.length = bytes.length;
+    }
+
+    /**
+     * Encodes the differences between the original state of primitives and their current state.
+     * @param orig the original state of the primitives
+     * @param changedLater the primitives changed after this command, by the next commands of a sequence, whose
+     * original state is kept completely since their current state is not the one after this command
+     * @return the encoded differences
+     */
+    static UndoDelta encode(Map<OsmPrimitive, PrimitiveData> orig, Set<OsmPrimitive> changedLater) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            for (Entry<OsmPrimitive, PrimitiveData> e : orig.entrySet()) {
+                writeDelta(out, e.getValue(), e.getKey(), changedLater.contains(e.getKey()));
+            }
+        } catch (IOException e) {
+            // not thrown by ByteArrayOutputStream
+            throw new JosmRuntimeException(e);
+        }
+        return new UndoDelta(buffer.toByteArray());
+    }
+
+    /**
+     * Rebuilds the original state of the primitives. The primitives must be in their state after the command.
+     * @param primitives the primitives, in the order of the map given to {@link #encode}
+     * @return the original state of the primitives
+     */
+    Map<OsmPrimitive, PrimitiveData> decode(Collection<? extends OsmPrimitive> primitives) {
+        Map<OsmPrimitive, PrimitiveData> orig = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(getBytes()))) {
+            for (OsmPrimitive p : primitives) {
+                orig.put(p, readDelta(in, p));
+            }
+        } catch (IOException e) {
+            throw new JosmRuntimeException(e);
+        }
+        return orig;
+    }
+
+    /**
+     * Returns the number of bytes kept in memory.
+     * @return the number of bytes kept in memory, 0 once spilled
+     */
+    int getMemorySize() {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    /**
+     * Writes the encoded differences to a file, and releases them from memory.
+     * @param spillFile the file
+     * @throws IOException if an I/O error occurs
+     */
+    void spill(UndoSpillFile spillFile) throws IOException {
+        if (bytes != null) {
+            offset = spillFile.write(bytes);
+            file = spillFile;
+            bytes = null;
+        }
+    }
+
+    private byte[] getBytes() throws IOException {
+        return bytes != null ? bytes : file.read(offset, length);
+    }
+
+    private static int flags(PrimitiveData data) {
+        return (data.isDeleted() ? FLAG_DELETED : 0) | (data.isModified() ? FLAG_MODIFIED : 0)
+                | (data.isIncomplete() ? FLAG_INCOMPLETE : 0);
+    }
+
+    private static int flags(OsmPrimitive p) {
+        return (p.isDeleted() ? FLAG_DELETED : 0) | (p.isModified() ? FLAG_MODIFIED : 0)
+                | (p.isIncomplete() ? FLAG_INCOMPLETE : 0);
+    }
+
+    private static boolean sameKeys(Map<String, String> a, Map<String, String> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        // the order of the tags is kept by undo
+        Iterator<Entry<String, String>> it = b.entrySet().iterator();
+        for (Entry<String, String> e : a.entrySet()) {
+            if (!e.equals(it.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameNodes(WayData orig, Way current) {
+        List<Long> nodes = orig.getNodes();
+        if (nodes.size() != current.getNodesCount()) {
+            return false;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) != current.getNodeId(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameMembers(RelationData orig, Relation current) {
+        List<RelationMemberData> members = orig.getMembers();
+        if (members.size() != current.getMembersCount()) {
+            return false;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            RelationMemberData m = members.get(i);
+            if (m.getMemberId() != current.getMemberId(i) || m.getMemberType() != current.getMemberType(i)
+                    || !m.getRole().equals(current.getRole(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int changes(PrimitiveData orig, OsmPrimitive current) {
+        int mask = 0;
+        if (!sameKeys(orig.getKeys(), current.getKeys())) {
+            mask |= KEYS;
+        }
+        if (orig.getRawTimestamp() != current.getRawTimestamp()) {
+            mask |= TIMESTAMP;
+        }
+        if (orig.getUser() != current.getUser()) {
+            mask |= USER;
+        }
+        if (orig.getChangesetId() != current.getChangesetId()) {
+            mask |= CHANGESET;
+        }
+        if (orig.getVersion() != current.getVersion()) {
+            mask |= VERSION;
+        }
+        if (flags(orig) != flags(current)) {
+            mask |= FLAGS;
+        }
+        if (orig instanceof NodeData && !Objects.equals(((NodeData) orig).getCoor(), ((Node) current).getCoor())) {
+            mask |= COOR;
+        } else if (orig instanceof WayData && !sameNodes((WayData) orig, (Way) current)) {
+            mask |= NODES;
+        } else if (orig instanceof RelationData && !sameMembers((RelationData) orig, (Relation) current)) {
+            mask |= MEMBERS;
+        }
+        return mask;
+    }
+
+    private static void writeDelta(DataOutputStream out, PrimitiveData orig, OsmPrimitive current, boolean full) throws IOException {
+        int mask = full ? ALL : changes(orig, current);
+        out.writeShort(mask);
+        if ((mask & KEYS) != 0) {
+            Map<String, String> keys = orig.getKeys();
+            out.writeInt(keys.size());
+            for (Entry<String, String> e : keys.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+        }
+        if ((mask & TIMESTAMP) != 0) {
+            out.writeInt(orig.getRawTimestamp());
+        }
+        if ((mask & USER) != 0) {
+            User user = orig.getUser();
+            out.writeBoolean(user != null);
+            if (user != null) {
+                out.writeLong(user.getId());
+                writeString(out, user.getName());
+            }
+        }
+        if ((mask & CHANGESET) != 0) {
+            out.writeInt(orig.getChangesetId());
+        }
+        if ((mask & VERSION) != 0) {
+            out.writeInt(orig.getVersion());
+        }
+        if ((mask & FLAGS) != 0) {
+            out.writeByte(flags(orig));
+        }
+        if ((mask & COOR) != 0 && orig instanceof NodeData) {
+            LatLon coor = ((NodeData) orig).getCoor();
+            out.writeBoolean(coor != null);
+            if (coor != null) {
+                out.writeDouble(coor.lat());
+                out.writeDouble(coor.lon());
+            }
+        }
+        if ((mask & NODES) != 0 && orig instanceof WayData) {
+            List<Long> nodes = ((WayData) orig).getNodes();
+            out.writeInt(nodes.size());
+            for (Long id : nodes) {
+                out.writeLong(id);
+            }
+        }
+        if ((mask & MEMBERS) != 0 && orig instanceof RelationData) {
+            List<RelationMemberData> members = ((RelationData) orig).getMembers();
+            out.writeInt(members.size());
+            for (RelationMemberData m : members) {
+                out.writeByte(m.getMemberType().ordinal());
+                out.writeLong(m.getMemberId());
+                writeString(out, m.getRole());
+            }
+        }
+    }
+
+    private static PrimitiveData readDelta(DataInputStream in, OsmPrimitive current) throws IOException {
+        PrimitiveData data = current.save();
+        int mask = in.readUnsignedShort();
+        if ((mask & KEYS) != 0) {
+            int count = in.readInt();
+            Map<String, String> keys = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                keys.put(readString(in), readString(in));
+            }
+            data.setKeys(keys.isEmpty() ? null : keys);
+        }
+        if ((mask & TIMESTAMP) != 0) {
+            data.setRawTimestamp(in.readInt());
+        }
+        if ((mask & USER) != 0) {
+            data.setUser(in.readBoolean() ? readUser(in.readLong(), readString(in)) : null);
+        }
+        if ((mask & CHANGESET) != 0) {
+            data.setChangesetId(in.readInt());
+        }
+        if ((mask & VERSION) != 0) {
+            data.setVersion(in.readInt());
+        }
+        if ((mask & FLAGS) != 0) {
+            int flags = in.readUnsignedByte();
+            // in this order, setDeleted changes the modified flag
+            data.setDeleted((flags & FLAG_DELETED) != 0);
+            data.setModified((flags & FLAG_MODIFIED) != 0);
+            data.setIncomplete((flags & FLAG_INCOMPLETE) != 0);
+        }
+        if ((mask & COOR) != 0 && data instanceof NodeData) {
+            ((NodeData) data).setCoor(in.readBoolean() ? new LatLon(in.readDouble(), in.readDouble()) : null);
+        }
+        if ((mask & NODES) != 0 && data instanceof WayData) {
+            int count = in.readInt();
+            List<Long> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nodes.add(in.readLong());
+            }
+            ((WayData) data).setNodes(nodes);
+        }
+        if ((mask & MEMBERS) != 0 && data instanceof RelationData) {
+            int count = in.readInt();
+            List<RelationMemberData> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                OsmPrimitiveType type = MEMBER_TYPES[in.readUnsignedByte()];
+                long id = in.readLong();
+                members.add(new RelationMemberData(readString(in), type, id));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    private static User readUser(long uid, String name) {
+        User user = User.getById(uid);
+        if (user == null) {
+            user = uid > 0 ? User.createOsmUser(uid, name) : User.createLocalUser(name);
+        }
+        return user;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(bytes), file, offset, length);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        UndoDelta that = (UndoDelta) obj;
+        return offset == that.offset &&
+                length == that.length &&
+                Arrays.equals(bytes, that.bytes) &&
+                Objects.equals(file, that.file);
+    }
+}
@@ -0,0 +1,87 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A temporary file where the undo data of old commands is written once the undo history exceeds its memory budget.
+ * The data is read back when the commands are undone. The file is deleted when closed, or when JOSM exits.
+ * It is only opened when data is written or read, which happens rarely.
+ * @see Command#spillUndoData(UndoSpillFile)
+ * @since 12614
+ */
+public final class UndoSpillFile implements Closeable {
+
+    private File file;
+    private long length;
+
+    /**
+     * Appends data to the file.
+     * @param data the data
+     * @return the offset of the data in the file
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized long write(byte[] data) throws IOException {
+        if (file == null) {
+            file = File.createTempFile("undo_", ".bin", Utils.getJosmTempDir());
+            file.deleteOnExit();
+        }
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(data);
+        }
+        long offset = length;
+        length += data.length;
+        return offset;
+    }
+
+    /**
+     * Reads data from the file.
+     * @param offset the offset of the data, as returned by {@link #write}
+     * @param length the length of the data
+     * @return the data
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized byte[] read(long offset, int length) throws IOException {
+        if (file == null) {
+            throw new IOException("Undo data has been discarded");
+        }
+        byte[] data = new byte[length];
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            f.seek(offset);
+            f.readFully(data);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the size of the file.
+     * @return the size of the file in bytes
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+    /**
+     * Deletes the file. It is created again if data is written afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (file != null) {
+            Utils.deleteFile(file);
+            file = null;
+            length = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UndoSpillFile [" + file + ']';
+    }
+}
@@ -4,19 +4,25 @@ package org.openstreetmap.josm.data;
 import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -31,7 +37,13 @@ import java.util.regex.Pattern;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
@@ -45,6 +57,7 @@ import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.OsmJournalWriter;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -55,6 +68,13 @@ import org.openstreetmap.josm.tools.Utils;
  *      PROP_INTERVAL seconds. When a data layer is closed normally, the corresponding
  *      files are removed. If this dir is non-empty on start, JOSM assumes
  *      that it crashed last time.
+ *
+ *      With PROP_JOURNAL (the default), each layer has a single journal file: a checkpoint
+ *      of the layer, followed by the changes made since, see {@link OsmJournalWriter}.
+ *      Only the changed primitives are written at each interval, and the journal is
+ *      rewritten from a new checkpoint when the changes exceed PROP_JOURNAL_COMPACTION
+ *      percent of the checkpoint. Otherwise the whole layer is written to a new .osm file
+ *      at each interval, keeping PROP_FILES_PER_LAYER files.
  *  - deleted layers dir: "secondary archive" - when autosaved layers are restored
  *      they are copied to this directory. We cannot keep them in the autosave folder,
  *      but just deleting it would be dangerous: Maybe a feature inside the file
@@ -65,19 +85,31 @@ import org.openstreetmap.josm.tools.Utils;
  *
  * @since  3378 (creation)
  * @since 10386 (new LayerChangeListener interface)
+ * @since 12613 (journal)
  */
 public class AutosaveTask extends TimerTask implements LayerChangeListener, Listener {
 
     private static final char[] ILLEGAL_CHARACTERS = {'/', '\n', '\r', '\t', '\0', '\f', '`', '?', '*', '\\', '<', '>', '|', '\"', ':'};
     private static final String AUTOSAVE_DIR = "autosave";
     private static final String DELETED_LAYERS_DIR = "autosave/deleted_layers";
+    private static final String JOURNAL_EXTENSION = "journal";
 
     /**
      * If autosave is enabled
      */
     public static final BooleanProperty PROP_AUTOSAVE_ENABLED = new BooleanProperty("autosave.enabled", true);
     /**
-     * The number of files to store per layer
+     * If the layers are saved as journals of their changes, instead of complete .osm files
+     * @since 12613
+     */
+    public static final BooleanProperty PROP_JOURNAL = new BooleanProperty("autosave.journal", true);
+    /**
+     * The size of the changes in a journal, in percent of the size of its checkpoint, above which the journal is rewritten
+     * @since 12613
+     */
+    public static final IntegerProperty PROP_JOURNAL_COMPACTION = new IntegerProperty("autosave.journal.compaction", 50);
+    /**
+     * The number of files to store per layer, if the layers are not saved as journals
      */
     public static final IntegerProperty PROP_FILES_PER_LAYER = new IntegerProperty("autosave.filesPerLayer", 1);
     /**
@@ -97,15 +129,58 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
 
-    protected static final class AutosaveLayerInfo {
+    protected static final class AutosaveLayerInfo implements Listener {
         private final OsmDataLayer layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
 
+        // journal state, changes are guarded by the lock of the changed set
+        private boolean journaled;
+        private final DataSetListenerAdapter journalAdapter = new DataSetListenerAdapter(this);
+        private final Set<OsmPrimitive> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<PrimitiveId> removed = new HashSet<>();
+        private boolean checkpointNeeded = true;
+        private File journalFile;
+        private long checkpointSize;
+        private long changesSize;
+        private UploadPolicy uploadPolicy;
+        private int dataSourcesCount;
+
         AutosaveLayerInfo(OsmDataLayer layer) {
             this.layer = layer;
         }
+
+        @Override
+        public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+            synchronized (changed) {
+                switch (event.getType()) {
+                case DATA_CHANGED:
+                    List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+                    if (events == null) {
+                        checkpointNeeded = true;
+                    } else {
+                        events.forEach(this::processDatasetEvent);
+                    }
+                    break;
+                case PRIMITIVES_REMOVED:
+                    for (OsmPrimitive p : event.getPrimitives()) {
+                        if (p.getDataSet() != event.getDataset()) {
+                            changed.remove(p);
+                            removed.add(new SimplePrimitiveId(p.getUniqueId(), p.getType()));
+                        } else if (p.isDeleted() || p.isIncomplete()) {
+                            changed.add(p);
+                        } else {
+                            // removed and added again, for instance when its id changed on upload: the old id is unknown
+                            checkpointNeeded = true;
+                        }
+                    }
+                    break;
+                default:
+                    changed.addAll(event.getPrimitives());
+                }
+            }
+        }
     }
 
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
@@ -187,11 +262,15 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     protected File getNewLayerFile(AutosaveLayerInfo layer, Date now, int startIndex) {
+        return getNewLayerFile(layer, now, startIndex, Main.pref.get("autosave.extension", "osm"));
+    }
+
+    private File getNewLayerFile(AutosaveLayerInfo layer, Date now, int startIndex, String extension) {
         int index = startIndex;
         while (true) {
             String filename = String.format("%1$s_%2$tY%2$tm%2$td_%2$tH%2$tM%2$tS%2$tL%3$s",
                     layer.layerFileName, now, index == 0 ? "" : ('_' + Integer.toString(index)));
-            File result = new File(autosaveDir, filename + '.' + Main.pref.get("autosave.extension", "osm"));
+            File result = new File(autosaveDir, filename + '.' + extension);
             try {
                 if (index > PROP_INDEX_LIMIT.get())
                     throw new IOException("index limit exceeded");
@@ -222,12 +301,26 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
+            // start a new journal named after the layer
+            info.journalFile = null;
         }
         if (changedDatasets.remove(info.layer.data)) {
-            File file = getNewLayerFile(info, new Date(), 0);
-            if (file != null) {
-                info.backupFiles.add(file);
-                new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+            if (info.journaled) {
+                try {
+                    saveJournal(info);
+                } catch (IOException e) {
+                    Main.error(e, tr("IOError while writing autosave journal: {0}", e.getMessage()));
+                    synchronized (info.changed) {
+                        info.checkpointNeeded = true;
+                    }
+                    changedDatasets.add(info.layer.data);
+                }
+            } else {
+                File file = getNewLayerFile(info, new Date(), 0);
+                if (file != null) {
+                    info.backupFiles.add(file);
+                    new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                }
             }
         }
         while (info.backupFiles.size() > PROP_FILES_PER_LAYER.get()) {
@@ -238,6 +331,112 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
+    private void saveJournal(AutosaveLayerInfo info) throws IOException {
+        boolean checkpoint;
+        synchronized (info.changed) {
+            checkpoint = info.journalFile == null || info.checkpointNeeded
+                    || info.changesSize * 100 > info.checkpointSize * PROP_JOURNAL_COMPACTION.get();
+        }
+        if (checkpoint) {
+            writeCheckpoint(info);
+        } else {
+            appendChanges(info);
+        }
+    }
+
+    /**
+     * Rewrites the journal of a layer from a new checkpoint. The checkpoint is written to a temporary file, which then
+     * replaces the journal, so that the previous journal is still complete if JOSM crashes meanwhile.
+     * @param info the layer
+     * @throws IOException if any I/O error occurs
+     */
+    private void writeCheckpoint(AutosaveLayerInfo info) throws IOException {
+        File file = info.journalFile;
+        if (file == null) {
+            file = getNewLayerFile(info, new Date(), 0, JOURNAL_EXTENSION);
+            if (file == null) {
+                throw new IOException(tr("Unable to create autosave journal"));
+            }
+            try {
+                writeCheckpoint(info, file);
+            } catch (IOException e) {
+                // do not leave an empty journal to recover
+                if (Utils.deleteFile(file)) {
+                    Utils.deleteFile(getPidFile(file));
+                }
+                throw e;
+            }
+            info.backupFiles.add(file);
+        } else {
+            writeCheckpoint(info, file);
+        }
+    }
+
+    private static void writeCheckpoint(AutosaveLayerInfo info, File file) throws IOException {
+        DataSet ds = info.layer.data;
+        DataSetSnapshot snapshot;
+        ds.getReadLock().lock();
+        try {
+            // the changes made after the snapshot go to the next batch
+            synchronized (info.changed) {
+                info.changed.clear();
+                info.removed.clear();
+                info.checkpointNeeded = false;
+            }
+            snapshot = ds.snapshot();
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            info.checkpointSize = new OsmJournalWriter(new BufferedOutputStream(out)).writeCheckpoint(snapshot);
+            out.getChannel().force(false);
+        } catch (IOException e) {
+            Utils.deleteFile(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Main.trace(e);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        info.journalFile = file;
+        info.changesSize = 0;
+        info.uploadPolicy = snapshot.getUploadPolicy();
+        info.dataSourcesCount = snapshot.getDataSources().size();
+    }
+
+    /**
+     * Appends the changes made since the last batch to the journal of a layer, as one batch.
+     * @param info the layer
+     * @throws IOException if any I/O error occurs
+     */
+    private static void appendChanges(AutosaveLayerInfo info) throws IOException {
+        DataSet ds = info.layer.data;
+        try (FileOutputStream out = new FileOutputStream(info.journalFile, true)) {
+            OsmJournalWriter writer = new OsmJournalWriter(out);
+            // encode the batch in memory under the lock, then write it without the lock
+            ds.getReadLock().lock();
+            try {
+                if (ds.getUploadPolicy() != info.uploadPolicy || ds.getDataSources().size() != info.dataSourcesCount) {
+                    info.uploadPolicy = ds.getUploadPolicy();
+                    info.dataSourcesCount = ds.getDataSources().size();
+                    writer.addHeader(ds.getVersion(), info.uploadPolicy, ds.getDataSources());
+                }
+                synchronized (info.changed) {
+                    writer.addChanges(info.changed, info.removed);
+                    info.changed.clear();
+                    info.removed.clear();
+                }
+            } finally {
+                ds.getReadLock().unlock();
+            }
+            info.changesSize += writer.endBatch();
+            out.getChannel().force(false);
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
@@ -271,7 +470,12 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     private void registerNewlayer(OsmDataLayer layer) {
         synchronized (layersLock) {
             layer.data.addDataSetListener(datasetAdapter);
-            layersInfo.add(new AutosaveLayerInfo(layer));
+            AutosaveLayerInfo info = new AutosaveLayerInfo(layer);
+            if (PROP_JOURNAL.get()) {
+                info.journaled = true;
+                layer.data.addDataSetListener(info.journalAdapter);
+            }
+            layersInfo.add(info);
         }
     }
 
@@ -294,6 +498,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                     if (info.layer == osmLayer) {
 
                         savelayer(info);
+                        osmLayer.data.removeDataSetListener(info.journalAdapter);
                         File lastFile = info.backupFiles.pollLast();
                         if (lastFile != null) {
                             moveToDeletedLayersFolder(lastFile);
@@ -321,13 +526,13 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     /**
-     * Replies the list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM.
+     * Replies the list of .osm and .journal files still present in autosave dir, that are not currently managed by another instance of JOSM.
      * These files are hence unsaved layers from an old instance of JOSM that crashed and may be recovered by this instance.
-     * @return The list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM
+     * @return The list of .osm and .journal files still present in autosave dir, that are not currently managed by another instance of JOSM
      */
     public List<File> getUnsavedLayersFiles() {
         List<File> result = new ArrayList<>();
-        File[] files = autosaveDir.listFiles(OsmImporter.FILE_FILTER);
+        File[] files = autosaveDir.listFiles(f -> OsmImporter.FILE_FILTER.accept(f) || f.getName().endsWith('.' + JOURNAL_EXTENSION));
         if (files == null)
             return result;
         for (File file: files) {
@@ -363,7 +568,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     /**
-     * Recover the unsaved layers and open them asynchronously.
+     * Recover the unsaved layers and open them asynchronously. The journals are replayed from their checkpoint.
      * @return A future that can be used to wait for the completion of this task.
      */
     public Future<?> recoverUnsavedLayers() {
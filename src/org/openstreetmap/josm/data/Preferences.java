@@ -1,7 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data;
 
-import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Color;
@@ -17,6 +16,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -35,6 +38,11 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -132,24 +140,51 @@ public class Preferences {
      */
     private File userdataDir;
 
+    /**
+     * The delay, in milliseconds, between a change of a setting and the save of the preferences file.
+     * All the changes done in the meantime are saved at once.
+     */
+    private static final long SAVE_DELAY = 1000;
+
+    /**
+     * The thread saving the preferences files, see {@link #putSetting}.
+     */
+    private static final ScheduledExecutorService SAVE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "preferences-writer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
     /**
      * Determines if preferences file is saved each time a property is changed.
      */
     private boolean saveOnPut = true;
 
+    /**
+     * The pending save of the preferences file, if any. Guarded by {@code this}.
+     */
+    private ScheduledFuture<?> pendingSave;
+
+    /**
+     * Lock held while the preferences files are written.
+     */
+    private final Object saveLock = new Object();
+
     /**
      * Maps the setting name to the current value of the setting.
      * The map must not contain null as key or value. The mapped setting objects
      * must not have a null value.
+     * The map is read without locking, changes are made while holding the monitor of this object.
      */
-    protected final SortedMap<String, Setting<?>> settingsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> settingsMap = new ConcurrentSkipListMap<>();
 
     /**
      * Maps the setting name to the default value of the setting.
      * The map must not contain null as key or value. The value of the mapped
      * setting objects can be null.
      */
-    protected final SortedMap<String, Setting<?>> defaultsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> defaultsMap = new ConcurrentSkipListMap<>();
 
     private final Predicate<Entry<String, Setting<?>>> NO_DEFAULT_SETTINGS_ENTRY =
             e -> !e.getValue().equals(defaultsMap.get(e.getKey()));
@@ -157,7 +192,7 @@ public class Preferences {
     /**
      * Maps color keys to human readable color name
      */
-    protected final SortedMap<String, String> colornames = new TreeMap<>();
+    protected final SortedMap<String, String> colornames = new ConcurrentSkipListMap<>();
 
     /**
      * Indicates whether {@link #init(boolean)} completed successfully.
@@ -465,7 +500,7 @@ public class Preferences {
      * @param key the identifier for the setting
      * @return "" if there is nothing set for the preference key, the corresponding value otherwise. The result is not null.
      */
-    public synchronized String get(final String key) {
+    public String get(final String key) {
         String value = get(key, null);
         return value == null ? "" : value;
     }
@@ -476,7 +511,7 @@ public class Preferences {
      * @param def the default value. For each call of get() with a given key, the default value must be the same.
      * @return the corresponding value if the property has been set before, {@code def} otherwise
      */
-    public synchronized String get(final String key, final String def) {
+    public String get(final String key, final String def) {
         return getSetting(key, new StringSetting(def), StringSetting.class).getValue();
     }
 
@@ -485,7 +520,7 @@ public class Preferences {
      * @param prefix The start of the key
      * @return The key names of the settings
      */
-    public synchronized Map<String, String> getAllPrefix(final String prefix) {
+    public Map<String, String> getAllPrefix(final String prefix) {
         final Map<String, String> all = new TreeMap<>();
         for (final Entry<String, Setting<?>> e : settingsMap.entrySet()) {
             if (e.getKey().startsWith(prefix) && (e.getValue() instanceof StringSetting)) {
@@ -500,7 +535,7 @@ public class Preferences {
      * @param prefix The start of the key
      * @return The key names of the list settings
      */
-    public synchronized List<String> getAllPrefixCollectionKeys(final String prefix) {
+    public List<String> getAllPrefixCollectionKeys(final String prefix) {
         final List<String> all = new LinkedList<>();
         for (Map.Entry<String, Setting<?>> entry : settingsMap.entrySet()) {
             if (entry.getKey().startsWith(prefix) && entry.getValue() instanceof ListSetting) {
@@ -514,7 +549,7 @@ public class Preferences {
      * Gets all known colors (preferences starting with the color prefix)
      * @return All colors
      */
-    public synchronized Map<String, String> getAllColors() {
+    public Map<String, String> getAllColors() {
         final Map<String, String> all = new TreeMap<>();
         for (final Entry<String, Setting<?>> e : defaultsMap.entrySet()) {
             if (e.getKey().startsWith(COLOR_PREFIX) && e.getValue() instanceof StringSetting) {
@@ -538,7 +573,7 @@ public class Preferences {
      * @return The boolean or <code>false</code> if it could not be parsed
      * @see IntegerProperty#get()
      */
-    public synchronized boolean getBoolean(final String key) {
+    public boolean getBoolean(final String key) {
         String s = get(key, null);
         return s != null && Boolean.parseBoolean(s);
     }
@@ -550,7 +585,7 @@ public class Preferences {
      * @return The boolean, <code>false</code> if it could not be parsed, the default value if it is unset
      * @see IntegerProperty#get()
      */
-    public synchronized boolean getBoolean(final String key, final boolean def) {
+    public boolean getBoolean(final String key, final boolean def) {
         return Boolean.parseBoolean(get(key, Boolean.toString(def)));
     }
 
@@ -561,7 +596,7 @@ public class Preferences {
      * @param def The default value
      * @return The boolean value or the default value if it could not be parsed
      */
-    public synchronized boolean getBoolean(final String key, final String specName, final boolean def) {
+    public boolean getBoolean(final String key, final String specName, final boolean def) {
         boolean generic = getBoolean(key, def);
         String skey = key+'.'+specName;
         Setting<?> prop = settingsMap.get(skey);
@@ -626,19 +661,75 @@ public class Preferences {
     }
 
     /**
-     * Called after every put. In case of a problem, do nothing but output the error in log.
+     * Saves the preferences file. Called after every put, in the background, see {@link #putSetting}.
      * @throws IOException if any I/O error occurs
      */
-    public synchronized void save() throws IOException {
-        save(getPreferenceFile(), settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+    public void save() throws IOException {
+        synchronized (saveLock) {
+            save(getPreferenceFile(), settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+        }
     }
 
     /**
      * Stores the defaults to the defaults file
      * @throws IOException If the file could not be saved
      */
-    public synchronized void saveDefaults() throws IOException {
-        save(getDefaultsCacheFile(), defaultsMap.entrySet().stream(), true);
+    public void saveDefaults() throws IOException {
+        synchronized (saveLock) {
+            save(getDefaultsCacheFile(), defaultsMap.entrySet().stream(), true);
+        }
+    }
+
+    /**
+     * Saves the preferences file now if changes are waiting to be saved in the background.
+     * Called when JOSM exits.
+     * @since 12615
+     */
+    public void flush() {
+        ScheduledFuture<?> save;
+        synchronized (this) {
+            save = pendingSave;
+            pendingSave = null;
+        }
+        if (save != null && save.cancel(false)) {
+            saveQuietly();
+        } else {
+            // wait for the end of a save in progress, the saves being run one after the other
+            try {
+                SAVE_EXECUTOR.submit(() -> { }).get();
+            } catch (InterruptedException e) {
+                Main.warn(e);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Main.error(e);
+            }
+        }
+    }
+
+    private synchronized void scheduleSave() {
+        if (pendingSave == null) {
+            pendingSave = SAVE_EXECUTOR.schedule(() -> {
+                synchronized (this) {
+                    pendingSave = null;
+                }
+                saveQuietly();
+            }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void cancelSave() {
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+            pendingSave = null;
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            Main.warn(e, tr("Failed to persist preferences to ''{0}''", getPreferenceFile().getAbsoluteFile()));
+        }
     }
 
     protected void save(File prefFile, Stream<Entry<String, Setting<?>>> settings, boolean defaults) throws IOException {
@@ -661,9 +752,14 @@ public class Preferences {
             writer.write(settings);
         }
 
-        File tmpFile = new File(prefFile + "_tmp");
-        Utils.copyFile(tmpFile, prefFile);
-        Utils.deleteFile(tmpFile, marktr("Unable to delete temporary file {0}"));
+        // Replace the file at once, so that it is never seen partially written
+        Path tmpFile = new File(prefFile + "_tmp").toPath();
+        try {
+            Files.move(tmpFile, prefFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Main.trace(e);
+            Files.move(tmpFile, prefFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
 
         setCorrectPermissions(prefFile);
         setCorrectPermissions(backupFile);
@@ -850,6 +946,7 @@ public class Preferences {
         preferencesDir = null;
         cacheDir = null;
         userdataDir = null;
+        cancelSave();
         saveOnPut = true;
         initSuccessful = false;
     }
@@ -872,12 +969,12 @@ public class Preferences {
      * @deprecated Use a {@link ColorProperty} instead.
      */
     @Deprecated
-    public synchronized Color getColor(String colName, Color def) {
+    public Color getColor(String colName, Color def) {
         return getColor(colName, null, def);
     }
 
     /* only for preferences */
-    public synchronized String getColorName(String o) {
+    public String getColorName(String o) {
         Matcher m = Pattern.compile("mappaint\\.(.+?)\\.(.+)").matcher(o);
         if (m.matches()) {
             return tr("Paint style {0}: {1}", tr(I18n.escape(m.group(1))), tr(I18n.escape(m.group(2))));
@@ -901,7 +998,7 @@ public class Preferences {
      * You can replace this by: <code>new ColorProperty(colName, def).getChildColor(specName)</code>
      */
     @Deprecated
-    public synchronized Color getColor(String colName, String specName, Color def) {
+    public Color getColor(String colName, String specName, Color def) {
         String colKey = ColorProperty.getColorKey(colName);
         registerColor(colKey, colName);
         String colStr = specName != null ? get(COLOR_PREFIX+specName) : "";
@@ -932,7 +1029,7 @@ public class Preferences {
      * @param colKey The color name
      * @return The color
      */
-    public synchronized Color getDefaultColor(String colKey) {
+    public Color getDefaultColor(String colKey) {
         StringSetting col = Utils.cast(defaultsMap.get(COLOR_PREFIX+colKey), StringSetting.class);
         String colStr = col == null ? null : col.getValue();
         return colStr == null || colStr.isEmpty() ? null : ColorHelper.html2color(colStr);
@@ -945,7 +1042,7 @@ public class Preferences {
      * @return true if the setting was modified
      * @see ColorProperty#put(Color)
      */
-    public synchronized boolean putColor(String colKey, Color val) {
+    public boolean putColor(String colKey, Color val) {
         return put(COLOR_PREFIX+colKey, val != null ? ColorHelper.color2html(val, true) : null);
     }
 
@@ -956,7 +1053,7 @@ public class Preferences {
      * @return The integer
      * @see IntegerProperty#get()
      */
-    public synchronized int getInteger(String key, int def) {
+    public int getInteger(String key, int def) {
         String v = get(key, Integer.toString(def));
         if (v.isEmpty())
             return def;
@@ -977,7 +1074,7 @@ public class Preferences {
      * @param def The default value
      * @return The integer value or the default value if it could not be parsed
      */
-    public synchronized int getInteger(String key, String specName, int def) {
+    public int getInteger(String key, String specName, int def) {
         String v = get(key+'.'+specName);
         if (v.isEmpty())
             v = get(key, Integer.toString(def));
@@ -1000,7 +1097,7 @@ public class Preferences {
      * @return The long value or the default value if it could not be parsed
      * @see LongProperty#get()
      */
-    public synchronized long getLong(String key, long def) {
+    public long getLong(String key, long def) {
         String v = get(key, Long.toString(def));
         if (null == v)
             return def;
@@ -1021,7 +1118,7 @@ public class Preferences {
      * @return The double value or the default value if it could not be parsed
      * @see LongProperty#get()
      */
-    public synchronized double getDouble(String key, double def) {
+    public double getDouble(String key, double def) {
         String v = get(key, Double.toString(def));
         if (null == v)
             return def;
@@ -1068,8 +1165,8 @@ public class Preferences {
     }
 
     /**
-     * Set a value for a certain setting. The changed setting is saved to the preference file immediately.
-     * Due to caching mechanisms on modern operating systems and hardware, this shouldn't be a performance problem.
+     * Set a value for a certain setting. The preference file is saved shortly after in the background, along with
+     * the other settings changed in the meantime. See {@link #flush()}.
      * @param key the unique identifier for the setting
      * @param setting the value of the setting. In case it is null, the key-value entry will be removed.
      * @return {@code true}, if something has changed (i.e. value is different than before)
@@ -1095,11 +1192,7 @@ public class Preferences {
                 settingsMap.put(key, settingCopy);
             }
             if (saveOnPut) {
-                try {
-                    save();
-                } catch (IOException e) {
-                    Main.warn(e, tr("Failed to persist preferences to ''{0}''", getPreferenceFile().getAbsoluteFile()));
-                }
+                scheduleSave();
             }
         }
         // Call outside of synchronized section in case some listener wait for other thread that wait for preference lock
@@ -1113,7 +1206,7 @@ public class Preferences {
      * @param def The default value to use if it was not found
      * @return The setting
      */
-    public synchronized Setting<?> getSetting(String key, Setting<?> def) {
+    public Setting<?> getSetting(String key, Setting<?> def) {
         return getSetting(key, def, Setting.class);
     }
 
@@ -1127,14 +1220,15 @@ public class Preferences {
      * @return the corresponding value if the property has been set before, {@code def} otherwise
      */
     @SuppressWarnings("unchecked")
-    public synchronized <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
+    public <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
         CheckParameterUtil.ensureParameterNotNull(key);
         CheckParameterUtil.ensureParameterNotNull(def);
         Setting<?> oldDef = defaultsMap.get(key);
         if (oldDef != null && oldDef.isNew() && oldDef.getValue() != null && def.getValue() != null && !def.equals(oldDef)) {
             Main.info("Defaults for " + key + " differ: " + def + " != " + defaultsMap.get(key));
         }
-        if (def.getValue() != null || oldDef == null) {
+        // the default is registered once per session, not at each call
+        if (oldDef == null || (def.getValue() != null && !(oldDef.isNew() && def.equals(oldDef)))) {
             Setting<?> defCopy = def.copy();
             defCopy.setTime(System.currentTimeMillis() / 1000);
             defCopy.setNew(true);
@@ -1184,7 +1278,7 @@ public class Preferences {
      * @return array value
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    public synchronized Collection<Collection<String>> getArray(String key, Collection<Collection<String>> def) {
+    public Collection<Collection<String>> getArray(String key, Collection<Collection<String>> def) {
         ListListSetting val = getSetting(key, ListListSetting.create(def), ListListSetting.class);
         return (Collection) val.getValue();
     }
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -8,6 +9,9 @@ import java.util.Optional;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.UndoSpillFile;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -23,9 +27,26 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
  * This is the global undo/redo handler for all {@link OsmDataLayer}s.
  * <p>
  * If you want to change a data layer, you can use {@link #add(Command)} to execute a command on it and make that command undoable.
+ * <p>
+ * Once the next command is executed, the undo data of a command is compacted to the changed fields of the primitives
+ * (see {@link Command#compactUndoData()}), and the data of the oldest commands is written to a temporary file when
+ * the history exceeds {@link #PROP_MEMORY_BUDGET}. The last command is not compacted, since it can still be changed,
+ * for instance when moving objects with the mouse.
  */
 public class UndoRedoHandler implements LayerChangeListener {
 
+    /**
+     * Determines if the undo data of the commands is compacted to the changed fields once executed.
+     * @since 12614
+     */
+    public static final BooleanProperty PROP_COMPACT = new BooleanProperty("undo.compact", true);
+    /**
+     * The memory budget of the compacted undo data in KiB, above which the data of the oldest commands is written
+     * to a temporary file. A negative value disables it.
+     * @since 12614
+     */
+    public static final IntegerProperty PROP_MEMORY_BUDGET = new IntegerProperty("undo.memory", 32 * 1024);
+
     /**
      * All commands that were made on the dataset. Don't write from outside!
      *
@@ -39,6 +60,10 @@ public class UndoRedoHandler implements LayerChangeListener {
 
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
 
+    private final UndoSpillFile spillFile = new UndoSpillFile();
+    /** The size of the undo data of {@link #commands} kept in memory */
+    private long undoDataSize;
+
     /**
      * Constructs a new {@code UndoRedoHandler}.
      */
@@ -61,15 +86,58 @@ public class UndoRedoHandler implements LayerChangeListener {
      */
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
+        compactLastCommand();
         c.executeCommand();
         commands.add(c);
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
         if (commands.size() > Main.pref.getInteger("undo.max", 1000)) {
-            commands.removeFirst();
+            undoDataSize -= commands.removeFirst().getUndoDataSize();
         }
         redoCommands.clear();
+        spillIfNeeded();
+    }
+
+    private void compactLastCommand() {
+        Command last = commands.peekLast();
+        if (last != null && PROP_COMPACT.get()) {
+            undoDataSize -= last.getUndoDataSize();
+            last.compactUndoData();
+            undoDataSize += last.getUndoDataSize();
+        }
+    }
+
+    /**
+     * Writes the undo data of the oldest commands to a temporary file until the data kept in memory is
+     * half of the memory budget, when it exceeds the budget.
+     */
+    private void spillIfNeeded() {
+        long budget = PROP_MEMORY_BUDGET.get() * 1024L;
+        if (budget < 0 || undoDataSize <= budget) {
+            return;
+        }
+        try {
+            for (Iterator<Command> it = commands.iterator(); it.hasNext() && undoDataSize > budget / 2;) {
+                Command c = it.next();
+                long size = c.getUndoDataSize();
+                if (size > 0) {
+                    c.spillUndoData(spillFile);
+                    undoDataSize -= size;
+                }
+            }
+        } catch (IOException e) {
+            Main.warn(e, "Unable to write the undo history to a temporary file");
+        }
+    }
+
+    /**
+     * Returns the size of the undo data of the commands kept in memory.
+     * @return the size in bytes of the undo data of the commands kept in memory
+     * @since 12614
+     */
+    public long getUndoDataSize() {
+        return undoDataSize;
     }
 
     /**
@@ -122,6 +190,7 @@ public class UndoRedoHandler implements LayerChangeListener {
         try {
             for (int i = 1; i <= num; ++i) {
                 final Command c = commands.removeLast();
+                undoDataSize -= c.getUndoDataSize();
                 c.undoCommand();
                 c.invalidateAffectedLayers();
                 redoCommands.addFirst(c);
@@ -158,6 +227,7 @@ public class UndoRedoHandler implements LayerChangeListener {
         Collection<? extends OsmPrimitive> oldSelection = ds.getSelected();
         for (int i = 0; i < num; ++i) {
             final Command c = redoCommands.removeFirst();
+            compactLastCommand();
             c.executeCommand();
             c.invalidateAffectedLayers();
             commands.add(c);
@@ -165,6 +235,7 @@ public class UndoRedoHandler implements LayerChangeListener {
                 break;
             }
         }
+        spillIfNeeded();
         fireCommandsChanged();
         fireIfSelectionChanged(ds, oldSelection);
     }
@@ -191,6 +262,8 @@ public class UndoRedoHandler implements LayerChangeListener {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        undoDataSize = 0;
+        spillFile.close();
         fireCommandsChanged();
     }
 
@@ -203,7 +276,9 @@ public class UndoRedoHandler implements LayerChangeListener {
             return;
         boolean changed = false;
         for (Iterator<Command> it = commands.iterator(); it.hasNext();) {
-            if (it.next().invalidBecauselayerRemoved(layer)) {
+            Command c = it.next();
+            if (c.invalidBecauselayerRemoved(layer)) {
+                undoDataSize -= c.getUndoDataSize();
                 it.remove();
                 changed = true;
             }
@@ -214,6 +289,9 @@ public class UndoRedoHandler implements LayerChangeListener {
                 changed = true;
             }
         }
+        if (commands.isEmpty() && redoCommands.isEmpty()) {
+            spillFile.close();
+        }
         if (changed) {
             fireCommandsChanged();
         }
@@ -10,6 +10,7 @@ import java.util.Date;
 import java.util.DoubleSummaryStatistics;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -21,6 +22,8 @@ import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.gpx.GpxTrack.GpxTrackChangeListener;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.ListeningCollection;
 
@@ -514,6 +517,32 @@ public class GpxData extends WithAttributes implements Data {
         }
     }
 
+    /**
+     * Computes the east/north coordinates of all way points at once, in parallel for large files,
+     * instead of projecting each point when it is first painted.
+     * @param projection the projection
+     * @since 12622
+     */
+    public void updateEastNorthCache(Projecting projection) {
+        List<WayPoint> points = new ArrayList<>(getWaypoints());
+        getTrackPoints().forEach(points::add);
+        for (GpxRoute route: getRoutes()) {
+            if (route.routePoints != null) {
+                points.addAll(route.routePoints);
+            }
+        }
+        double[] coordinates = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            coordinates[2 * i] = points.get(i).lat();
+            coordinates[2 * i + 1] = points.get(i).lon();
+        }
+        Projections.latlon2eastNorth(projection, coordinates);
+        Object cacheKey = projection.getCacheKey();
+        for (int i = 0; i < points.size(); i++) {
+            points.get(i).setEastNorthCache(coordinates[2 * i], coordinates[2 * i + 1], cacheKey);
+        }
+    }
+
     /**
      * Iterates over all track segments and then over all routes.
      */
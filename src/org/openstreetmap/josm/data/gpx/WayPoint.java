@@ -89,6 +89,18 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         this.north = Double.NaN;
     }
 
+    /**
+     * Sets the internal cache of east/north coordinates, see {@link GpxData#updateEastNorthCache}.
+     * @param east the east coordinate
+     * @param north the north coordinate
+     * @param cacheKey the cache key of the projection
+     */
+    void setEastNorthCache(double east, double north, Object cacheKey) {
+        this.east = east;
+        this.north = north;
+        this.eastNorthCacheKey = cacheKey;
+    }
+
     /**
      * Returns the waypoint coordinates.
      * @return the waypoint coordinates
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.geom.Area;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -16,9 +17,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -49,8 +52,11 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.projection.Projecting;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.tagging.ac.AutoCompletionManager;
 import org.openstreetmap.josm.tools.ListenerList;
@@ -152,10 +158,30 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      */
     private static final int MAX_EVENTS = 1000;
 
+    /**
+     * Whether nodes and ways are indexed in a {@link PackedRTree} instead of {@link QuadBuckets}.
+     * Off by default, since the primitives found in an area are returned in a different order.
+     */
+    private static final BooleanProperty PACKED_SPATIAL_INDEX = new BooleanProperty("dataset.spatial-index.packed", false);
+
+    /**
+     * Whether the nodes are kept compact, without caching their projected coordinates, which saves 16 bytes per node.
+     * Off by default, since painting then has to project every visible node again.
+     */
+    private static final BooleanProperty COMPACT_NODES = new BooleanProperty("dataset.nodes.compact", false);
+
     private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
+    private final NodeProjectionCache nodeProjectionCache = COMPACT_NODES.get() ? null : new NodeProjectionCache();
     private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives.foreignKey(new Storage.PrimitiveIdHash());
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
 
+    /**
+     * Inverted index of the tags, built on first use and kept up to date afterwards.
+     * Modified only while the write lock is held, or by the first reader needing it.
+     */
+    private volatile TagIndex tagIndex;
+    private final Object tagIndexLock = new Object();
+
     // provide means to highlight map elements that are not osm primitives
     private Collection<WaySegment> highlightedVirtualNodes = new LinkedList<>();
     private Collection<WaySegment> highlightedWaySegments = new LinkedList<>();
@@ -163,6 +189,10 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
 
     // Number of open calls to beginUpdate
     private int updateCount;
+    // Incremented on each modification, see getEpoch()
+    private final AtomicLong epoch = new AtomicLong();
+    // The last snapshot, reused until the next modification as long as it is in use
+    private volatile WeakReference<DataSetSnapshot> lastSnapshot = new WeakReference<>(null);
     // Events that occurred while dataset was locked but should be fired after write lock is released
     private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
 
@@ -198,6 +228,7 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      * Constructs a new {@code DataSet}.
      */
     public DataSet() {
+        super(PACKED_SPATIAL_INDEX.get());
         // Transparently register as projection change listener. No need to explicitly remove
         // the listener, projection change listeners are managed as WeakReferences.
         Main.addProjectionChangeListener(this);
@@ -275,12 +306,52 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     public synchronized boolean addDataSources(Collection<DataSource> sources) {
         boolean changed = dataSources.addAll(sources);
         if (changed) {
+            epoch.incrementAndGet();
             cachedDataSourceArea = null;
             cachedDataSourceBounds = null;
         }
         return changed;
     }
 
+    /**
+     * Returns the modification epoch of this data set. It changes whenever primitives, data sources, the version
+     * or the upload policy change.
+     * @return the modification epoch
+     * @since 12612
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Changes the modification epoch, for changes of primitives which are not notified to the listeners,
+     * so that {@link #snapshot()} does not return an outdated snapshot.
+     */
+    void incrementEpoch() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * Takes a snapshot of the contents of this data set, which can be read without locking the data set while
+     * it is modified. The read lock is held while the snapshot is taken, which is much faster than writing the data.
+     * Callers may get the same snapshot until the data set is modified.
+     * @return a snapshot of the contents of this data set
+     * @since 12612
+     */
+    public DataSetSnapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            DataSetSnapshot snapshot = lastSnapshot.get();
+            if (snapshot == null || !snapshot.isCurrent()) {
+                snapshot = new DataSetSnapshot(this, epoch.get());
+                lastSnapshot = new WeakReference<>(snapshot);
+            }
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Returns the lock used for reading.
      * @return the lock used for reading
@@ -348,6 +419,7 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      */
     public void setVersion(String version) {
         this.version = version;
+        epoch.incrementAndGet();
     }
 
     /**
@@ -391,6 +463,7 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      */
     public void setUploadPolicy(UploadPolicy uploadPolicy) {
         this.uploadPolicy = uploadPolicy;
+        epoch.incrementAndGet();
     }
 
     /**
@@ -447,6 +520,16 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         }
     }
 
+    @Override
+    public void searchNodes(BBox bbox, Consumer<? super Node> visitor) {
+        lock.readLock().lock();
+        try {
+            super.searchNodes(bbox, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Replies an unmodifiable collection of ways in this dataset
      *
@@ -466,6 +549,16 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         }
     }
 
+    @Override
+    public void searchWays(BBox bbox, Consumer<? super Way> visitor) {
+        lock.readLock().lock();
+        try {
+            super.searchWays(bbox, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Searches for relations in the given bounding box.
      * @param bbox the bounding box
@@ -536,6 +629,59 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         return getPrimitives(OsmPrimitive::isModified);
     }
 
+    private TagIndex getTagIndex() {
+        TagIndex index = tagIndex;
+        if (index == null) {
+            // several readers may hold the read lock, only one of them builds the index
+            synchronized (tagIndexLock) {
+                index = tagIndex;
+                if (index == null) {
+                    index = new TagIndex();
+                    for (OsmPrimitive primitive : allPrimitives) {
+                        index.add(primitive);
+                    }
+                    tagIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns all primitives having the given key, including deleted ones.
+     * <p>
+     * The first call builds an index of the tags of all primitives, which is kept up to date afterwards.
+     * @param key the key
+     * @return the primitives having the given key, in no particular order
+     * @since 12609
+     */
+    public List<OsmPrimitive> getPrimitivesWithKey(String key) {
+        lock.readLock().lock();
+        try {
+            return getTagIndex().get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all primitives having the given tag, including deleted ones.
+     * <p>
+     * The first call builds an index of the tags of all primitives, which is kept up to date afterwards.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the given tag, in no particular order
+     * @since 12609
+     */
+    public List<OsmPrimitive> getPrimitivesWithTag(String key, String value) {
+        lock.readLock().lock();
+        try {
+            return getTagIndex().get(key, value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Adds a primitive to the dataset.
      *
@@ -554,6 +700,9 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
             primitive.setDataset(this);
             primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reindexRelation to work properly)
             super.addPrimitive(primitive);
+            if (tagIndex != null) {
+                tagIndex.add(primitive);
+            }
             firePrimitivesAdded(Collections.singletonList(primitive), false);
         } finally {
             endUpdate();
@@ -589,6 +738,9 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         }
         super.removePrimitive(primitive);
         allPrimitives.remove(primitive);
+        if (tagIndex != null) {
+            tagIndex.remove(primitive, primitive.getKeys());
+        }
         primitive.setDataset(null);
     }
 
@@ -1162,6 +1314,7 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
             updateCount--;
             List<AbstractDatasetChangedEvent> eventsToFire = Collections.emptyList();
             if (updateCount == 0) {
+                indexPendingPrimitives();
                 eventsToFire = new ArrayList<>(cachedEvents);
                 cachedEvents.clear();
             }
@@ -1199,6 +1352,7 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     private void fireEvent(AbstractDatasetChangedEvent event) {
         if (updateCount == 0)
             throw new AssertionError("dataset events can be fired only when dataset is locked");
+        epoch.incrementAndGet();
         if (cachedEvents.size() < MAX_EVENTS) {
             cachedEvents.add(event);
         }
@@ -1213,6 +1367,9 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     }
 
     void fireTagsChanged(OsmPrimitive prim, Map<String, String> originalKeys) {
+        if (tagIndex != null) {
+            tagIndex.update(prim, originalKeys);
+        }
         fireEvent(new TagsChangedEvent(this, prim, originalKeys));
     }
 
@@ -1251,17 +1408,52 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      * changed.
      */
     public void invalidateEastNorthCache() {
-        if (Main.getProjection() == null) return; // sanity check
+        if (Main.getProjection() == null || nodeProjectionCache == null) return; // sanity check
+        beginUpdate();
+        try {
+            nodeProjectionCache.invalidate();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Computes the projected east/north coordinates of all nodes at once, in parallel for large data sets,
+     * instead of projecting each node when it is first painted.
+     *
+     * @param projection the projection
+     * @since 12622
+     */
+    public void updateEastNorthCache(Projecting projection) {
+        if (nodeProjectionCache == null) return;
         beginUpdate();
         try {
-            for (Node n: getNodes()) {
-                n.invalidateEastNorthCache();
+            List<Node> nodes = new ArrayList<>(getNodes().size());
+            for (Node n : getNodes()) {
+                if (n.isLatLonKnown()) {
+                    nodes.add(n);
+                }
+            }
+            double[] coordinates = new double[2 * nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                coordinates[2 * i] = nodes.get(i).lat();
+                coordinates[2 * i + 1] = nodes.get(i).lon();
             }
+            Projections.latlon2eastNorth(projection, coordinates);
+            nodeProjectionCache.update(nodes, projection, coordinates);
         } finally {
             endUpdate();
         }
     }
 
+    /**
+     * Returns the cache of the projected coordinates of the nodes.
+     * @return the cache of the projected coordinates, or {@code null} if the nodes are kept compact
+     */
+    NodeProjectionCache getNodeProjectionCache() {
+        return nodeProjectionCache;
+    }
+
     /**
      * Cleanups all deleted primitives (really delete them from the dataset).
      */
@@ -1297,6 +1489,11 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
             }
             super.clear();
             allPrimitives.clear();
+            if (nodeProjectionCache != null) {
+                nodeProjectionCache.clear();
+            }
+            tagIndex = null;
+            epoch.incrementAndGet();
         } finally {
             endUpdate();
         }
@@ -1350,7 +1547,11 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     /* --------------------------------------------------------------------------------- */
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
-        invalidateEastNorthCache();
+        if (newValue != null) {
+            updateEastNorthCache(newValue);
+        } else {
+            invalidateEastNorthCache();
+        }
     }
 
     /**
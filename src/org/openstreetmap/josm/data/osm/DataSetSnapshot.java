@@ -0,0 +1,285 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
+import org.openstreetmap.josm.data.projection.Projections;
+
+/**
+ * An immutable copy of the contents of a {@link DataSet} at a given time, see {@link DataSet#snapshot()}.
+ * <p>
+ * A snapshot can be read, for instance written to a file, without locking the data set, while the data set
+ * is modified. Taking a snapshot is much cheaper than writing the data: it does not copy the tags, which are
+ * stored in arrays that are replaced rather than modified when tags change, and so can be shared with the data set.
+ * <p>
+ * The primitives of a snapshot implement {@link INode}, {@link IWay} and {@link IRelation}. They must not be modified.
+ * @since 12612
+ */
+public final class DataSetSnapshot {
+
+    private final DataSet dataSet;
+    private final long epoch;
+    private final String version;
+    private final UploadPolicy uploadPolicy;
+    private final List<DataSource> dataSources;
+    private final List<INode> nodes = new ArrayList<>();
+    private final List<IWay> ways = new ArrayList<>();
+    private final List<IRelation> relations = new ArrayList<>();
+
+    /**
+     * Creates a snapshot. The data set must be locked.
+     * @param dataSet the data set
+     * @param epoch the modification epoch of the data set
+     */
+    DataSetSnapshot(DataSet dataSet, long epoch) {
+        this.dataSet = dataSet;
+        this.epoch = epoch;
+        this.version = dataSet.getVersion();
+        this.uploadPolicy = dataSet.getUploadPolicy();
+        synchronized (dataSet) {
+            this.dataSources = new ArrayList<>(dataSet.getDataSources());
+        }
+        for (OsmPrimitive p : dataSet.allPrimitives()) {
+            if (p instanceof Node) {
+                nodes.add(new NodeSnapshot((Node) p));
+            } else if (p instanceof Way) {
+                ways.add(new WaySnapshot((Way) p));
+            } else if (p instanceof Relation) {
+                relations.add(new RelationSnapshot((Relation) p));
+            }
+        }
+    }
+
+    /**
+     * Returns the modification epoch of the data set when this snapshot was taken.
+     * @return the modification epoch
+     * @see DataSet#getEpoch()
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Determines if the data set has not been modified since this snapshot was taken.
+     * @return {@code true} if this snapshot still reflects the contents of the data set
+     */
+    public boolean isCurrent() {
+        return dataSet.getEpoch() == epoch;
+    }
+
+    /**
+     * Returns the API version of the data set.
+     * @return the API version, can be null
+     * @see DataSet#getVersion()
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the upload policy of the data set.
+     * @return the upload policy
+     * @see DataSet#getUploadPolicy()
+     */
+    public UploadPolicy getUploadPolicy() {
+        return uploadPolicy;
+    }
+
+    /**
+     * Returns the data sources of the data set.
+     * @return the data sources
+     */
+    public List<DataSource> getDataSources() {
+        return Collections.unmodifiableList(dataSources);
+    }
+
+    /**
+     * Returns the nodes of the data set, in no particular order.
+     * @return the nodes
+     */
+    public List<INode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Returns the ways of the data set, in no particular order.
+     * @return the ways
+     */
+    public List<IWay> getWays() {
+        return Collections.unmodifiableList(ways);
+    }
+
+    /**
+     * Returns the relations of the data set, in no particular order.
+     * @return the relations
+     */
+    public List<IRelation> getRelations() {
+        return Collections.unmodifiableList(relations);
+    }
+
+    /**
+     * The state of a primitive, sharing the tags with the primitive.
+     */
+    private abstract static class PrimitiveSnapshot extends AbstractPrimitive {
+        PrimitiveSnapshot(OsmPrimitive p) {
+            id = p.id;
+            user = p.user;
+            version = p.version;
+            changesetId = p.changesetId;
+            timestamp = p.timestamp;
+            flags = p.flags;
+            keys = p.keys;
+        }
+
+        @Override
+        protected final void keysChangedImpl(Map<String, String> originalKeys) {
+            // Nothing to do
+        }
+    }
+
+    private static final class NodeSnapshot extends PrimitiveSnapshot implements INode {
+        private final double lat;
+        private final double lon;
+
+        NodeSnapshot(Node n) {
+            super(n);
+            lat = n.lat();
+            lon = n.lon();
+        }
+
+        @Override
+        public double lat() {
+            return lat;
+        }
+
+        @Override
+        public double lon() {
+            return lon;
+        }
+
+        @Override
+        public LatLon getCoor() {
+            return isLatLonKnown() ? new LatLon(lat, lon) : null;
+        }
+
+        @Override
+        public void setCoor(LatLon coor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public EastNorth getEastNorth() {
+            return Projections.project(getCoor());
+        }
+
+        @Override
+        public void setEastNorth(EastNorth eastNorth) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OsmPrimitiveType getType() {
+            return OsmPrimitiveType.NODE;
+        }
+
+        @Override
+        public void accept(PrimitiveVisitor visitor) {
+            visitor.visit(this);
+        }
+    }
+
+    private static final class WaySnapshot extends PrimitiveSnapshot implements IWay {
+        /** The node ids, copied since the ids of new nodes change on upload */
+        private final long[] nodeIds;
+
+        WaySnapshot(Way w) {
+            super(w);
+            nodeIds = new long[w.getNodesCount()];
+            for (int i = 0; i < nodeIds.length; i++) {
+                nodeIds[i] = w.getNodeId(i);
+            }
+        }
+
+        @Override
+        public int getNodesCount() {
+            return nodeIds.length;
+        }
+
+        @Override
+        public long getNodeId(int idx) {
+            return nodeIds[idx];
+        }
+
+        @Override
+        public boolean isClosed() {
+            return !isIncomplete() && nodeIds.length >= 3 && nodeIds[0] == nodeIds[nodeIds.length - 1];
+        }
+
+        @Override
+        public OsmPrimitiveType getType() {
+            return OsmPrimitiveType.WAY;
+        }
+
+        @Override
+        public void accept(PrimitiveVisitor visitor) {
+            visitor.visit(this);
+        }
+    }
+
+    private static final class RelationSnapshot extends PrimitiveSnapshot implements IRelation {
+        private final long[] memberIds;
+        private final OsmPrimitiveType[] memberTypes;
+        private final String[] roles;
+
+        RelationSnapshot(Relation r) {
+            super(r);
+            int count = r.getMembersCount();
+            memberIds = new long[count];
+            memberTypes = new OsmPrimitiveType[count];
+            roles = new String[count];
+            for (int i = 0; i < count; i++) {
+                memberIds[i] = r.getMemberId(i);
+                memberTypes[i] = r.getMemberType(i);
+                roles[i] = r.getRole(i);
+            }
+        }
+
+        @Override
+        public int getMembersCount() {
+            return memberIds.length;
+        }
+
+        @Override
+        public long getMemberId(int idx) {
+            return memberIds[idx];
+        }
+
+        @Override
+        public String getRole(int idx) {
+            return roles[idx];
+        }
+
+        @Override
+        public OsmPrimitiveType getMemberType(int idx) {
+            return memberTypes[idx];
+        }
+
+        @Override
+        public OsmPrimitiveType getType() {
+            return OsmPrimitiveType.RELATION;
+        }
+
+        @Override
+        public void accept(PrimitiveVisitor visitor) {
+            visitor.visit(this);
+        }
+    }
+}
@@ -76,6 +76,7 @@ public class FilterMatcher {
         private final Match match;
         private final boolean isDelete;
         private final boolean isInverted;
+        private final boolean dependsOnRelatives;
 
         FilterInfo(Filter filter) throws ParseError {
             if (filter.mode == SearchMode.remove || filter.mode == SearchMode.in_selection) {
@@ -85,8 +86,9 @@ public class FilterMatcher {
             }
 
             Match compiled = SearchCompiler.compile(filter);
-            this.match = filter.inverted ? new Not(compiled) : compiled;
+            this.match = SearchCompiler.optimize(filter.inverted ? new Not(compiled) : compiled);
             this.isInverted = filter.inverted;
+            this.dependsOnRelatives = SearchCompiler.dependsOnRelatives(compiled);
         }
     }
 
@@ -324,6 +326,19 @@ public class FilterMatcher {
         return test(disabledFilters, primitive, false);
     }
 
+    /**
+     * Determines if one of the filters in use may match a primitive depending on other primitives,
+     * e.g. with a <code>parent</code> or <code>child</code> expression. If so, a change of a primitive may change
+     * the filter state of any primitive it is connected to, and not only the one of its children.
+     * @return {@code true} if one of the filters in use may depend on other primitives
+     * @see SearchCompiler#dependsOnRelatives
+     * @since 12624
+     */
+    public boolean dependsOnRelatives() {
+        return disabledFilters.stream().anyMatch(fi -> fi.dependsOnRelatives)
+            || hiddenFilters.stream().anyMatch(fi -> fi.dependsOnRelatives);
+    }
+
     /**
      * Returns a new {@code FilterMatcher} containing the given filters.
      * @param filters filters to add to the resulting filter matcher
@@ -138,8 +138,10 @@ public class FilterModel {
     }
 
     /**
-     * Runs the filter on a list of primitives that are part of the edit data set.
-     * @param primitives The primitives
+     * Runs the filter on a list of primitives that are part of the edit data set, and on the primitives whose
+     * filter state depends on them.
+     * @param primitives The primitives, usually the ones that have been added or modified
+     * @see FilterWorker#executeFiltersIncrementally(Collection, FilterMatcher)
      */
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
         DataSet ds = Main.getLayerManager().getEditDataSet();
@@ -151,36 +153,26 @@ public class FilterModel {
 
         ds.beginUpdate();
         try {
-            for (int i = 0; i < 2; i++) {
-                for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
-                        continue;
-                    }
-
-                    if (i == 1 && !(primitive instanceof Node)) {
-                        continue;
-                    }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
-                    changed |= FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
+            changed = FilterWorker.executeFiltersIncrementally(primitives, filterMatcher, primitive -> {
+                if (primitive.isDisabled()) {
+                    disabledCount--;
+                }
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount--;
+                }
+                boolean primitiveChanged = FilterWorker.executeFilters(primitive, filterMatcher);
+                if (primitive.isDisabled()) {
+                    disabledCount++;
+                }
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount++;
+                }
 
-                    if (primitive.isSelected() && primitive.isDisabled()) {
-                        deselect.add(primitive);
-                    }
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
                 }
-            }
+                return primitiveChanged;
+            });
         } finally {
             ds.endUpdate();
         }
@@ -196,7 +188,7 @@ public class FilterModel {
     private static void updateMap() {
         OsmDataLayer editLayer = Main.getLayerManager().getEditLayer();
         if (editLayer != null) {
-            editLayer.invalidate();
+            editLayer.invalidateTileCache();
         }
     }
 
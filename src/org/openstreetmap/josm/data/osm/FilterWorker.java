@@ -2,11 +2,17 @@
 package org.openstreetmap.josm.data.osm;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 
 import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class for applying {@link Filter}s to {@link OsmPrimitive}s.
@@ -17,6 +23,11 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  */
 public final class FilterWorker {
 
+    /**
+     * The number of primitives evaluated by each task when the filters are applied in parallel.
+     */
+    private static final int PRIMITIVES_PER_TASK = 1024;
+
     private FilterWorker() {
         // Hide default constructor for utils classes
     }
@@ -36,6 +47,9 @@ public final class FilterWorker {
 
     /**
      * Apply the filters to the primitives of the data set.
+     * <p>
+     * Large collections are evaluated in parallel, the filter state of the primitives is then updated
+     * in the calling thread.
      *
      * @param all the collection of primitives for that the filter state should be updated
      * @param filterMatcher the FilterMatcher
@@ -51,24 +65,158 @@ public final class FilterWorker {
     }
 
     private static boolean doExecuteFilters(Collection<OsmPrimitive> all, FilterMatcher filterMatcher) {
-
+        OsmPrimitive[] primitives = all.toArray(new OsmPrimitive[0]);
         boolean changed = false;
+        if (primitives.length <= PRIMITIVES_PER_TASK) {
+            for (OsmPrimitive primitive: primitives) {
+                changed |= executeFilters(primitive, filterMatcher);
+            }
+        } else {
+            // The filter state cannot be changed by the worker threads, as it requires the write lock of the data set
+            FilterType[] hiddenTypes = new FilterType[primitives.length];
+            FilterType[] disabledTypes = new FilterType[primitives.length];
+            FilterPool.POOL.invoke(new FilterTask(filterMatcher, primitives, hiddenTypes, disabledTypes, 0, primitives.length));
+            for (int i = 0; i < primitives.length; i++) {
+                changed |= setFilterState(primitives[i], hiddenTypes[i], disabledTypes[i]);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Sets the filter state of a primitive.
+     * @return true, if the filter state of the primitive has changed, including whether it is filtered explicitly,
+     * which matters for the filter state of its children
+     */
+    private static boolean setFilterState(OsmPrimitive primitive, FilterType hiddenType, FilterType disabledType) {
+        boolean changed;
+        if (hiddenType != FilterType.NOT_FILTERED) {
+            boolean explicit = hiddenType == FilterType.EXPLICIT;
+            changed = primitive.getHiddenType() != explicit;
+            changed |= primitive.setDisabledState(true);
+            primitive.setHiddenType(explicit);
+        } else if (disabledType != FilterType.NOT_FILTERED) {
+            boolean explicit = disabledType == FilterType.EXPLICIT;
+            changed = primitive.getDisabledType() != explicit;
+            changed |= primitive.setDisabledState(false);
+            primitive.setDisabledType(explicit);
+        } else {
+            changed = primitive.unsetDisabledState();
+        }
+        return changed;
+    }
+
+    /**
+     * Holder of the thread pool used to apply the filters to many primitives, created when first needed.
+     */
+    private static final class FilterPool {
+        static final ForkJoinPool POOL = Utils.newForkJoinPool("filter.numberOfThreads", "filter-%d", Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Evaluates the filters for a range of primitives, splitting it in halves until the chunks are small enough.
+     */
+    private static final class FilterTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FilterMatcher filterMatcher;
+        private final transient OsmPrimitive[] primitives;
+        private final FilterType[] hiddenTypes;
+        private final FilterType[] disabledTypes;
+        private final int from;
+        private final int to;
+
+        FilterTask(FilterMatcher filterMatcher, OsmPrimitive[] primitives, FilterType[] hiddenTypes, FilterType[] disabledTypes,
+                int from, int to) {
+            this.filterMatcher = filterMatcher;
+            this.primitives = primitives;
+            this.hiddenTypes = hiddenTypes;
+            this.disabledTypes = disabledTypes;
+            this.from = from;
+            this.to = to;
+        }
 
-        for (OsmPrimitive primitive: all) {
-            FilterType hiddenType = filterMatcher.isHidden(primitive);
-            if (hiddenType != FilterType.NOT_FILTERED) {
-                changed |= primitive.setDisabledState(true);
-                primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
+        @Override
+        protected void compute() {
+            if (to - from <= PRIMITIVES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    hiddenTypes[i] = filterMatcher.isHidden(primitives[i]);
+                    if (hiddenTypes[i] == FilterType.NOT_FILTERED) {
+                        disabledTypes[i] = filterMatcher.isDisabled(primitives[i]);
+                    }
+                }
             } else {
-                FilterType disabledType = filterMatcher.isDisabled(primitive);
-                if (disabledType != FilterType.NOT_FILTERED) {
-                    changed |= primitive.setDisabledState(false);
-                    primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
-                } else {
-                    changed |= primitive.unsetDisabledState();
+                int middle = (from + to) >>> 1;
+                invokeAll(new FilterTask(filterMatcher, primitives, hiddenTypes, disabledTypes, from, middle),
+                          new FilterTask(filterMatcher, primitives, hiddenTypes, disabledTypes, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Apply the filters to primitives that have been added or modified, and to the primitives whose filter state
+     * depends on them: the member ways of modified relations and the nodes of modified ways, as well as the members
+     * of relations and the nodes of ways whose filter state has changed in the process.
+     * <p>
+     * If one of the filters may match a primitive depending on other primitives
+     * (see {@link FilterMatcher#dependsOnRelatives()}), all primitives connected to the modified ones are evaluated.
+     *
+     * @param primitives the added or modified primitives
+     * @param filterMatcher the FilterMatcher
+     * @return true, if the filter state (normal / disabled / hidden) of any primitive has changed in the process
+     * @since 12624
+     */
+    public static boolean executeFiltersIncrementally(Collection<? extends OsmPrimitive> primitives, FilterMatcher filterMatcher) {
+        return executeFiltersIncrementally(primitives, filterMatcher, primitive -> executeFilters(primitive, filterMatcher));
+    }
+
+    /**
+     * Apply the filters to primitives that have been added or modified, and to the primitives whose filter state
+     * depends on them, see {@link #executeFiltersIncrementally(Collection, FilterMatcher)}.
+     *
+     * @param primitives the added or modified primitives
+     * @param filterMatcher the FilterMatcher
+     * @param executor applies the filters to a single primitive, returns true if its filter state has changed
+     * @return true, if the filter state (normal / disabled / hidden) of any primitive has changed in the process
+     * @since 12624
+     */
+    public static boolean executeFiltersIncrementally(Collection<? extends OsmPrimitive> primitives, FilterMatcher filterMatcher,
+            Predicate<OsmPrimitive> executor) {
+        Set<OsmPrimitive> modified = new HashSet<>(filterMatcher.dependsOnRelatives()
+                ? FilterModel.getAffectedPrimitives(primitives) : primitives);
+        Set<Relation> relations = new LinkedHashSet<>();
+        Set<Way> ways = new LinkedHashSet<>();
+        Set<Node> nodes = new LinkedHashSet<>();
+        for (OsmPrimitive primitive : modified) {
+            if (primitive instanceof Relation) {
+                relations.add((Relation) primitive);
+            } else if (primitive instanceof Way) {
+                ways.add((Way) primitive);
+            } else if (primitive instanceof Node) {
+                nodes.add((Node) primitive);
+            }
+        }
+        boolean changed = false;
+        // first relations, then ways and nodes last; this is required to resolve dependencies
+        for (Relation relation : relations) {
+            changed |= executor.test(relation);
+            // only modified relations are evaluated, their members are evaluated anyway as they may not be multipolygons anymore
+            for (RelationMember member : relation.getMembers()) {
+                if (member.isWay()) {
+                    ways.add(member.getWay());
                 }
             }
         }
+        for (Way way : ways) {
+            boolean stateChanged = executor.test(way);
+            changed |= stateChanged;
+            if (stateChanged || modified.contains(way)) {
+                nodes.addAll(way.getNodes());
+            }
+        }
+        for (Node node : nodes) {
+            changed |= executor.test(node);
+        }
         return changed;
     }
 
@@ -81,7 +229,9 @@ public final class FilterWorker {
      * of the primitive has changed in the process
      */
     public static boolean executeFilters(OsmPrimitive primitive, FilterMatcher filterMatcher) {
-        return doExecuteFilters(Collections.singleton(primitive), filterMatcher);
+        FilterType hiddenType = filterMatcher.isHidden(primitive);
+        return setFilterState(primitive, hiddenType,
+                hiddenType == FilterType.NOT_FILTERED ? filterMatcher.isDisabled(primitive) : null);
     }
 
     /**
@@ -4,7 +4,6 @@ package org.openstreetmap.josm.data.osm;
 import java.awt.geom.Area;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Predicate;
@@ -32,15 +31,11 @@ public final class Node extends OsmPrimitive implements INode {
     private double lat = Double.NaN;
     private double lon = Double.NaN;
 
-    /*
-     * the cached projected coordinates
-     */
-    private double east = Double.NaN;
-    private double north = Double.NaN;
     /**
-     * The cache key to use for {@link #east} and {@link #north}.
+     * The slot of this node in the {@link NodeProjectionCache} of its data set, or -1.
+     * The projected coordinates are cached there rather than in every node.
      */
-    private Object eastNorthCacheKey;
+    int projectionCacheSlot = -1;
 
     /**
      * Determines if this node has valid coordinates.
@@ -103,15 +98,22 @@ public final class Node extends OsmPrimitive implements INode {
     public EastNorth getEastNorth(Projecting projection) {
         if (!isLatLonKnown()) return null;
 
-        if (Double.isNaN(east) || Double.isNaN(north) || !Objects.equals(projection.getCacheKey(), eastNorthCacheKey)) {
+        NodeProjectionCache cache = getProjectionCache();
+        EastNorth en = cache != null ? cache.get(this, projection) : null;
+        if (en == null) {
             // projected coordinates haven't been calculated yet,
             // so fill the cache of the projected node coordinates
-            EastNorth en = projection.latlon2eastNorth(this);
-            this.east = en.east();
-            this.north = en.north();
-            this.eastNorthCacheKey = projection.getCacheKey();
+            en = projection.latlon2eastNorth(this);
+            if (cache != null) {
+                cache.put(this, projection, en);
+            }
         }
-        return new EastNorth(east, north);
+        return en;
+    }
+
+    private NodeProjectionCache getProjectionCache() {
+        DataSet ds = getDataSet();
+        return ds != null ? ds.getNodeProjectionCache() : null;
     }
 
     /**
@@ -128,9 +130,11 @@ public final class Node extends OsmPrimitive implements INode {
             LatLon ll = Projections.inverseProject(eastNorth);
             this.lat = ll.lat();
             this.lon = ll.lon();
-            this.east = eastNorth.east();
-            this.north = eastNorth.north();
-            this.eastNorthCacheKey = Main.getProjection().getCacheKey();
+            invalidateEastNorthCache();
+            NodeProjectionCache cache = getProjectionCache();
+            if (cache != null) {
+                cache.put(this, Main.getProjection(), eastNorth);
+            }
         } else {
             this.lat = Double.NaN;
             this.lon = Double.NaN;
@@ -213,7 +217,17 @@ public final class Node extends OsmPrimitive implements INode {
 
     @Override
     void setDataset(DataSet dataSet) {
+        NodeProjectionCache oldCache = getProjectionCache();
         super.setDataset(dataSet);
+        NodeProjectionCache cache = getProjectionCache();
+        if (oldCache != cache) {
+            if (oldCache != null) {
+                oldCache.remove(this);
+            }
+            if (cache != null) {
+                cache.add(this);
+            }
+        }
         if (!isIncomplete() && isVisible() && !isLatLonKnown())
             throw new DataIntegrityProblemException("Complete node with null coordinates: " + toString());
     }
@@ -362,9 +376,10 @@ public final class Node extends OsmPrimitive implements INode {
      * next time.
      */
     public void invalidateEastNorthCache() {
-        this.east = Double.NaN;
-        this.north = Double.NaN;
-        this.eastNorthCacheKey = null;
+        NodeProjectionCache cache = getProjectionCache();
+        if (cache != null) {
+            cache.invalidate(this);
+        }
     }
 
     @Override
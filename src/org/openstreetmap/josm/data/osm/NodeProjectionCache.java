@@ -0,0 +1,215 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.Projection;
+
+/**
+ * The projected east/north coordinates of the nodes of a {@link DataSet}, kept in one array rather than in every node.
+ * <p>
+ * Each node of the data set owns a slot of the array. Only one projection is cached at a time: the main projection,
+ * or the one passed to {@link #update}. Nodes which are not part of a data set are projected on every use.
+ * <p>
+ * Reads are optimistic: slots and coordinates are only changed while holding the write lock, and a read which overlapped
+ * such a change is treated as a cache miss. So a reader cannot return the coordinates of a node which took over the slot
+ * of a removed node, and painting does not have to wait for other threads.
+ *
+ * @since 12601
+ */
+final class NodeProjectionCache {
+
+    /**
+     * The cached coordinates for one projection: east and north of each slot, {@code NaN} if not cached.
+     */
+    private static final class Table {
+        private final Object cacheKey;
+        private final double[] coordinates;
+
+        Table(Object cacheKey, int capacity) {
+            this(cacheKey, new double[2 * capacity]);
+            Arrays.fill(coordinates, Double.NaN);
+        }
+
+        Table(Object cacheKey, double[] coordinates) {
+            this.cacheKey = cacheKey;
+            this.coordinates = coordinates;
+        }
+
+        int capacity() {
+            return coordinates.length / 2;
+        }
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(null, DEFAULT_CAPACITY);
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int size;
+
+    /**
+     * Assigns a slot to a node which has been added to the data set.
+     * @param node the node
+     */
+    void add(Node node) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : size++;
+            Table t = table;
+            if (slot >= t.capacity()) {
+                double[] coordinates = Arrays.copyOf(t.coordinates, 2 * (t.capacity() + (t.capacity() >> 1)));
+                Arrays.fill(coordinates, t.coordinates.length, coordinates.length, Double.NaN);
+                table = new Table(t.cacheKey, coordinates);
+            }
+            node.projectionCacheSlot = slot;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Releases the slot of a node which has been removed from the data set.
+     * @param node the node
+     */
+    void remove(Node node) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = node.projectionCacheSlot;
+            if (slot < 0)
+                return;
+            node.projectionCacheSlot = -1;
+            clear(table, slot);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, Math.max(DEFAULT_CAPACITY, freeCount + (freeCount >> 1)));
+            }
+            freeSlots[freeCount++] = slot;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Releases all slots. The nodes of the data set must have been removed from it.
+     */
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(table.cacheKey, DEFAULT_CAPACITY);
+            freeSlots = new int[0];
+            freeCount = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the cached projected coordinates of a node.
+     * @param node the node
+     * @param projection the projection
+     * @return the cached coordinates, or {@code null} if they are not cached
+     */
+    EastNorth get(Node node, Projecting projection) {
+        long stamp = lock.tryOptimisticRead();
+        int slot = node.projectionCacheSlot;
+        Table t = table;
+        if (slot < 0 || slot >= t.capacity() || !Objects.equals(t.cacheKey, projection.getCacheKey()))
+            return null;
+        double east = t.coordinates[2 * slot];
+        double north = t.coordinates[2 * slot + 1];
+        if (!lock.validate(stamp) || Double.isNaN(east) || Double.isNaN(north))
+            return null;
+        return new EastNorth(east, north);
+    }
+
+    /**
+     * Caches the projected coordinates of a node. Coordinates of any other projection than the cached one are ignored,
+     * unless nothing is cached yet or it is the main projection.
+     * @param node the node
+     * @param projection the projection
+     * @param eastNorth the coordinates of the node in this projection
+     */
+    void put(Node node, Projecting projection, EastNorth eastNorth) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = node.projectionCacheSlot;
+            if (slot < 0)
+                return;
+            Table t = table;
+            Object cacheKey = projection.getCacheKey();
+            if (!Objects.equals(t.cacheKey, cacheKey)) {
+                Projection main = Main.getProjection();
+                if (t.cacheKey != null && (main == null || !Objects.equals(main.getCacheKey(), cacheKey)))
+                    return;
+                t = new Table(cacheKey, t.capacity());
+                table = t;
+            }
+            t.coordinates[2 * slot] = eastNorth.east();
+            t.coordinates[2 * slot + 1] = eastNorth.north();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forgets the cached coordinates of a node, e.g. because it has been moved.
+     * @param node the node
+     */
+    void invalidate(Node node) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = node.projectionCacheSlot;
+            if (slot >= 0) {
+                clear(table, slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forgets the cached coordinates of all nodes.
+     */
+    void invalidate() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(null, table.capacity());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the cache by the given coordinates.
+     * @param nodes the nodes, all of them with a slot in this cache
+     * @param projection the projection
+     * @param coordinates the east and north coordinates of the nodes, in the same order
+     */
+    void update(Iterable<Node> nodes, Projecting projection, double[] coordinates) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = new Table(projection.getCacheKey(), table.capacity());
+            int i = 0;
+            for (Node node : nodes) {
+                int slot = node.projectionCacheSlot;
+                t.coordinates[2 * slot] = coordinates[i++];
+                t.coordinates[2 * slot + 1] = coordinates[i++];
+            }
+            table = t;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static void clear(Table t, int slot) {
+        t.coordinates[2 * slot] = Double.NaN;
+        t.coordinates[2 * slot + 1] = Double.NaN;
+    }
+}
@@ -193,6 +193,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
      *--------*/
     public StyleCache mappaintStyle;
     private short mappaintCacheIdx;
+    private static volatile int mappaintLinkDepth = 1;
 
     /* This should not be called from outside. Fixing the UI to add relevant
        get/set functions calling this implicitely is preferred, so we can have
@@ -201,6 +202,46 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
         mappaintStyle = null;
     }
 
+    /**
+     * Clears the cached style of this primitive and of all primitives whose style may depend on the tags of this
+     * primitive, i.e. referrers and children up to the {@linkplain #setMappaintLinkDepth link depth} of the map styles.
+     * @since 12605
+     */
+    public void clearCachedStyleOfDependents() {
+        clearCachedStyle();
+        Set<OsmPrimitive> visited = new HashSet<>();
+        visited.add(this);
+        List<OsmPrimitive> level = Collections.singletonList(this);
+        for (int i = 0; i < mappaintLinkDepth && !level.isEmpty(); i++) {
+            List<OsmPrimitive> next = new ArrayList<>();
+            for (OsmPrimitive osm : level) {
+                if (dataSet != null) {
+                    next.addAll(osm.getReferrers());
+                }
+                if (osm instanceof Way) {
+                    next.addAll(((Way) osm).getNodes());
+                } else if (osm instanceof Relation) {
+                    next.addAll(((Relation) osm).getMemberPrimitivesList());
+                }
+            }
+            next.removeIf(osm -> !visited.add(osm));
+            for (OsmPrimitive osm : next) {
+                osm.clearCachedStyle();
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * Sets how many parent or child links the active map styles follow at most. When the tags of a primitive change,
+     * the cached styles of all primitives up to this distance are cleared.
+     * @param depth the link depth. Values below 1 are treated as 1, as styles always look at direct parents and children.
+     * @since 12605
+     */
+    public static void setMappaintLinkDepth(int depth) {
+        mappaintLinkDepth = Math.max(1, depth);
+    }
+
     /**
      * Returns mappaint cache index.
      * @return mappaint cache index
@@ -323,6 +364,9 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
         boolean locked = writeLock();
         try {
             super.setUser(user);
+            if (dataSet != null) {
+                dataSet.incrementEpoch();
+            }
         } finally {
             writeUnlock(locked);
         }
@@ -347,6 +391,22 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
         boolean locked = writeLock();
         try {
             super.setTimestamp(timestamp);
+            if (dataSet != null) {
+                dataSet.incrementEpoch();
+            }
+        } finally {
+            writeUnlock(locked);
+        }
+    }
+
+    @Override
+    public void setRawTimestamp(int timestamp) {
+        boolean locked = writeLock();
+        try {
+            super.setRawTimestamp(timestamp);
+            if (dataSet != null) {
+                dataSet.incrementEpoch();
+            }
         } finally {
             writeUnlock(locked);
         }
@@ -510,6 +570,9 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
         boolean locked = writeLock();
         try {
             super.setVisible(visible);
+            if (dataSet != null) {
+                dataSet.incrementEpoch();
+            }
             clearCachedStyle();
         } finally {
             writeUnlock(locked);
@@ -900,12 +963,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
 
     @Override
     protected void keysChangedImpl(Map<String, String> originalKeys) {
-        clearCachedStyle();
-        if (dataSet != null) {
-            for (OsmPrimitive ref : getReferrers()) {
-                ref.clearCachedStyle();
-            }
-        }
+        clearCachedStyleOfDependents();
         updateDirectionFlags();
         updateTagged();
         updateAnnotated();
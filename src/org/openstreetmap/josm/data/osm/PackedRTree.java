@@ -0,0 +1,413 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A static R-tree packed into flat arrays, built with the sort-tile-recursive (STR) algorithm.
+ * <p>
+ * The primitives and their bounding boxes are stored in leaf order, so that searches scan consecutive memory
+ * without looking at the primitives. Removed primitives are only marked as such. Added primitives are collected
+ * and, when a batch of modifications is {@linkplain #flush() finished}, either added to a small {@link QuadBuckets}
+ * or, if there are many changes, merged into a newly packed tree. Loading many primitives thus costs one bulk build
+ * instead of one insertion per primitive.
+ * <p>
+ * Note: bbox of primitives added to the tree has to stay the same. In case of coordinate change, primitive must
+ * be removed and re-added.
+ *
+ * This class is not thread safe, but concurrent searches are fine as long as the tree is not modified.
+ * @param <T> type of primitives
+ * @since 12610
+ */
+public class PackedRTree<T extends OsmPrimitive> extends AbstractCollection<T> implements SpatialIndex<T> {
+
+    /** Number of children of a tree node */
+    private static final int NODE_SIZE = 16;
+    /** Number of changes which are kept out of the packed tree in any case */
+    private static final int MIN_CHANGES = 1024;
+
+    /** The packed primitives in leaf order, {@code null} if removed */
+    private Object[] items = new Object[0];
+    /** The bboxes of the packed primitives: xmin, ymin, xmax, ymax */
+    private double[] itemBoxes = new double[0];
+    /** The bboxes of the tree nodes, level by level from the leaves up to the root */
+    private double[] nodeBoxes = new double[0];
+    /** The index of the first node of each level in {@link #nodeBoxes} */
+    private int[] levelStarts = new int[0];
+    /** The number of nodes of each level */
+    private int[] levelSizes = new int[0];
+    private int removedCount;
+
+    /** Primitives added since the last bulk build */
+    private final QuadBuckets<T> overlay = new QuadBuckets<>();
+    /** Primitives with an invalid bbox, which are never found by searches and do not count as changes */
+    private final Collection<T> invalidBBoxPrimitives = new LinkedHashSet<>();
+    /** Primitives added since the last flush */
+    private final List<T> pending = new ArrayList<>();
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code PackedRTree}.
+     */
+    public PackedRTree() {
+        // Nothing to do
+    }
+
+    /**
+     * Constructs a new {@code PackedRTree} by bulk loading the given primitives.
+     * @param primitives the primitives
+     */
+    public PackedRTree(Collection<? extends T> primitives) {
+        addAll(primitives);
+        flush();
+    }
+
+    private int getPackedCount() {
+        return items.length - removedCount;
+    }
+
+    @Override
+    public boolean add(T o) {
+        if (o.getBBox().isValid()) {
+            pending.add(o);
+            if (pending.size() > Math.max(MIN_CHANGES, getPackedCount())) {
+                // a bulk load is going on, keep the number of scanned pending primitives bounded
+                rebuild();
+            }
+        } else {
+            invalidBBoxPrimitives.add(o);
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof OsmPrimitive))
+            return false;
+        int i = indexOf((OsmPrimitive) o);
+        if (i >= 0) {
+            removeItem(i);
+            return true;
+        } else if (overlay.remove(o) || invalidBBoxPrimitives.remove(o)) {
+            size--;
+            return true;
+        }
+        // recently added primitives are the most likely to be removed again
+        for (int j = pending.size() - 1; j >= 0; j--) {
+            if (pending.get(j).equals(o)) {
+                pending.remove(j);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeItem(int i) {
+        items[i] = null;
+        removedCount++;
+        size--;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof OsmPrimitive && (indexOf((OsmPrimitive) o) >= 0 || overlay.contains(o)
+                || invalidBBoxPrimitives.contains(o) || pending.contains(o));
+    }
+
+    @Override
+    public void clear() {
+        items = new Object[0];
+        itemBoxes = new double[0];
+        nodeBoxes = new double[0];
+        levelStarts = new int[0];
+        levelSizes = new int[0];
+        removedCount = 0;
+        overlay.clear();
+        invalidBBoxPrimitives.clear();
+        pending.clear();
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void flush() {
+        int changes = pending.size() + overlay.size() + removedCount;
+        if (changes > MIN_CHANGES && changes > getPackedCount() / 4) {
+            rebuild();
+        } else if (!pending.isEmpty()) {
+            overlay.addAll(pending);
+            pending.clear();
+        }
+    }
+
+    @Override
+    public List<T> search(BBox searchBbox) {
+        List<T> ret = new ArrayList<>();
+        search(searchBbox, ret::add);
+        return ret;
+    }
+
+    @Override
+    public void search(BBox searchBbox, Consumer<? super T> visitor) {
+        if (!searchBbox.isValid()) {
+            return;
+        }
+        int root = levelSizes.length - 1;
+        if (root >= 0 && intersects(nodeBoxes, levelStarts[root], searchBbox)) {
+            search(root, 0, searchBbox, visitor);
+        }
+        overlay.search(searchBbox, visitor);
+        for (T o : pending) {
+            if (o.getBBox().intersects(searchBbox)) {
+                visitor.accept(o);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(int level, int node, BBox searchBbox, Consumer<? super T> visitor) {
+        int first = node * NODE_SIZE;
+        if (level == 0) {
+            int end = Math.min(first + NODE_SIZE, items.length);
+            for (int i = first; i < end; i++) {
+                if (intersects(itemBoxes, i, searchBbox) && items[i] != null) {
+                    visitor.accept((T) items[i]);
+                }
+            }
+        } else {
+            int start = levelStarts[level - 1];
+            int end = Math.min(first + NODE_SIZE, levelSizes[level - 1]);
+            for (int child = first; child < end; child++) {
+                if (intersects(nodeBoxes, start + child, searchBbox)) {
+                    search(level - 1, child, searchBbox, visitor);
+                }
+            }
+        }
+    }
+
+    private static boolean intersects(double[] boxes, int i, BBox b) {
+        return boxes[4 * i] <= b.xmax && boxes[4 * i + 2] >= b.xmin
+            && boxes[4 * i + 1] <= b.ymax && boxes[4 * i + 3] >= b.ymin;
+    }
+
+    /**
+     * Finds a primitive in the packed tree.
+     * @param o the primitive
+     * @return the index of the primitive in {@link #items}, or {@code -1}
+     */
+    private int indexOf(OsmPrimitive o) {
+        BBox bbox = o.getBBox();
+        int root = levelSizes.length - 1;
+        if (root < 0 || !bbox.isValid() || !intersects(nodeBoxes, levelStarts[root], bbox)) {
+            return -1;
+        }
+        return indexOf(root, 0, o, bbox);
+    }
+
+    private int indexOf(int level, int node, OsmPrimitive o, BBox bbox) {
+        int first = node * NODE_SIZE;
+        if (level == 0) {
+            int end = Math.min(first + NODE_SIZE, items.length);
+            for (int i = first; i < end; i++) {
+                if (items[i] != null && intersects(itemBoxes, i, bbox) && items[i].equals(o)) {
+                    return i;
+                }
+            }
+        } else {
+            int start = levelStarts[level - 1];
+            int end = Math.min(first + NODE_SIZE, levelSizes[level - 1]);
+            for (int child = first; child < end; child++) {
+                if (intersects(nodeBoxes, start + child, bbox)) {
+                    int i = indexOf(level - 1, child, o, bbox);
+                    if (i >= 0) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Packs all primitives with a valid bbox into a new tree.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        List<T> primitives = new ArrayList<>(getPackedCount() + overlay.size() + pending.size());
+        for (Object o : items) {
+            if (o != null) {
+                primitives.add((T) o);
+            }
+        }
+        primitives.addAll(overlay);
+        primitives.addAll(pending);
+        overlay.clear();
+        pending.clear();
+        removedCount = 0;
+        pack(primitives);
+    }
+
+    private void pack(List<T> primitives) {
+        final int n = primitives.size();
+        double[] boxes = new double[4 * n];
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            BBox b = primitives.get(i).getBBox();
+            boxes[4 * i] = b.xmin;
+            boxes[4 * i + 1] = b.ymin;
+            boxes[4 * i + 2] = b.xmax;
+            boxes[4 * i + 3] = b.ymax;
+            keys[i] = sortKey((b.xmin + b.xmax) / 2, i);
+        }
+        // sort-tile-recursive: sort by x, cut into vertical slices of about sqrt(leaves) leaves, sort the slices by y
+        int leafCount = (n + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_SIZE;
+        Arrays.sort(keys);
+        for (int start = 0; start < n; start += sliceSize) {
+            int end = Math.min(n, start + sliceSize);
+            for (int j = start; j < end; j++) {
+                int i = (int) keys[j];
+                keys[j] = sortKey((boxes[4 * i + 1] + boxes[4 * i + 3]) / 2, i);
+            }
+            Arrays.sort(keys, start, end);
+        }
+        items = new Object[n];
+        itemBoxes = new double[4 * n];
+        for (int j = 0; j < n; j++) {
+            int i = (int) keys[j];
+            items[j] = primitives.get(i);
+            System.arraycopy(boxes, 4 * i, itemBoxes, 4 * j, 4);
+        }
+
+        // the tree nodes, level by level
+        int levels = 0;
+        int total = 0;
+        for (int count = n; count > 1 || (levels == 0 && count == 1); levels++) {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            total += count;
+        }
+        levelStarts = new int[levels];
+        levelSizes = new int[levels];
+        nodeBoxes = new double[4 * total];
+        double[] children = itemBoxes;
+        int childStart = 0;
+        int childCount = n;
+        int start = 0;
+        for (int level = 0; level < levels; level++) {
+            int count = (childCount + NODE_SIZE - 1) / NODE_SIZE;
+            levelStarts[level] = start;
+            levelSizes[level] = count;
+            for (int node = 0; node < count; node++) {
+                double xmin = Double.POSITIVE_INFINITY;
+                double ymin = Double.POSITIVE_INFINITY;
+                double xmax = Double.NEGATIVE_INFINITY;
+                double ymax = Double.NEGATIVE_INFINITY;
+                for (int c = childStart + node * NODE_SIZE; c < childStart + Math.min(childCount, (node + 1) * NODE_SIZE); c++) {
+                    xmin = Math.min(xmin, children[4 * c]);
+                    ymin = Math.min(ymin, children[4 * c + 1]);
+                    xmax = Math.max(xmax, children[4 * c + 2]);
+                    ymax = Math.max(ymax, children[4 * c + 3]);
+                }
+                int b = 4 * (start + node);
+                nodeBoxes[b] = xmin;
+                nodeBoxes[b + 1] = ymin;
+                nodeBoxes[b + 2] = xmax;
+                nodeBoxes[b + 3] = ymax;
+            }
+            children = nodeBoxes;
+            childStart = start;
+            childCount = count;
+            start += count;
+        }
+    }
+
+    /**
+     * Returns a key sorting by the given coordinate, then by index, which can be extracted with a cast to {@code int}.
+     * @param coordinate the coordinate
+     * @param index the index
+     * @return the sort key
+     */
+    private static long sortKey(double coordinate, int index) {
+        // the float bits of the coordinate, turned into an int with the same order
+        int bits = Float.floatToIntBits((float) coordinate);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (index & 0xffffffffL);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PackedRTreeIterator();
+    }
+
+    private final class PackedRTreeIterator implements Iterator<T> {
+        private int next = -1;
+        private int last = -1;
+        private final Iterator<T> overlayIterator = overlay.iterator();
+        private final Iterator<T> pendingIterator = pending.iterator();
+        private final Iterator<T> invalidBBoxIterator = invalidBBoxPrimitives.iterator();
+        private Iterator<T> lastIterator;
+
+        PackedRTreeIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < items.length && items[next] == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < items.length || overlayIterator.hasNext() || pendingIterator.hasNext() || invalidBBoxIterator.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next < items.length) {
+                last = next;
+                lastIterator = null;
+                advance();
+                return (T) items[last];
+            }
+            if (overlayIterator.hasNext()) {
+                lastIterator = overlayIterator;
+            } else if (pendingIterator.hasNext()) {
+                lastIterator = pendingIterator;
+            } else {
+                lastIterator = invalidBBoxIterator;
+            }
+            if (!lastIterator.hasNext())
+                throw new NoSuchElementException();
+            return lastIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastIterator != null) {
+                lastIterator.remove();
+                lastIterator = null;
+                size--;
+            } else if (last >= 0 && items[last] != null) {
+                removeItem(last);
+                last = -1;
+            } else
+                throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A memory-compact map from {@link PrimitiveId} to arbitrary values.
+ * <p>
+ * The ids are not kept as objects but inlined into parallel primitive arrays (open addressing with linear probing),
+ * so one entry costs about 20 bytes instead of the ~70 bytes of a {@link java.util.HashMap} entry with
+ * its {@link SimplePrimitiveId} key. This matters when millions of primitives are indexed, e.g. by the readers
+ * that need to resolve external ids while a large file is loaded.
+ * <p>
+ * <code>null</code> values are not supported. Iterators are fail-fast but do not support removal.
+ * This class does not do any synchronization.
+ *
+ * @param <V> type of stored values
+ * @since 12601
+ */
+public class PrimitiveIdMap<V> extends AbstractMap<PrimitiveId, V> {
+
+    private static final double LOAD_FACTOR = 0.6d;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final OsmPrimitiveType[] TYPES = OsmPrimitiveType.values();
+
+    private long[] ids;
+    private byte[] types;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int modCount;
+
+    /**
+     * Constructs a new {@code PrimitiveIdMap} with default capacity (16).
+     */
+    public PrimitiveIdMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code PrimitiveIdMap} able to hold the given number of entries without resizing.
+     * @param capacity expected number of entries
+     */
+    public PrimitiveIdMap(int capacity) {
+        allocate(tableSize(capacity));
+    }
+
+    private static int tableSize(int capacity) {
+        int cap = DEFAULT_CAPACITY;
+        while (cap * LOAD_FACTOR < capacity) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private void allocate(int cap) {
+        ids = new long[cap];
+        types = new byte[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+    }
+
+    private static int hash(long id, int type) {
+        long h = (id ^ ((long) type << 61)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int findSlot(long id, int type) {
+        int i = hash(id, type) & mask;
+        while (values[i] != null) {
+            if (ids[i] == id && types[i] == type) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findSlot(Object key) {
+        if (!(key instanceof PrimitiveId)) {
+            return -1;
+        }
+        PrimitiveId id = (PrimitiveId) key;
+        return findSlot(id.getUniqueId(), id.getType().ordinal());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Returns the value mapped to the given primitive id without requiring a {@link PrimitiveId} instance.
+     * @param id the unique id
+     * @param type the primitive type
+     * @return the mapped value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long id, OsmPrimitiveType type) {
+        int slot = findSlot(id, type.ordinal());
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    public V put(PrimitiveId key, V value) {
+        return put(key.getUniqueId(), key.getType(), value);
+    }
+
+    /**
+     * Maps the given primitive id to a value without requiring a {@link PrimitiveId} instance.
+     * @param id the unique id
+     * @param type the primitive type
+     * @param value the value. Must not be null
+     * @return the previous value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long id, OsmPrimitiveType type, V value) {
+        Objects.requireNonNull(value, "value");
+        int t = type.ordinal();
+        int i = hash(id, t) & mask;
+        while (values[i] != null) {
+            if (ids[i] == id && types[i] == t) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        types[i] = (byte) t;
+        values[i] = value;
+        size++;
+        modCount++;
+        if (size > values.length * LOAD_FACTOR) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    private void rehash(int cap) {
+        long[] oldIds = ids;
+        byte[] oldTypes = types;
+        Object[] oldValues = values;
+        allocate(cap);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = hash(oldIds[j], oldTypes[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = oldIds[j];
+                types[i] = oldTypes[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V old = (V) values[slot];
+        // backward shift deletion, keeps probe sequences intact without tombstones
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (values[i] != null) {
+            int home = hash(ids[i], types[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ids[hole] = ids[i];
+                types[hole] = types[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        values[hole] = null;
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Set<PrimitiveId> keySet() {
+        return new AbstractSet<PrimitiveId>() {
+            @Override
+            public Iterator<PrimitiveId> iterator() {
+                return new SlotIterator<PrimitiveId>() {
+                    @Override
+                    protected PrimitiveId get(int slot) {
+                        return new SimplePrimitiveId(ids[slot], TYPES[types[slot]]);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected V get(int slot) {
+                        return (V) values[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<PrimitiveId, V>> entrySet() {
+        return new AbstractSet<Entry<PrimitiveId, V>>() {
+            @Override
+            public Iterator<Entry<PrimitiveId, V>> iterator() {
+                return new SlotIterator<Entry<PrimitiveId, V>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected Entry<PrimitiveId, V> get(int slot) {
+                        return new SimpleImmutableEntry<>(new SimplePrimitiveId(ids[slot], TYPES[types[slot]]), (V) values[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private final Object[] slots = values;
+        private final int expectedModCount = modCount;
+        private int next = advance(0);
+
+        private int advance(int from) {
+            int i = from;
+            while (i < slots.length && slots[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < slots.length;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = get(next);
+            next = advance(next + 1);
+            return result;
+        }
+
+        protected abstract T get(int slot);
+    }
+}
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
@@ -13,6 +14,9 @@ import org.openstreetmap.josm.tools.JosmRuntimeException;
 /**
  * Stores primitives in quad buckets. This can be used to hold a collection of primitives, e.g. in a {@link DataSet}
  *
+ * Nodes and ways are indexed in {@link QuadBuckets} by default, or in a {@link PackedRTree}, which is faster to build
+ * and to search for large data, but returns the primitives in a different order.
+ *
  * This class does not do any synchronization.
  * @author Michael Zangl
  * @since 12048
@@ -22,20 +26,37 @@ public class QuadBucketPrimitiveStore {
      * All nodes goes here, even when included in other data (ways etc). This enables the instant
      * conversion of the whole DataSet by iterating over this data structure.
      */
-    private final QuadBuckets<Node> nodes = new QuadBuckets<>();
+    private final SpatialIndex<Node> nodes;
 
     /**
      * All ways (Streets etc.) in the DataSet.
      *
      * The way nodes are stored only in the way list.
      */
-    private final QuadBuckets<Way> ways = new QuadBuckets<>();
+    private final SpatialIndex<Way> ways;
 
     /**
      * All relations/relationships
      */
     private final Collection<Relation> relations = new ArrayList<>();
 
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore} indexing nodes and ways in {@link QuadBuckets}.
+     */
+    public QuadBucketPrimitiveStore() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore}.
+     * @param packed if {@code true}, nodes and ways are indexed in a {@link PackedRTree} instead of {@link QuadBuckets}
+     * @since 12610
+     */
+    public QuadBucketPrimitiveStore(boolean packed) {
+        nodes = packed ? new PackedRTree<>() : new QuadBuckets<>();
+        ways = packed ? new PackedRTree<>() : new QuadBuckets<>();
+    }
+
     /**
      * Searches for nodes in the given bounding box.
      * @param bbox the bounding box
@@ -45,6 +66,16 @@ public class QuadBucketPrimitiveStore {
         return nodes.search(bbox);
     }
 
+    /**
+     * Visits the nodes in the given bounding box, without allocating a result list.
+     * @param bbox the bounding box
+     * @param visitor the visitor receiving the nodes in the given bbox. It must not modify this store.
+     * @since 12610
+     */
+    public void searchNodes(BBox bbox, Consumer<? super Node> visitor) {
+        nodes.search(bbox, visitor);
+    }
+
     /**
      * Determines if the given node can be retrieved in the data set through its bounding box. Useful for dataset consistency test.
      * For efficiency reasons this method does not lock the dataset, you have to lock it manually.
@@ -66,6 +97,16 @@ public class QuadBucketPrimitiveStore {
         return ways.search(bbox);
     }
 
+    /**
+     * Visits the ways in the given bounding box, without allocating a result list.
+     * @param bbox the bounding box
+     * @param visitor the visitor receiving the ways in the given bbox. It must not modify this store.
+     * @since 12610
+     */
+    public void searchWays(BBox bbox, Consumer<? super Way> visitor) {
+        ways.search(bbox, visitor);
+    }
+
     /**
      * Determines if the given way can be retrieved in the data set through its bounding box. Useful for dataset consistency test.
      * For efficiency reasons this method does not lock the dataset, you have to lock it manually.
@@ -188,6 +229,15 @@ public class QuadBucketPrimitiveStore {
         }
     }
 
+    /**
+     * Indexes the primitives which have been added since the last call. This should be called after a batch of
+     * modifications. Searches are correct anyway, but may be slower until then.
+     * @since 12610
+     */
+    protected void indexPendingPrimitives() {
+        nodes.flush();
+        ways.flush();
+    }
 
     /**
      * Removes all primitives from the this store.
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -21,7 +22,7 @@ import org.openstreetmap.josm.data.coor.QuadTiling;
  * @param <T> type of primitives
  * @since 2165
  */
-public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
+public class QuadBuckets<T extends OsmPrimitive> implements SpatialIndex<T> {
     private static final boolean CONSISTENCY_TESTING = false;
     private static final byte NW_INDEX = 1;
     private static final byte NE_INDEX = 3;
@@ -173,7 +174,7 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
             return o.getBBox().intersects(searchBbox);
         }
 
-        private void searchContents(BBox searchBbox, List<T> result) {
+        private void searchContents(BBox searchBbox, Consumer<? super T> result) {
             /*
              * It is possible that this was created in a split
              * but never got any content populated.
@@ -183,7 +184,7 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
 
             for (T o : content) {
                 if (matches(o, searchBbox)) {
-                    result.add(o);
+                    result.accept(o);
                 }
             }
         }
@@ -287,7 +288,7 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
             findBucket(o.getBBox()).doAdd(o);
         }
 
-        private void search(QuadBuckets<T> buckets, BBox searchBbox, List<T> result) {
+        private void search(QuadBuckets<T> buckets, BBox searchBbox, Consumer<? super T> result) {
             if (!this.intersects(searchBbox))
                 return;
             else if (this.bounds(searchBbox)) {
@@ -580,30 +581,40 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
      * @param searchBbox the bbox
      * @return List of primitives within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
      */
+    @Override
     public List<T> search(BBox searchBbox) {
         List<T> ret = new ArrayList<>();
+        search(searchBbox, ret::add);
+        return ret;
+    }
+
+    @Override
+    public void search(BBox searchBbox, Consumer<? super T> ret) {
         if (!searchBbox.isValid()) {
-            return ret;
+            return;
         }
 
         // Doing this cuts down search cost on a real-life data set by about 25%
-        if (searchCache == null) {
-            searchCache = root;
+        // Read the search cache only once, it might be changed by a concurrent search
+        QBLevel<T> cache = searchCache;
+        if (cache == null) {
+            cache = root;
         }
         // Walk back up the tree when the last search spot can not cover the current search
-        while (searchCache != null && !searchCache.bounds(searchBbox)) {
-            searchCache = searchCache.parent;
+        while (cache != null && !cache.bounds(searchBbox)) {
+            cache = cache.parent;
         }
 
-        if (searchCache == null) {
-            searchCache = root;
+        if (cache == null) {
+            cache = root;
             Main.info("bbox: " + searchBbox + " is out of the world");
         }
+        searchCache = cache;
 
         // Save parent because searchCache might change during search call
-        QBLevel<T> tmp = searchCache.parent;
+        QBLevel<T> tmp = cache.parent;
 
-        searchCache.search(this, searchBbox, ret);
+        cache.search(this, searchBbox, ret);
 
         // A way that spans this bucket may be stored in one
         // of the nodes which is a parent of the search cache
@@ -611,6 +622,5 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
             tmp.searchContents(searchBbox, ret);
             tmp = tmp.parent;
         }
-        return ret;
     }
 }
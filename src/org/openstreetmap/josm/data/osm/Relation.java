@@ -7,7 +7,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -548,14 +547,6 @@ public final class Relation extends OsmPrimitive implements IRelation {
         return ret;
     }
 
-    @Override
-    protected void keysChangedImpl(Map<String, String> originalKeys) {
-        super.keysChangedImpl(originalKeys);
-        for (OsmPrimitive member : getMemberPrimitivesList()) {
-            member.clearCachedStyle();
-        }
-    }
-
     @Override
     public boolean concernsArea() {
         return isMultipolygon() && hasAreaTags();
@@ -0,0 +1,40 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A collection of primitives which can be searched by bounding box.
+ * <p>
+ * Note: bbox of primitives added to a spatial index has to stay the same. In case of coordinate change, primitive must
+ * be removed and re-added.
+ * @param <T> type of primitives
+ * @since 12610
+ */
+public interface SpatialIndex<T extends OsmPrimitive> extends Collection<T> {
+
+    /**
+     * Search the index for objects in the bbox (or crossing the bbox if they are ways)
+     * @param searchBbox the bbox
+     * @return List of primitives within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
+     */
+    List<T> search(BBox searchBbox);
+
+    /**
+     * Search the index for objects in the bbox (or crossing the bbox if they are ways), without allocating a result list.
+     * The visitor must not modify the index.
+     * @param searchBbox the bbox
+     * @param visitor the visitor receiving the primitives within the bbox (or crossing the bbox if they are ways)
+     */
+    void search(BBox searchBbox, Consumer<? super T> visitor);
+
+    /**
+     * Indicates that a batch of modifications is finished. Implementations may defer indexing the added primitives
+     * until then, searches are correct anyway but might be slower.
+     */
+    default void flush() {
+        // Do nothing by default
+    }
+}
@@ -0,0 +1,100 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from keys and tags to the primitives having them. This is used by {@link DataSet} to
+ * answer queries like "all primitives with {@code building=*}" without scanning all primitives.
+ *
+ * This class does not do any synchronization.
+ * @since 12609
+ */
+class TagIndex {
+
+    /**
+     * The primitives having a key, and the same primitives grouped by their value.
+     */
+    private static final class KeyEntry {
+        private final Storage<OsmPrimitive> primitives = new Storage<>(new Storage.PrimitiveIdHash());
+        private final Map<String, Storage<OsmPrimitive>> values = new HashMap<>();
+    }
+
+    private final Map<String, KeyEntry> keys = new HashMap<>();
+
+    /**
+     * Adds the tags of a primitive to the index.
+     * @param primitive the primitive
+     */
+    void add(OsmPrimitive primitive) {
+        primitive.visitKeys((p, key, value) -> add(primitive, key, value));
+    }
+
+    private void add(OsmPrimitive primitive, String key, String value) {
+        KeyEntry entry = keys.computeIfAbsent(key, k -> new KeyEntry());
+        entry.primitives.add(primitive);
+        // most values are only used by a few primitives (names, addresses, references)
+        entry.values.computeIfAbsent(value, v -> new Storage<>(new Storage.PrimitiveIdHash(), 2)).add(primitive);
+    }
+
+    /**
+     * Removes the given tags of a primitive from the index.
+     * @param primitive the primitive
+     * @param tags the tags the primitive has been indexed with
+     */
+    void remove(OsmPrimitive primitive, Map<String, String> tags) {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            KeyEntry entry = keys.get(tag.getKey());
+            if (entry == null) {
+                continue;
+            }
+            entry.primitives.remove(primitive);
+            Storage<OsmPrimitive> withValue = entry.values.get(tag.getValue());
+            if (withValue != null) {
+                withValue.remove(primitive);
+                if (withValue.isEmpty()) {
+                    entry.values.remove(tag.getValue());
+                }
+            }
+            if (entry.primitives.isEmpty()) {
+                keys.remove(tag.getKey());
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the tags of a primitive have changed.
+     * @param primitive the primitive
+     * @param originalKeys the tags the primitive has been indexed with
+     */
+    void update(OsmPrimitive primitive, Map<String, String> originalKeys) {
+        remove(primitive, originalKeys);
+        add(primitive);
+    }
+
+    /**
+     * Returns the primitives having the given key.
+     * @param key the key
+     * @return the primitives having the given key
+     */
+    List<OsmPrimitive> get(String key) {
+        KeyEntry entry = keys.get(key);
+        return entry == null ? Collections.emptyList() : new ArrayList<>(entry.primitives);
+    }
+
+    /**
+     * Returns the primitives having the given tag.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the given tag
+     */
+    List<OsmPrimitive> get(String key, String value) {
+        KeyEntry entry = keys.get(key);
+        Storage<OsmPrimitive> withValue = entry == null ? null : entry.values.get(value);
+        return withValue == null ? Collections.emptyList() : new ArrayList<>(withValue);
+    }
+}
@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.josm.Main;
@@ -772,12 +771,6 @@ public final class Way extends OsmPrimitive implements IWay {
         return false;
     }
 
-    @Override
-    protected void keysChangedImpl(Map<String, String> originalKeys) {
-        super.keysChangedImpl(originalKeys);
-        clearCachedNodeStyles();
-    }
-
     /**
      * Clears all cached styles for all nodes of this way. This should not be called from outside.
      * @see Node#clearCachedStyle()
@@ -79,6 +79,27 @@ public abstract class AbstractMapRenderer implements Rendering {
         this.isInactiveMode = isInactiveMode;
     }
 
+    /**
+     * <p>Creates an abstract paint visitor that paints a part of the map view only.</p>
+     *
+     * @param g the graphics context. Must not be null.
+     * @param nc the map viewport. Must not be null.
+     * @param mapState the part of the map viewport to paint, see {@link MapViewState#usingViewRectangle}. Must not be null.
+     * @param isInactiveMode if true, the paint visitor shall render OSM objects such that they
+     * look inactive. Example: rendering of data in an inactive layer using light gray as color only.
+     * @throws IllegalArgumentException if {@code g}, {@code nc} or {@code mapState} is null
+     * @since 12604
+     */
+    protected AbstractMapRenderer(Graphics2D g, NavigatableComponent nc, MapViewState mapState, boolean isInactiveMode) {
+        CheckParameterUtil.ensureParameterNotNull(g);
+        CheckParameterUtil.ensureParameterNotNull(nc);
+        CheckParameterUtil.ensureParameterNotNull(mapState);
+        this.g = g;
+        this.nc = nc;
+        this.mapState = mapState;
+        this.isInactiveMode = isInactiveMode;
+    }
+
     /**
      * Draw the node as small square with the given color.
      *
@@ -37,6 +37,7 @@ import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import javax.swing.AbstractButton;
@@ -61,6 +62,7 @@ import org.openstreetmap.josm.data.preferences.AbstractProperty;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
+import org.openstreetmap.josm.gui.MapViewState;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.draw.MapViewPath;
@@ -183,6 +185,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             return style;
         }
 
+        /**
+         * Get the primitive painted with this style element.
+         * @return The primitive
+         */
+        OsmPrimitive getPrimitive() {
+            return osm;
+        }
+
         /**
          * Paints the primitive with the style.
          * @param paintSettings The settings to use.
@@ -255,6 +265,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    private final double fixedCircum;
     private double circum;
     private double scale;
 
@@ -341,6 +352,26 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      */
     public StyledMapRenderer(Graphics2D g, NavigatableComponent nc, boolean isInactiveMode) {
         super(g, nc, isInactiveMode);
+        fixedCircum = 0;
+        Component focusOwner = FocusManager.getCurrentManager().getFocusOwner();
+        useWiderHighlight = !(focusOwner instanceof AbstractButton || focusOwner == nc);
+    }
+
+    /**
+     * Constructs a new {@code StyledMapRenderer} that paints a part of the map view only.
+     *
+     * @param g the graphics context. Must not be null.
+     * @param nc the map viewport. Must not be null.
+     * @param mapState the part of the map viewport to paint. Must not be null.
+     * @param circum distance on the map in meters that 100 screen pixels represent, used to select the styles,
+     * or 0 to compute it from {@code nc}
+     * @param isInactiveMode if true, the paint visitor shall render OSM objects such that they
+     * look inactive. Example: rendering of data in an inactive layer using light gray as color only.
+     * @since 12604
+     */
+    StyledMapRenderer(Graphics2D g, NavigatableComponent nc, MapViewState mapState, double circum, boolean isInactiveMode) {
+        super(g, nc, mapState, isInactiveMode);
+        fixedCircum = circum;
         Component focusOwner = FocusManager.getCurrentManager().getFocusOwner();
         useWiderHighlight = !(focusOwner instanceof AbstractButton || focusOwner == nc);
     }
@@ -1009,8 +1040,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             fromNode = fromWay.getNode(fromWay.getNodesCount()-2);
         }
 
-        Point pFrom = nc.getPoint(fromNode);
-        Point pVia = nc.getPoint(viaNode);
+        Point2D pFrom2D = mapState.getPointFor(fromNode).getInView();
+        Point2D pVia2D = mapState.getPointFor(viaNode).getInView();
+        Point pFrom = new Point((int) pFrom2D.getX(), (int) pFrom2D.getY());
+        Point pVia = new Point((int) pVia2D.getX(), (int) pVia2D.getY());
 
         /* starting from via, go back the "from" way a few pixels
            (calculate the vector vx/vy with the specified length and the direction
@@ -1362,7 +1395,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         super.getSettings(virtual);
         paintSettings = MapPaintSettings.INSTANCE;
 
-        circum = nc.getDist100Pixel();
+        circum = fixedCircum > 0 ? fixedCircum : nc.getDist100Pixel();
         scale = nc.getScale();
 
         leftHandTraffic = PREFERENCE_LEFT_HAND_TRAFFIC.get();
@@ -1591,7 +1624,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         try {
             if (data.getReadLock().tryLock(1, TimeUnit.SECONDS)) {
                 try {
-                    paintWithLock(data, renderVirtualNodes, benchmark, bbox);
+                    paintWithLock(data, renderVirtualNodes, benchmark, bbox, null);
                 } finally {
                     data.getReadLock().unlock();
                 }
@@ -1603,8 +1636,22 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Renders the primitives in the given area, but only the style records accepted by a filter.
+     * <p>
+     * Unlike {@link #render}, the caller has to call {@link #getSettings} first, and has to hold the read lock of the data set.
+     * @param data the data set to render
+     * @param renderVirtualNodes whether virtual nodes should be rendered
+     * @param bbox the area to render
+     * @param filter accepts the style records to paint
+     * @since 12604
+     */
+    void renderWithLock(DataSet data, boolean renderVirtualNodes, BBox bbox, Predicate<StyleRecord> filter) {
+        paintWithLock(data, renderVirtualNodes, benchmarkFactory.get(), bbox, filter);
+    }
+
     private void paintWithLock(final DataSet data, boolean renderVirtualNodes, RenderBenchmarkCollector benchmark,
-            BBox bbox) {
+            BBox bbox, Predicate<StyleRecord> filter) {
         try {
             highlightWaySegments = data.getHighlightedWaySegments();
 
@@ -1623,6 +1670,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                     Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3)));
             THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems,
                     Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3)));
+            if (filter != null) {
+                allStyleElems.removeIf(filter.negate());
+            }
 
             if (!benchmark.renderSort()) {
                 return;
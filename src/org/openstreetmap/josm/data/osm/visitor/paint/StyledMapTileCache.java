@@ -0,0 +1,431 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+import org.openstreetmap.josm.gui.mappaint.styleelement.AreaIconElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.TextElement;
+import org.openstreetmap.josm.tools.Destroyable;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Paints a data set with the {@link StyledMapRenderer}, keeping the static part of the map in raster tiles.
+ * <p>
+ * The tiles hold all primitives that are neither selected nor highlighted. They are aligned to the pixels of the map view
+ * and kept as long as the scale and the projection do not change, so that panning by whole pixels only needs to paint
+ * the tiles that come into view. Data set events only discard the tiles touched by the changed primitives.
+ * <p>
+ * Selected and highlighted primitives, labels and area icons (whose placement depends on the visible part of the map)
+ * and virtual nodes are painted on top of the tiles on each repaint.
+ * @since 12604
+ */
+public class StyledMapTileCache implements DataSetListener, MapPaintSylesUpdateListener, PreferenceChangedListener, Destroyable {
+
+    /**
+     * Indicates that data layers should be painted using a {@code StyledMapTileCache}.
+     */
+    public static final BooleanProperty PROPERTY_ENABLED = new BooleanProperty("mappaint.tile-cache", false);
+
+    /**
+     * The number of tiles to keep. The tiles needed to paint the view are always kept.
+     */
+    private static final IntegerProperty PROPERTY_MAX_TILES = new IntegerProperty("mappaint.tile-cache.max-tiles", 32);
+
+    /**
+     * The size of the tiles, in pixels.
+     */
+    static final int TILE_SIZE = 512;
+
+    /**
+     * Pixels painted around each tile, so that symbols and wide lines of primitives just outside are not cut.
+     */
+    static final int MARGIN = 32;
+
+    /**
+     * The prefixes of the preferences which change the way the data is painted:
+     * map paint settings, colors and drawing options of the renderers.
+     */
+    private static final String[] PAINT_PREFERENCE_PREFIXES = {"mappaint.", "color.", "draw."};
+
+    private final DataSet data;
+
+    /** The tiles, by tile coordinates. In access order, so that the least recently used tiles come first. */
+    private final Map<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    /** The primitives that are not painted into the tiles */
+    private final Set<OsmPrimitive> excluded = new HashSet<>();
+    /** The bounding boxes of the primitives painted into the tiles, at the time they were painted */
+    private final Map<OsmPrimitive, BBox> painted = new HashMap<>();
+
+    private Projecting projecting;
+    private double scale;
+    private double offsetX;
+    private double offsetY;
+    private boolean inactive;
+    /** The circum used to select the styles, fixed as long as the tiles are kept */
+    private double circum;
+    private volatile boolean stylesChanged;
+
+    private static final class Tile {
+        private final ProjectionBounds bounds;
+        private final BufferedImage image;
+
+        Tile(ProjectionBounds bounds, BufferedImage image) {
+            this.bounds = bounds;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Constructs a new {@code StyledMapTileCache}.
+     * @param data the data set to paint
+     */
+    public StyledMapTileCache(DataSet data) {
+        this.data = data;
+        data.addDataSetListener(this);
+        MapPaintStyles.addMapPaintSylesUpdateListener(this);
+        Main.pref.addPreferenceChangeListener(this);
+    }
+
+    /**
+     * Paints the data set, like {@link StyledMapRenderer#render}. Tiles are painted as needed.
+     * @param g the graphics context
+     * @param nc the map viewport
+     * @param isInactiveMode if true, the data is painted such that it looks inactive
+     * @param renderVirtualNodes whether virtual nodes should be painted
+     * @param bounds the area to paint
+     */
+    public void render(Graphics2D g, NavigatableComponent nc, boolean isInactiveMode, boolean renderVirtualNodes, Bounds bounds) {
+        if ((g.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) != 0) {
+            // tiles would not be sharp on a scaled graphics context
+            new StyledMapRenderer(g, nc, isInactiveMode).render(data, renderVirtualNodes, bounds);
+            return;
+        }
+        try {
+            if (data.getReadLock().tryLock(1, TimeUnit.SECONDS)) {
+                try {
+                    renderWithLock(g, nc, isInactiveMode, renderVirtualNodes, bounds);
+                } finally {
+                    data.getReadLock().unlock();
+                }
+            } else {
+                Logging.warn("Cannot paint data set: It is locked.");
+            }
+        } catch (InterruptedException e) {
+            Logging.warn("Cannot paint data set: Interrupted");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void renderWithLock(Graphics2D g, NavigatableComponent nc, boolean isInactiveMode,
+            boolean renderVirtualNodes, Bounds bounds) {
+        MapViewState state = nc.getState();
+        // position of the view in pixels of the tile grid
+        EastNorth topLeft = state.getForView(0, 0).getEastNorth();
+        double originX = topLeft.east() / state.getScale() - offsetX;
+        double originY = -topLeft.north() / state.getScale() - offsetY;
+        if (stylesChanged || state.getScale() != scale || !state.getProjecting().equals(projecting) || isInactiveMode != inactive
+                || !isInteger(originX) || !isInteger(originY)) {
+            clear();
+            stylesChanged = false;
+            scale = state.getScale();
+            projecting = state.getProjecting();
+            inactive = isInactiveMode;
+            // align the tile grid with the pixels of the view
+            offsetX = (offsetX + originX - Math.floor(originX)) % 1;
+            offsetY = (offsetY + originY - Math.floor(originY)) % 1;
+            originX = topLeft.east() / scale - offsetX;
+            originY = -topLeft.north() / scale - offsetY;
+        }
+        if (circum <= 0) {
+            circum = nc.getDist100Pixel();
+        }
+
+        Rectangle clip = g.getClipBounds();
+        Rectangle view = new Rectangle(0, 0, (int) state.getViewWidth(), (int) state.getViewHeight());
+        clip = clip == null ? view : clip.intersection(view);
+        if (!clip.isEmpty()) {
+            int minX = (int) Math.floor((originX + clip.x) / TILE_SIZE);
+            int minY = (int) Math.floor((originY + clip.y) / TILE_SIZE);
+            int maxX = (int) Math.floor((originX + clip.x + clip.width - 1) / TILE_SIZE);
+            int maxY = (int) Math.floor((originY + clip.y + clip.height - 1) / TILE_SIZE);
+
+            updateExcluded(state.usingViewRectangle(minX * TILE_SIZE - MARGIN - originX, minY * TILE_SIZE - MARGIN - originY,
+                    (maxX - minX + 1) * TILE_SIZE + 2 * MARGIN, (maxY - minY + 1) * TILE_SIZE + 2 * MARGIN));
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    double viewX = x * TILE_SIZE - originX;
+                    double viewY = y * TILE_SIZE - originY;
+                    Tile tile = tiles.computeIfAbsent(((long) x << 32) | (y & 0xffffffffL),
+                            k -> paintTile(nc, state.usingViewRectangle(viewX - MARGIN, viewY - MARGIN,
+                                    TILE_SIZE + 2 * MARGIN, TILE_SIZE + 2 * MARGIN)));
+                    int dx = (int) Math.rint(viewX);
+                    int dy = (int) Math.rint(viewY);
+                    g.drawImage(tile.image, dx, dy, dx + TILE_SIZE, dy + TILE_SIZE,
+                            MARGIN, MARGIN, MARGIN + TILE_SIZE, MARGIN + TILE_SIZE, null);
+                }
+            }
+
+            int maxTiles = Math.max(PROPERTY_MAX_TILES.get(), (maxX - minX + 1) * (maxY - minY + 1));
+            Iterator<Tile> it = tiles.values().iterator();
+            while (tiles.size() > maxTiles && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        StyledMapRenderer renderer = new StyledMapRenderer(g, nc, state, circum, isInactiveMode);
+        renderer.getSettings(renderVirtualNodes);
+        renderer.renderWithLock(data, renderVirtualNodes, bounds.toBBox(),
+                record -> excluded.contains(record.getPrimitive()) || isViewDependent(record.getStyle()));
+    }
+
+    private static boolean isInteger(double value) {
+        return Math.abs(value - Math.rint(value)) < 1e-3;
+    }
+
+    /**
+     * Determines the primitives that are not painted into the tiles, and discards the tiles of those that changed.
+     * @param state the area to check
+     */
+    private void updateExcluded(MapViewState state) {
+        Set<OsmPrimitive> dynamic = new HashSet<>();
+        for (OsmPrimitive osm : data.getAllSelected()) {
+            dynamic.add(osm);
+            if (osm instanceof Way) {
+                dynamic.addAll(((Way) osm).getNodes());
+            } else if (osm instanceof Relation) {
+                for (RelationMember member : ((Relation) osm).getMembers()) {
+                    dynamic.add(member.getMember());
+                }
+            }
+        }
+        for (WaySegment segment : data.getHighlightedWaySegments()) {
+            dynamic.add(segment.way);
+        }
+        BBox bbox = state.getViewArea().getLatLonBoundsBox().toBBox();
+        updateExcluded(data.searchNodes(bbox), dynamic);
+        updateExcluded(data.searchWays(bbox), dynamic);
+        updateExcluded(data.searchRelations(bbox), dynamic);
+    }
+
+    private void updateExcluded(Collection<? extends OsmPrimitive> primitives, Set<OsmPrimitive> dynamic) {
+        for (OsmPrimitive osm : primitives) {
+            if (osm.isHighlighted() || dynamic.contains(osm) ? excluded.add(osm) : excluded.remove(osm)) {
+                invalidate(osm);
+            }
+        }
+    }
+
+    private Tile paintTile(NavigatableComponent nc, MapViewState state) {
+        int size = TILE_SIZE + 2 * MARGIN;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, size, size);
+            StyledMapRenderer renderer = new StyledMapRenderer(g, nc, state, circum, inactive);
+            renderer.getSettings(false);
+            renderer.renderWithLock(data, false, state.getViewArea().getLatLonBoundsBox().toBBox(), this::isStatic);
+        } finally {
+            g.dispose();
+        }
+        return new Tile(state.getViewArea().getProjectionBounds(), image);
+    }
+
+    /**
+     * Determines if the style record belongs into the tiles, and remembers where the primitive was painted if so.
+     * @param record the style record
+     * @return {@code true} if the style record is painted into the tiles
+     */
+    private boolean isStatic(StyleRecord record) {
+        OsmPrimitive osm = record.getPrimitive();
+        if (excluded.contains(osm) || isViewDependent(record.getStyle())) {
+            return false;
+        }
+        painted.computeIfAbsent(osm, OsmPrimitive::getBBox);
+        return true;
+    }
+
+    /**
+     * Determines if the placement of a style element depends on the visible part of the map.
+     * Such elements cannot be painted tile by tile.
+     * @param style the style element
+     * @return {@code true} if the style element is painted on each repaint
+     */
+    private static boolean isViewDependent(StyleElement style) {
+        return style instanceof TextElement || style instanceof BoxTextElement || style instanceof AreaIconElement;
+    }
+
+    /**
+     * Discards all tiles.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        excluded.clear();
+        painted.clear();
+        circum = 0;
+    }
+
+    private void invalidate(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive osm : primitives) {
+            invalidate(osm);
+        }
+    }
+
+    private void invalidate(OsmPrimitive osm) {
+        BBox old = painted.remove(osm);
+        if (old != null) {
+            invalidate(old);
+        }
+        invalidate(osm.getBBox());
+    }
+
+    private void invalidate(BBox bbox) {
+        if (tiles.isEmpty() || !bbox.isValid()) {
+            return;
+        }
+        ProjectionBounds pb = new ProjectionBounds(projecting.latlon2eastNorth(bbox.getTopLeft()));
+        pb.extend(projecting.latlon2eastNorth(bbox.getBottomRight()));
+        pb.extend(projecting.latlon2eastNorth(new LatLon(bbox.getTopLeftLat(), bbox.getBottomRightLon())));
+        pb.extend(projecting.latlon2eastNorth(new LatLon(bbox.getBottomRightLat(), bbox.getTopLeftLon())));
+        tiles.values().removeIf(tile -> tile.bounds.intersects(pb));
+    }
+
+    /**
+     * Discards the tiles touched by a primitive and the primitives referring to it.
+     * @param osm the changed primitive
+     */
+    private void invalidateWithReferrers(OsmPrimitive osm) {
+        Set<OsmPrimitive> visited = new HashSet<>();
+        Set<OsmPrimitive> todo = new HashSet<>();
+        todo.add(osm);
+        while (!todo.isEmpty()) {
+            Iterator<OsmPrimitive> it = todo.iterator();
+            OsmPrimitive next = it.next();
+            it.remove();
+            if (visited.add(next)) {
+                invalidate(next);
+                todo.addAll(next.getReferrers());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        invalidate(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        excluded.removeAll(event.getPrimitives());
+        invalidate(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        invalidateWithReferrers(event.getPrimitive());
+    }
+
+    @Override
+    public synchronized void nodeMoved(NodeMovedEvent event) {
+        invalidateWithReferrers(event.getNode());
+    }
+
+    @Override
+    public synchronized void wayNodesChanged(WayNodesChangedEvent event) {
+        invalidateWithReferrers(event.getChangedWay());
+    }
+
+    @Override
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
+        invalidateWithReferrers(event.getRelation());
+    }
+
+    @Override
+    public synchronized void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        invalidate(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            clear();
+        } else {
+            for (AbstractDatasetChangedEvent e : event.getEvents()) {
+                e.fire(this);
+            }
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        stylesChanged = true;
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int index) {
+        stylesChanged = true;
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        for (String prefix : PAINT_PREFERENCE_PREFIXES) {
+            if (e.getKey().startsWith(prefix)) {
+                stylesChanged = true;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        data.removeDataSetListener(this);
+        MapPaintStyles.removeMapPaintSylesUpdateListener(this);
+        Main.pref.removePreferenceChangeListener(this);
+        clear();
+    }
+}
@@ -121,6 +121,20 @@ public abstract class AbstractProjection implements Projection {
         return new EastNorth((ellps.a * k0 * en[0] + x0) / toMeter, (ellps.a * k0 * en[1] + y0) / toMeter);
     }
 
+    @Override
+    public void latlon2eastNorth(double[] coordinates, int from, int to) {
+        datum.fromWGS84(coordinates, from, to);
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            coordinates[i] = Utils.toRadians(coordinates[i]);
+            coordinates[i + 1] = Utils.toRadians(LatLon.normalizeLon(coordinates[i + 1] - lon0 - pm));
+        }
+        proj.project(coordinates, from, to);
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            coordinates[i] = (ellps.a * k0 * coordinates[i] + x0) / toMeter;
+            coordinates[i + 1] = (ellps.a * k0 * coordinates[i + 1] + y0) / toMeter;
+        }
+    }
+
     @Override
     public LatLon eastNorth2latlon(EastNorth en) {
         // We know it is a latlon. Nice would be to change this method return type to ILatLon
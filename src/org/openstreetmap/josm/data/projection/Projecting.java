@@ -40,6 +40,26 @@ public interface Projecting {
      */
     EastNorth latlon2eastNorth(ILatLon ll);
 
+    /**
+     * Convert from lat/lon to easting/northing for several points at once.
+     * <p>
+     * Gives the same results as {@link #latlon2eastNorth(ILatLon)}, see {@link Projections#latlon2eastNorth(Projecting, double[])}
+     * to convert large arrays in parallel.
+     *
+     * @param coordinates the points, given as pairs of latitude and longitude (in WGS84),
+     * replaced by pairs of east and north coordinates
+     * @param from the index of the first point to convert
+     * @param to the index after the last point to convert
+     * @since 12622
+     */
+    default void latlon2eastNorth(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            EastNorth en = latlon2eastNorth(new LatLon(coordinates[i], coordinates[i + 1]));
+            coordinates[i] = en.east();
+            coordinates[i + 1] = en.north();
+        }
+    }
+
     /**
      * Convert a east/north coordinate to the {@link LatLon} coordinate.
      * This method clamps the lat/lon coordinate to the nearest point in the world bounds.
@@ -13,6 +13,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -89,6 +91,11 @@ public final class Projections {
     private static final Map<String, NTV2GridShiftFileWrapper> nadgrids = new HashMap<>();
     private static final Map<String, ProjectionDefinition> inits;
 
+    /**
+     * The number of points converted by each task of {@link #latlon2eastNorth(Projecting, double[])}.
+     */
+    private static final int POINTS_PER_TASK = 4096;
+
     static {
         registerBaseProjection("aea", AlbersEqualArea.class, "core");
         registerBaseProjection("cass", CassiniSoldner.class, "core");
@@ -196,6 +203,63 @@ public final class Projections {
         return Main.getProjection().latlon2eastNorth(ll);
     }
 
+    /**
+     * Convert from lat/lon to easting/northing for many points at once. Large arrays are split
+     * in chunks converted in parallel.
+     *
+     * @param projection the projection
+     * @param coordinates the points, given as pairs of latitude and longitude (in WGS84),
+     * replaced by pairs of east and north coordinates
+     * @see Projecting#latlon2eastNorth(double[], int, int)
+     * @since 12622
+     */
+    public static void latlon2eastNorth(Projecting projection, double[] coordinates) {
+        int count = coordinates.length / 2;
+        if (count <= POINTS_PER_TASK) {
+            projection.latlon2eastNorth(coordinates, 0, count);
+        } else {
+            ProjectionPool.POOL.invoke(new ProjectionTask(projection, coordinates, 0, count));
+        }
+    }
+
+    /**
+     * Holder of the thread pool used to convert large arrays of points, created when first needed.
+     */
+    private static final class ProjectionPool {
+        static final ForkJoinPool POOL =
+                Utils.newForkJoinPool("projection.numberOfThreads", "projection-%d", Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Converts a range of points, splitting it in halves until the chunks are small enough.
+     */
+    private static final class ProjectionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Projecting projection;
+        private final double[] coordinates;
+        private final int from;
+        private final int to;
+
+        ProjectionTask(Projecting projection, double[] coordinates, int from, int to) {
+            this.projection = projection;
+            this.coordinates = coordinates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= POINTS_PER_TASK) {
+                projection.latlon2eastNorth(coordinates, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ProjectionTask(projection, coordinates, from, middle),
+                          new ProjectionTask(projection, coordinates, middle, to));
+            }
+        }
+    }
+
     /**
      * Convert from easting/norting to lat/lon using the current projection.
      *
@@ -41,4 +41,19 @@ public interface Datum {
      * @return converted lat/lon in this datum
      */
     LatLon fromWGS84(LatLon ll);
+
+    /**
+     * Convert lat/lon from {@link Ellipsoid#WGS84} to this datum for several points at once.
+     * @param coordinates the points, given as pairs of latitude and longitude in degrees, converted in place
+     * @param from the index of the first point to convert
+     * @param to the index after the last point to convert
+     * @since 12622
+     */
+    default void fromWGS84(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            LatLon ll = fromWGS84(new LatLon(coordinates[i], coordinates[i + 1]));
+            coordinates[i] = ll.lat();
+            coordinates[i + 1] = ll.lon();
+        }
+    }
 }
@@ -47,4 +47,25 @@ public class NTV2Datum extends AbstractDatum {
             throw new JosmRuntimeException(e);
         }
     }
+
+    @Override
+    public void fromWGS84(double[] coordinates, int from, int to) {
+        NTV2GridShiftFile shiftFile;
+        try {
+            shiftFile = nadgrids.getShiftFile();
+        } catch (IOException e) {
+            throw new JosmRuntimeException(e);
+        }
+        NTV2GridShift gs = new NTV2GridShift();
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            gs.setLatDegrees(coordinates[i]);
+            gs.setLonPositiveEastDegrees(coordinates[i + 1]);
+            // no shift outside of the grid
+            gs.setLatShiftSeconds(0);
+            gs.setLonShiftPositiveWestSeconds(0);
+            shiftFile.gridShiftReverse(gs);
+            coordinates[i] += gs.getLatShiftDegrees();
+            coordinates[i + 1] += gs.getLonShiftPositiveEastDegrees();
+        }
+    }
 }
@@ -24,4 +24,9 @@ public class NullDatum extends AbstractDatum {
         return ll;
     }
 
+    @Override
+    public void fromWGS84(double[] coordinates, int from, int to) {
+        // nothing to do
+    }
+
 }
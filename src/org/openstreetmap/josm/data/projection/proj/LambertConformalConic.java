@@ -184,13 +184,21 @@ public class LambertConformalConic extends AbstractProj {
 
     @Override
     public double[] project(double phi, double lambda) {
-        double sinphi = sin(phi);
-        double l = (0.5*log((1+sinphi)/(1-sinphi))) - e/2*log((1+e*sinphi)/(1-e*sinphi));
-        double r = f*exp(-n*l);
-        double gamma = n*lambda;
-        double x = r*sin(gamma);
-        double y = r0 - r*cos(gamma);
-        return new double[] {x, y};
+        double[] en = {phi, lambda};
+        project(en, 0, 1);
+        return en;
+    }
+
+    @Override
+    public void project(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            double sinphi = sin(coordinates[i]);
+            double l = (0.5*log((1+sinphi)/(1-sinphi))) - e/2*log((1+e*sinphi)/(1-e*sinphi));
+            double r = f*exp(-n*l);
+            double gamma = n*coordinates[i + 1];
+            coordinates[i] = r*sin(gamma);
+            coordinates[i + 1] = r0 - r*cos(gamma);
+        }
     }
 
     @Override
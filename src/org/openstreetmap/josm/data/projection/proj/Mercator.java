@@ -89,15 +89,27 @@ public class Mercator extends AbstractProj implements IScaleFactorProvider {
 
     @Override
     public double[] project(double y, double x) {
-        if (Math.abs(y) > (Math.PI/2 - EPSILON)) {
-            return new double[] {0, 0}; // this is an error and should be handled somehow
-        }
-        if (spherical) {
-            y = Math.log(Math.tan(Math.PI/4 + 0.5*y));
-        } else {
-            y = -Math.log(tsfn(y, Math.sin(y)));
+        double[] en = {y, x};
+        project(en, 0, 1);
+        return en;
+    }
+
+    @Override
+    public void project(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            double y = coordinates[i];
+            double x = coordinates[i + 1];
+            if (Math.abs(y) > (Math.PI/2 - EPSILON)) {
+                x = 0; // this is an error and should be handled somehow
+                y = 0;
+            } else if (spherical) {
+                y = Math.log(Math.tan(Math.PI/4 + 0.5*y));
+            } else {
+                y = -Math.log(tsfn(y, Math.sin(y)));
+            }
+            coordinates[i] = x;
+            coordinates[i + 1] = y;
         }
-        return new double[] {x, y};
     }
 
     @Override
@@ -56,6 +56,24 @@ public interface Proj {
      */
     double[] project(double latRad, double lonRad);
 
+    /**
+     * Convert lat/lon to east/north for several points at once.
+     *
+     * Implementations should avoid per-point allocations, so that large arrays are converted quickly.
+     * @param coordinates the points, given as pairs of latitude and longitude in radians,
+     * replaced by pairs of east and north values in meters, divided by the semi major axis of the ellipsoid
+     * @param from the index of the first point to convert
+     * @param to the index after the last point to convert
+     * @since 12622
+     */
+    default void project(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            double[] en = project(coordinates[i], coordinates[i + 1]);
+            coordinates[i] = en[0];
+            coordinates[i + 1] = en[1];
+        }
+    }
+
     /**
      * Convert east/north to lat/lon.
      *
@@ -151,35 +151,47 @@ public class TransverseMercator extends AbstractProj {
 
     @Override
     public double[] project(double y, double x) {
-        double sinphi = Math.sin(y);
-        double cosphi = Math.cos(y);
-        double u, v;
-
-        double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
-        t *= t;
-        double al = cosphi*x;
-        double als = al*al;
-        al /= Math.sqrt(1.0 - e2 * sinphi*sinphi);
-        double n = eb2 * cosphi*cosphi;
-
-        /* NOTE: meridinal distance at latitudeOfOrigin is always 0 */
-        y = mlfn(y, sinphi, cosphi) - ml0 +
-            sinphi * al * x *
-            FC2 * (1.0 +
-            FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
-            FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
-            FC8 * als * (1385.0 + t * (t*(543.0 - t) - 3111.0)))));
-
-        x = al*(FC1 + FC3 * als*(1.0 - t + n +
-            FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
-            FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0)))));
-
-        u = y;
-        v = x;
-        x = v * cosrot + u * sinrot;
-        y = u * cosrot - v * sinrot;
-
-        return new double[] {x, y};
+        double[] en = {y, x};
+        project(en, 0, 1);
+        return en;
+    }
+
+    @Override
+    public void project(double[] coordinates, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            double y = coordinates[i];
+            double x = coordinates[i + 1];
+            double sinphi = Math.sin(y);
+            double cosphi = Math.cos(y);
+            double u, v;
+
+            double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
+            t *= t;
+            double al = cosphi*x;
+            double als = al*al;
+            al /= Math.sqrt(1.0 - e2 * sinphi*sinphi);
+            double n = eb2 * cosphi*cosphi;
+
+            /* NOTE: meridinal distance at latitudeOfOrigin is always 0 */
+            y = mlfn(y, sinphi, cosphi) - ml0 +
+                sinphi * al * x *
+                FC2 * (1.0 +
+                FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
+                FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
+                FC8 * als * (1385.0 + t * (t*(543.0 - t) - 3111.0)))));
+
+            x = al*(FC1 + FC3 * als*(1.0 - t + n +
+                FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
+                FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0)))));
+
+            u = y;
+            v = x;
+            x = v * cosrot + u * sinrot;
+            y = u * cosrot - v * sinrot;
+
+            coordinates[i] = x;
+            coordinates[i + 1] = y;
+        }
     }
 
     @Override
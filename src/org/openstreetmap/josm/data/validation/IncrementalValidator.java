@@ -0,0 +1,441 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitiveFlagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.validation.Test.Locality;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Validates a data set repeatedly, running the tests again only for the primitives that may be reported differently
+ * since the last validation.
+ * <p>
+ * The validator listens to the changes of the data set. When validating again, it determines for each
+ * {@link Test#getLocality() locality} the primitives influenced by the changed primitives, runs the tests with this
+ * locality on them (and on the primitives around them, if required) and replaces the errors involving influenced
+ * primitives. The errors of the other primitives are kept. Tests without locality are run on the whole data set.
+ * The resulting errors are the same as those of a full validation, up to their order.
+ * <p>
+ * The whole data set is validated again if the tests, their configuration, the projection or the data sources change,
+ * or if the data set reports a change without the changed primitives.
+ * @since 12607
+ */
+public class IncrementalValidator implements DataSetListener {
+
+    /** meters per degree of latitude, rounded down so that distances converted to degrees are never too small */
+    private static final double METERS_PER_DEGREE = 110_000;
+
+    /** number of links followed to find the primitives around an influenced primitive */
+    private static final int NEIGHBOURS_DEPTH = 2;
+
+    /**
+     * The state of a primitive at the last validation.
+     */
+    private static final class Snapshot {
+        /** the nodes of a way or the members of a relation */
+        private final List<? extends OsmPrimitive> children;
+        private BBox bbox;
+
+        Snapshot(OsmPrimitive p) {
+            if (p instanceof Way) {
+                children = ((Way) p).getNodes();
+            } else if (p instanceof Relation) {
+                children = ((Relation) p).getMemberPrimitivesList();
+            } else {
+                children = Collections.emptyList();
+            }
+            bbox = p.getBBox();
+        }
+    }
+
+    private final DataSet dataSet;
+    private final ValidationRunner runner;
+    private final Set<OsmPrimitive> changed = new HashSet<>();
+    private boolean fullValidationNeeded = true;
+    private final Map<Test, List<TestError>> errors = new LinkedHashMap<>();
+    private final Map<OsmPrimitive, Snapshot> snapshots = new HashMap<>();
+    private int dataSourceCount;
+    private int testsInitializationCount;
+    private Projection projection;
+    private double gridDetail;
+
+    /**
+     * Constructs a new {@code IncrementalValidator} and starts listening to the changes of the given data set.
+     * @param dataSet the data set to validate
+     * @param runner the runner used to run the tests
+     */
+    public IncrementalValidator(DataSet dataSet, ValidationRunner runner) {
+        this.dataSet = Objects.requireNonNull(dataSet, "dataSet");
+        this.runner = Objects.requireNonNull(runner, "runner");
+        dataSet.addDataSetListener(this);
+    }
+
+    /**
+     * Returns the validated data set.
+     * @return the validated data set
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Stops listening to the changes of the data set.
+     */
+    public void destroy() {
+        dataSet.removeDataSetListener(this);
+        synchronized (changed) {
+            changed.clear();
+        }
+        errors.clear();
+        snapshots.clear();
+    }
+
+    /**
+     * Makes the next call of {@link #validate} validate the whole data set, e.g. after test preferences have been changed.
+     */
+    public void invalidate() {
+        synchronized (changed) {
+            fullValidationNeeded = true;
+        }
+    }
+
+    /**
+     * Validates the data set. Only the primitives influenced by changes since the last call are validated again,
+     * unless the whole data set must be validated.
+     * @param tests the tests to run
+     * @param progressMonitor the progress monitor. May be {@code null}
+     * @return the errors found by all tests, ordered by test. Empty if the validation has been canceled
+     */
+    public List<TestError> validate(Collection<Test> tests, ProgressMonitor progressMonitor) {
+        ProgressMonitor monitor = Optional.ofNullable(progressMonitor).orElse(NullProgressMonitor.INSTANCE);
+        Set<OsmPrimitive> changedPrimitives;
+        boolean full;
+        synchronized (changed) {
+            changedPrimitives = new HashSet<>(changed);
+            changed.clear();
+            full = fullValidationNeeded;
+            fullValidationNeeded = false;
+        }
+        full |= dataSourceCount != dataSet.getDataSources().size()
+                || testsInitializationCount != OsmValidator.getTestsInitializationCount()
+                || projection != Main.getProjection()
+                || Double.compare(gridDetail, OsmValidator.getGridDetail()) != 0
+                || !new ArrayList<>(tests).equals(new ArrayList<>(errors.keySet()));
+        boolean completed = full ? validateAll(tests, monitor) : validateChanged(tests, changedPrimitives, monitor);
+        if (!completed) {
+            invalidate();
+            return new ArrayList<>();
+        }
+        return getErrors();
+    }
+
+    /**
+     * Returns the errors found by the last validation.
+     * @return the errors found by all tests, ordered by test
+     */
+    public List<TestError> getErrors() {
+        List<TestError> result = new ArrayList<>();
+        errors.values().forEach(result::addAll);
+        return result;
+    }
+
+    private boolean validateAll(Collection<Test> tests, ProgressMonitor monitor) {
+        errors.clear();
+        snapshots.clear();
+        dataSourceCount = dataSet.getDataSources().size();
+        testsInitializationCount = OsmValidator.getTestsInitializationCount();
+        projection = Main.getProjection();
+        gridDetail = OsmValidator.getGridDetail();
+        Collection<OsmPrimitive> primitives = dataSet.allNonDeletedPrimitives();
+        for (OsmPrimitive p : primitives) {
+            snapshots.put(p, new Snapshot(p));
+        }
+        runner.run(tests, primitives, false, monitor);
+        if (monitor.isCanceled())
+            return false;
+        for (Test test : tests) {
+            errors.put(test, new ArrayList<>(test.getErrors()));
+        }
+        return true;
+    }
+
+    private boolean validateChanged(Collection<Test> tests, Set<OsmPrimitive> changedPrimitives, ProgressMonitor monitor) {
+        if (changedPrimitives.isEmpty())
+            return true;
+        Map<Locality, List<Test>> testsByLocality = new LinkedHashMap<>();
+        for (Test test : tests) {
+            testsByLocality.computeIfAbsent(test.getLocality(), l -> new ArrayList<>()).add(test);
+        }
+        // determine all influenced and visited primitives before the snapshots are updated
+        Map<Locality, Set<OsmPrimitive>> influencedByLocality = new HashMap<>();
+        Map<Locality, Collection<OsmPrimitive>> visitedByLocality = new HashMap<>();
+        Collection<OsmPrimitive> all = dataSet.allNonDeletedPrimitives();
+        for (Locality locality : testsByLocality.keySet()) {
+            if (locality == null) {
+                visitedByLocality.put(null, all);
+                continue;
+            }
+            Set<OsmPrimitive> influenced = getInfluenced(changedPrimitives, locality);
+            Set<OsmPrimitive> visited = influenced;
+            if (locality.isVisitNeighbours()) {
+                visited = new HashSet<>(influenced);
+                visited.addAll(getNearby(influenced, changedPrimitives, locality.getDistance()));
+                visited = getLinked(visited, NEIGHBOURS_DEPTH);
+            }
+            influencedByLocality.put(locality, influenced);
+            visitedByLocality.put(locality, inDataSetOrder(all, visited));
+        }
+        updateSnapshots(changedPrimitives);
+
+        for (Map.Entry<Locality, List<Test>> e : testsByLocality.entrySet()) {
+            Collection<OsmPrimitive> visited = visitedByLocality.get(e.getKey());
+            Set<OsmPrimitive> influenced = influencedByLocality.get(e.getKey());
+            runner.run(e.getValue(), visited, true, monitor.createSubTaskMonitor(0, false));
+            if (monitor.isCanceled())
+                return false;
+            for (Test test : e.getValue()) {
+                List<TestError> testErrors = errors.get(test);
+                if (influenced == null) {
+                    testErrors.clear();
+                    testErrors.addAll(test.getErrors());
+                } else {
+                    testErrors.removeIf(error -> involvesAny(error, influenced));
+                    for (TestError error : test.getErrors()) {
+                        if (involvesAny(error, influenced)) {
+                            testErrors.add(error);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean involvesAny(TestError error, Set<OsmPrimitive> primitives) {
+        for (OsmPrimitive p : error.getPrimitives()) {
+            if (primitives.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<OsmPrimitive> inDataSetOrder(Collection<OsmPrimitive> all, Set<OsmPrimitive> primitives) {
+        // visit the primitives in the same order as a full validation, as some tests report primitives in visiting order
+        List<OsmPrimitive> result = new ArrayList<>(primitives.size());
+        for (OsmPrimitive p : all) {
+            if (primitives.contains(p)) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitives which may be reported differently by a test with the given locality.
+     * @param changedPrimitives the changed primitives
+     * @param locality the locality of the test
+     * @return the primitives linked to or near to a changed primitive
+     */
+    private Set<OsmPrimitive> getInfluenced(Set<OsmPrimitive> changedPrimitives, Locality locality) {
+        Set<OsmPrimitive> linked = getLinked(changedPrimitives, locality.getDepth());
+        if (locality.getDistance() >= 0) {
+            linked.addAll(getNearby(linked, changedPrimitives, locality.getDistance()));
+        }
+        return linked;
+    }
+
+    /**
+     * Returns the primitives reachable from the given primitives over at most {@code depth} links, in the current
+     * state or in the state of the last validation.
+     * @param primitives the primitives to start with
+     * @param depth the maximal number of links from a way to its nodes or from a relation to its members, or back
+     * @return the given primitives and the reachable primitives
+     */
+    private Set<OsmPrimitive> getLinked(Collection<OsmPrimitive> primitives, int depth) {
+        Set<OsmPrimitive> result = new HashSet<>(primitives);
+        Collection<OsmPrimitive> frontier = primitives;
+        for (int i = 0; i < depth && !frontier.isEmpty(); i++) {
+            List<OsmPrimitive> next = new ArrayList<>();
+            for (OsmPrimitive p : frontier) {
+                if (p instanceof Way) {
+                    addAllNew(((Way) p).getNodes(), result, next);
+                } else if (p instanceof Relation) {
+                    addAllNew(((Relation) p).getMemberPrimitivesList(), result, next);
+                }
+                Snapshot snapshot = snapshots.get(p);
+                if (snapshot != null) {
+                    addAllNew(snapshot.children, result, next);
+                }
+                addAllNew(p.getReferrers(true), result, next);
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    private static void addAllNew(Collection<? extends OsmPrimitive> primitives, Set<OsmPrimitive> result, List<OsmPrimitive> added) {
+        for (OsmPrimitive p : primitives) {
+            if (result.add(p)) {
+                added.add(p);
+            }
+        }
+    }
+
+    /**
+     * Returns the primitives of the data set near to the given primitives, in their current position or in their position
+     * at the last validation. The position of relations is only considered if they have been changed themselves, as the
+     * position of the other relations is given by their members.
+     * @param primitives the primitives
+     * @param changedPrimitives the changed primitives
+     * @param distance the distance in meters, {@code 0} for intersecting bounding boxes. Nothing is found if negative
+     * @return the primitives near to the given primitives
+     */
+    private Set<OsmPrimitive> getNearby(Collection<OsmPrimitive> primitives, Set<OsmPrimitive> changedPrimitives, double distance) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        if (distance < 0)
+            return result;
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Relation && !changedPrimitives.contains(p)) {
+                continue;
+            }
+            if (p.getDataSet() == dataSet) {
+                addNearby(p.getBBox(), distance, result);
+            }
+            Snapshot snapshot = snapshots.get(p);
+            if (snapshot != null) {
+                addNearby(snapshot.bbox, distance, result);
+            }
+        }
+        return result;
+    }
+
+    private void addNearby(BBox bbox, double distance, Set<OsmPrimitive> result) {
+        if (!bbox.isValid())
+            return;
+        // tolerate rounding errors of tests comparing projected coordinates
+        double dLat = distance / METERS_PER_DEGREE + LatLon.MAX_SERVER_PRECISION;
+        double maxLat = Math.max(Math.abs(bbox.getTopLeftLat()), Math.abs(bbox.getBottomRightLat())) + dLat;
+        double dLon = dLat / Math.max(Math.cos(Math.toRadians(Math.min(maxLat, 89))), 0.01);
+        BBox area = new BBox(bbox.getTopLeftLon() - dLon, bbox.getBottomRightLat() - dLat,
+                bbox.getBottomRightLon() + dLon, bbox.getTopLeftLat() + dLat);
+        result.addAll(dataSet.searchNodes(area));
+        result.addAll(dataSet.searchWays(area));
+        result.addAll(dataSet.searchRelations(area));
+    }
+
+    private void updateSnapshots(Set<OsmPrimitive> changedPrimitives) {
+        Set<Relation> parents = new HashSet<>();
+        for (OsmPrimitive p : changedPrimitives) {
+            if (p.getDataSet() == dataSet && !p.isDeleted()) {
+                snapshots.put(p, new Snapshot(p));
+            } else {
+                snapshots.remove(p);
+            }
+            addParentRelations(p, parents);
+        }
+        // the bounding box of a relation changes with its members
+        for (Relation r : parents) {
+            Snapshot snapshot = snapshots.get(r);
+            if (snapshot != null) {
+                snapshot.bbox = r.getBBox();
+            }
+        }
+    }
+
+    private static void addParentRelations(OsmPrimitive p, Set<Relation> parents) {
+        for (OsmPrimitive referrer : p.getReferrers(true)) {
+            if (referrer instanceof Relation && parents.add((Relation) referrer)) {
+                addParentRelations(referrer, parents);
+            }
+        }
+    }
+
+    private void addChanged(Collection<? extends OsmPrimitive> primitives) {
+        synchronized (changed) {
+            changed.addAll(primitives);
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        Node node = event.getNode();
+        List<OsmPrimitive> primitives = new ArrayList<>(node.getReferrers(true));
+        primitives.add(node);
+        addChanged(primitives);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        if (event instanceof PrimitiveFlagsChangedEvent) {
+            addChanged(event.getPrimitives());
+        }
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        List<AbstractDatasetChangedEvent> events = event.getEvents();
+        if (events != null) {
+            for (AbstractDatasetChangedEvent e : events) {
+                e.fire(this);
+            }
+        } else {
+            invalidate();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JOptionPane;
 
@@ -347,6 +348,17 @@ public final class OsmValidator {
         return griddetail;
     }
 
+    /** number of calls to {@link #initializeTests(Collection)}, so that results of tests initialized again can be discarded */
+    private static final AtomicInteger testsInitializationCount = new AtomicInteger();
+
+    /**
+     * Returns how often tests have been initialized. Tests initialized again may report different errors.
+     * @return the number of calls to {@link #initializeTests(Collection)}
+     */
+    static int getTestsInitializationCount() {
+        return testsInitializationCount.get();
+    }
+
     private static boolean testsInitialized;
 
     /**
@@ -370,6 +382,7 @@ public final class OsmValidator {
      * @param allTests The tests to initialize
      */
     public static void initializeTests(Collection<? extends Test> allTests) {
+        testsInitializationCount.incrementAndGet();
         for (Test test : allTests) {
             try {
                 if (test.enabled) {
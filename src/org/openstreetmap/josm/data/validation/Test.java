@@ -37,7 +37,7 @@ import org.openstreetmap.josm.tools.Utils;
  *
  * @author frsantos
  */
-public class Test extends AbstractVisitor {
+public class Test extends AbstractVisitor implements Cloneable {
 
     protected static final Predicate<OsmPrimitive> IN_DOWNLOADED_AREA = new NotOutsideDataSourceArea();
 
@@ -92,6 +92,96 @@ public class Test extends AbstractVisitor {
         this(name, null);
     }
 
+    /**
+     * Describes how a test may be run by the {@link ValidationRunner} when validating with several threads.
+     * @since 12606
+     */
+    public enum ThreadSafety {
+        /**
+         * The test is run on the calling thread, one test after another (default).
+         */
+        NONE,
+        /**
+         * The test only modifies its own state and only reads the data set, so it can run on another thread,
+         * concurrently with other tests.
+         */
+        ISOLATED,
+        /**
+         * In addition to {@link #ISOLATED}, visiting a primitive only depends on this primitive and on state that
+         * is not modified while visiting. Partitions of the primitives are then visited concurrently by
+         * {@linkplain #copyForPartition copies} of the test.
+         */
+        PER_PRIMITIVE
+    }
+
+    /**
+     * Describes which primitives a change may influence, so that {@link IncrementalValidator} only needs
+     * to validate these primitives again after some primitives have been changed.
+     * @since 12607
+     */
+    public static final class Locality {
+        /**
+         * A change only influences the errors reported for the changed primitive.
+         */
+        public static final Locality PRIMITIVE = new Locality(0, -1, false);
+
+        private final int depth;
+        private final double distance;
+        private final boolean visitNeighbours;
+
+        /**
+         * Constructs a new {@code Locality}.
+         * @param depth number of links between ways and their nodes or relations and their members, followed in
+         * both directions, over which a change may influence the errors reported for other primitives
+         * @param distance distance in meters within which a change may influence the errors reported for other
+         * primitives, {@code 0} if their bounding boxes must intersect, or a negative value if the position does not matter
+         * @param visitNeighbours whether the test collects primitives while visiting them, so that it must also visit
+         * the primitives around an influenced primitive to find its errors
+         */
+        public Locality(int depth, double distance, boolean visitNeighbours) {
+            this.depth = depth;
+            this.distance = distance;
+            this.visitNeighbours = visitNeighbours;
+        }
+
+        /**
+         * Returns the number of links over which a change may influence other primitives.
+         * @return the number of links between ways and their nodes or relations and their members
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns the distance within which a change may influence other primitives.
+         * @return the distance in meters, {@code 0} for intersecting bounding boxes, or a negative value if the position does not matter
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Determines whether the primitives around an influenced primitive must be visited as well.
+         * @return {@code true} if the test collects primitives while visiting them
+         */
+        public boolean isVisitNeighbours() {
+            return visitNeighbours;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Locality that = (Locality) obj;
+            return depth == that.depth && Double.compare(distance, that.distance) == 0 && visitNeighbours == that.visitNeighbours;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(depth, distance, visitNeighbours);
+        }
+    }
+
     /**
      * A test that forwards all primitives to {@link #check(OsmPrimitive)}.
      */
@@ -213,6 +303,44 @@ public class Test extends AbstractVisitor {
         }
     }
 
+    /**
+     * Returns how this test may be run when validating with several threads. Subclasses that keep state
+     * while visiting primitives must override this method if their superclass declares a thread-safety level.
+     * @return the thread-safety level of this test, {@link ThreadSafety#NONE} by default
+     * @since 12606
+     */
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.NONE;
+    }
+
+    /**
+     * Creates a shallow copy of this test which collects its errors separately, to visit a partition of the
+     * primitives concurrently with other copies. Only used for {@link ThreadSafety#PER_PRIMITIVE} tests.
+     * @param progressMonitor the progress monitor of the copy
+     * @return the copy, with an empty error list
+     * @since 12606
+     */
+    protected Test copyForPartition(ProgressMonitor progressMonitor) {
+        try {
+            Test copy = (Test) clone();
+            copy.errors = new ArrayList<>();
+            copy.progressMonitor = progressMonitor;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns which primitives may be reported differently by this test after some primitives have been changed.
+     * Subclasses that depend on other primitives must override this method if their superclass declares a locality.
+     * @return the locality of this test, or {@code null} if a change may influence the errors of all primitives (default)
+     * @since 12607
+     */
+    public Locality getLocality() {
+        return null;
+    }
+
     /**
      * Determines if the primitive is usable for tests.
      * @param p The primitive
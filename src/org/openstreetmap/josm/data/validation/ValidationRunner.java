@@ -0,0 +1,218 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.Test.ThreadSafety;
+import org.openstreetmap.josm.gui.progress.AbstractProgressMonitor;
+import org.openstreetmap.josm.gui.progress.CancelHandler;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor.CancelListener;
+import org.openstreetmap.josm.gui.progress.ProgressTaskId;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs a collection of tests against a collection of primitives.
+ * <p>
+ * Tests are run concurrently as far as their {@link Test#getThreadSafety() thread-safety level} allows:
+ * {@link ThreadSafety#NONE} tests are run one after another on the calling thread,
+ * {@link ThreadSafety#ISOLATED} tests are run as a whole on the thread pool and
+ * {@link ThreadSafety#PER_PRIMITIVE} tests visit partitions of the primitives on the thread pool.
+ * The resulting errors are the same and in the same order as if all tests were run sequentially.
+ * @since 12606
+ */
+public class ValidationRunner {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+
+    /** minimal number of primitives of a partition visited by a copy of a {@link ThreadSafety#PER_PRIMITIVE} test */
+    private static final int MIN_PARTITION_SIZE = 1000;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@code ValidationRunner} that uses the validator thread pool.
+     * The number of threads is given by the preference {@code validator.numberOfThreads}.
+     */
+    public ValidationRunner() {
+        this(THREAD_POOL);
+    }
+
+    /**
+     * Constructs a new {@code ValidationRunner} that uses the given thread pool.
+     * @param pool the thread pool. If {@code null} or of parallelism 1, all tests are run sequentially on the calling thread
+     */
+    public ValidationRunner(ForkJoinPool pool) {
+        this.pool = pool != null && pool.getParallelism() > 1 ? pool : null;
+    }
+
+    /**
+     * Runs the tests.
+     * @param tests the tests to run
+     * @param primitives the primitives to validate
+     * @param partialSelection whether the primitives are only a part of the data, see {@link Test#setPartialSelection}
+     * @param progressMonitor the progress monitor. May be {@code null}
+     * @return the errors found by all tests, ordered by test. Empty if the validation has been canceled
+     */
+    public List<TestError> run(Collection<Test> tests, Collection<OsmPrimitive> primitives, boolean partialSelection,
+            ProgressMonitor progressMonitor) {
+        ProgressMonitor monitor = Optional.ofNullable(progressMonitor).orElse(NullProgressMonitor.INSTANCE);
+        monitor.setTicksCount(tests.size() * primitives.size());
+        CancelHandler cancelHandler = new CancelHandler();
+        CancelListener cancelListener = cancelHandler::cancel;
+        monitor.addCancelListener(cancelListener);
+        try {
+            Map<Test, List<ForkJoinTask<List<TestError>>>> concurrent = new LinkedHashMap<>();
+            List<Test> sequential = new ArrayList<>();
+            for (Test test : tests) {
+                test.setPartialSelection(partialSelection);
+                ThreadSafety threadSafety = pool != null ? test.getThreadSafety() : ThreadSafety.NONE;
+                if (threadSafety == ThreadSafety.PER_PRIMITIVE) {
+                    concurrent.put(test, submitPartitions(test, primitives, cancelHandler));
+                } else if (threadSafety == ThreadSafety.ISOLATED) {
+                    concurrent.put(test, submitTest(test, primitives, cancelHandler));
+                } else {
+                    sequential.add(test);
+                }
+            }
+            // run the other tests while the concurrent tests are running
+            int testCounter = 0;
+            for (Test test : sequential) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+                testCounter++;
+                monitor.setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
+                test.startTest(monitor.createSubTaskMonitor(primitives.size(), false));
+                test.visit(primitives);
+                test.endTest();
+            }
+            for (Map.Entry<Test, List<ForkJoinTask<List<TestError>>>> e : concurrent.entrySet()) {
+                Test test = e.getKey();
+                testCounter++;
+                monitor.setCustomText(tr("Test {0}/{1}: Waiting for {2}", testCounter, tests.size(), test.getName()));
+                for (ForkJoinTask<List<TestError>> task : e.getValue()) {
+                    List<TestError> partitionErrors = task.join();
+                    if (partitionErrors != null) {
+                        test.getErrors().addAll(partitionErrors);
+                    }
+                }
+                if (test.getThreadSafety() == ThreadSafety.PER_PRIMITIVE) {
+                    test.endTest();
+                }
+                monitor.worked(primitives.size());
+            }
+            List<TestError> errors = new ArrayList<>();
+            if (!monitor.isCanceled()) {
+                for (Test test : tests) {
+                    errors.addAll(test.getErrors());
+                }
+            }
+            return errors;
+        } finally {
+            monitor.removeCancelListener(cancelListener);
+        }
+    }
+
+    private List<ForkJoinTask<List<TestError>>> submitTest(Test test, Collection<OsmPrimitive> primitives,
+            CancelHandler cancelHandler) {
+        List<ForkJoinTask<List<TestError>>> tasks = new ArrayList<>(1);
+        tasks.add(pool.submit(() -> {
+            test.startTest(new ConcurrentProgressMonitor(cancelHandler));
+            test.visit(primitives);
+            test.endTest();
+            return null;
+        }));
+        return tasks;
+    }
+
+    private List<ForkJoinTask<List<TestError>>> submitPartitions(Test test, Collection<OsmPrimitive> primitives,
+            CancelHandler cancelHandler) {
+        test.startTest(new ConcurrentProgressMonitor(cancelHandler));
+        List<OsmPrimitive> list = primitives instanceof List ? (List<OsmPrimitive>) primitives : new ArrayList<>(primitives);
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, list.size() / (4 * pool.getParallelism()) + 1);
+        List<ForkJoinTask<List<TestError>>> tasks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += partitionSize) {
+            List<OsmPrimitive> partition = list.subList(from, Math.min(list.size(), from + partitionSize));
+            tasks.add(pool.submit(() -> {
+                ProgressMonitor partitionMonitor = new ConcurrentProgressMonitor(cancelHandler);
+                partitionMonitor.beginTask(null);
+                Test copy = test.copyForPartition(partitionMonitor);
+                copy.visit(partition);
+                partitionMonitor.finishTask();
+                return copy.getErrors();
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Progress monitor for tests running on the thread pool. It does not show any progress,
+     * but is canceled together with the progress monitor of the validation.
+     */
+    private static class ConcurrentProgressMonitor extends AbstractProgressMonitor {
+        private ProgressTaskId taskId;
+
+        ConcurrentProgressMonitor(CancelHandler cancelHandler) {
+            super(cancelHandler);
+        }
+
+        @Override
+        protected void doBeginTask() {
+            // Do nothing
+        }
+
+        @Override
+        protected void doFinishTask() {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetIntermediate(boolean value) {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetTitle(String title) {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetCustomText(String title) {
+            // Do nothing
+        }
+
+        @Override
+        protected void updateProgress(double value) {
+            // Do nothing
+        }
+
+        @Override
+        public void setProgressTaskId(ProgressTaskId taskId) {
+            this.taskId = taskId;
+        }
+
+        @Override
+        public ProgressTaskId getProgressTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public Component getWindowParent() {
+            return null;
+        }
+    }
+}
@@ -231,4 +231,14 @@ public class Addresses extends Test {
                 .primitives(errorList)
                 .build());
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
@@ -55,4 +55,9 @@ public class ApiCapabilitiesTest extends Test {
                     .build());
         }
     }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
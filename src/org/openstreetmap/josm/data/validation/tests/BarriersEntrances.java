@@ -39,4 +39,14 @@ public class BarriersEntrances extends Test {
                     .build());
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
@@ -279,4 +279,9 @@ public class Coastlines extends Test {
 
         return false;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
 }
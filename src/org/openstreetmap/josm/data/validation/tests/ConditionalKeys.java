@@ -244,4 +244,9 @@ public class ConditionalKeys extends Test.TagTest {
     public void check(OsmPrimitive p) {
         errors.addAll(validatePrimitive(p));
     }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
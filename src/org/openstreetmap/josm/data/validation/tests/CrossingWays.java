@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.SegmentIntersectionFinder;
 
 /**
  * Tests if there are segments that crosses in the same layer
@@ -195,6 +196,41 @@ public abstract class CrossingWays extends Test {
         String createMessage(Way w1, Way w2) {
             return tr("Self-crossing ways");
         }
+
+        @Override
+        public void visit(Way w) {
+            // only the segments of the way are compared, sweeping them is faster than filling the grid used for many ways
+            List<WaySegment> segments = new ArrayList<>();
+            SegmentIntersectionFinder finder = new SegmentIntersectionFinder();
+            for (int i = 0; i < w.getNodesCount() - 1; i++) {
+                final WaySegment es = new WaySegment(w, i);
+                final EastNorth en1 = es.getFirstNode().getEastNorth();
+                final EastNorth en2 = es.getSecondNode().getEastNorth();
+                if (en1 == null || en2 == null) {
+                    Main.warn("Crossing ways test skipped "+es);
+                    continue;
+                }
+                segments.add(es);
+                finder.add(en1, en2);
+            }
+            List<WaySegment> highlight = new ArrayList<>();
+            finder.findPairs((first, second) -> {
+                WaySegment es1 = segments.get(second);
+                WaySegment es2 = segments.get(first);
+                if (es1.intersects(es2)) {
+                    highlight.add(es1);
+                    highlight.add(es2);
+                }
+                return true;
+            });
+            if (!highlight.isEmpty()) {
+                errors.add(TestError.builder(this, Severity.WARNING, CROSSING_WAYS)
+                        .message(createMessage(w, w))
+                        .primitives(w)
+                        .highlightWaySegments(highlight)
+                        .build());
+            }
+        }
     }
 
     /**
@@ -255,12 +291,6 @@ public abstract class CrossingWays extends Test {
 
     @Override
     public void visit(Way w) {
-        if (this instanceof SelfCrossing) {
-            // free memory, we are not interested in previous ways
-            cellSegments.clear();
-            seenWays.clear();
-        }
-
         int nodesSize = w.getNodesCount();
         for (int i = 0; i < nodesSize - 1; i++) {
             final WaySegment es1 = new WaySegment(w, i);
@@ -326,4 +356,14 @@ public abstract class CrossingWays extends Test {
         }
         return cells;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, 0, true);
+    }
 }
@@ -30,6 +30,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
@@ -348,4 +349,16 @@ public class DuplicateNode extends Test {
         return it.hasNext() && !it.next().isOutsideDownloadArea();
         // everything else is ok to merge
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        // nodes are duplicates if their coordinates are equal after rounding to the given precision in degrees
+        double precision = Math.max(Main.pref.getDouble("validator.duplicatenodes.precision", 0.), LatLon.MAX_SERVER_PRECISION);
+        return new Locality(2, precision * Ellipsoid.WGS84.a * Math.PI / 180, true);
+    }
 }
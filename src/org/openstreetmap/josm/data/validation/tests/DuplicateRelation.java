@@ -325,4 +325,9 @@ public class DuplicateRelation extends Test {
         }
         return relationsWithRelations <= 1;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
 }
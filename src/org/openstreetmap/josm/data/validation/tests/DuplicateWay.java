@@ -333,4 +333,14 @@ public class DuplicateWay extends Test {
         }
         return waysWithRelations <= 1;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, 0, true);
+    }
 }
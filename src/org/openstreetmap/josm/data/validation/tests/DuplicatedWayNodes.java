@@ -84,4 +84,14 @@ public class DuplicatedWayNodes extends Test {
     public boolean isFixable(TestError testError) {
         return testError.getTester() instanceof DuplicatedWayNodes;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
@@ -294,4 +294,14 @@ public class Highways extends Test {
             }
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
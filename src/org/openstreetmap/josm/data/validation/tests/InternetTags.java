@@ -134,4 +134,14 @@ public class InternetTags extends Test {
     public void visit(Relation r) {
         test(r);
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
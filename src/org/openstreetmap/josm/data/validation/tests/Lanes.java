@@ -92,4 +92,14 @@ public class Lanes extends Test.TagTest {
         checkNumberOfLanesByKey(p, "lanes:backward", tr("Number of lane dependent values inconsistent in backward direction"));
         checkNumberOfLanes(p);
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
@@ -138,4 +138,14 @@ public class LongSegment extends Test {
         // test only Ways with at least 2 nodes
         return p instanceof Way && ((Way) p).getNodesCount() > 1;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
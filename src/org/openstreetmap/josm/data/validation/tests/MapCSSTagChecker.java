@@ -826,4 +826,14 @@ public class MapCSSTagChecker extends Test.TagTest {
         MapCSSTagChecker that = (MapCSSTagChecker) obj;
         return Objects.equals(checks, that.checks);
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, 0, false);
+    }
 }
@@ -885,4 +885,14 @@ public class MultipolygonTest extends Test {
             return null;
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
@@ -102,4 +102,14 @@ public class NameMismatch extends Test.TagTest {
             }
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
@@ -266,4 +266,9 @@ public class OpeningHourTest extends Test.TagTest {
         check(p, "collection_times", CheckMode.BOTH);
         check(p, "service_times", CheckMode.BOTH);
     }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
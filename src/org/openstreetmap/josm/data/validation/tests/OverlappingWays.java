@@ -225,4 +225,14 @@ public class OverlappingWays extends Test {
             lastN = n;
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(3, -1, true);
+    }
 }
@@ -176,4 +176,14 @@ public class PowerLines extends Test {
     private static boolean isBuildingIn(OsmPrimitive p, Collection<String> values) {
         return p.hasTag("building", values);
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, 0, true);
+    }
 }
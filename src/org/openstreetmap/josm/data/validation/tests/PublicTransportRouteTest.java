@@ -87,4 +87,14 @@ public class PublicTransportRouteTest extends Test {
             }
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
@@ -350,4 +350,14 @@ public class RelationChecker extends Test {
         Collection<? extends OsmPrimitive> primitives = testError.getPrimitives();
         return testError.getCode() == RELATION_EMPTY && !primitives.isEmpty() && primitives.iterator().next().isNew();
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
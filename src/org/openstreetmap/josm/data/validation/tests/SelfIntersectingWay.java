@@ -61,4 +61,14 @@ public class SelfIntersectingWay extends Test {
             }
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
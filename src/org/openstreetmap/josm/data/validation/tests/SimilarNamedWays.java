@@ -16,8 +16,10 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
@@ -348,4 +350,15 @@ public class SimilarNamedWays extends Test {
             return "synonyms(" + replacement + ", " + Arrays.toString(words) + ')';
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        // ways are compared if one of their end nodes is in the same grid cell
+        return new Locality(0, Math.sqrt(2) / OsmValidator.getGridDetail() * Main.getProjection().getMetersPerUnit(), true);
+    }
 }
@@ -918,4 +918,14 @@ public class TagChecker extends TagTest {
             return level.code + type.ordinal() + 1;
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return Locality.PRIMITIVE;
+    }
 }
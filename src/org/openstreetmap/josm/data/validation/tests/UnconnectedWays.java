@@ -193,7 +193,7 @@ public abstract class UnconnectedWays extends Test {
                     if (en.isConnectedTo(s.w.getNodes(), 3 /* hops */, null)) {
                         continue;
                     }
-                    map.put(en, s.w);
+                    putNodeNearWay(map, en, s.w);
                 }
             }
         }
@@ -212,9 +212,9 @@ public abstract class UnconnectedWays extends Test {
                     continue;
                 }
                 if (!s.highway && endnodesHighway.contains(en) && !s.w.concernsArea()) {
-                    map.put(en, s.w);
+                    putNodeNearWay(map, en, s.w);
                 } else if (endnodes.contains(en) && !s.w.concernsArea()) {
-                    map.put(en, s.w);
+                    putNodeNearWay(map, en, s.w);
                 }
             }
         }
@@ -235,7 +235,7 @@ public abstract class UnconnectedWays extends Test {
                 if (!middlenodes.contains(en)) {
                     continue;
                 }
-                map.put(en, s.w);
+                putNodeNearWay(map, en, s.w);
             }
         }
         return map;
@@ -255,12 +255,23 @@ public abstract class UnconnectedWays extends Test {
                 if (!othernodes.contains(en)) {
                     continue;
                 }
-                map.put(en, s.w);
+                putNodeNearWay(map, en, s.w);
             }
         }
         return map;
     }
 
+    /**
+     * Remembers that the given node is near the given way. If the node is near several ways, the way with the lowest id
+     * is kept, so that the reported way does not depend on the order in which the ways have been visited.
+     * @param map the map of nodes and the ways they are near to
+     * @param node the node
+     * @param way the way
+     */
+    private static void putNodeNearWay(Map<Node, Way> map, Node node, Way way) {
+        map.merge(node, way, (w1, w2) -> w1.getUniqueId() <= w2.getUniqueId() ? w1 : w2);
+    }
+
     protected final void addErrors(Severity severity, Map<Node, Way> errorMap, String message) {
         for (Map.Entry<Node, Way> error : errorMap.entrySet()) {
             errors.add(TestError.builder(this, severity, UNCONNECTED_WAYS)
@@ -480,4 +491,17 @@ public abstract class UnconnectedWays extends Test {
             }
         }
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        // nodes are not reported if they are connected to the way within 3 hops, i.e. over 6 links between ways and nodes
+        double distance = Math.max(Main.pref.getDouble(PREFIX + ".node_way_distance", 10.0),
+                Main.pref.getDouble(PREFIX + ".way_way_distance", 0.0));
+        return new Locality(6, distance, true);
+    }
 }
@@ -120,4 +120,14 @@ public class UntaggedNode extends Test implements AbstractPrimitive.KeyValueVisi
         }
         return false;
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
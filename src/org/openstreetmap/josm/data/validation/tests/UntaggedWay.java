@@ -183,4 +183,14 @@ public class UntaggedWay extends Test {
     public boolean isPrimitiveUsable(OsmPrimitive p) {
         return p.isUsable();
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.ISOLATED;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(2, -1, false);
+    }
 }
@@ -95,4 +95,14 @@ public class WayConnectedToArea extends Test {
                 .highlight(wayNode)
                 .build());
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(3, -1, false);
+    }
 }
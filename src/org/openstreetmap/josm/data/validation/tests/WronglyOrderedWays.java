@@ -53,4 +53,14 @@ public class WronglyOrderedWays extends Test {
                 .primitives(w)
                 .build());
     }
+
+    @Override
+    public ThreadSafety getThreadSafety() {
+        return ThreadSafety.PER_PRIMITIVE;
+    }
+
+    @Override
+    public Locality getLocality() {
+        return new Locality(1, -1, false);
+    }
 }
@@ -71,6 +71,7 @@ import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.OsmUrlToBounds;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
+import org.openstreetmap.josm.tools.StartupProfiler;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.WindowGeometry;
 import org.openstreetmap.josm.tools.bugreport.BugReport;
@@ -170,6 +171,7 @@ public class MainApplication extends Main {
                 "\t--version                                 "+tr("Displays the JOSM version and exits")+"\n\n"+
                 "\t--debug                                   "+tr("Print debugging messages to console")+"\n\n"+
                 "\t--skip-plugins                            "+tr("Skip loading plugins")+"\n\n"+
+                "\t--startup-profile                         "+tr("Print the duration of startup tasks to console")+"\n\n"+
                 "\t--offline=<osm_api|josm_website|all>      "+tr("Disable access to the given resource(s), separated by comma")+"\n\n"+
                 tr("options provided as Java system properties")+":\n"+
                 align("\t-Djosm.dir.name=JOSM") + tr("Change the JOSM directory name") + "\n\n" +
@@ -260,6 +262,8 @@ public class MainApplication extends Main {
 
         COMMAND_LINE_ARGS.addAll(Arrays.asList(argArray));
 
+        StartupProfiler.setEnabled(args.hasOption(Option.STARTUP_PROFILE));
+
         boolean skipLoadingPlugins = args.hasOption(Option.SKIP_PLUGINS);
         if (skipLoadingPlugins) {
             Main.info(tr("Plugin loading skipped"));
@@ -271,7 +275,9 @@ public class MainApplication extends Main {
             Main.info(tr("Enabled detailed debug level (trace)"));
         }
 
+        long start = System.nanoTime();
         Main.pref.init(args.hasOption(Option.RESET_PREFERENCES));
+        StartupProfiler.record(tr("Loading preferences"), start);
 
         args.getPreferencesToSet().forEach(Main.pref::put);
 
@@ -286,12 +292,15 @@ public class MainApplication extends Main {
 
         Main.platform.afterPrefStartupHook();
 
+        start = System.nanoTime();
         FontsManager.initialize();
 
         I18n.setupLanguageFonts();
 
         Handler.install();
+        StartupProfiler.record(tr("Initializing fonts"), start);
 
+        start = System.nanoTime();
         WindowGeometry geometry = WindowGeometry.mainWindow("gui.geometry",
                 args.getSingle(Option.GEOMETRY).orElse(null),
                 !args.hasOption(Option.NO_MAXIMIZE) && Main.pref.getBoolean("gui.maximized", false));
@@ -301,6 +310,7 @@ public class MainApplication extends Main {
         }
         Main.mainPanel = mainFrame.getPanel();
         Main.parent = mainFrame;
+        StartupProfiler.record(tr("Creating main window"), start);
 
         if (args.hasOption(Option.LOAD_PREFERENCES)) {
             CustomConfigurator.XMLCommandProcessor config = new CustomConfigurator.XMLCommandProcessor(Main.pref);
@@ -314,12 +324,14 @@ public class MainApplication extends Main {
             }
         }
 
+        start = System.nanoTime();
         try {
             CertificateAmendment.addMissingCertificates();
         } catch (IOException | GeneralSecurityException ex) {
             Main.warn(ex);
             Main.warn(getErrorMessage(Utils.getRootCause(ex)));
         }
+        StartupProfiler.record(tr("Adding missing certificates"), start);
         Authenticator.setDefault(DefaultAuthenticator.getInstance());
         DefaultProxySelector proxySelector = new DefaultProxySelector(ProxySelector.getDefault());
         ProxySelector.setDefault(proxySelector);
@@ -348,18 +360,24 @@ public class MainApplication extends Main {
         Collection<PluginInformation> pluginsToLoad = null;
 
         if (!skipLoadingPlugins) {
+            start = System.nanoTime();
             pluginsToLoad = updateAndLoadEarlyPlugins(splash, monitor);
+            StartupProfiler.record(tr("Loading early plugins"), start);
         }
 
         monitor.indeterminateSubTask(tr("Setting defaults"));
-        preConstructorInit();
+        StartupProfiler.measure(tr("Setting defaults"), Main::preConstructorInit);
 
         monitor.indeterminateSubTask(tr("Creating main GUI"));
+        start = System.nanoTime();
         final Main main = new MainApplication(mainFrame);
         main.initialize();
+        StartupProfiler.record(tr("Creating main GUI"), start);
 
         if (!skipLoadingPlugins) {
+            start = System.nanoTime();
             loadLatePlugins(splash, monitor, pluginsToLoad);
+            StartupProfiler.record(tr("Loading plugins"), start);
         }
 
         // Wait for splash disappearance (fix #9714)
@@ -404,6 +422,7 @@ public class MainApplication extends Main {
             info("Enabled EDT checker, wrongful access to gui from non EDT thread will be printed to console");
             RepaintManager.setCurrentManager(new CheckThreadViolationRepaintManager());
         }
+        StartupProfiler.print();
     }
 
     private static InputStream openStream(URL url) throws IOException {
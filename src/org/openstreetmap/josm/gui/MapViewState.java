@@ -375,6 +375,23 @@ public final class MapViewState implements Serializable {
         }
     }
 
+    /**
+     * Creates a state that only shows a part of the current view, e.g. to paint it in several tiles.
+     * <p>
+     * The rectangle may extend beyond the current view.
+     * @param x The x coordinate of the top left corner of the part, in view coordinates.
+     * @param y The y coordinate of the top left corner of the part, in view coordinates.
+     * @param width The width of the part, in pixels.
+     * @param height The height of the part, in pixels.
+     * @return The new state.
+     * @since 12604
+     */
+    public MapViewState usingViewRectangle(double x, double y, int width, int height) {
+        Point inWindow = new Point(topLeftInWindow.x + (int) x, topLeftInWindow.y + (int) y);
+        Point onScreen = new Point(topLeftOnScreen.x + (int) x, topLeftOnScreen.y + (int) y);
+        return new MapViewState(projecting, width, height, scale, getForView(x, y).getEastNorth(), inWindow, onScreen);
+    }
+
     /**
      * Create the default {@link MapViewState} object for the given map view. The screen position won't be set so that this method can be used
      * before the view was added to the hirarchy.
@@ -54,6 +54,7 @@ import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.help.Helpful;
+import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeListener;
 import org.openstreetmap.josm.gui.layer.NativeScaleLayer;
 import org.openstreetmap.josm.gui.layer.NativeScaleLayer.Scale;
 import org.openstreetmap.josm.gui.layer.NativeScaleLayer.ScaleList;
@@ -99,6 +100,11 @@ public class NavigatableComponent extends JComponent implements Helpful {
 
     /** Snap distance */
     public static final IntegerProperty PROP_SNAP_DISTANCE = new IntegerProperty("mappaint.node.snap-distance", 10);
+    /**
+     * Use a screen-space index of the nodes and way segments of the view to find the objects near a point.
+     * @since 12623
+     */
+    public static final BooleanProperty PROP_PICK_INDEX = new BooleanProperty("mappaint.pick-index", true);
     /** Zoom steps to get double scale */
     public static final DoubleProperty PROP_ZOOM_RATIO = new DoubleProperty("zoom.ratio", 2.0);
     /** Divide intervals between native resolution levels to smaller steps if they are much larger than zoom ratio */
@@ -170,6 +176,20 @@ public class NavigatableComponent extends JComponent implements Helpful {
      */
     private transient MapViewState state;
 
+    /**
+     * The index of the objects near the mouse, for the current state and edit data set.
+     */
+    private transient PickIndex pickIndex;
+
+    /**
+     * Drops the pick index when the edit data set changes, so that it does not keep the previous one alive.
+     */
+    private final transient ActiveLayerChangeListener activeLayerChangeListener = e -> {
+        if (e.getPreviousEditDataSet() != e.getSource().getEditDataSet()) {
+            destroyPickIndex();
+        }
+    };
+
     /**
      * Main uses weak link to store this, so we need to keep a reference.
      */
@@ -189,6 +209,7 @@ public class NavigatableComponent extends JComponent implements Helpful {
         updateLocationState();
         addHierarchyListener(hierarchyListener);
         addComponentListener(componentListener);
+        Main.getLayerManager().addActiveLayerChangeListener(activeLayerChangeListener);
         super.addNotify();
     }
 
@@ -196,6 +217,8 @@ public class NavigatableComponent extends JComponent implements Helpful {
     public void removeNotify() {
         removeHierarchyListener(hierarchyListener);
         removeComponentListener(componentListener);
+        Main.getLayerManager().removeActiveLayerChangeListener(activeLayerChangeListener);
+        destroyPickIndex();
         super.removeNotify();
     }
 
@@ -903,20 +926,17 @@ public class NavigatableComponent extends JComponent implements Helpful {
         DataSet ds = Main.getLayerManager().getEditDataSet();
 
         if (ds != null) {
+            PickIndex index = getPickIndex(ds);
+            if (index != null && index.searchNodes(p, predicate, nearestMap)) {
+                return nearestMap;
+            }
             double dist, snapDistanceSq = PROP_SNAP_DISTANCE.get();
             snapDistanceSq *= snapDistanceSq;
 
             for (Node n : ds.searchNodes(getBBox(p, PROP_SNAP_DISTANCE.get()))) {
                 if (predicate.test(n)
                         && (dist = getPoint2D(n).distanceSq(p)) < snapDistanceSq) {
-                    List<Node> nlist;
-                    if (nearestMap.containsKey(dist)) {
-                        nlist = nearestMap.get(dist);
-                    } else {
-                        nlist = new LinkedList<>();
-                        nearestMap.put(dist, nlist);
-                    }
-                    nlist.add(n);
+                    nearestMap.computeIfAbsent(dist, k -> new ArrayList<>()).add(n);
                 }
             }
         }
@@ -924,6 +944,37 @@ public class NavigatableComponent extends JComponent implements Helpful {
         return nearestMap;
     }
 
+    /**
+     * Returns the index of the objects near the mouse for the current view and the given data set,
+     * building it if the view, the data set or the snap distances have changed since it was built.
+     * @param ds the edit data set
+     * @return the index, or {@code null} if it is disabled
+     */
+    private PickIndex getPickIndex(DataSet ds) {
+        if (!PROP_PICK_INDEX.get()) {
+            return null;
+        }
+        int nodeSnapDistance = PROP_SNAP_DISTANCE.get();
+        int segmentSnapDistance = Main.pref.getInteger("mappaint.segment.snap-distance", 10);
+        PickIndex index = pickIndex;
+        if (index == null || !index.isValidFor(ds, state, nodeSnapDistance, segmentSnapDistance)) {
+            if (index != null) {
+                index.destroy();
+            }
+            index = new PickIndex(ds, state, nodeSnapDistance, segmentSnapDistance);
+            pickIndex = index;
+        }
+        return index;
+    }
+
+    private void destroyPickIndex() {
+        PickIndex index = pickIndex;
+        if (index != null) {
+            pickIndex = null;
+            index.destroy();
+        }
+    }
+
     /**
      * The *result* does not depend on the current map selection state,
      * neither does the result *order*.
@@ -1112,6 +1163,10 @@ public class NavigatableComponent extends JComponent implements Helpful {
         DataSet ds = Main.getLayerManager().getEditDataSet();
 
         if (ds != null) {
+            PickIndex index = getPickIndex(ds);
+            if (index != null && index.searchWaySegments(p, predicate, nearestMap)) {
+                return nearestMap;
+            }
             double snapDistanceSq = Main.pref.getInteger("mappaint.segment.snap-distance", 10);
             snapDistanceSq *= snapDistanceSq;
 
@@ -1133,28 +1188,9 @@ public class NavigatableComponent extends JComponent implements Helpful {
 
                     Point2D pA = getPoint2D(lastN);
                     Point2D pB = getPoint2D(n);
-                    double c = pA.distanceSq(pB);
-                    double a = p.distanceSq(pB);
-                    double b = p.distanceSq(pA);
-
-                    /* perpendicular distance squared
-                     * loose some precision to account for possible deviations in the calculation above
-                     * e.g. if identical (A and B) come about reversed in another way, values may differ
-                     * -- zero out least significant 32 dual digits of mantissa..
-                     */
-                    double perDistSq = Double.longBitsToDouble(
-                            Double.doubleToLongBits(a - (a - b + c) * (a - b + c) / 4 / c)
-                            >> 32 << 32); // resolution in numbers with large exponent not needed here..
-
-                    if (perDistSq < snapDistanceSq && a < c + snapDistanceSq && b < c + snapDistanceSq) {
-                        List<WaySegment> wslist;
-                        if (nearestMap.containsKey(perDistSq)) {
-                            wslist = nearestMap.get(perDistSq);
-                        } else {
-                            wslist = new LinkedList<>();
-                            nearestMap.put(perDistSq, wslist);
-                        }
-                        wslist.add(new WaySegment(w, i));
+                    double perDistSq = PickIndex.perpendicularDistanceSq(p, pA.getX(), pA.getY(), pB.getX(), pB.getY(), snapDistanceSq);
+                    if (!Double.isNaN(perDistSq)) {
+                        nearestMap.computeIfAbsent(perDistSq, k -> new ArrayList<>()).add(new WaySegment(w, i));
                     }
 
                     lastN = n;
@@ -0,0 +1,460 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * Screen-space index of the nodes and way segments of a data set, used to find the objects near the mouse
+ * in {@link NavigatableComponent} without searching the data set and projecting the candidates again.
+ * <p>
+ * The index is built for one {@link MapViewState}: the view, enlarged by the snap distance, is divided in square cells
+ * and each node and way segment is registered in the cells it is within snap distance of. Only the cell of the mouse
+ * position has to be searched then.
+ * <p>
+ * The index listens to the changes of the data set. Moved, added and removed nodes and ways are not searched
+ * in the cells anymore but checked one by one, until too many of them have changed and the index is rebuilt.
+ * @since 12623
+ */
+final class PickIndex implements DataSetListener {
+
+    /** number of changed primitives from which the index is rebuilt */
+    private static final int MAX_CHANGED = 1000;
+
+    private final DataSet dataSet;
+    private final MapViewState state;
+    private final int nodeSnapDistance;
+    private final int segmentSnapDistance;
+
+    private final double cellSize;
+    private final double originX;
+    private final double originY;
+    private final int columns;
+    private final int rows;
+
+    private final Node[] nodes;
+    /** screen positions of the nodes, as x, y pairs */
+    private final double[] nodePoints;
+    private final int[] nodeCellStart;
+    private final int[] nodeCellEntries;
+
+    private final Way[] segmentWays;
+    private final int[] segmentIndices;
+    /** screen positions of the segments ends, as x1, y1, x2, y2 */
+    private final double[] segmentPoints;
+    private final int[] segmentCellStart;
+    private final int[] segmentCellEntries;
+
+    private final Set<Node> changedNodes = new HashSet<>();
+    private final Set<Way> changedWays = new HashSet<>();
+    private boolean outdated;
+
+    /**
+     * Builds the index of the nodes and way segments visible in the given state and starts listening
+     * to the changes of the data set.
+     * @param dataSet the data set
+     * @param state the view
+     * @param nodeSnapDistance the maximum distance, in pixels, at which nodes are searched
+     * @param segmentSnapDistance the maximum distance, in pixels, at which way segments are searched
+     */
+    PickIndex(DataSet dataSet, MapViewState state, int nodeSnapDistance, int segmentSnapDistance) {
+        this.dataSet = dataSet;
+        this.state = state;
+        this.nodeSnapDistance = nodeSnapDistance;
+        this.segmentSnapDistance = segmentSnapDistance;
+        int margin = Math.max(1, Math.max(nodeSnapDistance, segmentSnapDistance));
+        cellSize = 2 * margin;
+        originX = -margin;
+        originY = -margin;
+        columns = (int) Math.ceil((state.getViewWidth() + 2 * margin) / cellSize);
+        rows = (int) Math.ceil((state.getViewHeight() + 2 * margin) / cellSize);
+
+        // the cells cover the view enlarged by the margin, the objects within snap distance of them are indexed
+        BBox bbox = state.getViewArea(new Rectangle2D.Double(-2 * margin, -2 * margin,
+                state.getViewWidth() + 4 * margin, state.getViewHeight() + 4 * margin)).getLatLonBoundsBox().toBBox();
+
+        List<Node> nodeList = new ArrayList<>();
+        CellEntries nodeEntries = new CellEntries();
+        double[] points = new double[64];
+        for (Node n : dataSet.searchNodes(bbox)) {
+            Point2D p = getPoint(n);
+            if (p == null) {
+                continue;
+            }
+            int i = nodeList.size();
+            if (2 * i + 2 > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            points[2 * i] = p.getX();
+            points[2 * i + 1] = p.getY();
+            nodeList.add(n);
+            addToCells(nodeEntries, i, p.getX(), p.getY(), p.getX(), p.getY(), nodeSnapDistance);
+        }
+        nodes = nodeList.toArray(new Node[0]);
+        nodePoints = Arrays.copyOf(points, 2 * nodes.length);
+        nodeCellStart = new int[columns * rows + 1];
+        nodeCellEntries = nodeEntries.sort(nodeCellStart);
+
+        List<Way> wayList = new ArrayList<>();
+        int[] indices = new int[64];
+        CellEntries segmentEntries = new CellEntries();
+        points = new double[4 * indices.length];
+        for (Way w : dataSet.searchWays(bbox)) {
+            Point2D last = null;
+            int i = -2;
+            for (Node n : w.getNodes()) {
+                i++;
+                if (n.isDeleted() || n.isIncomplete()) {
+                    continue;
+                }
+                Point2D p = getPoint(n);
+                if (p == null) {
+                    continue;
+                }
+                if (last != null) {
+                    int s = wayList.size();
+                    if (s + 1 > indices.length) {
+                        indices = Arrays.copyOf(indices, 2 * indices.length);
+                        points = Arrays.copyOf(points, 4 * indices.length);
+                    }
+                    indices[s] = i;
+                    points[4 * s] = last.getX();
+                    points[4 * s + 1] = last.getY();
+                    points[4 * s + 2] = p.getX();
+                    points[4 * s + 3] = p.getY();
+                    wayList.add(w);
+                    addToCells(segmentEntries, s, last.getX(), last.getY(), p.getX(), p.getY(), segmentSnapDistance);
+                }
+                last = p;
+            }
+        }
+        segmentWays = wayList.toArray(new Way[0]);
+        segmentIndices = Arrays.copyOf(indices, segmentWays.length);
+        segmentPoints = Arrays.copyOf(points, 4 * segmentWays.length);
+        segmentCellStart = new int[columns * rows + 1];
+        segmentCellEntries = segmentEntries.sort(segmentCellStart);
+
+        dataSet.addDataSetListener(this);
+    }
+
+    /**
+     * Returns the position of a node in the view, as {@link NavigatableComponent#getPoint2D(Node)} does.
+     * @param n the node
+     * @return the position of the node, or {@code null} if it has no coordinates
+     */
+    private Point2D getPoint(Node n) {
+        EastNorth en = n.getEastNorth();
+        return en == null ? null : state.getPointFor(en).getInView();
+    }
+
+    /**
+     * The pairs of cell and item collected while building the index, sorted by cell at the end.
+     */
+    private static final class CellEntries {
+        private int[] cells = new int[256];
+        private int[] items = new int[256];
+        private int size;
+
+        void add(int cell, int item) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, 2 * size);
+                items = Arrays.copyOf(items, 2 * size);
+            }
+            cells[size] = cell;
+            items[size++] = item;
+        }
+
+        /**
+         * Sorts the items by cell, keeping their order within each cell.
+         * @param cellStart receives the index of the first item of each cell, and the number of items at the end
+         * @return the items sorted by cell
+         */
+        int[] sort(int[] cellStart) {
+            for (int i = 0; i < size; i++) {
+                cellStart[cells[i] + 1]++;
+            }
+            for (int c = 1; c < cellStart.length; c++) {
+                cellStart[c] += cellStart[c - 1];
+            }
+            int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[next[cells[i]]++] = items[i];
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * Registers an item in all cells within the snap distance of the segment from (x1, y1) to (x2, y2).
+     * For each row of cells, the part of the segment in the row, enlarged by the snap distance, is computed.
+     */
+    private void addToCells(CellEntries entries, int item, double x1, double y1, double x2, double y2, int snap) {
+        int firstRow = Math.max(0, (int) Math.floor((Math.min(y1, y2) - snap - originY) / cellSize));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((Math.max(y1, y2) + snap - originY) / cellSize));
+        for (int r = firstRow; r <= lastRow; r++) {
+            double minX;
+            double maxX;
+            if (y1 == y2) {
+                minX = Math.min(x1, x2);
+                maxX = Math.max(x1, x2);
+            } else {
+                double top = originY + r * cellSize - snap;
+                double bottom = top + cellSize + 2 * snap;
+                double t1 = Math.min(1, Math.max(0, (top - y1) / (y2 - y1)));
+                double t2 = Math.min(1, Math.max(0, (bottom - y1) / (y2 - y1)));
+                double xa = x1 + t1 * (x2 - x1);
+                double xb = x1 + t2 * (x2 - x1);
+                minX = Math.min(xa, xb);
+                maxX = Math.max(xa, xb);
+            }
+            int firstColumn = Math.max(0, (int) Math.floor((minX - snap - originX) / cellSize));
+            int lastColumn = Math.min(columns - 1, (int) Math.floor((maxX + snap - originX) / cellSize));
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                entries.add(r * columns + c, item);
+            }
+        }
+    }
+
+    /**
+     * Determines if this index can be used for the given data set, view and snap distances.
+     * @param ds the data set
+     * @param mvs the view
+     * @param nodeSnap the maximum distance, in pixels, at which nodes are searched
+     * @param segmentSnap the maximum distance, in pixels, at which way segments are searched
+     * @return {@code true} if this index can be used
+     */
+    synchronized boolean isValidFor(DataSet ds, MapViewState mvs, int nodeSnap, int segmentSnap) {
+        return !outdated && ds == dataSet && mvs == state && nodeSnap == nodeSnapDistance && segmentSnap == segmentSnapDistance;
+    }
+
+    /**
+     * Stops listening to the changes of the data set.
+     */
+    void destroy() {
+        dataSet.removeDataSetListener(this);
+    }
+
+    private int getCell(Point2D p) {
+        double x = (p.getX() - originX) / cellSize;
+        double y = (p.getY() - originY) / cellSize;
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return -1;
+        }
+        return (int) y * columns + (int) x;
+    }
+
+    private static <T> void add(Map<Double, List<T>> nearestMap, double dist, T item) {
+        nearestMap.computeIfAbsent(dist, k -> new ArrayList<>()).add(item);
+    }
+
+    /**
+     * Adds the nodes within snap distance of a point to a map, as {@code NavigatableComponent#getNearestNodesImpl} does.
+     * @param p the point
+     * @param predicate the condition the nodes must fulfill
+     * @param nearestMap the map receiving the nodes, sorted by their squared distance to the point
+     * @return {@code false} if the point is not covered by this index, so that the data set must be searched instead
+     */
+    synchronized boolean searchNodes(Point2D p, Predicate<OsmPrimitive> predicate, Map<Double, List<Node>> nearestMap) {
+        int cell = getCell(p);
+        if (cell < 0) {
+            return false;
+        }
+        double snapDistanceSq = (double) nodeSnapDistance * nodeSnapDistance;
+        boolean anyChanged = !changedNodes.isEmpty();
+        for (int e = nodeCellStart[cell]; e < nodeCellStart[cell + 1]; e++) {
+            int i = nodeCellEntries[e];
+            Node n = nodes[i];
+            if (anyChanged && changedNodes.contains(n)) {
+                continue;
+            }
+            double dist = p.distanceSq(nodePoints[2 * i], nodePoints[2 * i + 1]);
+            if (dist < snapDistanceSq && predicate.test(n)) {
+                add(nearestMap, dist, n);
+            }
+        }
+        for (Node n : changedNodes) {
+            Point2D np;
+            if (n.getDataSet() == dataSet && (np = getPoint(n)) != null) {
+                double dist = np.distanceSq(p);
+                if (dist < snapDistanceSq && predicate.test(n)) {
+                    add(nearestMap, dist, n);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the way segments within snap distance of a point to a map, as {@code NavigatableComponent#getNearestWaySegmentsImpl}
+     * does.
+     * @param p the point
+     * @param predicate the condition the ways must fulfill
+     * @param nearestMap the map receiving the way segments, sorted by their squared perpendicular distance to the point
+     * @return {@code false} if the point is not covered by this index, so that the data set must be searched instead
+     */
+    synchronized boolean searchWaySegments(Point2D p, Predicate<OsmPrimitive> predicate, Map<Double, List<WaySegment>> nearestMap) {
+        int cell = getCell(p);
+        if (cell < 0) {
+            return false;
+        }
+        double snapDistanceSq = (double) segmentSnapDistance * segmentSnapDistance;
+        boolean anyChanged = !changedWays.isEmpty();
+        for (int e = segmentCellStart[cell]; e < segmentCellStart[cell + 1]; e++) {
+            int s = segmentCellEntries[e];
+            Way w = segmentWays[s];
+            if (anyChanged && changedWays.contains(w)) {
+                continue;
+            }
+            double dist = perpendicularDistanceSq(p, segmentPoints[4 * s], segmentPoints[4 * s + 1],
+                    segmentPoints[4 * s + 2], segmentPoints[4 * s + 3], snapDistanceSq);
+            if (!Double.isNaN(dist) && predicate.test(w)) {
+                add(nearestMap, dist, new WaySegment(w, segmentIndices[s]));
+            }
+        }
+        for (Way w : changedWays) {
+            if (w.getDataSet() != dataSet || !predicate.test(w)) {
+                continue;
+            }
+            Point2D last = null;
+            int i = -2;
+            for (Node n : w.getNodes()) {
+                i++;
+                Point2D np;
+                if (n.isDeleted() || n.isIncomplete() || (np = getPoint(n)) == null) {
+                    continue;
+                }
+                if (last != null) {
+                    double dist = perpendicularDistanceSq(p, last.getX(), last.getY(), np.getX(), np.getY(), snapDistanceSq);
+                    if (!Double.isNaN(dist)) {
+                        add(nearestMap, dist, new WaySegment(w, i));
+                    }
+                }
+                last = np;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the perpendicular distance of a point to a segment, as {@code NavigatableComponent#getNearestWaySegmentsImpl} does.
+     * @return the squared distance, or {@code NaN} if the point is not within snap distance of the segment
+     */
+    static double perpendicularDistanceSq(Point2D p, double ax, double ay, double bx, double by, double snapDistanceSq) {
+        double c = Point2D.distanceSq(ax, ay, bx, by);
+        double a = p.distanceSq(bx, by);
+        double b = p.distanceSq(ax, ay);
+
+        /* perpendicular distance squared
+         * loose some precision to account for possible deviations in the calculation above
+         * e.g. if identical (A and B) come about reversed in another way, values may differ
+         * -- zero out least significant 32 dual digits of mantissa..
+         */
+        double perDistSq = Double.longBitsToDouble(
+                Double.doubleToLongBits(a - (a - b + c) * (a - b + c) / 4 / c)
+                >> 32 << 32); // resolution in numbers with large exponent not needed here..
+
+        if (perDistSq < snapDistanceSq && a < c + snapDistanceSq && b < c + snapDistanceSq) {
+            return perDistSq;
+        }
+        return Double.NaN;
+    }
+
+    private synchronized void changed(Node n) {
+        changedNodes.add(n);
+        // the ways of a removed node are changed or removed too
+        if (n.getDataSet() == dataSet) {
+            for (OsmPrimitive referrer : n.getReferrers()) {
+                if (referrer instanceof Way) {
+                    changedWays.add((Way) referrer);
+                }
+            }
+        }
+        checkSize();
+    }
+
+    private synchronized void changed(Way w) {
+        changedWays.add(w);
+        checkSize();
+    }
+
+    private void checkSize() {
+        if (changedNodes.size() + changedWays.size() > MAX_CHANGED) {
+            outdated = true;
+        }
+    }
+
+    private void changed(List<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Node) {
+                changed((Node) p);
+            } else if (p instanceof Way) {
+                changed((Way) p);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        changed(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        changed(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Tags are checked by the predicates when searching
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        changed(event.getNode());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        changed(event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Relations are not indexed
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Flags are checked by the predicates when searching
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        outdated = true;
+    }
+}
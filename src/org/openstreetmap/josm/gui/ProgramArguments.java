@@ -64,7 +64,9 @@ public class ProgramArguments {
         /** --offline=&lt;osm_api|josm_website|all&gt; Disable access to the given resource(s), delimited by comma */
         OFFLINE(true),
         /** --skip-plugins */
-        SKIP_PLUGINS(false);
+        SKIP_PLUGINS(false),
+        /** --startup-profile */
+        STARTUP_PROFILE(false);
 
         private final String name;
         private final boolean requiresArg;
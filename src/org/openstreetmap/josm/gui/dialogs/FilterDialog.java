@@ -27,7 +27,6 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.mapmode.MapMode;
 import org.openstreetmap.josm.actions.search.SearchAction;
 import org.openstreetmap.josm.data.osm.Filter;
-import org.openstreetmap.josm.data.osm.FilterModel;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
@@ -333,17 +332,17 @@ public class FilterDialog extends ToggleDialog implements DataSetListener, MapMo
 
     @Override
     public void relationMembersChanged(RelationMembersChangedEvent event) {
-        filterModel.executeFilters(FilterModel.getAffectedPrimitives(event.getPrimitives()));
+        filterModel.executeFilters(event.getPrimitives());
     }
 
     @Override
     public void tagsChanged(TagsChangedEvent event) {
-        filterModel.executeFilters(FilterModel.getAffectedPrimitives(event.getPrimitives()));
+        filterModel.executeFilters(event.getPrimitives());
     }
 
     @Override
     public void wayNodesChanged(WayNodesChangedEvent event) {
-        filterModel.executeFilters(FilterModel.getAffectedPrimitives(event.getPrimitives()));
+        filterModel.executeFilters(event.getPrimitives());
     }
 
     @Override
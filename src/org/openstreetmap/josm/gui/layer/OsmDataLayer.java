@@ -79,6 +79,8 @@ import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
 import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapTileCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.preferences.ColorProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -349,6 +351,11 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, D
      */
     private final ConflictCollection conflicts;
 
+    /**
+     * the tiles of the static part of the map, if enabled
+     */
+    private StyledMapTileCache tileCache;
+
     /**
      * a texture for non-downloaded area
      */
@@ -475,10 +482,37 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, D
         }
 
         Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.render(data, virtual, box);
+        if (StyledMapTileCache.PROPERTY_ENABLED.get() && StyledMapRenderer.class.equals(painter.getClass())) {
+            if (tileCache == null) {
+                tileCache = new StyledMapTileCache(data);
+            }
+            tileCache.render(g, mv, inactive, virtual, box);
+        } else {
+            destroyTileCache();
+            painter.render(data, virtual, box);
+        }
         Main.map.conflictDialog.paintConflicts(g, mv);
     }
 
+    /**
+     * Discards the tiles of the static part of the map, if any, and triggers a repaint.
+     * To be called when the appearance of primitives changes without data set event, e.g. when filters are executed.
+     * @since 12604
+     */
+    public void invalidateTileCache() {
+        if (tileCache != null) {
+            tileCache.clear();
+        }
+        invalidate();
+    }
+
+    private void destroyTileCache() {
+        if (tileCache != null) {
+            tileCache.destroy();
+            tileCache = null;
+        }
+    }
+
     @Override public String getToolTipText() {
         DataCountVisitor counter = new DataCountVisitor();
         for (final OsmPrimitive osm : data.allPrimitives()) {
@@ -992,6 +1026,7 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, D
         super.destroy();
         data.removeSelectionListener(this);
         data.removeHighlightUpdateListener(this);
+        destroyTileCache();
     }
 
     @Override
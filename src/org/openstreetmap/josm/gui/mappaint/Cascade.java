@@ -174,6 +174,8 @@ public final class Cascade {
     }
 
     private static Float toFloat(Object o) {
+        if (o instanceof Float)
+            return (Float) o;
         if (o instanceof Number)
             return ((Number) o).floatValue();
         if (o instanceof String && !((String) o).isEmpty()) {
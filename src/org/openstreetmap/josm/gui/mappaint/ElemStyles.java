@@ -95,6 +95,21 @@ public class ElemStyles implements PreferenceChangedListener {
         return Collections.<StyleSource>unmodifiableList(styleSources);
     }
 
+    /**
+     * Returns how many parent or child links the active style sources follow at most.
+     * @return the maximum {@linkplain StyleSource#getLinkDepth() link depth} of the active style sources
+     * @since 12605
+     */
+    public int getLinkDepth() {
+        int depth = 0;
+        for (StyleSource s : styleSources) {
+            if (s.active) {
+                depth = Math.max(depth, s.getLinkDepth());
+            }
+        }
+        return depth;
+    }
+
     /**
      * Create the list of styles for one primitive.
      *
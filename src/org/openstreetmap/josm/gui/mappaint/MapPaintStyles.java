@@ -20,6 +20,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -539,6 +540,7 @@ public final class MapPaintStyles {
      * Notifies all listeners that there was any update to the map paint styles
      */
     public static void fireMapPaintSylesUpdated() {
+        OsmPrimitive.setMappaintLinkDepth(styles.getLinkDepth());
         listeners.fireEvent(MapPaintSylesUpdateListener::mapPaintStylesUpdated);
     }
 
@@ -547,6 +549,7 @@ public final class MapPaintStyles {
      * @param index The style index
      */
     public static void fireMapPaintStyleEntryUpdated(int index) {
+        OsmPrimitive.setMappaintLinkDepth(styles.getLinkDepth());
         listeners.fireEvent(l -> l.mapPaintStyleEntryUpdated(index));
     }
 }
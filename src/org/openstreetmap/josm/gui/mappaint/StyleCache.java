@@ -1,10 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.tools.Pair;
 
 /**
@@ -14,8 +18,10 @@ import org.openstreetmap.josm.tools.Pair;
  */
 public final class StyleCache {
 
-    // TODO: clean up the intern pool from time to time (after purge or layer removal)
-    private static final Storage<StyleCache> internPool = new Storage<>();
+    // weak entries: a style cache is dropped from the pool once no primitive uses it any more (e.g. after layer removal).
+    // The pool is used by the parallel style computation, so it does not lock.
+    private static final ConcurrentMap<PoolReference, PoolReference> internPool = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<StyleCache> collected = new ReferenceQueue<>();
 
     /**
      * An empty style cache entry
@@ -92,12 +98,31 @@ public final class StyleCache {
      * @return style cache
      */
     private StyleCache intern() {
-        return internPool.putUnique(this);
+        purgeInternPool();
+        PoolReference ref = new PoolReference(this);
+        while (true) {
+            PoolReference existing = internPool.putIfAbsent(ref, ref);
+            if (existing == null) {
+                return this;
+            }
+            StyleCache interned = existing.get();
+            if (interned != null) {
+                return interned;
+            }
+            // collected since it was found
+            internPool.remove(existing);
+        }
+    }
+
+    private static void purgeInternPool() {
+        for (Reference<? extends StyleCache> ref = collected.poll(); ref != null; ref = collected.poll()) {
+            internPool.remove(ref);
+        }
     }
 
     /**
      * Clears the style cache. This should only be used for testing.
-     * It may be removed some day and replaced by a WeakReference implementation that automatically forgets old entries.
+     * Entries that are no longer used are removed from the pool automatically.
      */
     static void clearStyleCachePool() {
         internPool.clear();
@@ -108,6 +133,37 @@ public final class StyleCache {
      * @return size of the intern pool
      */
     public static int getInternPoolSize() {
+        purgeInternPool();
         return internPool.size();
     }
+
+    /**
+     * A weak reference to a pooled style cache, equal to the references to equal style caches.
+     * Once the style cache has been collected, the reference is only equal to itself, so that it can be removed.
+     */
+    private static final class PoolReference extends WeakReference<StyleCache> {
+        private final int hash;
+
+        PoolReference(StyleCache referent) {
+            super(referent, collected);
+            hash = referent.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof PoolReference)) {
+                return false;
+            }
+            StyleCache referent = get();
+            return referent != null && referent.equals(((PoolReference) obj).get());
+        }
+    }
 }
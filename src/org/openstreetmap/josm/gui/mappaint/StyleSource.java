@@ -247,6 +247,16 @@ public abstract class StyleSource extends SourceEntry {
                 n, n);
     }
 
+    /**
+     * Returns how many parent or child links the rules of this style follow at most, i.e. how far away the tags
+     * of another primitive can influence the style of a primitive.
+     * @return the link depth, 0 if the rules only look at the primitive itself
+     * @since 12605
+     */
+    public int getLinkDepth() {
+        return 0;
+    }
+
     /**
      * Gets the background color that was set in this style
      * @return The color or <code>null</code> if it was not set
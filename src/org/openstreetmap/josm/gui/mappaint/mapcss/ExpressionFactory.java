@@ -6,8 +6,10 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -16,8 +18,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,7 +52,8 @@ import org.openstreetmap.josm.tools.Utils;
 /**
  * Factory to generate {@link Expression}s.
  * <p>
- * See {@link #createFunctionExpression}.
+ * See {@link #createFunctionExpression}. The functions are linked once to a {@link MethodHandle},
+ * and the function calls whose arguments are all constant are evaluated when the expression is created.
  */
 public final class ExpressionFactory {
 
@@ -62,6 +67,9 @@ public final class ExpressionFactory {
     private static final List<Method> arrayFunctions = new ArrayList<>();
     private static final List<Method> parameterFunctions = new ArrayList<>();
     private static final List<Method> parameterFunctionsEnv = new ArrayList<>();
+    private static final Map<Method, MethodHandle> handles = new ConcurrentHashMap<>();
+    /** Functions which must be evaluated each time, even if their arguments are constant */
+    private static final List<String> volatileFunctions = Arrays.asList("random", "print", "println");
 
     static {
         for (Method m : Functions.class.getDeclaredMethods()) {
@@ -1056,26 +1064,34 @@ public final class ExpressionFactory {
      * returns {@link NullExpression#INSTANCE}.
      */
     public static Expression createFunctionExpression(String name, List<Expression> args) {
-        if ("cond".equals(name) && args.size() == 3)
+        if ("cond".equals(name) && args.size() == 3) {
+            if (isConstant(args.get(0))) {
+                Boolean b = Cascade.convertTo(args.get(0).evaluate(null), boolean.class);
+                Expression option = b != null && b ? args.get(1) : args.get(2);
+                // keep literals apart from the result of expressions, see Instruction.AssignmentInstruction
+                return option instanceof LiteralExpression ? new ConstantExpression(option.evaluate(null), option) : option;
+            }
             return new CondOperator(args.get(0), args.get(1), args.get(2));
-        else if ("and".equals(name))
-            return new AndOperator(args);
+        } else if ("and".equals(name))
+            return fold(new AndOperator(args), args);
         else if ("or".equals(name))
-            return new OrOperator(args);
+            return fold(new OrOperator(args), args);
         else if ("length".equals(name) && args.size() == 1)
-            return new LengthFunction(args.get(0));
+            return fold(new LengthFunction(args.get(0)), args);
         else if ("max".equals(name) && !args.isEmpty())
-            return new MinMaxFunction(args, true);
+            return fold(new MinMaxFunction(args, true), args);
         else if ("min".equals(name) && !args.isEmpty())
-            return new MinMaxFunction(args, false);
+            return fold(new MinMaxFunction(args, false), args);
 
         for (Method m : arrayFunctions) {
             if (m.getName().equals(name))
-                return new ArrayFunction(m, args);
+                return fold(new ArrayFunction(m, args), args);
         }
         for (Method m : parameterFunctions) {
-            if (m.getName().equals(name) && args.size() == m.getParameterTypes().length)
-                return new ParameterFunction(m, args, false);
+            if (m.getName().equals(name) && args.size() == m.getParameterTypes().length) {
+                ParameterFunction f = new ParameterFunction(m, args, false);
+                return volatileFunctions.contains(name) ? f : fold(f, args);
+            }
         }
         for (Method m : parameterFunctionsEnv) {
             if (m.getName().equals(name) && args.size() == m.getParameterTypes().length-1)
@@ -1084,6 +1100,93 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    private static boolean isConstant(Expression e) {
+        return e instanceof LiteralExpression || e instanceof NullExpression || e instanceof ConstantExpression;
+    }
+
+    /**
+     * Replaces a function call by its result if all its arguments are constant.
+     * @param e the function call, which must not depend on the environment
+     * @param args the arguments of the function call
+     * @return the function call, or its result if all arguments are constant
+     */
+    private static Expression fold(Expression e, List<Expression> args) {
+        for (Expression arg : args) {
+            if (!isConstant(arg))
+                return e;
+        }
+        Object value = e.evaluate(null);
+        return value == null ? NullExpression.INSTANCE : new ConstantExpression(value, e);
+    }
+
+    /**
+     * Returns the method handle of a function, adapted to take its arguments as an {@code Object[]}
+     * and to return an {@code Object}.
+     * @param m the function
+     * @return the method handle of the function
+     */
+    private static MethodHandle getHandle(Method m) {
+        return handles.computeIfAbsent(m, k -> {
+            try {
+                int n = k.getParameterTypes().length;
+                return MethodHandles.publicLookup().unreflect(k).asFixedArity()
+                        .asType(MethodType.genericMethodType(n))
+                        .asSpreader(Object[].class, n);
+            } catch (IllegalAccessException ex) {
+                throw new JosmRuntimeException(ex);
+            }
+        });
+    }
+
+    /**
+     * Calls a function through its method handle.
+     * @param handle the method handle of the function, see {@link #getHandle}
+     * @param args the arguments
+     * @return the result of the function, or {@code null} if it failed
+     */
+    private static Object invoke(MethodHandle handle, Object[] args) {
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (RuntimeException ex) {
+            Main.error(ex);
+            return null;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) { // NOPMD
+            throw new JosmRuntimeException(ex);
+        }
+    }
+
+    /**
+     * The result of a function call whose arguments are all constant, computed when the expression was created.
+     * @since 12621
+     */
+    public static class ConstantExpression implements Expression {
+
+        private final Object value;
+        private final Expression expression;
+
+        /**
+         * Constructs a new {@code ConstantExpression}.
+         * @param value the result of the function call
+         * @param expression the function call
+         */
+        public ConstantExpression(Object value, Expression expression) {
+            this.value = value;
+            this.expression = expression;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return expression.toString();
+        }
+    }
+
     /**
      * Expression that always evaluates to null.
      */
@@ -1256,12 +1359,13 @@ public final class ExpressionFactory {
     /**
      * Function that takes a certain number of argument with specific type.
      *
-     * Implementation is based on a Method object.
+     * Implementation is based on a Method object, which is called through a {@link MethodHandle}.
      * If any of the arguments evaluate to null, the result will also be null.
      */
     public static class ParameterFunction implements Expression {
 
         private final Method m;
+        private final MethodHandle handle;
         private final boolean nullable;
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
@@ -1275,6 +1379,7 @@ public final class ExpressionFactory {
          */
         public ParameterFunction(Method m, List<Expression> args, boolean needsEnvironment) {
             this.m = m;
+            this.handle = getHandle(m);
             this.nullable = m.getAnnotation(NullableArguments.class) != null;
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
@@ -1303,16 +1408,7 @@ public final class ExpressionFactory {
                     }
                 }
             }
-            Object result = null;
-            try {
-                result = m.invoke(null, convertedArgs);
-            } catch (IllegalAccessException | IllegalArgumentException ex) {
-                throw new JosmRuntimeException(ex);
-            } catch (InvocationTargetException ex) {
-                Main.error(ex);
-                return null;
-            }
-            return result;
+            return invoke(handle, convertedArgs);
         }
 
         @Override
@@ -1343,6 +1439,7 @@ public final class ExpressionFactory {
     public static class ArrayFunction implements Expression {
 
         private final Method m;
+        private final MethodHandle handle;
         private final boolean nullable;
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
@@ -1355,6 +1452,7 @@ public final class ExpressionFactory {
          */
         public ArrayFunction(Method m, List<Expression> args) {
             this.m = m;
+            this.handle = getHandle(m);
             this.nullable = m.getAnnotation(NullableArguments.class) != null;
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
@@ -1363,27 +1461,31 @@ public final class ExpressionFactory {
 
         @Override
         public Object evaluate(Environment env) {
-            Object[] convertedArgs = new Object[expectedParameterTypes.length];
-            Object arrayArg = Array.newInstance(arrayComponentType, args.size());
-            for (int i = 0; i < args.size(); ++i) {
-                Object o = Cascade.convertTo(args.get(i).evaluate(env), arrayComponentType);
-                if (o == null && !nullable) {
-                    return null;
+            Object arrayArg;
+            if (arrayComponentType == float.class) {
+                // the arithmetic functions, avoid the reflective array access
+                float[] floats = new float[args.size()];
+                for (int i = 0; i < floats.length; ++i) {
+                    Float f = Cascade.convertTo(args.get(i).evaluate(env), float.class);
+                    if (f == null) {
+                        return null;
+                    }
+                    floats[i] = f;
+                }
+                arrayArg = floats;
+            } else {
+                Object[] objects = (Object[]) Array.newInstance(arrayComponentType, args.size());
+                for (int i = 0; i < objects.length; ++i) {
+                    Object o = Cascade.convertTo(args.get(i).evaluate(env), arrayComponentType);
+                    if (o == null && !nullable) {
+                        return null;
+                    }
+                    objects[i] = o;
                 }
-                Array.set(arrayArg, i, o);
+                arrayArg = objects;
             }
-            convertedArgs[0] = arrayArg;
 
-            Object result = null;
-            try {
-                result = m.invoke(null, convertedArgs);
-            } catch (IllegalAccessException | IllegalArgumentException ex) {
-                throw new JosmRuntimeException(ex);
-            } catch (InvocationTargetException ex) {
-                Main.error(ex);
-                return null;
-            }
-            return result;
+            return invoke(handle, new Object[] {arrayArg});
         }
 
         @Override
@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Color;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -58,6 +59,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.TokenMgrError;
 import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
 import org.openstreetmap.josm.gui.preferences.SourceEntry;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.PrecompiledSourceCache;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.LanguageInfo;
@@ -104,9 +106,15 @@ public class MapCSSStyleSource extends StyleSource {
      */
     public final MapCSSRuleIndex canvasRules = new MapCSSRuleIndex();
 
+    private static final String PRECOMPILED_KIND = "styles";
+    private static final int PRECOMPILED_FORMAT = 1;
+
     private Color backgroundColorOverride;
+    private int linkDepth;
     private String css;
     private ZipFile zipFile;
+    /** the warnings of the preprocessor, collected to be stored with the preprocessed style */
+    private List<String> preprocessorWarnings;
 
     /**
      * This lock prevents concurrent execution of {@link MapCSSRuleIndex#clear() } /
@@ -421,8 +429,7 @@ public class MapCSSStyleSource extends StyleSource {
             try (InputStream in = getSourceInputStream()) {
                 try {
                     // evaluate @media { ... } blocks
-                    MapCSSParser preprocessor = new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR);
-                    String mapcss = preprocessor.pp_root(this);
+                    String mapcss = preprocess(in);
 
                     // do the actual mapcss parsing
                     InputStream in2 = new ByteArrayInputStream(mapcss.getBytes(StandardCharsets.UTF_8));
@@ -449,7 +456,9 @@ public class MapCSSStyleSource extends StyleSource {
                 logError(new ParseException(e.getMessage())); // allow e to be garbage collected, it links to the entire token stream
             }
             // optimization: filter rules for different primitive types
+            linkDepth = 0;
             for (MapCSSRule r: rules) {
+                linkDepth = Math.max(linkDepth, getLinkDepth(r.selector));
                 // find the rightmost selector, this must be a GeneralSelector
                 Selector selRightmost = r.selector;
                 while (selRightmost instanceof ChildOrParentSelector) {
@@ -504,6 +513,87 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    private static int getLinkDepth(Selector selector) {
+        if (!(selector instanceof ChildOrParentSelector)) {
+            return 0;
+        }
+        ChildOrParentSelector s = (ChildOrParentSelector) selector;
+        int depth;
+        switch (s.type) {
+            case CHILD:
+            case PARENT:
+                depth = 1;
+                break;
+            case SIBLING:
+                // siblings are linked via their common parent
+                depth = 2;
+                break;
+            default:
+                // ELEMENT_OF and CROSSING look at the geometry, not at linked primitives
+                depth = 0;
+        }
+        return depth + Math.max(getLinkDepth(s.left), getLinkDepth(s.right));
+    }
+
+    @Override
+    public int getLinkDepth() {
+        return linkDepth;
+    }
+
+    /**
+     * Evaluates the {@code @supports} blocks of the style. As the result only depends on the style content and
+     * JOSM version, it is stored in the {@link PrecompiledSourceCache}, along with the preprocessor warnings.
+     * @param in the style input stream
+     * @return the style without the unsupported blocks
+     * @throws IOException if any I/O error occurs
+     * @throws ParseException if the style cannot be preprocessed
+     */
+    private String preprocess(InputStream in) throws IOException, ParseException {
+        if (css != null) {
+            return new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR).pp_root(this);
+        }
+        byte[] content = Utils.readBytesFromStream(in);
+        byte[] hash = PrecompiledSourceCache.hash(content);
+        try (DataInputStream cached = PrecompiledSourceCache.open(PRECOMPILED_KIND, url, PRECOMPILED_FORMAT, hash)) {
+            if (cached != null) {
+                List<String> warnings = new ArrayList<>();
+                for (int i = cached.readInt(); i > 0; i--) {
+                    warnings.add(PrecompiledSourceCache.readString(cached));
+                }
+                String mapcss = PrecompiledSourceCache.readString(cached);
+                warnings.forEach(this::logWarning);
+                return mapcss;
+            }
+        } catch (IOException e) {
+            Main.warn(e, "Unable to read preprocessed style " + url);
+        }
+        List<String> warnings = new ArrayList<>();
+        String mapcss;
+        preprocessorWarnings = warnings;
+        try {
+            mapcss = new MapCSSParser(new ByteArrayInputStream(content), "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR)
+                    .pp_root(this);
+        } finally {
+            preprocessorWarnings = null;
+        }
+        PrecompiledSourceCache.store(PRECOMPILED_KIND, url, PRECOMPILED_FORMAT, hash, out -> {
+            out.writeInt(warnings.size());
+            for (String w : warnings) {
+                PrecompiledSourceCache.writeString(out, w);
+            }
+            PrecompiledSourceCache.writeString(out, mapcss);
+        });
+        return mapcss;
+    }
+
+    @Override
+    public void logWarning(String w) {
+        if (preprocessorWarnings != null) {
+            preprocessorWarnings.add(w);
+        }
+        super.logWarning(w);
+    }
+
     @Override
     public InputStream getSourceInputStream() throws IOException {
         if (css != null) {
@@ -953,8 +953,24 @@ public final class ImageryPreference extends DefaultTabPreferenceSetting {
      * Initializes imagery preferences.
      */
     public static void initialize() {
+        load();
+        initializeMenus();
+    }
+
+    /**
+     * Loads the imagery entries and offset bookmarks.
+     * @since 12616
+     */
+    public static void load() {
         ImageryLayerInfo.instance.load(false);
         OffsetBookmark.loadBookmarks();
+    }
+
+    /**
+     * Fills the imagery menu with the entries loaded by {@link #load()}.
+     * @since 12616
+     */
+    public static void initializeMenus() {
         Main.main.menu.imageryMenu.refreshImageryMenu();
         Main.main.menu.imageryMenu.refreshOffsetMenu();
     }
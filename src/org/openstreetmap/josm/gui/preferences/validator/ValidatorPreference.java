@@ -56,6 +56,13 @@ public final class ValidatorPreference extends DefaultTabPreferenceSetting {
     /** The preferences for ignored severity other */
     public static final BooleanProperty PREF_OTHER = new BooleanProperty(PREFIX + ".other", false);
 
+    /**
+     * The preferences key for validating only the changed primitives and their neighbours again
+     * when the whole data set is validated repeatedly
+     * @since 12607
+     */
+    public static final BooleanProperty PREF_INCREMENTAL = new BooleanProperty(PREFIX + ".incremental", true);
+
     /**
      * The preferences key for enabling the permanent filtering
      * of the displayed errors in the tree regarding the current selection
@@ -4,6 +4,10 @@ package org.openstreetmap.josm.gui.tagging.presets;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,6 +45,7 @@ import org.openstreetmap.josm.gui.tagging.presets.items.Roles.Role;
 import org.openstreetmap.josm.gui.tagging.presets.items.Space;
 import org.openstreetmap.josm.gui.tagging.presets.items.Text;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.PrecompiledSourceCache;
 import org.openstreetmap.josm.io.UTFInputStreamReader;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.XmlObjectParser;
@@ -59,6 +64,9 @@ public final class TaggingPresetReader {
     public static final String PRESET_MIME_TYPES =
             "application/xml, text/xml, text/plain; q=0.8, application/zip, application/octet-stream; q=0.5";
 
+    private static final String PRECOMPILED_KIND = "presets";
+    private static final int PRECOMPILED_FORMAT = 1;
+
     private static volatile File zipIcons;
     private static volatile boolean loadIcons = true;
 
@@ -150,6 +158,22 @@ public final class TaggingPresetReader {
      */
     static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all) throws SAXException {
         XmlObjectParser parser = buildParser();
+        if (validate) {
+            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
+        } else {
+            parser.start(in);
+        }
+        return readAll(parser, all);
+    }
+
+    /**
+     * Reads all tagging presets from a started parser.
+     * @param parser The parser, started by {@link XmlObjectParser#start} or {@link XmlObjectParser#replay}
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if any XML error occurs
+     */
+    private static Collection<TaggingPreset> readAll(XmlObjectParser parser, HashSetWithLast<TaggingPreset> all) throws SAXException {
 
         /** to detect end of {@code <group>} */
         TaggingPresetMenu lastmenu = null;
@@ -163,11 +187,6 @@ public final class TaggingPresetReader {
         /** lastIdIterators contains non empty iterators of items to be handled before obtaining the next item from the XML parser */
         final Deque<Iterator<Object>> lastIdIterators = new ArrayDeque<>();
 
-        if (validate) {
-            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
-        } else {
-            parser.start(in);
-        }
         while (parser.hasNext() || !lastIdIterators.isEmpty()) {
             final Object o;
             if (!lastIdIterators.isEmpty()) {
@@ -329,13 +348,57 @@ public final class TaggingPresetReader {
             if (zip != null) {
                 zipIcons = cf.getFile();
             }
-            try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
-                tp = readAll(new BufferedReader(r), validate, all);
+            InputStream in = zip == null ? cf.getInputStream() : zip;
+            if (validate) {
+                try (InputStreamReader r = UTFInputStreamReader.create(in)) {
+                    tp = readAll(new BufferedReader(r), validate, all);
+                }
+            } else {
+                tp = readAll(source, Utils.readBytesFromStream(in), all);
             }
         }
         return tp;
     }
 
+    /**
+     * Reads all tagging presets from the given source content, without validation.
+     * The parsed XML is replayed from the {@link PrecompiledSourceCache} if the content did not change since last time,
+     * and stored otherwise.
+     * @param source the source URL
+     * @param content the source content
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    private static Collection<TaggingPreset> readAll(String source, byte[] content, HashSetWithLast<TaggingPreset> all)
+            throws SAXException, IOException {
+        byte[] hash = PrecompiledSourceCache.hash(content);
+        XmlObjectParser parser = replayPrecompiled(source, hash);
+        if (parser == null) {
+            parser = buildParser();
+            ByteArrayOutputStream events = new ByteArrayOutputStream(content.length / 4);
+            try (InputStreamReader r = UTFInputStreamReader.create(new ByteArrayInputStream(content))) {
+                parser.start(new BufferedReader(r), new DataOutputStream(events));
+            }
+            PrecompiledSourceCache.store(PRECOMPILED_KIND, source, PRECOMPILED_FORMAT, hash, events::writeTo);
+        }
+        return readAll(parser, all);
+    }
+
+    private static XmlObjectParser replayPrecompiled(String source, byte[] hash) throws SAXException {
+        try (DataInputStream in = PrecompiledSourceCache.open(PRECOMPILED_KIND, source, PRECOMPILED_FORMAT, hash)) {
+            if (in != null) {
+                XmlObjectParser parser = buildParser();
+                parser.replay(in);
+                return parser;
+            }
+        } catch (IOException e) {
+            Main.warn(e, "Unable to replay precompiled presets of " + source);
+        }
+        return null;
+    }
+
     /**
      * Reads all tagging presets from the given sources.
      * @param sources Collection of tagging presets sources.
@@ -58,6 +58,14 @@ public final class TaggingPresets {
      */
     public static void initialize() {
         readFromPreferences();
+        initializeMenus();
+    }
+
+    /**
+     * Adds the tagging presets read by {@link #readFromPreferences()} to the toolbar and the presets menu.
+     * @since 12616
+     */
+    public static void initializeMenus() {
         for (TaggingPreset tp: taggingPresets) {
             if (!(tp instanceof TaggingPresetSeparator)) {
                 Main.toolbar.register(tp);
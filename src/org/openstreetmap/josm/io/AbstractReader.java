@@ -12,12 +12,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.PrimitiveIdMap;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
@@ -32,6 +34,13 @@ import org.openstreetmap.josm.gui.progress.ProgressMonitor;
  */
 public abstract class AbstractReader {
 
+    /**
+     * The number of nodes from which the east/north coordinates of a loaded data set are computed at once,
+     * in parallel, instead of when each node is first painted.
+     * @since 12622
+     */
+    public static final IntegerProperty PROP_EAGER_PROJECTION_THRESHOLD = new IntegerProperty("osm.load.eager-projection-threshold", 100000);
+
     /**
      * The dataset to add parsed objects to.
      */
@@ -41,9 +50,10 @@ public abstract class AbstractReader {
 
     /** the map from external ids to read OsmPrimitives. External ids are
      * longs too, but in contrast to internal ids negative values are used
-     * to identify primitives unknown to the OSM server
+     * to identify primitives unknown to the OSM server. The ids are stored inline,
+     * which keeps this index small when loading millions of primitives.
      */
-    protected final Map<PrimitiveId, OsmPrimitive> externalIdMap = new HashMap<>();
+    protected final Map<PrimitiveId, OsmPrimitive> externalIdMap = new PrimitiveIdMap<>();
 
     /**
      * Data structure for the remaining way objects
@@ -199,6 +209,9 @@ public abstract class AbstractReader {
             processWaysAfterParsing();
             processRelationsAfterParsing();
             processChangesetAfterParsing();
+            if (Main.getProjection() != null && ds.getNodes().size() >= PROP_EAGER_PROJECTION_THRESHOLD.get()) {
+                ds.updateEastNorthCache(Main.getProjection());
+            }
         } finally {
             ds.endUpdate();
         }
@@ -12,6 +12,7 @@ import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -107,17 +108,33 @@ public enum Compression {
 
     /**
      * Returns a compressing {@link OutputStream} for {@code out}.
+     * bzip2 and gzip compression use the number of threads given by the {@code save.compression.threads} preference,
+     * which defaults to the number of available processors.
      * @param out raw output stream
      * @return compressing output stream
      *
      * @throws IOException if any I/O error occurs
      */
     public OutputStream getCompressedOutputStream(OutputStream out) throws IOException {
+        return getCompressedOutputStream(out, Main.pref.getInteger("save.compression.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns a compressing {@link OutputStream} for {@code out}.
+     * @param out raw output stream
+     * @param threads the number of threads to use for bzip2 and gzip compression
+     * @return compressing output stream
+     *
+     * @throws IOException if any I/O error occurs
+     * @see ParallelCompressorOutputStream
+     * @since 12611
+     */
+    public OutputStream getCompressedOutputStream(OutputStream out, int threads) throws IOException {
         switch (this) {
             case BZIP2:
-                return new BZip2CompressorOutputStream(out);
+                return threads > 1 ? new ParallelBZip2OutputStream(out, threads) : new BZip2CompressorOutputStream(out);
             case GZIP:
-                return new GZIPOutputStream(out);
+                return threads > 1 ? new ParallelGzipOutputStream(out, threads) : new GZIPOutputStream(out);
             case ZIP:
                 return new ZipOutputStream(out, StandardCharsets.UTF_8);
             case NONE:
@@ -7,13 +7,14 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -22,6 +23,7 @@ import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -34,6 +36,8 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.preferences.server.OverpassServerPreference;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -56,21 +60,53 @@ import org.openstreetmap.josm.tools.Utils;
  *       Main.info("There are skipped ways: " + reader.getMissingPrimitives());
  *    }
  * </pre>
+ *
+ * The ids are fetched in packages by a few threads, the next package being requested as soon as a thread is free,
+ * and each downloaded package is merged in the resulting dataset as soon as it is received.
+ * The size of the packages is adapted to the response time of the server, within the maximal length of the request URLs.
  */
 public class MultiFetchServerObjectReader extends OsmServerReader {
     /**
-     * the max. number of primitives retrieved in one step. Assuming IDs with 7 digits,
-     * this leads to a max. request URL of ~ 1600 Bytes ((7 digits +  1 Separator) * 200),
+     * Whether the number of primitives retrieved in one step is adapted to the response time of the server.
+     * @since 12620
+     */
+    public static final BooleanProperty PROP_ADAPTIVE = new BooleanProperty("osm.multifetch.adaptive", true);
+
+    /**
+     * The response time, in milliseconds, aimed at when adapting the number of primitives retrieved in one step.
+     * @since 12620
+     */
+    public static final IntegerProperty PROP_TARGET_TIME = new IntegerProperty("osm.multifetch.target-time", 1000);
+
+    /**
+     * The max. length of the request URLs. Servers usually reject longer request lines
+     * with a {@code 414 Request-URI Too Long} response, in which case a lower length is used.
+     * @since 12620
+     */
+    public static final IntegerProperty PROP_MAX_URL_LENGTH = new IntegerProperty("osm.multifetch.max-url-length", 8000);
+
+    /**
+     * the number of primitives retrieved in the first step. Assuming IDs with 7 digits,
+     * this leads to a request URL of ~ 1600 Bytes ((7 digits +  1 Separator) * 200),
      * which should be safe according to the
      * <a href="http://www.boutell.com/newfaq/misc/urllength.html">WWW FAQ</a>.
      */
-    private static final int MAX_IDS_PER_REQUEST = 200;
+    private static final int INITIAL_IDS_PER_REQUEST = 200;
+
+    /**
+     * the min. number of primitives retrieved in one step when the server answers slowly.
+     */
+    private static final int MIN_IDS_PER_REQUEST = 50;
+
+    private static final int HTTP_REQUEST_URI_TOO_LONG = 414;
 
     private final Set<Long> nodes;
     private final Set<Long> ways;
     private final Set<Long> relations;
     private Set<PrimitiveId> missingPrimitives;
     private final DataSet outputDataSet;
+    private final Map<OsmPrimitiveType, Integer> packageSizes = new EnumMap<>(OsmPrimitiveType.class);
+    private int maxUrlLength = PROP_MAX_URL_LENGTH.get();
 
     /**
      * Constructs a {@code MultiFetchServerObjectReader}.
@@ -237,29 +273,62 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
     }
 
     /**
-     * extracts a subset of max {@link #MAX_IDS_PER_REQUEST} ids from <code>ids</code> and
-     * replies the subset. The extracted subset is removed from <code>ids</code>.
+     * extracts a subset of ids from <code>ids</code> and replies the subset. The extracted subset is removed from <code>ids</code>.
+     * Its size is the current package size of the given type, reduced if needed so that the request URL
+     * does not exceed the max. URL length.
      *
      * @param ids a set of ids
+     * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
+     * {@link OsmPrimitiveType#RELATION RELATION}
      * @return the subset of ids
+     * @since 12620
      */
-    protected Set<Long> extractIdPackage(Set<Long> ids) {
-        Set<Long> pkg = new HashSet<>();
-        if (ids.isEmpty())
-            return pkg;
-        if (ids.size() > MAX_IDS_PER_REQUEST) {
-            Iterator<Long> it = ids.iterator();
-            for (int i = 0; i < MAX_IDS_PER_REQUEST; i++) {
-                pkg.add(it.next());
+    protected Set<Long> extractIdPackage(Set<Long> ids, OsmPrimitiveType type) {
+        int size = getPackageSize(type);
+        Set<Long> pkg = new LinkedHashSet<>();
+        for (Iterator<Long> it = ids.iterator(); it.hasNext() && pkg.size() < size;) {
+            pkg.add(it.next());
+        }
+        int baseLength = getBaseUrl().length();
+        int length;
+        while (pkg.size() > 1 && (length = baseLength + buildRequestString(type, pkg).length()) > maxUrlLength) {
+            // the URL length is roughly proportional to the number of ids
+            int keep = Utils.clamp((int) ((long) pkg.size() * maxUrlLength / length), 1, pkg.size() - 1);
+            Iterator<Long> it = pkg.iterator();
+            for (int i = 0; i < keep; i++) {
+                it.next();
+            }
+            while (it.hasNext()) {
+                it.next();
+                it.remove();
             }
-            ids.removeAll(pkg);
-        } else {
-            pkg.addAll(ids);
-            ids.clear();
         }
+        ids.removeAll(pkg);
         return pkg;
     }
 
+    private int getPackageSize(OsmPrimitiveType type) {
+        Integer size = packageSizes.get(type);
+        return size != null ? size : INITIAL_IDS_PER_REQUEST;
+    }
+
+    /**
+     * Adapts the package size of a type to the response time of a fetcher: the size is increased
+     * when the server answered faster than {@link #PROP_TARGET_TIME}, and decreased when it answered slower.
+     * @param fetcher the fetcher that completed
+     */
+    private void adaptPackageSize(Fetcher fetcher) {
+        if (!PROP_ADAPTIVE.get() || fetcher.duration < 0)
+            return;
+        int size = fetcher.pkg.size();
+        long wanted = fetcher.duration > 0 ? size * (long) PROP_TARGET_TIME.get() / fetcher.duration : Integer.MAX_VALUE;
+        if (size < getPackageSize(fetcher.type) && wanted > size) {
+            // a short package (the last ones, or limited by the URL length) tells nothing about larger packages
+            return;
+        }
+        packageSizes.put(fetcher.type, (int) Math.min(Math.max(wanted, Math.max(size / 2, MIN_IDS_PER_REQUEST)), 2L * size));
+    }
+
     /**
      * builds the Multi Get request string for a set of ids and a given {@link OsmPrimitiveType}.
      *
@@ -304,53 +373,135 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      * @throws OsmTransferException if an error occurs while communicating with the API server
      */
     protected void fetchPrimitives(Set<Long> ids, OsmPrimitiveType type, ProgressMonitor progressMonitor) throws OsmTransferException {
-        String msg;
-        final String baseUrl = getBaseUrl();
-        switch (type) {
-            // CHECKSTYLE.OFF: SingleSpaceSeparator
-            case NODE:     msg = tr("Fetching a package of nodes from ''{0}''",     baseUrl); break;
-            case WAY:      msg = tr("Fetching a package of ways from ''{0}''",      baseUrl); break;
-            case RELATION: msg = tr("Fetching a package of relations from ''{0}''", baseUrl); break;
-            // CHECKSTYLE.ON: SingleSpaceSeparator
-            default: throw new AssertionError();
+        Map<OsmPrimitiveType, Set<Long>> toFetch = new EnumMap<>(OsmPrimitiveType.class);
+        toFetch.put(type, new LinkedHashSet<>(ids));
+        fetchPrimitives(toFetch, progressMonitor);
+    }
+
+    /**
+     * fetches the given sets of ids from the server. The ids are removed from the sets when they are requested.
+     * The ways are fetched first, so that the nodes of incomplete ways can be added to the set of nodes.
+     * The relations are fetched along with the last ways, and the nodes once all ways have been received.
+     *
+     * @param toFetch the sets of ids to fetch, by type
+     * @param progressMonitor progress monitor
+     */
+    private void fetchPrimitives(Map<OsmPrimitiveType, Set<Long>> toFetch, ProgressMonitor progressMonitor) {
+        int ticks = 0;
+        for (Set<Long> ids : toFetch.values()) {
+            ticks += ids.size();
         }
-        progressMonitor.setTicksCount(ids.size());
+        progressMonitor.setTicksCount(ticks);
         progressMonitor.setTicks(0);
-        // The complete set containing all primitives to fetch
-        Set<Long> toFetch = new HashSet<>(ids);
-        // Build a list of fetchers that will  download smaller sets containing only MAX_IDS_PER_REQUEST (200) primitives each.
-        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers.
+        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers, each one downloading a package of ids.
         int threadsNumber = Main.pref.getInteger("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
         threadsNumber = Utils.clamp(threadsNumber, 1, OsmApi.MAX_DOWNLOAD_THREADS);
         final ExecutorService exec = Executors.newFixedThreadPool(
                 threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
         CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
-        List<Future<FetchResult>> jobs = new ArrayList<>();
-        while (!toFetch.isEmpty()) {
-            jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch), progressMonitor)));
-        }
-        // Run the fetchers
-        for (int i = 0; i < jobs.size() && !isCanceled(); i++) {
-            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
-            try {
-                FetchResult result = ecs.take().get();
-                if (result.missingPrimitives != null) {
-                    missingPrimitives.addAll(result.missingPrimitives);
+        // The running fetchers. A new one is only started when another one completed, so that at most one
+        // downloaded package per thread is waiting to be merged.
+        Map<Future<FetchResult>, Fetcher> jobs = new HashMap<>();
+        try {
+            while (!isCanceled()) {
+                Fetcher fetcher;
+                while (jobs.size() < threadsNumber && (fetcher = nextFetcher(toFetch, jobs.values(), progressMonitor)) != null) {
+                    jobs.put(ecs.submit(fetcher), fetcher);
                 }
-                if (result.dataSet != null && !isCanceled()) {
-                    rememberNodesOfIncompleteWaysToLoad(result.dataSet);
-                    merge(result.dataSet);
+                if (jobs.isEmpty()) {
+                    break;
+                }
+                fetcher = null;
+                try {
+                    Future<FetchResult> job = ecs.take();
+                    fetcher = jobs.remove(job);
+                    progressMonitor.subTask(getProgressMessage(fetcher.type)
+                            + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
+                    FetchResult result = job.get();
+                    adaptPackageSize(fetcher);
+                    if (result == null) {
+                        continue;
+                    }
+                    if (result.missingPrimitives != null) {
+                        missingPrimitives.addAll(result.missingPrimitives);
+                    }
+                    if (result.dataSet != null && !isCanceled()) {
+                        Set<Long> nodesToFetch = toFetch.get(OsmPrimitiveType.NODE);
+                        int nodesCount = nodesToFetch != null ? nodesToFetch.size() : 0;
+                        rememberNodesOfIncompleteWaysToLoad(result.dataSet);
+                        if (nodesToFetch != null && nodesToFetch.size() > nodesCount) {
+                            progressMonitor.setTicksCount(progressMonitor.getTicksCount() + nodesToFetch.size() - nodesCount);
+                        }
+                        merge(result.dataSet);
+                    }
+                } catch (ExecutionException e) {
+                    if (!retryWithShorterUrl(e.getCause(), fetcher, toFetch)) {
+                        Main.error(e);
+                    }
+                } catch (InterruptedException e) {
+                    Main.error(e);
+                }
+            }
+        } finally {
+            exec.shutdown();
+            // Cancel requests if the user chose to
+            if (isCanceled()) {
+                for (Future<FetchResult> job : jobs.keySet()) {
+                    job.cancel(true);
                 }
-            } catch (InterruptedException | ExecutionException e) {
-                Main.error(e);
             }
         }
-        exec.shutdown();
-        // Cancel requests if the user chose to
-        if (isCanceled()) {
-            for (Future<FetchResult> job : jobs) {
-                job.cancel(true);
+    }
+
+    /**
+     * Replies the fetcher of the next package of ids to fetch.
+     * @param toFetch the sets of ids to fetch, by type
+     * @param running the running fetchers
+     * @param progressMonitor progress monitor
+     * @return the fetcher of the next package of ids, or {@code null} if there is nothing to fetch before a running fetcher completed
+     */
+    private Fetcher nextFetcher(Map<OsmPrimitiveType, Set<Long>> toFetch, Collection<Fetcher> running, ProgressMonitor progressMonitor) {
+        for (OsmPrimitiveType type : new OsmPrimitiveType[] {OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION, OsmPrimitiveType.NODE}) {
+            Set<Long> ids = toFetch.get(type);
+            if (ids == null || ids.isEmpty()) {
+                continue;
             }
+            if (type == OsmPrimitiveType.NODE && running.stream().anyMatch(f -> f.type == OsmPrimitiveType.WAY)) {
+                // the running way fetchers may still add nodes of incomplete ways
+                return null;
+            }
+            return new Fetcher(type, extractIdPackage(ids, type), progressMonitor);
+        }
+        return null;
+    }
+
+    /**
+     * Puts back the ids of a fetcher whose request URL was too long for the server, and lowers the max. URL length.
+     * @param error the error of the fetcher
+     * @param fetcher the fetcher
+     * @param toFetch the sets of ids to fetch, by type
+     * @return {@code true} if the ids will be fetched again with shorter URLs
+     */
+    private boolean retryWithShorterUrl(Throwable error, Fetcher fetcher, Map<OsmPrimitiveType, Set<Long>> toFetch) {
+        if (fetcher == null || fetcher.pkg.size() <= 1 || !(error instanceof OsmApiException)
+                || ((OsmApiException) error).getResponseCode() != HTTP_REQUEST_URI_TOO_LONG)
+            return false;
+        int length = getBaseUrl().length() + buildRequestString(fetcher.type, fetcher.pkg).length();
+        maxUrlLength = Math.min(maxUrlLength, length * 3 / 4);
+        Main.info(tr("Server replied with response code 414, retrying with request URLs of at most {0} characters.", maxUrlLength));
+        toFetch.get(fetcher.type).addAll(fetcher.pkg);
+        return true;
+    }
+
+    private String getProgressMessage(OsmPrimitiveType type) {
+        final String baseUrl = getBaseUrl();
+        switch (type) {
+            // CHECKSTYLE.OFF: SingleSpaceSeparator
+            case NODE:     return tr("Fetching a package of nodes from ''{0}''",     baseUrl);
+            case WAY:      return tr("Fetching a package of ways from ''{0}''",      baseUrl);
+            case RELATION: return tr("Fetching a package of relations from ''{0}''", baseUrl);
+            // CHECKSTYLE.ON: SingleSpaceSeparator
+            default: throw new AssertionError();
         }
     }
 
@@ -377,11 +528,12 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         try {
             missingPrimitives = new HashSet<>();
             if (isCanceled()) return null;
-            fetchPrimitives(ways, OsmPrimitiveType.WAY, progressMonitor);
-            if (isCanceled()) return null;
-            fetchPrimitives(nodes, OsmPrimitiveType.NODE, progressMonitor);
+            Map<OsmPrimitiveType, Set<Long>> toFetch = new EnumMap<>(OsmPrimitiveType.class);
+            toFetch.put(OsmPrimitiveType.WAY, ways);
+            toFetch.put(OsmPrimitiveType.NODE, nodes);
+            toFetch.put(OsmPrimitiveType.RELATION, relations);
+            fetchPrimitives(toFetch, progressMonitor);
             if (isCanceled()) return null;
-            fetchPrimitives(relations, OsmPrimitiveType.RELATION, progressMonitor);
             if (outputDataSet != null) {
                 outputDataSet.deleteInvisible();
             }
@@ -449,6 +601,8 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         private final Set<Long> pkg;
         private final OsmPrimitiveType type;
         private final ProgressMonitor progressMonitor;
+        /** the response time of the Multi Get in milliseconds, or -1 if the ids were fetched individually */
+        private volatile long duration = -1;
 
         /**
          * Constructs a {@code Fetcher}
@@ -483,7 +637,10 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
          */
         protected FetchResult fetch(ProgressMonitor progressMonitor) throws OsmTransferException {
             try {
-                return multiGetIdPackage(type, pkg, progressMonitor);
+                long start = System.nanoTime();
+                FetchResult result = multiGetIdPackage(type, pkg, progressMonitor);
+                duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                return result;
             } catch (OsmApiException e) {
                 if (e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
                     Main.info(tr("Server replied with response code 404, retrying with an individual request for each object."));
@@ -6,16 +6,15 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Utils;
@@ -84,11 +83,15 @@ public class OsmExporter extends FileExporter {
                 Utils.copyFile(file, tmpFile);
             }
 
+            long epoch = layer.data.getEpoch();
             doSave(file, layer);
             if ((noBackup || !Main.pref.getBoolean("save.keepbackup", false)) && tmpFile != null) {
                 Utils.deleteFile(tmpFile);
             }
-            layer.onPostSaveToFile();
+            if (layer.data.getEpoch() == epoch) {
+                // the data has not been modified while it was saved
+                layer.onPostSaveToFile();
+            }
         } catch (IOException e) {
             Main.error(e);
             JOptionPane.showMessageDialog(
@@ -118,18 +121,15 @@ public class OsmExporter extends FileExporter {
     }
 
     protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        // the data set is only locked while the snapshot is taken, not while it is written
+        DataSetSnapshot snapshot = layer.data.snapshot();
         // create outputstream and wrap it with gzip or bzip, if necessary
         try (
             OutputStream out = getOutputStream(file);
-            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())
+            Writer writer = new Utf8OutputStreamWriter(out);
+            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, snapshot.getVersion())
         ) {
-            layer.data.getReadLock().lock();
-            try {
-                w.writeLayer(layer);
-            } finally {
-                layer.data.getReadLock().unlock();
-            }
+            w.write(snapshot);
         }
     }
 }
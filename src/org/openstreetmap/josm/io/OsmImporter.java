@@ -124,7 +124,7 @@ public class OsmImporter extends FileImporter {
     }
 
     protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return OsmReader.parseDataSet(in, progressMonitor);
+        return OsmReader.parseDataSet(in, progressMonitor, Main.pref.getInteger("osm.reader.threads", 1));
     }
 
     protected OsmDataLayer createLayer(final DataSet dataSet, final File associatedFile, final String layerName) {
@@ -0,0 +1,35 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * File importer that reads the *.journal files written by autosave.
+ * @since 12613
+ */
+public class OsmJournalImporter extends OsmImporter {
+
+    /**
+     * The autosave journal file filter (*.journal files).
+     */
+    public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
+            "journal", "journal", tr("JOSM Autosave Journals") + " (*.journal)");
+
+    /**
+     * Constructs a new {@code OsmJournalImporter}.
+     */
+    public OsmJournalImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return OsmJournalReader.parseDataSet(in, progressMonitor);
+    }
+}
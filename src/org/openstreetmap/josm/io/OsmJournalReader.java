@@ -0,0 +1,320 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Reads an autosave journal written by {@link OsmJournalWriter}: the checkpoint, then the batches of changes replayed
+ * in order. A batch which was not completely written, for instance because JOSM crashed meanwhile, ends the journal.
+ * @since 12613
+ */
+public class OsmJournalReader extends AbstractReader {
+
+    private static final OsmPrimitiveType[] MEMBER_TYPES = {
+            OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Constructs a new {@code OsmJournalReader}.
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected OsmJournalReader() {
+        // Restricts visibility
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data...", 2));
+            progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
+
+            parse(source);
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            removeMissingReferences();
+            ds.addDataSources(dataSources);
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Reads the frames of the journal, and replays their records into {@link #externalIdMap}, {@link #ways} and {@link #relations}.
+     * @param source the input stream
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if the data is invalid
+     */
+    protected void parse(InputStream source) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(source);
+        byte[] magic = new byte[OsmJournalWriter.MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            throw new IllegalDataException(tr("Not an OSM journal file."), e);
+        }
+        if (!Arrays.equals(magic, OsmJournalWriter.MAGIC)) {
+            throw new IllegalDataException(tr("Not an OSM journal file."));
+        }
+        while (true) {
+            byte[] frame;
+            int checksum;
+            try {
+                int length = in.readInt();
+                checksum = in.readInt();
+                if (length < 0) {
+                    Main.warn("Invalid journal frame length " + length + ", ignoring the end of the journal");
+                    return;
+                }
+                frame = new byte[length];
+                in.readFully(frame);
+            } catch (EOFException e) {
+                // end of journal, possibly in the middle of a torn batch
+                Main.trace(e);
+                return;
+            }
+            crc.reset();
+            crc.update(frame, 0, frame.length);
+            if ((int) crc.getValue() != checksum) {
+                Main.warn("Invalid journal frame checksum, ignoring the end of the journal");
+                return;
+            }
+            readFrame(new DataInputStream(new ByteArrayInputStream(frame)));
+        }
+    }
+
+    private void readFrame(DataInputStream in) throws IOException, IllegalDataException {
+        while (in.available() > 0) {
+            int record = in.readUnsignedByte();
+            switch (record) {
+            case OsmJournalWriter.RECORD_HEADER:
+                readHeader(in);
+                break;
+            case OsmJournalWriter.RECORD_NODE:
+                readNode(in);
+                break;
+            case OsmJournalWriter.RECORD_WAY:
+                readWay(in);
+                break;
+            case OsmJournalWriter.RECORD_RELATION:
+                readRelation(in);
+                break;
+            case OsmJournalWriter.RECORD_REMOVED:
+                remove(memberType(in.readUnsignedByte()), in.readLong());
+                break;
+            default:
+                throw new IllegalDataException(tr("Invalid journal record type {0}.", record));
+            }
+        }
+    }
+
+    private void readHeader(DataInputStream in) throws IOException, IllegalDataException {
+        ds.setVersion(readString(in));
+        String policy = readString(in);
+        if (policy != null) {
+            try {
+                ds.setUploadPolicy(UploadPolicy.valueOf(policy));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalDataException(tr("Invalid upload policy {0}.", policy), e);
+            }
+        }
+        dataSources.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Bounds bounds = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            dataSources.add(new DataSource(bounds, readString(in)));
+        }
+    }
+
+    private void readNode(DataInputStream in) throws IOException, IllegalDataException {
+        NodeData nd = new NodeData();
+        readCommon(in, nd);
+        double lat = in.readDouble();
+        double lon = in.readDouble();
+        if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+            nd.setCoor(new LatLon(lat, lon));
+        }
+        Node n = new Node(nd.getId(), nd.getVersion());
+        n.setVisible(nd.isVisible());
+        n.load(nd);
+        remove(OsmPrimitiveType.NODE, nd.getUniqueId());
+        externalIdMap.put(nd.getPrimitiveId(), n);
+    }
+
+    private void readWay(DataInputStream in) throws IOException, IllegalDataException {
+        WayData wd = new WayData();
+        readCommon(in, wd);
+        int count = in.readInt();
+        Collection<Long> nodeIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodeIds.add(in.readLong());
+        }
+        Way w = new Way(wd.getId(), wd.getVersion());
+        w.setVisible(wd.isVisible());
+        w.load(wd);
+        remove(OsmPrimitiveType.WAY, wd.getUniqueId());
+        externalIdMap.put(wd.getPrimitiveId(), w);
+        ways.put(wd.getUniqueId(), w.isDeleted() ? new ArrayList<>() : nodeIds);
+    }
+
+    private void readRelation(DataInputStream in) throws IOException, IllegalDataException {
+        RelationData rd = new RelationData();
+        readCommon(in, rd);
+        int count = in.readInt();
+        Collection<RelationMemberData> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OsmPrimitiveType type = memberType(in.readUnsignedByte());
+            long id = in.readLong();
+            members.add(new RelationMemberData(readString(in), type, id));
+        }
+        Relation r = new Relation(rd.getId(), rd.getVersion());
+        r.setVisible(rd.isVisible());
+        r.load(rd);
+        remove(OsmPrimitiveType.RELATION, rd.getUniqueId());
+        externalIdMap.put(rd.getPrimitiveId(), r);
+        relations.put(rd.getUniqueId(), r.isDeleted() ? new ArrayList<>() : members);
+    }
+
+    private static void readCommon(DataInputStream in, PrimitiveData current) throws IOException, IllegalDataException {
+        current.setId(in.readLong());
+        if (current.getUniqueId() == 0) {
+            throw new IllegalDataException(tr("Illegal object with ID=0."));
+        }
+        current.setVersion(in.readInt());
+        current.setChangesetId(in.readInt());
+        current.setRawTimestamp(in.readInt());
+        long uid = in.readLong();
+        String name = readString(in);
+        if (uid > 0) {
+            current.setUser(User.createOsmUser(uid, name));
+        } else if (name != null) {
+            current.setUser(User.createLocalUser(name));
+        }
+        int flags = in.readUnsignedByte();
+        // in this order, setDeleted changes the modified flag
+        current.setVisible((flags & OsmJournalWriter.FLAG_VISIBLE) != 0);
+        current.setDeleted((flags & OsmJournalWriter.FLAG_DELETED) != 0);
+        current.setModified((flags & OsmJournalWriter.FLAG_MODIFIED) != 0);
+        current.setIncomplete((flags & OsmJournalWriter.FLAG_INCOMPLETE) != 0);
+        int count = in.readInt();
+        if (count > 0) {
+            String[] tags = new String[2 * count];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = readString(in);
+            }
+            current.setKeys(new TagMap(tags));
+        }
+    }
+
+    private void remove(OsmPrimitiveType type, long id) {
+        externalIdMap.remove(new SimplePrimitiveId(id, type));
+        if (type == OsmPrimitiveType.WAY) {
+            ways.remove(id);
+        } else if (type == OsmPrimitiveType.RELATION) {
+            relations.remove(id);
+        }
+    }
+
+    /**
+     * Removes the references to new primitives which are not in the journal. This only happens when JOSM crashed
+     * between a change and the batch containing the other primitives of this change, which would be in the next batch.
+     */
+    private void removeMissingReferences() {
+        for (Collection<Long> nodeIds : ways.values()) {
+            for (Iterator<Long> it = nodeIds.iterator(); it.hasNext();) {
+                long id = it.next();
+                if (id <= 0 && !externalIdMap.containsKey(new SimplePrimitiveId(id, OsmPrimitiveType.NODE))) {
+                    Main.info("Journal: removing missing node " + id + " from a way");
+                    it.remove();
+                }
+            }
+        }
+        for (Collection<RelationMemberData> members : relations.values()) {
+            for (Iterator<RelationMemberData> it = members.iterator(); it.hasNext();) {
+                RelationMemberData member = it.next();
+                if (member.getMemberId() <= 0
+                        && !externalIdMap.containsKey(new SimplePrimitiveId(member.getMemberId(), member.getMemberType()))) {
+                    Main.info("Journal: removing missing member " + member.getMemberId() + " from a relation");
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static OsmPrimitiveType memberType(int type) throws IllegalDataException {
+        if (type >= MEMBER_TYPES.length) {
+            throw new IllegalDataException(tr("Invalid journal primitive type {0}.", type));
+        }
+        return MEMBER_TYPES[type];
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new OsmJournalReader().doParseDataSet(source, progressMonitor);
+    }
+}
@@ -0,0 +1,224 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+
+/**
+ * Writes OSM data to an autosave journal, which is read by {@link OsmJournalReader}.
+ * <p>
+ * A journal starts with a checkpoint, the complete contents of a data set, followed by batches of changes: the current
+ * state of the primitives changed since the previous batch, and the ids of the removed primitives. Each batch is written
+ * as a single frame, preceded by its length and CRC, so that a batch torn by a crash is detected and ignored when reading.
+ * <p>
+ * The format keeps the JOSM specific state of the primitives (modified, deleted, incomplete) and the ids of the new
+ * primitives, so that the primitives of the batches can be matched with the ones of the checkpoint.
+ * @since 12613
+ */
+public class OsmJournalWriter {
+
+    /** The bytes starting a journal, including the format version */
+    static final byte[] MAGIC = "JOSMJNL1".getBytes(StandardCharsets.US_ASCII);
+
+    static final int RECORD_HEADER = 1;
+    static final int RECORD_NODE = 2;
+    static final int RECORD_WAY = 3;
+    static final int RECORD_RELATION = 4;
+    static final int RECORD_REMOVED = 5;
+
+    static final int FLAG_MODIFIED = 1;
+    static final int FLAG_DELETED = 2;
+    static final int FLAG_VISIBLE = 4;
+    static final int FLAG_INCOMPLETE = 8;
+
+    /** The frame size above which a checkpoint is split into several frames */
+    private static final int CHECKPOINT_FRAME_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(frame);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Constructs a new {@code OsmJournalWriter}.
+     * @param out the output stream, positioned at the start of a new journal or at the end of an existing one
+     */
+    public OsmJournalWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts a new journal with the complete contents of a data set.
+     * @param snapshot the snapshot of the data set
+     * @return the number of bytes written
+     * @throws IOException if any I/O error occurs
+     */
+    public long writeCheckpoint(DataSetSnapshot snapshot) throws IOException {
+        out.write(MAGIC);
+        long written = MAGIC.length;
+        addHeader(snapshot.getVersion(), snapshot.getUploadPolicy(), snapshot.getDataSources());
+        written += writeCheckpointPrimitives(snapshot.getNodes());
+        written += writeCheckpointPrimitives(snapshot.getWays());
+        written += writeCheckpointPrimitives(snapshot.getRelations());
+        return written + endBatch();
+    }
+
+    private long writeCheckpointPrimitives(List<? extends IPrimitive> primitives) throws IOException {
+        long written = 0;
+        for (IPrimitive p : primitives) {
+            addPrimitive(p);
+            if (frame.size() >= CHECKPOINT_FRAME_SIZE) {
+                written += endBatch();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Adds the data set attributes to the current batch.
+     * @param version the API version, can be null
+     * @param uploadPolicy the upload policy, can be null
+     * @param dataSources the data sources
+     * @throws IOException if any I/O error occurs
+     */
+    public void addHeader(String version, UploadPolicy uploadPolicy, Collection<DataSource> dataSources) throws IOException {
+        data.writeByte(RECORD_HEADER);
+        writeString(version);
+        writeString(uploadPolicy != null ? uploadPolicy.name() : null);
+        data.writeInt(dataSources.size());
+        for (DataSource source : dataSources) {
+            data.writeDouble(source.bounds.getMinLat());
+            data.writeDouble(source.bounds.getMinLon());
+            data.writeDouble(source.bounds.getMaxLat());
+            data.writeDouble(source.bounds.getMaxLon());
+            writeString(source.origin);
+        }
+    }
+
+    /**
+     * Adds changes to the current batch. The primitives must not be modified meanwhile.
+     * @param changed the changed or added primitives
+     * @param removed the ids of the primitives removed from the data set
+     * @throws IOException if any I/O error occurs
+     */
+    public void addChanges(Collection<? extends IPrimitive> changed, Collection<? extends PrimitiveId> removed) throws IOException {
+        // removals first, a primitive can be removed then added again
+        for (PrimitiveId id : removed) {
+            data.writeByte(RECORD_REMOVED);
+            data.writeByte(id.getType().ordinal());
+            data.writeLong(id.getUniqueId());
+        }
+        for (IPrimitive p : changed) {
+            addPrimitive(p);
+        }
+    }
+
+    /**
+     * Writes the current batch as one frame.
+     * @return the number of bytes written, 0 if the batch is empty
+     * @throws IOException if any I/O error occurs
+     */
+    public long endBatch() throws IOException {
+        if (frame.size() == 0) {
+            return 0;
+        }
+        data.flush();
+        byte[] bytes = frame.toByteArray();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(bytes.length);
+        header.writeInt((int) crc.getValue());
+        out.write(bytes);
+        out.flush();
+        frame.reset();
+        return 8L + bytes.length;
+    }
+
+    private void addPrimitive(IPrimitive p) throws IOException {
+        switch (p.getType()) {
+        case NODE:
+            data.writeByte(RECORD_NODE);
+            writeCommon(p);
+            INode n = (INode) p;
+            data.writeDouble(n.lat());
+            data.writeDouble(n.lon());
+            break;
+        case WAY:
+            data.writeByte(RECORD_WAY);
+            writeCommon(p);
+            IWay w = (IWay) p;
+            data.writeInt(w.getNodesCount());
+            for (int i = 0; i < w.getNodesCount(); i++) {
+                data.writeLong(w.getNodeId(i));
+            }
+            break;
+        case RELATION:
+            data.writeByte(RECORD_RELATION);
+            writeCommon(p);
+            IRelation r = (IRelation) p;
+            data.writeInt(r.getMembersCount());
+            for (int i = 0; i < r.getMembersCount(); i++) {
+                data.writeByte(r.getMemberType(i).ordinal());
+                data.writeLong(r.getMemberId(i));
+                writeString(r.getRole(i));
+            }
+            break;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    private void writeCommon(IPrimitive p) throws IOException {
+        data.writeLong(p.getUniqueId());
+        data.writeInt(p.getVersion());
+        data.writeInt(p.getChangesetId());
+        data.writeInt(p.getRawTimestamp());
+        User user = p.getUser();
+        data.writeLong(user != null ? user.getId() : 0);
+        writeString(user != null ? user.getName() : null);
+        data.writeByte((p.isModified() ? FLAG_MODIFIED : 0)
+                | (p.isDeleted() ? FLAG_DELETED : 0)
+                | (p.isVisible() ? FLAG_VISIBLE : 0)
+                | (p.isIncomplete() ? FLAG_INCOMPLETE : 0));
+        Map<String, String> tags = p.getKeys();
+        data.writeInt(tags.size());
+        for (Entry<String, String> tag : tags.entrySet()) {
+            writeString(tag.getKey());
+            writeString(tag.getValue());
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes, unlike {@link DataOutputStream#writeUTF} not limited to 64 KiB.
+     * @param s the string, can be null
+     * @throws IOException if any I/O error occurs
+     */
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            data.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+}
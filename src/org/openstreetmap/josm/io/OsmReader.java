@@ -121,6 +121,24 @@ public class OsmReader extends AbstractReader {
         parser.close();
     }
 
+    /**
+     * Creates the parser for the given input stream and parses it into the data structures of {@link AbstractReader}.
+     * @param source the source input stream
+     * @throws XMLStreamException if there is an error processing the underlying XML source
+     * @throws IOException if any I/O error occurs
+     * @since 12602
+     */
+    protected void parse(InputStream source) throws XMLStreamException, IOException {
+        try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            // do not try to load external entities
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            setParser(factory.createXMLStreamReader(ir));
+            parse();
+        }
+    }
+
     protected void parseRoot() throws XMLStreamException {
         if ("osm".equals(parser.getLocalName())) {
             parseOsm();
@@ -584,7 +602,7 @@ public class OsmReader extends AbstractReader {
     /**
      * Exception thrown after user cancelation.
      */
-    private static final class OsmParsingCanceledException extends XmlStreamParsingException implements ImportCancelException {
+    static final class OsmParsingCanceledException extends XmlStreamParsingException implements ImportCancelException {
         /**
          * Constructs a new {@code OsmParsingCanceledException}.
          * @param msg The error message
@@ -607,14 +625,7 @@ public class OsmReader extends AbstractReader {
             progressMonitor.beginTask(tr("Prepare OSM data...", 2));
             progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
 
-            try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
-                XMLInputFactory factory = XMLInputFactory.newInstance();
-                // do not try to load external entities
-                factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
-                factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-                setParser(factory.createXMLStreamReader(ir));
-                parse();
-            }
+            parse(source);
             progressMonitor.worked(1);
 
             progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
@@ -666,4 +677,24 @@ public class OsmReader extends AbstractReader {
     public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
         return new OsmReader().doParseDataSet(source, progressMonitor);
     }
+
+    /**
+     * Parse the given input source and return the dataset, using several threads for large inputs.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor  the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @param threads the number of threads used to parse the XML. With 1 or less, the input is parsed on the calling thread only
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     * @see ParallelOsmReader
+     * @since 12602
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor, int threads) throws IllegalDataException {
+        if (threads <= 1) {
+            return parseDataSet(source, progressMonitor);
+        }
+        return new ParallelOsmReader(threads).doParseDataSet(source, progressMonitor);
+    }
 }
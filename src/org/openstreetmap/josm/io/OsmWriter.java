@@ -14,16 +14,17 @@ import java.util.Map.Entry;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.CoordinateFormat;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
@@ -112,7 +113,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     /**
      * Sorts {@code -1} &rarr; {@code -infinity}, then {@code +1} &rarr; {@code +infinity}
      */
-    protected static final Comparator<AbstractPrimitive> byIdComparator = (o1, o2) -> {
+    protected static final Comparator<PrimitiveId> byIdComparator = (o1, o2) -> {
         final long i1 = o1.getUniqueId();
         final long i2 = o2.getUniqueId();
         if (i1 < 0 && i2 < 0) {
@@ -136,6 +137,33 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         footer();
     }
 
+    /**
+     * Writes a snapshot of a dataset: header, data sources, contents sorted by id and footer.
+     * Unlike {@link #writeLayer}, this does not need the dataset to be locked.
+     * @param snapshot the snapshot to write
+     * @see DataSet#snapshot()
+     * @since 12612
+     */
+    public void write(DataSetSnapshot snapshot) {
+        header(snapshot.getUploadPolicy());
+        writeDataSources(snapshot.getDataSources());
+        setWithVisible(UploadPolicy.NORMAL.equals(snapshot.getUploadPolicy()));
+        writeSnapshotPrimitives(snapshot.getNodes());
+        writeSnapshotPrimitives(snapshot.getWays());
+        writeSnapshotPrimitives(snapshot.getRelations());
+        footer();
+    }
+
+    private void writeSnapshotPrimitives(Collection<? extends IPrimitive> primitives) {
+        List<IPrimitive> sorted = new ArrayList<>(primitives);
+        sorted.sort(byIdComparator);
+        for (IPrimitive p : sorted) {
+            if (!p.isNewOrUndeleted() || !p.isDeleted()) {
+                p.accept(this);
+            }
+        }
+    }
+
     /**
      * Writes the contents of the given dataset (nodes, then ways, then relations)
      * @param ds The dataset to write
@@ -191,7 +219,16 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     }
 
     public void writeDataSources(DataSet ds) {
-        for (DataSource s : ds.getDataSources()) {
+        writeDataSources(ds.getDataSources());
+    }
+
+    /**
+     * Writes the given data sources.
+     * @param dataSources the data sources
+     * @since 12612
+     */
+    public void writeDataSources(Collection<DataSource> dataSources) {
+        for (DataSource s : dataSources) {
             out.println("  <bounds minlat='"
                     + s.bounds.getMin().latToString(CoordinateFormat.DECIMAL_DEGREES)
                     +"' minlon='"
@@ -212,8 +249,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             out.println("/>");
         } else {
             if (n.getCoor() != null) {
-                out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat())+
-                          "' lon='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon())+'\'');
+                out.print(" lat='");
+                out.print(LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat()));
+                out.print("' lon='");
+                out.print(LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon()));
+                out.print('\'');
             }
             addTags(n, "node", true);
         }
@@ -228,7 +268,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < w.getNodesCount(); ++i) {
-                out.println("    <nd ref='"+w.getNodeId(i) +"' />");
+                out.print("    <nd ref='");
+                out.print(w.getNodeId(i));
+                out.println("' />");
             }
             addTags(w, "way", false);
         }
@@ -245,8 +287,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             for (int i = 0; i < e.getMembersCount(); ++i) {
                 out.print("    <member type='");
                 out.print(e.getMemberType(i).getAPIName());
-                out.println("' ref='"+e.getMemberId(i)+"' role='" +
-                        XmlWriter.encode(e.getRole(i)) + "' />");
+                out.print("' ref='");
+                out.print(e.getMemberId(i));
+                out.print("' role='");
+                printEncoded(e.getRole(i));
+                out.println("' />");
             }
             addTags(e, "relation", false);
         }
@@ -289,8 +334,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             List<Entry<String, String>> entries = new ArrayList<>(osm.getKeys().entrySet());
             entries.sort(byKeyComparator);
             for (Entry<String, String> e : entries) {
-                out.println("    <tag k='"+ XmlWriter.encode(e.getKey()) +
-                        "' v='"+XmlWriter.encode(e.getValue())+ "' />");
+                out.print("    <tag k='");
+                printEncoded(e.getKey());
+                out.print("' v='");
+                printEncoded(e.getValue());
+                out.println("' />");
             }
             out.println("  </" + tagname + '>');
         } else if (tagOpen) {
@@ -307,9 +355,12 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @param tagname XML tag matching osm primitive (node, way, relation)
      */
     protected void addCommon(IPrimitive osm, String tagname) {
-        out.print("  <"+tagname);
+        out.print("  <");
+        out.print(tagname);
         if (osm.getUniqueId() != 0) {
-            out.print(" id='"+ osm.getUniqueId()+'\'');
+            out.print(" id='");
+            out.print(osm.getUniqueId());
+            out.print('\'');
         } else
             throw new IllegalStateException(tr("Unexpected id 0 for osm primitive found"));
         if (!isOsmChange) {
@@ -325,16 +376,23 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
                 }
             }
             if (!osm.isTimestampEmpty()) {
-                out.print(" timestamp='"+DateUtils.fromTimestamp(osm.getRawTimestamp())+'\'');
+                out.print(" timestamp='");
+                out.print(DateUtils.fromTimestamp(osm.getRawTimestamp()));
+                out.print('\'');
             }
             // user and visible added with 0.4 API
             if (osm.getUser() != null) {
                 if (osm.getUser().isLocalUser()) {
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
+                    out.print(" user='");
+                    printEncoded(osm.getUser().getName());
+                    out.print('\'');
                 } else if (osm.getUser().isOsmUser()) {
                     // uid added with 0.6
-                    out.print(" uid='"+ osm.getUser().getId()+'\'');
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
+                    out.print(" uid='");
+                    out.print(osm.getUser().getId());
+                    out.print("' user='");
+                    printEncoded(osm.getUser().getName());
+                    out.print('\'');
                 }
             }
             if (withVisible) {
@@ -342,12 +400,16 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             }
         }
         if (osm.getVersion() != 0) {
-            out.print(" version='"+osm.getVersion()+'\'');
+            out.print(" version='");
+            out.print(osm.getVersion());
+            out.print('\'');
         }
         if (this.changeset != null && this.changeset.getId() != 0) {
             out.print(" changeset='"+this.changeset.getId()+'\'');
         } else if (osm.getChangesetId() > 0 && !osm.isNew()) {
-            out.print(" changeset='"+osm.getChangesetId()+'\'');
+            out.print(" changeset='");
+            out.print(osm.getChangesetId());
+            out.print('\'');
         }
     }
 }
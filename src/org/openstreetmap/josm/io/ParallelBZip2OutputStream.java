@@ -0,0 +1,54 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+/**
+ * A bzip2 output stream compressing blocks of data on several threads, like pbzip2 does.
+ * <p>
+ * Each block is compressed to a bzip2 stream of its own, and the streams are concatenated. Since bzip2 compresses
+ * blocks of at most 900 kB independently anyway, the compression ratio is the same as with a single stream.
+ * Concatenated streams are read by the bzip2 tools and by {@link org.openstreetmap.josm.tools.Utils#getBZip2InputStream}.
+ * @since 12611
+ */
+public class ParallelBZip2OutputStream extends ParallelCompressorOutputStream {
+
+    /** Default size of the uncompressed blocks, leaving room for the run-length encoding done before the 900 kB blocks */
+    public static final int DEFAULT_BLOCK_SIZE = 850 * 1000;
+
+    /**
+     * Constructs a new {@code ParallelBZip2OutputStream}.
+     * @param out the underlying output stream
+     * @param threads the number of compression threads
+     */
+    public ParallelBZip2OutputStream(OutputStream out, int threads) {
+        this(out, DEFAULT_BLOCK_SIZE, threads);
+    }
+
+    /**
+     * Constructs a new {@code ParallelBZip2OutputStream}.
+     * @param out the underlying output stream
+     * @param blockSize the size of the uncompressed blocks
+     * @param threads the number of compression threads
+     */
+    public ParallelBZip2OutputStream(OutputStream out, int blockSize, int threads) {
+        super(out, blockSize, threads);
+    }
+
+    @Override
+    protected byte[] compressBlock(byte[] data, int length, byte[] previous, boolean last) throws IOException {
+        if (length == 0 && previous != null) {
+            // the data ended with a full block
+            return new byte[0];
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length / 4 + 64);
+        try (BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(result)) {
+            bzip2.write(data, 0, length);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A compressing output stream which splits the data into blocks and compresses them on several threads.
+ * <p>
+ * The compressed blocks are written in the order of the data, as soon as the blocks before them are written.
+ * The number of blocks held in memory is bounded: writing waits while all compression threads are busy.
+ * @since 12611
+ */
+public abstract class ParallelCompressorOutputStream extends OutputStream {
+
+    /**
+     * The underlying output stream.
+     */
+    protected final OutputStream out;
+
+    private final int blockSize;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private byte[] previousBlock;
+    private int count;
+    private boolean finished;
+
+    /**
+     * Constructs a new {@code ParallelCompressorOutputStream}.
+     * @param out the underlying output stream
+     * @param blockSize the size of the uncompressed blocks
+     * @param threads the number of compression threads
+     */
+    protected ParallelCompressorOutputStream(OutputStream out, int blockSize, int threads) {
+        this.out = out;
+        this.blockSize = blockSize;
+        this.threads = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                Utils.newThreadFactory("compressor-%d", Thread.NORM_PRIORITY));
+        // do not keep threads of a stream which is never closed
+        executor.allowCoreThreadTimeOut(true);
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Compresses a block. This is called on a compression thread.
+     * @param data the data of the block
+     * @param length the number of bytes of the block
+     * @param previous the data of the previous block, or {@code null} for the first block
+     * @param last {@code true} for the last block, which may be empty
+     * @return the compressed block
+     * @throws IOException if any I/O error occurs
+     */
+    protected abstract byte[] compressBlock(byte[] data, int length, byte[] previous, boolean last) throws IOException;
+
+    /**
+     * Writes what follows the compressed blocks. This is called after the last block has been written.
+     * @throws IOException if any I/O error occurs
+     */
+    protected void writeTrailer() throws IOException {
+        // Nothing to do by default
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == blockSize) {
+            submitBlock(false);
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == blockSize) {
+                submitBlock(false);
+            }
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] data = block;
+        final byte[] previous = previousBlock;
+        final int length = count;
+        pending.add(executor.submit(() -> compressBlock(data, length, previous, last)));
+        previousBlock = data;
+        block = last ? null : new byte[blockSize];
+        count = 0;
+        while (pending.size() > 2 * threads || (last && !pending.isEmpty())) {
+            writeBlock(pending.remove());
+        }
+    }
+
+    private void writeBlock(Future<byte[]> future) throws IOException {
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished)
+            throw new IOException("Stream finished");
+    }
+
+    /**
+     * Compresses the remaining data and writes all blocks, without closing the underlying stream.
+     * @throws IOException if any I/O error occurs
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            try {
+                submitBlock(true);
+                writeTrailer();
+            } finally {
+                finished = true;
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Flushes the underlying stream. The data of the current block is only written when the block is complete,
+     * since compressing small blocks would impair the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip output stream compressing blocks of data on several threads, like pigz does.
+ * <p>
+ * Each block is deflated with the end of the previous block as preset dictionary, and ends with a sync flush,
+ * so that the blocks can be concatenated to a single deflate stream. The result is a standard gzip file with a
+ * compression ratio close to the one of {@link java.util.zip.GZIPOutputStream}.
+ * @since 12611
+ */
+public class ParallelGzipOutputStream extends ParallelCompressorOutputStream {
+
+    /** Default size of the uncompressed blocks */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /** Maximum size of a deflate dictionary */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] HEADER = {
+        (byte) 0x1f, (byte) 0x8b, // magic number
+        Deflater.DEFLATED,        // compression method
+        0,                        // flags
+        0, 0, 0, 0,               // modification time
+        0,                        // extra flags
+        0                         // operating system
+    };
+
+    private final CRC32 crc = new CRC32();
+    private long size;
+
+    /**
+     * Constructs a new {@code ParallelGzipOutputStream}.
+     * @param out the underlying output stream
+     * @param threads the number of compression threads
+     * @throws IOException if the header cannot be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, threads);
+    }
+
+    /**
+     * Constructs a new {@code ParallelGzipOutputStream}.
+     * @param out the underlying output stream
+     * @param blockSize the size of the uncompressed blocks
+     * @param threads the number of compression threads
+     * @throws IOException if the header cannot be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, int blockSize, int threads) throws IOException {
+        super(out, blockSize, threads);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        super.write(b);
+        crc.update(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        crc.update(b, off, len);
+        size += len;
+    }
+
+    @Override
+    protected byte[] compressBlock(byte[] data, int length, byte[] previous, boolean last) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (previous != null) {
+                int dictionary = Math.min(DICTIONARY_SIZE, previous.length);
+                deflater.setDictionary(previous, previous.length - dictionary, dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    result.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // a full buffer means that the flush may be incomplete
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    protected void writeTrailer() throws IOException {
+        writeInt((int) crc.getValue());
+        writeInt((int) size);
+    }
+
+    private void writeInt(int i) throws IOException {
+        out.write(i & 0xff);
+        out.write((i >> 8) & 0xff);
+        out.write((i >> 16) & 0xff);
+        out.write((i >> 24) & 0xff);
+    }
+}
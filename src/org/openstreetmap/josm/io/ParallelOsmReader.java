@@ -0,0 +1,347 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Parser for OSM files that uses several threads.
+ * <p>
+ * The byte stream is split into chunks at the start of top-level {@code <node>}, {@code <way>} and {@code <relation>}
+ * elements. Each chunk is wrapped into the root element of the file and parsed by its own {@link OsmReader} on a
+ * worker thread. The results are merged in stream order, so the id resolution done by {@link AbstractReader}
+ * afterwards sees exactly the same data as with the serial parser.
+ * <p>
+ * The header, i.e. everything before the first of these elements, is parsed first on the calling thread. It holds the
+ * XML declaration, comments, the {@code <osm>} start tag and any {@code <bounds>} or {@code <changeset>} element, and it
+ * provides the start tag used to wrap the chunks. Elements found after the first node, way or relation are parsed as part
+ * of the chunk they appear in.
+ * <p>
+ * The whole input is parsed serially by {@link OsmReader} if it cannot be split: if it uses a UTF-16 or UTF-32 encoding
+ * (the input is otherwise expected to be UTF-8, with an optional byte order mark), if it contains no node, way or relation,
+ * or if no {@code <osm>} start tag precedes the first of them. In the latter case the serial parser reports the error.
+ * @since 12602
+ */
+public class ParallelOsmReader extends OsmReader {
+
+    /**
+     * Approximate size of the chunks handed to the worker threads.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final byte[][] ELEMENTS = {bytes("<node"), bytes("<way"), bytes("<relation")};
+    private static final byte[] ROOT = bytes("<osm");
+    private static final byte[] ROOT_END = bytes("</osm>");
+    private static final byte[] ROOT_CLOSE = bytes("</osm");
+    private static final byte[] COMMENT_START = bytes("<!--");
+    private static final byte[] COMMENT_END = bytes("-->");
+    /** Bytes that must be available after a position to decide whether an element starts there */
+    private static final int LOOKAHEAD = 10;
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructs a new {@code ParallelOsmReader}.
+     * @param threads the number of worker threads
+     * @see OsmReader#parseDataSet(InputStream, org.openstreetmap.josm.gui.progress.ProgressMonitor, int)
+     */
+    protected ParallelOsmReader(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    ParallelOsmReader(int threads, int chunkSize) {
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the header serially, then the chunks in parallel. Falls back to a serial parse of the whole input if it
+     * cannot be split, see the class documentation.
+     * @param source the input stream
+     * @throws XMLStreamException if the input is not well-formed XML
+     * @throws IOException if any I/O error occurs
+     */
+    @Override
+    protected void parse(InputStream source) throws XMLStreamException, IOException {
+        ChunkSplitter splitter = new ChunkSplitter(source, chunkSize);
+        byte[] header = splitter.readHeader();
+        if (header == null) {
+            // no elements to split at, or an encoding we cannot split safely
+            super.parse(splitter.remainder());
+            return;
+        }
+        byte[] rootTag = findRootTag(header);
+        if (rootTag == null) {
+            // not an OSM file, let the serial parser deal with it
+            super.parse(new SequenceInputStream(new ByteArrayInputStream(header), splitter.remainder()));
+            return;
+        }
+        super.parse(new ByteArrayInputStream(concat(header, ROOT_END)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("osm-reader-%d", Thread.NORM_PRIORITY));
+        try {
+            Deque<Future<OsmReader>> pending = new ArrayDeque<>();
+            byte[] chunk = splitter.nextChunk(rootTag);
+            while (chunk != null) {
+                if (cancel) {
+                    cancel = false;
+                    throw new OsmParsingCanceledException(tr("Reading was canceled"), null);
+                }
+                final byte[] content = chunk;
+                pending.add(executor.submit(() -> {
+                    OsmReader reader = new OsmReader();
+                    reader.parse(new ByteArrayInputStream(content));
+                    return reader;
+                }));
+                // bound the number of chunks held in memory
+                if (pending.size() > 2 * threads) {
+                    merge(pending.remove());
+                }
+                chunk = splitter.nextChunk(rootTag);
+            }
+            while (!pending.isEmpty()) {
+                merge(pending.remove());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void merge(Future<OsmReader> future) throws XMLStreamException, IOException {
+        OsmReader reader;
+        try {
+            reader = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OsmParsingCanceledException(tr("Reading was canceled"), null);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+        externalIdMap.putAll(reader.externalIdMap);
+        ways.putAll(reader.ways);
+        relations.putAll(reader.relations);
+        ds.addDataSources(reader.getDataSet().getDataSources());
+        if (reader.uploadChangeset != null) {
+            uploadChangeset = reader.uploadChangeset;
+        }
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] a : arrays) {
+            length += a.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] a : arrays) {
+            System.arraycopy(a, 0, result, offset, a.length);
+            offset += a.length;
+        }
+        return result;
+    }
+
+    private static boolean matches(byte[] buf, int length, int pos, byte[] token) {
+        if (pos + token.length > length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (buf[pos + i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/';
+    }
+
+    /**
+     * Finds the start tag of the root element, used to wrap the chunks.
+     * @param header the bytes before the first element
+     * @return the bytes of the {@code <osm ...>} start tag, or {@code null} if the header does not contain it
+     */
+    private static byte[] findRootTag(byte[] header) {
+        for (int i = 0; i < header.length; i++) {
+            if (matches(header, header.length, i, ROOT) && i + ROOT.length < header.length && isNameEnd(header[i + ROOT.length])) {
+                for (int j = i + ROOT.length; j < header.length; j++) {
+                    if (header[j] == '>') {
+                        return Arrays.copyOfRange(header, i, j + 1);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits a byte stream at the start of top-level OSM elements, skipping comments.
+     */
+    private static final class ChunkSplitter {
+        private final InputStream in;
+        private final int chunkSize;
+        private byte[] buf;
+        private int length;
+        /** Bytes of {@link #buf} already scanned for element starts */
+        private int scanned;
+        /** Position of the last element start found in the scanned bytes, or -1 */
+        private int boundary = -1;
+        private boolean inComment;
+        private boolean eof;
+
+        ChunkSplitter(InputStream in, int chunkSize) {
+            this.in = in;
+            this.chunkSize = chunkSize;
+            this.buf = new byte[chunkSize + LOOKAHEAD];
+        }
+
+        private void fill() throws IOException {
+            if (length == buf.length && !eof) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            while (length < buf.length && !eof) {
+                int n = in.read(buf, length, buf.length - length);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    length += n;
+                }
+            }
+            scan();
+        }
+
+        private void scan() {
+            int limit = eof ? length : length - LOOKAHEAD;
+            int i = scanned;
+            while (i < limit) {
+                if (inComment) {
+                    if (matches(buf, length, i, COMMENT_END)) {
+                        inComment = false;
+                        i += COMMENT_END.length;
+                        continue;
+                    }
+                } else if (buf[i] == '<') {
+                    if (matches(buf, length, i, COMMENT_START)) {
+                        inComment = true;
+                        i += COMMENT_START.length;
+                        continue;
+                    } else if (isElementStart(i)) {
+                        boundary = i;
+                    }
+                }
+                i++;
+            }
+            scanned = Math.max(scanned, i);
+        }
+
+        private boolean isElementStart(int pos) {
+            for (byte[] element : ELEMENTS) {
+                if (matches(buf, length, pos, element) && pos + element.length < length && isNameEnd(buf[pos + element.length])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private byte[] consume(int n, byte[] prefix, byte[] suffix) {
+            byte[] result = new byte[prefix.length + n + suffix.length];
+            System.arraycopy(prefix, 0, result, 0, prefix.length);
+            System.arraycopy(buf, 0, result, prefix.length, n);
+            System.arraycopy(suffix, 0, result, prefix.length + n, suffix.length);
+            System.arraycopy(buf, n, buf, 0, length - n);
+            length -= n;
+            scanned -= n;
+            boundary = -1;
+            return result;
+        }
+
+        /**
+         * Reads the bytes before the first top-level node, way or relation, without the byte order mark.
+         * @return the header, or {@code null} if the stream uses a UTF-16 or UTF-32 encoding or has no such element
+         * @throws IOException if any I/O error occurs
+         */
+        byte[] readHeader() throws IOException {
+            fill();
+            if (length >= 2 && ((buf[0] == (byte) 0xFE && buf[1] == (byte) 0xFF) || (buf[0] == (byte) 0xFF && buf[1] == (byte) 0xFE)
+                    || (length >= 4 && buf[0] == 0 && buf[1] == 0))) {
+                // UTF-16 or UTF-32
+                return null;
+            }
+            int start = length >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF ? 3 : 0;
+            while (boundary < 0 && !eof) {
+                fill();
+            }
+            if (boundary < 0) {
+                return null;
+            }
+            int end = boundary;
+            return Arrays.copyOfRange(consume(end, new byte[0], new byte[0]), start, end);
+        }
+
+        /**
+         * Returns a stream of the bytes not consumed yet.
+         * @return the remaining bytes of the input
+         */
+        InputStream remainder() {
+            return new SequenceInputStream(new ByteArrayInputStream(buf, 0, length), in);
+        }
+
+        /**
+         * Reads the next chunk of elements, wrapped into the given root element.
+         * @param rootTag the start tag of the root element
+         * @return the chunk, or {@code null} at the end of the stream
+         * @throws IOException if any I/O error occurs
+         */
+        byte[] nextChunk(byte[] rootTag) throws IOException {
+            while (!eof && (length < chunkSize || boundary <= 0)) {
+                fill();
+            }
+            if (!eof) {
+                return consume(boundary, rootTag, ROOT_END);
+            }
+            if (length == 0) {
+                return null;
+            }
+            // last chunk: the closing root tag is already there, drop everything after it
+            int end = length;
+            for (int i = length - ROOT_CLOSE.length; i >= 0; i--) {
+                if (matches(buf, length, i, ROOT_CLOSE)) {
+                    end = i;
+                    break;
+                }
+            }
+            byte[] last = consume(end, rootTag, end < length ? ROOT_END : new byte[0]);
+            length = 0;
+            return last;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+
+/**
+ * Exports data to an .osm.pbf file.
+ * <p>
+ * The PBF format cannot store the modified and deleted state of primitives, see {@link PbfWriter}.
+ * So the user is asked for confirmation before a layer with local changes is exported.
+ * @since 12603
+ */
+public class PbfExporter extends OsmExporter {
+
+    /**
+     * Constructs a new {@code PbfExporter}.
+     */
+    public PbfExporter() {
+        super(new ExtensionFileFilter(
+            "osm.pbf,pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf, *.pbf)"));
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        setCanceled(false);
+        if (layer instanceof OsmDataLayer && ((OsmDataLayer) layer).data.isModified() && !confirmLossOfChanges()) {
+            setCanceled(true);
+            return;
+        }
+        super.exportData(file, layer);
+    }
+
+    private static boolean confirmLossOfChanges() {
+        return GraphicsEnvironment.isHeadless() || 1 == GuiHelper.runInEDTAndWaitAndReturn(() ->
+            new ExtendedDialog(
+                    Main.parent,
+                    tr("Save as PBF"),
+                    tr("Save anyway"), tr("Cancel"))
+                .setContent(tr("The PBF format cannot store which objects are new, modified or deleted.<br>"
+                        + "Once saved in this format, your changes can no longer be uploaded from the file. Continue?"))
+                .setButtonIcons("save", "cancel")
+                .showDialog().getValue());
+    }
+
+    @Override
+    protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        // the data set is only locked while the snapshot is taken, not while it is encoded
+        DataSetSnapshot snapshot = layer.data.snapshot();
+        try (PbfWriter w = new PbfWriter(new BufferedOutputStream(getOutputStream(file)))) {
+            w.writeData(snapshot);
+        }
+    }
+}
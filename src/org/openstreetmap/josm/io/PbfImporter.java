@@ -0,0 +1,37 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * File importer that reads *.osm.pbf data files.
+ * @since 12603
+ */
+public class PbfImporter extends OsmImporter {
+
+    /**
+     * The OSM PBF file filter (*.osm.pbf and *.pbf files).
+     */
+    public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
+            "osm.pbf,pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf, *.pbf)");
+
+    /**
+     * Constructs a new {@code PbfImporter}.
+     */
+    public PbfImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return PbfReader.parseDataSet(in, progressMonitor,
+                Main.pref.getInteger("pbf.reader.threads", Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,880 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Parser for the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * The file blocks are read sequentially, and decompressed and decoded on worker threads. The decoded blocks are merged
+ * in file order, then the ids are resolved by {@link AbstractReader} exactly as for the XML format.
+ * <p>
+ * PBF files do not carry the JOSM specific state of the primitives (modified or deleted), and primitives with negative
+ * ids are loaded as new primitives.
+ * @since 12603
+ */
+public class PbfReader extends AbstractReader {
+
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private static final Collection<String> SUPPORTED_FEATURES = Arrays.asList(
+            "OsmSchema-V0.6", "DenseNodes", "HistoricalInformation");
+    private static final OsmPrimitiveType[] MEMBER_TYPES = {
+            OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+
+    private final int threads;
+    private boolean headerRead;
+    private volatile boolean cancel;
+
+    /**
+     * Constructs a new {@code PbfReader}.
+     * @param threads the number of threads used to decode the file blocks. With 1 or less, the file is decoded on the calling thread
+     * @see #parseDataSet(InputStream, ProgressMonitor, int)
+     */
+    protected PbfReader(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        ProgressMonitor.CancelListener cancelListener = () -> cancel = true;
+        progressMonitor.addCancelListener(cancelListener);
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data...", 2));
+            progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
+
+            parse(source);
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (PbfParsingCanceledException e) {
+            throw new IllegalDataException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            progressMonitor.finishTask();
+            progressMonitor.removeCancelListener(cancelListener);
+        }
+    }
+
+    /**
+     * Reads the file blocks, and decodes them into {@link #externalIdMap}, {@link #ways} and {@link #relations}.
+     * @param source the input stream
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if the data is invalid
+     */
+    protected void parse(InputStream source) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(source);
+        ExecutorService executor = threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("pbf-reader-%d", Thread.NORM_PRIORITY))
+                : null;
+        try {
+            Deque<Future<Block>> pending = new ArrayDeque<>();
+            for (FileBlock block = readFileBlock(in); block != null; block = readFileBlock(in)) {
+                if (cancel) {
+                    cancel = false;
+                    throw new PbfParsingCanceledException();
+                }
+                if ("OSMHeader".equals(block.type)) {
+                    parseHeader(new ProtobufInput(decompress(block.blob)));
+                } else if ("OSMData".equals(block.type)) {
+                    if (!headerRead) {
+                        throw new IllegalDataException(tr("Missing {0} block before the first {1} block.", "OSMHeader", "OSMData"));
+                    }
+                    final byte[] blob = block.blob;
+                    if (executor == null) {
+                        merge(new Block(decompress(blob)));
+                    } else {
+                        pending.add(executor.submit(() -> new Block(decompress(blob))));
+                        // bound the number of blocks held in memory
+                        if (pending.size() > 2 * threads) {
+                            merge(pending.remove());
+                        }
+                    }
+                } else {
+                    Main.info(tr("Skipping unknown PBF block type ''{0}''.", block.type));
+                }
+            }
+            while (!pending.isEmpty()) {
+                merge(pending.remove());
+            }
+            if (!headerRead) {
+                throw new IllegalDataException(tr("Missing {0} block.", "OSMHeader"));
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void merge(Future<Block> future) throws IOException, IllegalDataException {
+        try {
+            merge(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PbfParsingCanceledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+    }
+
+    private void merge(Block block) {
+        for (int i = 0; i < block.primitives.size(); i++) {
+            OsmPrimitive p = block.primitives.get(i);
+            externalIdMap.put(new SimplePrimitiveId(block.externalIds[i], p.getType()), p);
+        }
+        ways.putAll(block.ways);
+        relations.putAll(block.relations);
+    }
+
+    /**
+     * A raw file block: the block type and the undecoded {@code Blob} message.
+     */
+    private static final class FileBlock {
+        final String type;
+        final byte[] blob;
+
+        FileBlock(String type, byte[] blob) {
+            this.type = type;
+            this.blob = blob;
+        }
+    }
+
+    private static FileBlock readFileBlock(DataInputStream in) throws IOException, IllegalDataException {
+        int headerSize;
+        try {
+            headerSize = in.readInt();
+        } catch (EOFException e) {
+            Main.trace(e);
+            return null;
+        }
+        if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF block header size {0}.", headerSize));
+        }
+        byte[] header = new byte[headerSize];
+        in.readFully(header);
+        ProtobufInput blobHeader = new ProtobufInput(header);
+        String type = null;
+        int dataSize = -1;
+        while (blobHeader.nextField()) {
+            switch (blobHeader.field()) {
+            case 1:
+                type = blobHeader.readString();
+                break;
+            case 3:
+                dataSize = blobHeader.readInt();
+                break;
+            default:
+                blobHeader.skip();
+            }
+        }
+        if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF block header."));
+        }
+        byte[] blob = new byte[dataSize];
+        in.readFully(blob);
+        return new FileBlock(type, blob);
+    }
+
+    private static byte[] decompress(byte[] blob) throws IllegalDataException {
+        ProtobufInput in = new ProtobufInput(blob);
+        int rawSize = -1;
+        byte[] zlibData = null;
+        while (in.nextField()) {
+            switch (in.field()) {
+            case 1: // raw
+                return in.readBytes();
+            case 2: // raw_size
+                rawSize = in.readInt();
+                break;
+            case 3: // zlib_data
+                zlibData = in.readBytes();
+                break;
+            case 4: // lzma_data
+            case 5: // OBSOLETE_bzip2_data
+            case 6: // lz4_data
+            case 7: // zstd_data
+                throw new IllegalDataException(tr("Unsupported PBF block compression."));
+            default:
+                in.skip();
+            }
+        }
+        if (zlibData == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IllegalDataException(tr("Invalid PBF block."));
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlibData);
+            byte[] result = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int n = inflater.inflate(result, length, rawSize - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawSize) {
+                throw new IllegalDataException(tr("Invalid PBF block."));
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void parseHeader(ProtobufInput header) throws IllegalDataException {
+        ProtobufInput bbox = null;
+        String writingProgram = null;
+        String source = null;
+        while (header.nextField()) {
+            switch (header.field()) {
+            case 1:
+                bbox = header.readMessage();
+                break;
+            case 4:
+                String feature = header.readString();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IllegalDataException(tr("Unsupported PBF feature ''{0}''.", feature));
+                }
+                break;
+            case 16:
+                writingProgram = header.readString();
+                break;
+            case 17:
+                source = header.readString();
+                break;
+            default:
+                header.skip();
+            }
+        }
+        headerRead = true;
+        ds.setVersion("0.6");
+        if (bbox != null) {
+            long left = 0;
+            long right = 0;
+            long top = 0;
+            long bottom = 0;
+            while (bbox.nextField()) {
+                switch (bbox.field()) {
+                case 1:
+                    left = bbox.readSignedVarint();
+                    break;
+                case 2:
+                    right = bbox.readSignedVarint();
+                    break;
+                case 3:
+                    top = bbox.readSignedVarint();
+                    break;
+                case 4:
+                    bottom = bbox.readSignedVarint();
+                    break;
+                default:
+                    bbox.skip();
+                }
+            }
+            Bounds bounds = new Bounds(bottom / 1e9, left / 1e9, top / 1e9, right / 1e9);
+            if (bounds.isOutOfTheWorld()) {
+                Bounds copy = new Bounds(bounds);
+                bounds.normalize();
+                Main.info("Bbox " + copy + " is out of the world, normalized to " + bounds);
+            }
+            ds.addDataSource(new DataSource(bounds, source != null ? source : writingProgram));
+        }
+    }
+
+    /**
+     * Growable array of longs, used to decode packed fields.
+     */
+    private static final class LongArray {
+        long[] values = new long[16];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index, long defaultValue) {
+            return index < size ? values[index] : defaultValue;
+        }
+
+        void delta() {
+            for (int i = 1; i < size; i++) {
+                values[i] += values[i - 1];
+            }
+        }
+    }
+
+    /**
+     * A decoded {@code PrimitiveBlock}. Decoding does not touch the state of the reader, so it can run on any thread.
+     */
+    private static final class Block {
+        final List<OsmPrimitive> primitives = new ArrayList<>();
+        long[] externalIds = new long[64];
+        final Map<Long, Collection<Long>> ways = new HashMap<>();
+        final Map<Long, Collection<RelationMemberData>> relations = new HashMap<>();
+
+        private String[] strings;
+        private int granularity = 100;
+        private long latOffset;
+        private long lonOffset;
+        private int dateGranularity = 1000;
+        private final Map<Long, User> users = new HashMap<>();
+
+        Block(byte[] data) throws IllegalDataException {
+            ProtobufInput in = new ProtobufInput(data);
+            List<ProtobufInput> groups = new ArrayList<>();
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    readStringTable(in.readMessage());
+                    break;
+                case 2:
+                    groups.add(in.readMessage());
+                    break;
+                case 17:
+                    granularity = in.readInt();
+                    break;
+                case 18:
+                    dateGranularity = in.readInt();
+                    break;
+                case 19:
+                    latOffset = in.readVarint();
+                    break;
+                case 20:
+                    lonOffset = in.readVarint();
+                    break;
+                default:
+                    in.skip();
+                }
+            }
+            if (strings == null) {
+                strings = new String[] {""};
+            }
+            for (ProtobufInput group : groups) {
+                readGroup(group);
+            }
+        }
+
+        private void readStringTable(ProtobufInput in) throws IllegalDataException {
+            List<String> list = new ArrayList<>();
+            while (in.nextField()) {
+                if (in.field() == 1) {
+                    list.add(in.readString().intern());
+                } else {
+                    in.skip();
+                }
+            }
+            strings = list.toArray(new String[list.size()]);
+        }
+
+        private String string(long index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length) {
+                throw new IllegalDataException(tr("Invalid PBF string table index {0}.", index));
+            }
+            return strings[(int) index];
+        }
+
+        private void readGroup(ProtobufInput in) throws IllegalDataException {
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    readNode(in.readMessage());
+                    break;
+                case 2:
+                    readDenseNodes(in.readMessage());
+                    break;
+                case 3:
+                    readWay(in.readMessage());
+                    break;
+                case 4:
+                    readRelation(in.readMessage());
+                    break;
+                default:
+                    // changesets are not used in JOSM
+                    in.skip();
+                }
+            }
+        }
+
+        private static void readPacked(ProtobufInput in, LongArray array, boolean signed) throws IllegalDataException {
+            if (in.wireType() == ProtobufInput.LENGTH_DELIMITED) {
+                ProtobufInput packed = in.readMessage();
+                while (packed.hasRemaining()) {
+                    array.add(signed ? packed.readSignedVarint() : packed.readVarint());
+                }
+            } else {
+                array.add(signed ? in.readSignedVarint() : in.readVarint());
+            }
+        }
+
+        private LatLon latLon(long lat, long lon) {
+            return new LatLon((latOffset + granularity * lat) / 1e9, (lonOffset + granularity * lon) / 1e9);
+        }
+
+        private User user(int uid, int userSid) throws IllegalDataException {
+            long key = ((long) uid << 32) | (userSid & 0xffffffffL);
+            User user = users.get(key);
+            if (user == null && !users.containsKey(key)) {
+                String name = string(userSid);
+                if (uid > 0) {
+                    user = User.createOsmUser(uid, name);
+                } else if (!name.isEmpty()) {
+                    user = User.createLocalUser(name);
+                }
+                users.put(key, user);
+            }
+            return user;
+        }
+
+        private void readCommon(PrimitiveData current, long id, int version, long timestamp, long changeset, User user,
+                boolean visible) throws IllegalDataException {
+            if (id == 0) {
+                throw new IllegalDataException(tr("Illegal object with ID=0."));
+            }
+            current.setId(id);
+            if (current.isNew()) {
+                current.setVersion(0);
+                current.setChangesetId(0);
+                current.setVisible(true);
+            } else {
+                if (version <= 0) {
+                    throw new IllegalDataException(tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
+                            Long.toString(id), Integer.toString(version)));
+                }
+                if (changeset < 0 || changeset > Integer.MAX_VALUE) {
+                    throw new IllegalDataException(tr("Illegal value for attribute ''changeset''. Got {0}.", Long.toString(changeset)));
+                }
+                current.setVersion(version);
+                current.setChangesetId((int) changeset);
+                current.setVisible(visible);
+            }
+            current.setRawTimestamp((int) (timestamp * dateGranularity / 1000));
+            current.setUser(user);
+        }
+
+        private void readInfo(ProtobufInput info, PrimitiveData current, long id) throws IllegalDataException {
+            int version = -1;
+            long timestamp = 0;
+            long changeset = 0;
+            int uid = 0;
+            int userSid = 0;
+            boolean visible = true;
+            if (info != null) {
+                while (info.nextField()) {
+                    switch (info.field()) {
+                    case 1:
+                        version = info.readInt();
+                        break;
+                    case 2:
+                        timestamp = info.readVarint();
+                        break;
+                    case 3:
+                        changeset = info.readVarint();
+                        break;
+                    case 4:
+                        uid = info.readInt();
+                        break;
+                    case 5:
+                        userSid = info.readInt();
+                        break;
+                    case 6:
+                        visible = info.readInt() != 0;
+                        break;
+                    default:
+                        info.skip();
+                    }
+                }
+            }
+            readCommon(current, id, version, timestamp, changeset, user(uid, userSid), visible);
+        }
+
+        private TagMap tags(LongArray keys, LongArray values, OsmPrimitive p) throws IllegalDataException {
+            if (keys.size != values.size) {
+                throw new IllegalDataException(tr("Invalid PBF tags on primitive {0}.", p.getUniqueId()));
+            }
+            return tags(keys.values, values.values, 0, 0, keys.size, 1, p);
+        }
+
+        /**
+         * Builds the tags of a primitive from string table indexes.
+         * The key at index {@code i} has its value at index {@code i + valueShift}.
+         */
+        private TagMap tags(long[] keys, long[] values, int valueShift, int from, int to, int step, OsmPrimitive p)
+                throws IllegalDataException {
+            if (from >= to) {
+                return null;
+            }
+            String[] kv = new String[((to - from + step - 1) / step) * 2];
+            int n = 0;
+            for (int i = from; i < to; i += step) {
+                String key = string(keys[i]);
+                if (Utils.isStripEmpty(key)) {
+                    // #14199: drop empty keys on import, but flag the primitive as modified, as done for XML
+                    p.setModified(true);
+                } else {
+                    kv[n++] = key;
+                    kv[n++] = string(values[i + valueShift]);
+                }
+            }
+            return n == 0 ? null : new TagMap(n == kv.length ? kv : Arrays.copyOf(kv, n));
+        }
+
+        private void add(OsmPrimitive p, long externalId, TagMap tags) {
+            if (tags != null) {
+                p.setKeys(tags);
+            }
+            int index = primitives.size();
+            if (index == externalIds.length) {
+                externalIds = Arrays.copyOf(externalIds, index * 2);
+            }
+            externalIds[index] = externalId;
+            primitives.add(p);
+        }
+
+        private Node createNode(NodeData nd, long lat, long lon) throws IllegalDataException {
+            LatLon ll = latLon(lat, lon);
+            if (!ll.isValid()) {
+                throw new IllegalDataException(tr("Illegal value for attributes ''lat'', ''lon'' on node with ID {0}. Got ''{1}'', ''{2}''.",
+                        Long.toString(nd.getUniqueId()), Double.toString(ll.lat()), Double.toString(ll.lon())));
+            }
+            nd.setCoor(ll);
+            Node n = new Node(nd.getId(), nd.getVersion());
+            n.setVisible(nd.isVisible());
+            n.load(nd);
+            return n;
+        }
+
+        private void readNode(ProtobufInput in) throws IllegalDataException {
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            ProtobufInput info = null;
+            LongArray keys = new LongArray();
+            LongArray values = new LongArray();
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    id = in.readSignedVarint();
+                    break;
+                case 2:
+                    readPacked(in, keys, false);
+                    break;
+                case 3:
+                    readPacked(in, values, false);
+                    break;
+                case 4:
+                    info = in.readMessage();
+                    break;
+                case 8:
+                    lat = in.readSignedVarint();
+                    break;
+                case 9:
+                    lon = in.readSignedVarint();
+                    break;
+                default:
+                    in.skip();
+                }
+            }
+            NodeData nd = new NodeData();
+            readInfo(info, nd, id);
+            Node n = createNode(nd, lat, lon);
+            add(n, id, tags(keys, values, n));
+        }
+
+        private void readDenseNodes(ProtobufInput in) throws IllegalDataException {
+            LongArray ids = new LongArray();
+            LongArray lats = new LongArray();
+            LongArray lons = new LongArray();
+            LongArray keysVals = new LongArray();
+            LongArray versions = new LongArray();
+            LongArray timestamps = new LongArray();
+            LongArray changesets = new LongArray();
+            LongArray uids = new LongArray();
+            LongArray userSids = new LongArray();
+            LongArray visibles = new LongArray();
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    readPacked(in, ids, true);
+                    break;
+                case 5:
+                    ProtobufInput info = in.readMessage();
+                    while (info.nextField()) {
+                        switch (info.field()) {
+                        case 1:
+                            readPacked(info, versions, false);
+                            break;
+                        case 2:
+                            readPacked(info, timestamps, true);
+                            break;
+                        case 3:
+                            readPacked(info, changesets, true);
+                            break;
+                        case 4:
+                            readPacked(info, uids, true);
+                            break;
+                        case 5:
+                            readPacked(info, userSids, true);
+                            break;
+                        case 6:
+                            readPacked(info, visibles, false);
+                            break;
+                        default:
+                            info.skip();
+                        }
+                    }
+                    break;
+                case 8:
+                    readPacked(in, lats, true);
+                    break;
+                case 9:
+                    readPacked(in, lons, true);
+                    break;
+                case 10:
+                    readPacked(in, keysVals, false);
+                    break;
+                default:
+                    in.skip();
+                }
+            }
+            if (lats.size != ids.size || lons.size != ids.size) {
+                throw new IllegalDataException(tr("Invalid PBF dense nodes."));
+            }
+            ids.delta();
+            lats.delta();
+            lons.delta();
+            timestamps.delta();
+            changesets.delta();
+            uids.delta();
+            userSids.delta();
+            NodeData nd = new NodeData();
+            int kv = 0;
+            for (int i = 0; i < ids.size; i++) {
+                long id = ids.values[i];
+                readCommon(nd, id, (int) versions.get(i, -1), timestamps.get(i, 0), changesets.get(i, 0),
+                        user((int) uids.get(i, 0), (int) userSids.get(i, 0)), visibles.get(i, 1) != 0);
+                Node n = createNode(nd, lats.values[i], lons.values[i]);
+                TagMap tags = null;
+                // keys and values are interleaved, each node being terminated by 0.
+                // keys_vals is left empty if no node of the block has tags
+                if (keysVals.size > 0) {
+                    int start = kv;
+                    while (kv < keysVals.size && keysVals.values[kv] != 0) {
+                        kv += 2;
+                    }
+                    if (kv > keysVals.size) {
+                        throw new IllegalDataException(tr("Invalid PBF tags on primitive {0}.", id));
+                    }
+                    tags = tags(keysVals.values, keysVals.values, 1, start, kv, 2, n);
+                    kv++;
+                }
+                add(n, id, tags);
+            }
+        }
+
+        private void readWay(ProtobufInput in) throws IllegalDataException {
+            long id = 0;
+            ProtobufInput info = null;
+            LongArray keys = new LongArray();
+            LongArray values = new LongArray();
+            LongArray refs = new LongArray();
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    id = in.readVarint();
+                    break;
+                case 2:
+                    readPacked(in, keys, false);
+                    break;
+                case 3:
+                    readPacked(in, values, false);
+                    break;
+                case 4:
+                    info = in.readMessage();
+                    break;
+                case 8:
+                    readPacked(in, refs, true);
+                    break;
+                default:
+                    in.skip();
+                }
+            }
+            WayData wd = new WayData();
+            readInfo(info, wd, id);
+            Way w = new Way(wd.getId(), wd.getVersion());
+            w.setVisible(wd.isVisible());
+            w.load(wd);
+            add(w, id, tags(keys, values, w));
+            refs.delta();
+            Collection<Long> nodeIds = new ArrayList<>(refs.size);
+            for (int i = 0; i < refs.size; i++) {
+                if (refs.values[i] == 0) {
+                    throw new IllegalDataException(tr("Illegal value of attribute ''ref'' of element <nd>. Got {0}.", 0));
+                }
+                nodeIds.add(refs.values[i]);
+            }
+            ways.put(id, nodeIds);
+        }
+
+        private void readRelation(ProtobufInput in) throws IllegalDataException {
+            long id = 0;
+            ProtobufInput info = null;
+            LongArray keys = new LongArray();
+            LongArray values = new LongArray();
+            LongArray roles = new LongArray();
+            LongArray memberIds = new LongArray();
+            LongArray types = new LongArray();
+            while (in.nextField()) {
+                switch (in.field()) {
+                case 1:
+                    id = in.readVarint();
+                    break;
+                case 2:
+                    readPacked(in, keys, false);
+                    break;
+                case 3:
+                    readPacked(in, values, false);
+                    break;
+                case 4:
+                    info = in.readMessage();
+                    break;
+                case 8:
+                    readPacked(in, roles, false);
+                    break;
+                case 9:
+                    readPacked(in, memberIds, true);
+                    break;
+                case 10:
+                    readPacked(in, types, false);
+                    break;
+                default:
+                    in.skip();
+                }
+            }
+            RelationData rd = new RelationData();
+            readInfo(info, rd, id);
+            Relation r = new Relation(rd.getId(), rd.getVersion());
+            r.setVisible(rd.isVisible());
+            r.load(rd);
+            add(r, id, tags(keys, values, r));
+            if (roles.size != memberIds.size || types.size != memberIds.size) {
+                throw new IllegalDataException(tr("Invalid PBF members in relation {0}.", id));
+            }
+            memberIds.delta();
+            Collection<RelationMemberData> members = new ArrayList<>(memberIds.size);
+            for (int i = 0; i < memberIds.size; i++) {
+                long type = types.values[i];
+                if (type < 0 || type >= MEMBER_TYPES.length) {
+                    throw new IllegalDataException(tr("Illegal value for attribute ''type'' on member {0} in relation {1}. Got {2}.",
+                            Long.toString(memberIds.values[i]), Long.toString(id), Long.toString(type)));
+                }
+                if (memberIds.values[i] == 0) {
+                    throw new IllegalDataException(tr("Incomplete <member> specification with ref=0"));
+                }
+                members.add(new RelationMemberData(string(roles.values[i]), MEMBER_TYPES[(int) type], memberIds.values[i]));
+            }
+            relations.put(id, members);
+        }
+    }
+
+    /**
+     * Exception thrown when the user cancels the reading.
+     */
+    private static final class PbfParsingCanceledException extends IOException implements ImportCancelException {
+        PbfParsingCanceledException() {
+            super(tr("Reading was canceled"));
+        }
+    }
+
+    /**
+     * Parse the given input source and return the dataset, decoding the file blocks on all available processors.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return parseDataSet(source, progressMonitor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @param threads the number of threads used to decode the file blocks. With 1 or less, the file is decoded on the calling thread
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor, int threads) throws IllegalDataException {
+        return new PbfReader(threads).doParseDataSet(source, progressMonitor);
+    }
+}
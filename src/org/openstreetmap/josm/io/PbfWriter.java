@@ -0,0 +1,367 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.User;
+
+/**
+ * Writes a data set in the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>,
+ * with dense nodes and zlib compressed blocks.
+ * <p>
+ * Only the data known to the OSM server is written: deleted and incomplete primitives are skipped,
+ * and the modified state of the primitives is lost. New primitives are written with their negative ids.
+ * @since 12603
+ */
+public class PbfWriter implements Closeable {
+
+    /** Maximal number of primitives written to a single block */
+    static final int BLOCK_SIZE = 8000;
+
+    private static final Comparator<IPrimitive> BY_ID = Comparator.comparingLong(IPrimitive::getUniqueId);
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater();
+    private final ProtobufOutput block = new ProtobufOutput(1024 * 1024);
+    private final ProtobufOutput blob = new ProtobufOutput(1024 * 1024);
+    private final ProtobufOutput blobHeader = new ProtobufOutput();
+    private byte[] compressed = new byte[0];
+    private boolean withVisible;
+
+    /**
+     * Constructs a new {@code PbfWriter}.
+     * @param out the output stream. The caller should provide buffering
+     */
+    public PbfWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the content of the given data set. The data set is only locked while a snapshot of it is taken.
+     * @param ds the data set
+     * @throws IOException if any I/O error occurs
+     */
+    public void writeData(DataSet ds) throws IOException {
+        writeData(ds.snapshot());
+    }
+
+    /**
+     * Writes the content of the given snapshot of a data set.
+     * @param snapshot the snapshot
+     * @throws IOException if any I/O error occurs
+     * @see DataSet#snapshot()
+     */
+    public void writeData(DataSetSnapshot snapshot) throws IOException {
+        List<INode> nodes = primitivesToWrite(snapshot.getNodes());
+        List<IWay> ways = primitivesToWrite(snapshot.getWays());
+        List<IRelation> relations = primitivesToWrite(snapshot.getRelations());
+        withVisible = nodes.stream().anyMatch(p -> !p.isVisible()) || ways.stream().anyMatch(p -> !p.isVisible())
+                || relations.stream().anyMatch(p -> !p.isVisible());
+        writeHeader(snapshot.getDataSources());
+        for (int i = 0; i < nodes.size(); i += BLOCK_SIZE) {
+            writeNodes(nodes.subList(i, Math.min(nodes.size(), i + BLOCK_SIZE)));
+        }
+        for (int i = 0; i < ways.size(); i += BLOCK_SIZE) {
+            writeWays(ways.subList(i, Math.min(ways.size(), i + BLOCK_SIZE)));
+        }
+        for (int i = 0; i < relations.size(); i += BLOCK_SIZE) {
+            writeRelations(relations.subList(i, Math.min(relations.size(), i + BLOCK_SIZE)));
+        }
+        out.flush();
+    }
+
+    private static <T extends IPrimitive> List<T> primitivesToWrite(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives.size());
+        for (T p : primitives) {
+            if (!p.isIncomplete() && !p.isDeleted()) {
+                result.add(p);
+            }
+        }
+        // sorting by id keeps the deltas small
+        result.sort(BY_ID);
+        return result;
+    }
+
+    private void writeHeader(Collection<DataSource> dataSources) throws IOException {
+        ProtobufOutput header = new ProtobufOutput();
+        if (!dataSources.isEmpty()) {
+            Bounds bounds = null;
+            for (DataSource source : dataSources) {
+                if (bounds == null) {
+                    bounds = new Bounds(source.bounds);
+                } else {
+                    bounds.extend(source.bounds);
+                }
+            }
+            ProtobufOutput bbox = new ProtobufOutput();
+            bbox.writeSignedVarintField(1, Math.round(bounds.getMinLon() * 1e9));
+            bbox.writeSignedVarintField(2, Math.round(bounds.getMaxLon() * 1e9));
+            bbox.writeSignedVarintField(3, Math.round(bounds.getMaxLat() * 1e9));
+            bbox.writeSignedVarintField(4, Math.round(bounds.getMinLat() * 1e9));
+            header.writeMessageField(1, bbox);
+        }
+        header.writeStringField(4, "OsmSchema-V0.6");
+        header.writeStringField(4, "DenseNodes");
+        if (withVisible) {
+            header.writeStringField(4, "HistoricalInformation");
+        }
+        header.writeStringField(16, "JOSM");
+        if (!dataSources.isEmpty()) {
+            String origin = dataSources.iterator().next().origin;
+            if (origin != null) {
+                header.writeStringField(17, origin);
+            }
+        }
+        writeBlob("OSMHeader", header);
+    }
+
+    /**
+     * The string table of a block. Index 0 is reserved for the empty string, used as delimiter.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        StringTable() {
+            get("");
+        }
+
+        int get(String s) {
+            Integer index = indexes.get(s);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(s, index);
+                strings.add(s);
+            }
+            return index;
+        }
+
+        void write(ProtobufOutput block) {
+            ProtobufOutput table = new ProtobufOutput();
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                table.writeBytesField(1, bytes, 0, bytes.length);
+            }
+            block.writeMessageField(1, table);
+        }
+    }
+
+    private static int userId(User user) {
+        return user != null && user.isOsmUser() ? (int) user.getId() : 0;
+    }
+
+    private static String userName(User user) {
+        return user != null && (user.isOsmUser() || user.isLocalUser()) && user.getName() != null ? user.getName() : "";
+    }
+
+    private static long toUnits(double coordinate) {
+        // default granularity of 100 nanodegrees
+        return Math.round(coordinate * 1e7);
+    }
+
+    private void writeNodes(List<INode> nodes) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput ids = new ProtobufOutput();
+        ProtobufOutput versions = new ProtobufOutput();
+        ProtobufOutput timestamps = new ProtobufOutput();
+        ProtobufOutput changesets = new ProtobufOutput();
+        ProtobufOutput uids = new ProtobufOutput();
+        ProtobufOutput userSids = new ProtobufOutput();
+        ProtobufOutput visibles = new ProtobufOutput();
+        ProtobufOutput lats = new ProtobufOutput();
+        ProtobufOutput lons = new ProtobufOutput();
+        ProtobufOutput keysVals = new ProtobufOutput();
+        long lastId = 0;
+        long lastTimestamp = 0;
+        long lastChangeset = 0;
+        long lastUid = 0;
+        long lastUserSid = 0;
+        long lastLat = 0;
+        long lastLon = 0;
+        for (INode n : nodes) {
+            LatLon ll = n.getCoor();
+            long lat = ll == null ? 0 : toUnits(ll.lat());
+            long lon = ll == null ? 0 : toUnits(ll.lon());
+            long timestamp = n.getRawTimestamp();
+            long changeset = n.getChangesetId();
+            long uid = userId(n.getUser());
+            long userSid = strings.get(userName(n.getUser()));
+            ids.writeSignedVarint(n.getUniqueId() - lastId);
+            versions.writeVarint(n.getVersion());
+            timestamps.writeSignedVarint(timestamp - lastTimestamp);
+            changesets.writeSignedVarint(changeset - lastChangeset);
+            uids.writeSignedVarint(uid - lastUid);
+            userSids.writeSignedVarint(userSid - lastUserSid);
+            visibles.writeVarint(n.isVisible() ? 1 : 0);
+            lats.writeSignedVarint(lat - lastLat);
+            lons.writeSignedVarint(lon - lastLon);
+            lastId = n.getUniqueId();
+            lastTimestamp = timestamp;
+            lastChangeset = changeset;
+            lastUid = uid;
+            lastUserSid = userSid;
+            lastLat = lat;
+            lastLon = lon;
+            if (n.hasKeys()) {
+                n.getKeys().forEach((key, value) -> {
+                    keysVals.writeVarint(strings.get(key));
+                    keysVals.writeVarint(strings.get(value));
+                });
+            }
+            keysVals.writeVarint(0);
+        }
+        ProtobufOutput denseInfo = new ProtobufOutput();
+        denseInfo.writeMessageField(1, versions);
+        denseInfo.writeMessageField(2, timestamps);
+        denseInfo.writeMessageField(3, changesets);
+        denseInfo.writeMessageField(4, uids);
+        denseInfo.writeMessageField(5, userSids);
+        if (withVisible) {
+            denseInfo.writeMessageField(6, visibles);
+        }
+        ProtobufOutput dense = new ProtobufOutput(ids.size() + lats.size() + lons.size() + keysVals.size() + denseInfo.size() + 64);
+        dense.writeMessageField(1, ids);
+        dense.writeMessageField(5, denseInfo);
+        dense.writeMessageField(8, lats);
+        dense.writeMessageField(9, lons);
+        dense.writeMessageField(10, keysVals);
+        ProtobufOutput group = new ProtobufOutput(dense.size() + 16);
+        group.writeMessageField(2, dense);
+        writeBlock(strings, group);
+    }
+
+    private void writeCommon(ProtobufOutput primitive, IPrimitive p, StringTable strings) {
+        primitive.writeVarintField(1, p.getUniqueId());
+        if (p.hasKeys()) {
+            ProtobufOutput keys = new ProtobufOutput();
+            ProtobufOutput values = new ProtobufOutput();
+            p.getKeys().forEach((key, value) -> {
+                keys.writeVarint(strings.get(key));
+                values.writeVarint(strings.get(value));
+            });
+            primitive.writeMessageField(2, keys);
+            primitive.writeMessageField(3, values);
+        }
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeVarintField(1, p.getVersion());
+        info.writeVarintField(2, p.getRawTimestamp());
+        info.writeVarintField(3, p.getChangesetId());
+        info.writeVarintField(4, userId(p.getUser()));
+        info.writeVarintField(5, strings.get(userName(p.getUser())));
+        if (withVisible) {
+            info.writeVarintField(6, p.isVisible() ? 1 : 0);
+        }
+        primitive.writeMessageField(4, info);
+    }
+
+    private void writeWays(List<IWay> ways) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput group = new ProtobufOutput();
+        ProtobufOutput way = new ProtobufOutput();
+        ProtobufOutput refs = new ProtobufOutput();
+        for (IWay w : ways) {
+            way.reset();
+            refs.reset();
+            writeCommon(way, w, strings);
+            long last = 0;
+            for (int i = 0; i < w.getNodesCount(); i++) {
+                long id = w.getNodeId(i);
+                refs.writeSignedVarint(id - last);
+                last = id;
+            }
+            way.writeMessageField(8, refs);
+            group.writeMessageField(3, way);
+        }
+        writeBlock(strings, group);
+    }
+
+    private void writeRelations(List<IRelation> relations) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput group = new ProtobufOutput();
+        ProtobufOutput relation = new ProtobufOutput();
+        ProtobufOutput roles = new ProtobufOutput();
+        ProtobufOutput memberIds = new ProtobufOutput();
+        ProtobufOutput types = new ProtobufOutput();
+        for (IRelation r : relations) {
+            relation.reset();
+            roles.reset();
+            memberIds.reset();
+            types.reset();
+            writeCommon(relation, r, strings);
+            long last = 0;
+            for (int i = 0; i < r.getMembersCount(); i++) {
+                long id = r.getMemberId(i);
+                roles.writeVarint(strings.get(r.getRole(i)));
+                memberIds.writeSignedVarint(id - last);
+                // NODE, WAY and RELATION have the ordinals of the PBF member types
+                types.writeVarint(r.getMemberType(i).ordinal());
+                last = id;
+            }
+            relation.writeMessageField(8, roles);
+            relation.writeMessageField(9, memberIds);
+            relation.writeMessageField(10, types);
+            group.writeMessageField(4, relation);
+        }
+        writeBlock(strings, group);
+    }
+
+    private void writeBlock(StringTable strings, ProtobufOutput group) throws IOException {
+        block.reset();
+        strings.write(block);
+        block.writeMessageField(2, group);
+        writeBlob("OSMData", block);
+    }
+
+    private void writeBlob(String type, ProtobufOutput data) throws IOException {
+        deflater.reset();
+        deflater.setInput(data.buffer(), 0, data.size());
+        deflater.finish();
+        int length = 0;
+        if (compressed.length < data.size() + 64) {
+            compressed = new byte[data.size() + 64];
+        }
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        blob.reset();
+        blob.writeVarintField(2, data.size());
+        blob.writeBytesField(3, compressed, 0, length);
+
+        blobHeader.reset();
+        blobHeader.writeStringField(1, type);
+        blobHeader.writeVarintField(3, blob.size());
+        out.writeInt(blobHeader.size());
+        blobHeader.writeTo(out);
+        blob.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+}
@@ -0,0 +1,176 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Stores the parsed form of sources read at startup (tagging presets, map paint styles) in a binary cache,
+ * so they are not parsed again while they are unchanged.
+ * <p>
+ * There is one file per source URL, in the {@code precompiled} subdirectory of the
+ * {@linkplain org.openstreetmap.josm.data.Preferences#getCacheDirectory() cache directory}.
+ * A cached file is only used if it was written for the same content (compared by SHA-256), JOSM version and format.
+ * @since 12617
+ */
+public final class PrecompiledSourceCache {
+
+    /** Enables the cache */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("cache.precompiled.enabled", true);
+
+    private static final int MAGIC = 0x4a505243; // JPRC
+
+    /**
+     * Writes the parsed form of a source.
+     */
+    @FunctionalInterface
+    public interface Encoder {
+        /**
+         * Writes the parsed form of a source.
+         * @param out the output stream
+         * @throws IOException if any I/O error occurs
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private PrecompiledSourceCache() {
+        // Hide implicit public constructor for utility classes
+    }
+
+    /**
+     * Computes the hash of a source content, to be given to {@link #open} and {@link #store}.
+     * @param content the source content
+     * @return the SHA-256 hash of {@code content}
+     */
+    public static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the cache file of a source.
+     * @param kind the kind of source, used as subdirectory
+     * @param url the source URL
+     * @return the cache file of the source
+     */
+    public static File getCacheFile(String kind, String url) {
+        return new File(new File(new File(Main.pref.getCacheDirectory(), "precompiled"), kind), Utils.md5Hex(url) + ".bin");
+    }
+
+    /**
+     * Opens the cached parsed form of a source, if it was stored for the same content, JOSM version and format.
+     * @param kind the kind of source
+     * @param url the source URL
+     * @param format the version of the format written by the encoder
+     * @param hash the {@linkplain #hash hash} of the source content
+     * @return the parsed form, positioned after the header, to be closed by the caller,
+     * or {@code null} if the cache is disabled, missing or outdated
+     */
+    public static DataInputStream open(String kind, String url, int format, byte[] hash) {
+        if (url == null || !PROP_ENABLED.get()) {
+            return null;
+        }
+        File file = getCacheFile(kind, url);
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024));
+            if (in.readInt() == MAGIC && in.readInt() == format && in.readInt() == Version.getInstance().getVersion()
+                    && url.equals(in.readUTF())) {
+                byte[] cachedHash = new byte[hash.length];
+                in.readFully(cachedHash);
+                if (Arrays.equals(hash, cachedHash)) {
+                    return in;
+                }
+            }
+        } catch (IOException e) {
+            Main.warn(e, "Unable to read precompiled cache " + file);
+        }
+        Utils.close(in);
+        return null;
+    }
+
+    /**
+     * Stores the parsed form of a source. Errors are only logged, the cache being optional.
+     * @param kind the kind of source
+     * @param url the source URL
+     * @param format the version of the format written by the encoder
+     * @param hash the {@linkplain #hash hash} of the source content
+     * @param encoder writes the parsed form
+     */
+    public static void store(String kind, String url, int format, byte[] hash, Encoder encoder) {
+        if (url == null || !PROP_ENABLED.get()) {
+            return;
+        }
+        File file = getCacheFile(kind, url);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Utils.mkDirs(file.getParentFile());
+            try (OutputStream os = Files.newOutputStream(tmp.toPath());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(format);
+                out.writeInt(Version.getInstance().getVersion());
+                out.writeUTF(url);
+                out.write(hash);
+                encoder.write(out);
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Main.trace(e);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | SecurityException e) {
+            Main.warn(e, "Unable to write precompiled cache " + file);
+            Utils.deleteFile(tmp);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}, without the 64 KB limit of {@link DataInputStream#readUTF}.
+     * @param in the input stream
+     * @return the string
+     * @throws IOException if any I/O error occurs
+     */
+    public static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a string of any length, to be read by {@link #readString}.
+     * @param out the output stream
+     * @param s the string
+     * @throws IOException if any I/O error occurs
+     */
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,203 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal reader of the <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a>
+ * wire format, working on a byte array without copying.
+ * <p>
+ * Only what is needed by {@link PbfReader} is supported: varints, length-delimited fields and skipping of
+ * fixed-size fields.
+ * @since 12603
+ */
+final class ProtobufInput {
+
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+    private int tag;
+
+    /**
+     * Constructs a new {@code ProtobufInput} reading the whole array.
+     * @param buf the encoded message
+     */
+    ProtobufInput(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    /**
+     * Constructs a new {@code ProtobufInput} reading a part of an array.
+     * @param buf the array
+     * @param offset start of the encoded message
+     * @param length length of the encoded message
+     */
+    ProtobufInput(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Determines if there are more bytes to read.
+     * @return {@code true} if the end of the message has not been reached
+     */
+    boolean hasRemaining() {
+        return pos < limit;
+    }
+
+    /**
+     * Reads the key of the next field.
+     * @return {@code true} if a field was read, {@code false} at the end of the message
+     * @throws IllegalDataException if the message is malformed
+     */
+    boolean nextField() throws IllegalDataException {
+        if (pos >= limit) {
+            return false;
+        }
+        tag = (int) readVarint();
+        return true;
+    }
+
+    /**
+     * Returns the field number of the field read by {@link #nextField}.
+     * @return the field number
+     */
+    int field() {
+        return tag >>> 3;
+    }
+
+    /**
+     * Returns the wire type of the field read by {@link #nextField}.
+     * @return the wire type
+     */
+    int wireType() {
+        return tag & 7;
+    }
+
+    /**
+     * Reads a varint.
+     * @return the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    long readVarint() throws IllegalDataException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= limit) {
+                throw truncated();
+            }
+            byte b = buf[pos++];
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalDataException(tr("Malformed varint in protocol buffer."));
+    }
+
+    /**
+     * Reads a varint holding an {@code int32}, {@code uint32} or {@code bool} value.
+     * @return the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    int readInt() throws IllegalDataException {
+        return (int) readVarint();
+    }
+
+    /**
+     * Reads a zigzag encoded {@code sint64} or {@code sint32} value.
+     * @return the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    long readSignedVarint() throws IllegalDataException {
+        long v = readVarint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Reads a length-delimited field as a nested message, without copying.
+     * Also used for packed repeated fields.
+     * @return a reader of the nested message
+     * @throws IllegalDataException if the message is malformed
+     */
+    ProtobufInput readMessage() throws IllegalDataException {
+        int length = readLength();
+        ProtobufInput result = new ProtobufInput(buf, pos, length);
+        pos += length;
+        return result;
+    }
+
+    /**
+     * Reads a length-delimited field as a byte array.
+     * @return the bytes
+     * @throws IllegalDataException if the message is malformed
+     */
+    byte[] readBytes() throws IllegalDataException {
+        int length = readLength();
+        byte[] result = new byte[length];
+        System.arraycopy(buf, pos, result, 0, length);
+        pos += length;
+        return result;
+    }
+
+    /**
+     * Reads a length-delimited field as an UTF-8 string.
+     * @return the string
+     * @throws IllegalDataException if the message is malformed
+     */
+    String readString() throws IllegalDataException {
+        int length = readLength();
+        String result = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return result;
+    }
+
+    private int readLength() throws IllegalDataException {
+        long length = readVarint();
+        if (length < 0 || length > limit - pos) {
+            throw truncated();
+        }
+        return (int) length;
+    }
+
+    /**
+     * Skips the value of the field read by {@link #nextField}.
+     * @throws IllegalDataException if the message is malformed
+     */
+    void skip() throws IllegalDataException {
+        switch (wireType()) {
+        case VARINT:
+            readVarint();
+            break;
+        case FIXED64:
+            skipBytes(8);
+            break;
+        case LENGTH_DELIMITED:
+            skipBytes(readLength());
+            break;
+        case FIXED32:
+            skipBytes(4);
+            break;
+        default:
+            throw new IllegalDataException(tr("Unsupported protocol buffer wire type {0}.", wireType()));
+        }
+    }
+
+    private void skipBytes(int n) throws IllegalDataException {
+        if (n > limit - pos) {
+            throw truncated();
+        }
+        pos += n;
+    }
+
+    private static IllegalDataException truncated() {
+        return new IllegalDataException(tr("Truncated protocol buffer message."));
+    }
+}
@@ -0,0 +1,153 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal writer of the <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a>
+ * wire format into a growable byte array.
+ * <p>
+ * Only what is needed by {@link PbfWriter} is supported: varints and length-delimited fields.
+ * @since 12603
+ */
+final class ProtobufOutput {
+
+    private byte[] buf;
+    private int size;
+
+    /**
+     * Constructs a new {@code ProtobufOutput}.
+     */
+    ProtobufOutput() {
+        this(256);
+    }
+
+    /**
+     * Constructs a new {@code ProtobufOutput} with the given initial capacity.
+     * @param capacity initial capacity, in bytes
+     */
+    ProtobufOutput(int capacity) {
+        buf = new byte[capacity];
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Writes a raw varint.
+     * @param value the value
+     */
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        long v = value;
+        while ((v & ~0x7fL) != 0) {
+            buf[size++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+    }
+
+    /**
+     * Writes a raw zigzag encoded varint.
+     * @param value the value
+     */
+    void writeSignedVarint(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeKey(int field, int wireType) {
+        writeVarint((field << 3) | wireType);
+    }
+
+    /**
+     * Writes a varint field ({@code int32}, {@code int64}, {@code uint32} or {@code bool}).
+     * @param field the field number
+     * @param value the value
+     */
+    void writeVarintField(int field, long value) {
+        writeKey(field, ProtobufInput.VARINT);
+        writeVarint(value);
+    }
+
+    /**
+     * Writes a zigzag encoded field ({@code sint32} or {@code sint64}).
+     * @param field the field number
+     * @param value the value
+     */
+    void writeSignedVarintField(int field, long value) {
+        writeKey(field, ProtobufInput.VARINT);
+        writeSignedVarint(value);
+    }
+
+    /**
+     * Writes a bytes field.
+     * @param field the field number
+     * @param bytes the array
+     * @param offset start of the bytes to write
+     * @param length number of bytes to write
+     */
+    void writeBytesField(int field, byte[] bytes, int offset, int length) {
+        writeKey(field, ProtobufInput.LENGTH_DELIMITED);
+        writeVarint(length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buf, size, length);
+        size += length;
+    }
+
+    /**
+     * Writes a string field.
+     * @param field the field number
+     * @param value the string
+     */
+    void writeStringField(int field, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeBytesField(field, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a nested message, or a packed repeated field.
+     * @param field the field number
+     * @param message the content of the nested message
+     */
+    void writeMessageField(int field, ProtobufOutput message) {
+        writeBytesField(field, message.buf, 0, message.size);
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     * @return the number of bytes written
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the internal buffer. Only the first {@link #size()} bytes are valid.
+     * @return the internal buffer
+     */
+    byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * Discards all written bytes, keeping the allocated buffer.
+     */
+    void reset() {
+        size = 0;
+    }
+
+    /**
+     * Writes the bytes written so far to an output stream.
+     * @param out the output stream
+     * @throws IOException if any I/O error occurs
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, size);
+    }
+}
@@ -0,0 +1,161 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A buffered writer encoding characters in UTF-8 straight into its byte buffer.
+ * <p>
+ * This is a faster replacement for an {@link java.io.OutputStreamWriter} with UTF-8, which goes through a
+ * {@link java.nio.charset.CharsetEncoder} and takes a lock for every write, no matter how small.
+ * Like it, malformed surrogates are replaced by {@code '?'}.
+ * <p>
+ * This class is not thread safe.
+ * @since 12611
+ */
+public class Utf8OutputStreamWriter extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    /** The high surrogate written last, or {@code 0} */
+    private char highSurrogate;
+
+    /**
+     * Constructs a new {@code Utf8OutputStreamWriter}.
+     * @param out the output stream
+     */
+    public Utf8OutputStreamWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code Utf8OutputStreamWriter}.
+     * @param out the output stream
+     * @param bufferSize the size of the byte buffer, at least 4
+     */
+    public Utf8OutputStreamWriter(OutputStream out, int bufferSize) {
+        if (bufferSize < 4)
+            throw new IllegalArgumentException("bufferSize: " + bufferSize);
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (count + 4 > buffer.length) {
+            flushBuffer();
+        }
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int i = off;
+        int end = off + len;
+        while (i < end) {
+            if (count + 4 > buffer.length) {
+                flushBuffer();
+            }
+            // fast path for ASCII, there is room for all characters written in one run
+            int runEnd = Math.min(end, i + buffer.length - count);
+            char c;
+            while (highSurrogate == 0 && i < runEnd && (c = cbuf[i]) < 0x80) {
+                buffer[count++] = (byte) c;
+                i++;
+            }
+            if (i < end && count + 4 <= buffer.length) {
+                encode(cbuf[i++]);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int i = off;
+        int end = off + len;
+        while (i < end) {
+            if (count + 4 > buffer.length) {
+                flushBuffer();
+            }
+            // fast path for ASCII, there is room for all characters written in one run
+            int runEnd = Math.min(end, i + buffer.length - count);
+            char c;
+            while (highSurrogate == 0 && i < runEnd && (c = str.charAt(i)) < 0x80) {
+                buffer[count++] = (byte) c;
+                i++;
+            }
+            if (i < end && count + 4 <= buffer.length) {
+                encode(str.charAt(i++));
+            }
+        }
+    }
+
+    /**
+     * Encodes a character. There must be room for 4 bytes in the buffer.
+     * @param c the character
+     */
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xf0 | (cp >> 18));
+                buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (cp & 0x3f));
+                return;
+            }
+            // at most 3 more bytes follow for the character itself
+            buffer[count++] = '?';
+        }
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xc0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xe0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                if (count + 1 > buffer.length) {
+                    flushBuffer();
+                }
+                buffer[count++] = '?';
+            }
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
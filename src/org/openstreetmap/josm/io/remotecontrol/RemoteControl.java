@@ -39,7 +39,12 @@ public class RemoteControl {
      * changes.
      */
     static final int protocolMajorVersion = 1;
-    static final int protocolMinorVersion = 7;
+    static final int protocolMinorVersion = 8;
+
+    /**
+     * The maximum number of connections waiting to be accepted by the servers.
+     */
+    static final int BACKLOG = 50;
 
     /**
      * Starts the remote control server
@@ -11,7 +11,7 @@ import java.net.SocketException;
 import org.openstreetmap.josm.Main;
 
 /**
- * Simple HTTP server that spawns a {@link RequestProcessor} for every
+ * Simple HTTP server that queues a {@link RequestProcessor} for every
  * connection.
  *
  * Taken from YWMS plugin by frsantos.
@@ -86,12 +86,12 @@ public class RemoteControlHttpServer extends Thread {
     public RemoteControlHttpServer(int port, boolean ipv6) throws IOException {
         super("RemoteControl HTTP Server");
         this.setDaemon(true);
-        this.server = new ServerSocket(port, 1, ipv6 ?
+        this.server = new ServerSocket(port, RemoteControl.BACKLOG, ipv6 ?
             RemoteControl.getInet6Address() : RemoteControl.getInet4Address());
     }
 
     /**
-     * The main loop, spawns a {@link RequestProcessor} for each connection
+     * The main loop, queues a {@link RequestProcessor} for each connection
      */
     @Override
     public void run() {
@@ -64,7 +64,7 @@ import sun.security.x509.X509CertImpl;
 import sun.security.x509.X509CertInfo;
 
 /**
- * Simple HTTPS server that spawns a {@link RequestProcessor} for every secure connection.
+ * Simple HTTPS server that queues a {@link RequestProcessor} for every secure connection.
  *
  * @since 6941
  */
@@ -375,7 +375,7 @@ public class RemoteControlHttpsServer extends Thread {
             Main.trace("SSL factory - Supported Cipher suites: "+Arrays.toString(factory.getSupportedCipherSuites()));
         }
 
-        this.server = factory.createServerSocket(port, 1, ipv6 ?
+        this.server = factory.createServerSocket(port, RemoteControl.BACKLOG, ipv6 ?
             RemoteControl.getInet6Address() : RemoteControl.getInet4Address());
 
         if (Main.isTraceEnabled() && server instanceof SSLServerSocket) {
@@ -390,7 +390,7 @@ public class RemoteControlHttpsServer extends Thread {
     }
 
     /**
-     * The main loop, spawns a {@link RequestProcessor} for each connection.
+     * The main loop, queues a {@link RequestProcessor} for each connection.
      */
     @Override
     public void run() {
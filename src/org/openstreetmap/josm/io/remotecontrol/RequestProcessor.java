@@ -1,11 +1,12 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.remotecontrol;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -15,19 +16,25 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.help.HelpUtil;
 import org.openstreetmap.josm.io.remotecontrol.handler.AddNodeHandler;
 import org.openstreetmap.josm.io.remotecontrol.handler.AddWayHandler;
+import org.openstreetmap.josm.io.remotecontrol.handler.BatchHandler;
 import org.openstreetmap.josm.io.remotecontrol.handler.FeaturesHandler;
 import org.openstreetmap.josm.io.remotecontrol.handler.ImageryHandler;
 import org.openstreetmap.josm.io.remotecontrol.handler.ImportHandler;
@@ -44,8 +51,32 @@ import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Processes HTTP "remote control" requests.
+ * <p>
+ * The connections are processed by a pool of {@link #PROP_THREADS} threads, further connections wait in a queue.
+ * A connection is kept open for the next request if the client asks for it (HTTP/1.1 default), until it is idle
+ * for {@link #PROP_KEEP_ALIVE_TIMEOUT} or other connections are waiting.
  */
-public class RequestProcessor extends Thread {
+public class RequestProcessor implements Runnable {
+
+    /**
+     * The number of threads processing the requests.
+     * @since 12619
+     */
+    public static final IntegerProperty PROP_THREADS = new IntegerProperty("remotecontrol.threads", 8);
+    /**
+     * The time in milliseconds after which an idle connection is closed.
+     * @since 12619
+     */
+    public static final IntegerProperty PROP_KEEP_ALIVE_TIMEOUT = new IntegerProperty("remotecontrol.keepalive.timeout", 5000);
+
+    /** The maximum number of connections waiting for a thread, further connections are rejected */
+    private static final int MAX_QUEUED_CONNECTIONS = 1000;
+    /** The maximum number of requests sent through one connection */
+    private static final int MAX_REQUESTS_PER_CONNECTION = 10_000;
+    /** The maximum number of header lines of a request */
+    private static final int MAX_HEADERS = 100;
+    /** The maximum size of a request body, in bytes */
+    private static final int MAX_BODY_LENGTH = 32 * 1024 * 1024;
 
     private static final Charset RESPONSE_CHARSET = StandardCharsets.UTF_8;
     private static final String RESPONSE_TEMPLATE = "<!DOCTYPE html><html><head><meta charset=\""
@@ -62,9 +93,16 @@ public class RequestProcessor extends Thread {
         RemoteControl.protocolMinorVersion +
         "}, \"application\": \"JOSM RemoteControl\"}";
 
+    private static final ThreadPoolExecutor WORKERS = newWorkers();
+
+    private static final Pattern REFERER_PATTERN = Pattern.compile("(https?://)?([^/]*)");
+
     /** The socket this processor listens on */
     private final Socket request;
 
+    /** Determines if the connection is kept open after the current response */
+    private boolean keepAlive;
+
     /**
      * Collection of request handlers.
      * Will be initialized with default handlers here. Other plug-ins
@@ -78,18 +116,50 @@ public class RequestProcessor extends Thread {
      * @param request A socket to read the request.
      */
     public RequestProcessor(Socket request) {
-        super("RemoteControl request processor");
-        this.setDaemon(true);
         this.request = request;
     }
 
+    private static ThreadPoolExecutor newWorkers() {
+        final int threads = Math.max(1, PROP_THREADS.get());
+        final ThreadFactory factory = Utils.newThreadFactory("remote-control-%d", Thread.NORM_PRIORITY);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_CONNECTIONS), runnable -> {
+                    Thread thread = factory.newThread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     /**
-     * Spawns a new thread for the request
+     * Queues the request for processing by one of the request processor threads.
+     * The connection is closed at once if too many connections are waiting.
      * @param request The request to process
      */
     public static void processRequest(Socket request) {
         RequestProcessor processor = new RequestProcessor(request);
-        processor.start();
+        try {
+            WORKERS.execute(processor);
+        } catch (RejectedExecutionException e) {
+            Main.warn("RemoteControl: too many pending connections, rejecting " + request.getInetAddress());
+            Main.debug(e);
+            processor.reject();
+        }
+    }
+
+    private void reject() {
+        try {
+            Writer out = new OutputStreamWriter(new BufferedOutputStream(request.getOutputStream()), RESPONSE_CHARSET);
+            sendResponse(out, "503 Service Unavailable", "text/html", String.format(
+                    RESPONSE_TEMPLATE,
+                    "<title>Service Unavailable</title>",
+                    "<h1>HTTP Error 503: Service Unavailable</h1>"));
+        } catch (IOException e) {
+            Main.debug(Main.getErrorMessage(e));
+        } finally {
+            close();
+        }
     }
 
     /**
@@ -142,6 +212,19 @@ public class RequestProcessor extends Thread {
         addRequestHandlerClass(LoadObjectHandler.command, LoadObjectHandler.class, true);
         addRequestHandlerClass(OpenFileHandler.command, OpenFileHandler.class, true);
         addRequestHandlerClass(FeaturesHandler.command, FeaturesHandler.class, true);
+        addRequestHandlerClass(BatchHandler.command, BatchHandler.class, true);
+    }
+
+    /**
+     * Creates the handler of a command.
+     * @param command the command, with or without leading slash
+     * @return a new handler, or {@code null} if the command is unknown
+     * @throws ReflectiveOperationException if the handler cannot be instantiated
+     * @since 12619
+     */
+    public static RequestHandler createRequestHandler(String command) throws ReflectiveOperationException {
+        Class<? extends RequestHandler> handlerClass = handlers.get(command.startsWith("/") ? command : '/' + command);
+        return handlerClass == null ? null : handlerClass.getConstructor().newInstance();
     }
 
     /**
@@ -149,102 +232,150 @@ public class RequestProcessor extends Thread {
      */
     @Override
     public void run() {
-        Writer out = null;
         try {
-            OutputStream raw = new BufferedOutputStream(request.getOutputStream());
-            out = new OutputStreamWriter(raw, RESPONSE_CHARSET);
-            BufferedReader in = new BufferedReader(new InputStreamReader(request.getInputStream(), "ASCII"));
+            request.setSoTimeout(PROP_KEEP_ALIVE_TIMEOUT.get());
+            InputStream in = new BufferedInputStream(request.getInputStream());
+            Writer out = new OutputStreamWriter(new BufferedOutputStream(request.getOutputStream()), RESPONSE_CHARSET);
+            for (int i = 1; processNextRequest(in, out, i); i++) {
+                // the client keeps the connection alive
+            }
+        } catch (IOException ioe) {
+            Main.debug(Main.getErrorMessage(ioe));
+        } finally {
+            close();
+        }
+    }
 
-            String get = in.readLine();
-            if (get == null) {
+    private void close() {
+        try {
+            request.close();
+        } catch (IOException e) {
+            Main.debug(Main.getErrorMessage(e));
+        }
+    }
+
+    /**
+     * Reads and answers the next request of the connection.
+     * @param in the input of the connection
+     * @param out the output of the connection
+     * @param number the number of the request in this connection, starting from 1
+     * @return {@code true} if the connection is kept open for another request
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean processNextRequest(InputStream in, Writer out, int number) throws IOException {
+        keepAlive = false;
+        String get = readLine(in);
+        if (get == null) {
+            if (number == 1) {
                 sendError(out);
-                return;
             }
-            Main.info("RemoteControl received: " + get);
+            return false;
+        }
+        Main.info("RemoteControl received: " + get);
 
-            StringTokenizer st = new StringTokenizer(get);
-            if (!st.hasMoreTokens()) {
-                sendError(out);
-                return;
+        StringTokenizer st = new StringTokenizer(get);
+        if (!st.hasMoreTokens()) {
+            sendError(out);
+            return false;
+        }
+        String method = st.nextToken();
+        if (!st.hasMoreTokens()) {
+            sendError(out);
+            return false;
+        }
+        String url = st.nextToken();
+        String version = st.hasMoreTokens() ? st.nextToken() : "HTTP/1.0";
+
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        boolean headersComplete = false;
+        for (int k = 0; k < MAX_HEADERS && !headersComplete; k++) {
+            String header = readLine(in);
+            if (header == null || header.isEmpty()) {
+                headersComplete = header != null;
+                break;
             }
-            String method = st.nextToken();
-            if (!st.hasMoreTokens()) {
-                sendError(out);
-                return;
+            String[] h = header.split(": ", 2);
+            if (h.length == 2) {
+                headers.put(h[0], h[1]);
             }
-            String url = st.nextToken();
+        }
 
-            if (!"GET".equals(method)) {
-                sendNotImplemented(out);
-                return;
+        String connection = headers.get("Connection");
+        keepAlive = headersComplete
+                && number < MAX_REQUESTS_PER_CONNECTION
+                && !headers.containsKey("Transfer-Encoding")
+                && ("HTTP/1.1".equals(version) ? !"close".equalsIgnoreCase(connection) : "keep-alive".equalsIgnoreCase(connection))
+                && WORKERS.getQueue().isEmpty();
+
+        String body = null;
+        String contentLength = headers.get("Content-Length");
+        if (contentLength != null) {
+            int length;
+            try {
+                length = Integer.parseInt(contentLength.trim());
+            } catch (NumberFormatException e) {
+                length = -1;
             }
-
-            int questionPos = url.indexOf('?');
-
-            String command = questionPos < 0 ? url : url.substring(0, questionPos);
-
-            Map<String, String> headers = new HashMap<>();
-            int k = 0;
-            int maxHeaders = 20;
-            while (k < maxHeaders) {
-                get = in.readLine();
-                if (get == null) break;
-                k++;
-                String[] h = get.split(": ", 2);
-                if (h.length == 2) {
-                    headers.put(h[0], h[1]);
-                } else break;
+            if (length < 0 || length > MAX_BODY_LENGTH) {
+                keepAlive = false;
+                sendBadRequest(out, "Invalid Content-Length: " + contentLength);
+                return false;
             }
+            byte[] data = new byte[length];
+            new DataInputStream(in).readFully(data);
+            body = new String(data, StandardCharsets.UTF_8);
+        }
 
-            // Who sent the request: trying our best to detect
-            // not from localhost => sender = IP
-            // from localhost: sender = referer header, if exists
-            String sender = null;
+        if (!"GET".equals(method) && !"POST".equals(method)) {
+            sendNotImplemented(out);
+            return keepAlive;
+        }
 
-            if (!request.getInetAddress().isLoopbackAddress()) {
-                sender = request.getInetAddress().getHostAddress();
-            } else {
-                String ref = headers.get("Referer");
-                Pattern r = Pattern.compile("(https?://)?([^/]*)");
-                if (ref != null) {
-                    Matcher m = r.matcher(ref);
-                    if (m.find()) {
-                        sender = m.group(2);
-                    }
-                }
-                if (sender == null) {
-                    sender = "localhost";
+        int questionPos = url.indexOf('?');
+
+        String command = questionPos < 0 ? url : url.substring(0, questionPos);
+
+        // Who sent the request: trying our best to detect
+        // not from localhost => sender = IP
+        // from localhost: sender = referer header, if exists
+        String sender = null;
+
+        if (!request.getInetAddress().isLoopbackAddress()) {
+            sender = request.getInetAddress().getHostAddress();
+        } else {
+            String ref = headers.get("Referer");
+            if (ref != null) {
+                Matcher m = REFERER_PATTERN.matcher(ref);
+                if (m.find()) {
+                    sender = m.group(2);
                 }
             }
+            if (sender == null) {
+                sender = "localhost";
+            }
+        }
 
+        try {
             // find a handler for this command
-            Class<? extends RequestHandler> handlerClass = handlers.get(command);
-            if (handlerClass == null) {
+            RequestHandler handler = createRequestHandler(command);
+            if (handler == null) {
                 String usage = getUsageAsHtml();
                 String websiteDoc = HelpUtil.getWikiBaseHelpUrl() +"/Help/Preferences/RemoteControl";
                 String help = "No command specified! The following commands are available:<ul>" + usage
                         + "</ul>" + "See <a href=\""+websiteDoc+"\">"+websiteDoc+"</a> for complete documentation.";
-                sendHeader(out, "400 Bad Request", "text/html", true);
-                out.write(String.format(
+                sendResponse(out, "400 Bad Request", "text/html", String.format(
                         RESPONSE_TEMPLATE,
                         "<title>Bad Request</title>",
                         "<h1>HTTP Error 400: Bad Request</h1>" +
                         "<p>" + help + "</p>"));
-                out.flush();
             } else {
-                // create handler object
-                RequestHandler handler = handlerClass.getConstructor().newInstance();
                 try {
                     handler.setCommand(command);
                     handler.setUrl(url);
                     handler.setSender(sender);
+                    handler.setBody(body);
                     handler.handle();
-                    sendHeader(out, "200 OK", handler.getContentType(), false);
-                    out.write("Content-length: " + handler.getContent().length()
-                            + "\r\n");
-                    out.write("\r\n");
-                    out.write(handler.getContent());
-                    out.flush();
+                    sendResponse(out, "200 OK", handler.getContentType(), handler.getContent());
                 } catch (RequestHandlerErrorException ex) {
                     Main.debug(ex);
                     sendError(out);
@@ -256,23 +387,31 @@ public class RequestProcessor extends Thread {
                     sendForbidden(out, ex.getMessage());
                 }
             }
-
-        } catch (IOException ioe) {
-            Main.debug(Main.getErrorMessage(ioe));
         } catch (ReflectiveOperationException e) {
             Main.error(e);
-            try {
-                sendError(out);
-            } catch (IOException e1) {
-                Main.warn(e1);
-            }
-        } finally {
-            try {
-                request.close();
-            } catch (IOException e) {
-                Main.debug(Main.getErrorMessage(e));
-            }
+            keepAlive = false;
+            sendError(out);
         }
+        return keepAlive;
+    }
+
+    /**
+     * Reads a line terminated by LF or CRLF.
+     * @param in the input
+     * @return the line, without the line terminator, or {@code null} at the end of the input
+     * @throws IOException if an I/O error occurs
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            line.write(c);
+        }
+        if (c == -1 && line.size() == 0) {
+            return null;
+        }
+        String s = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
     }
 
     /**
@@ -283,14 +422,12 @@ public class RequestProcessor extends Thread {
      * @throws IOException
      *             If the error can not be written
      */
-    private static void sendError(Writer out) throws IOException {
-        sendHeader(out, "500 Internal Server Error", "text/html", true);
-        out.write(String.format(
+    private void sendError(Writer out) throws IOException {
+        sendResponse(out, "500 Internal Server Error", "text/html", String.format(
                 RESPONSE_TEMPLATE,
                 "<title>Internal Error</title>",
                 "<h1>HTTP Error 500: Internal Server Error</h1>"
         ));
-        out.flush();
     }
 
     /**
@@ -301,14 +438,12 @@ public class RequestProcessor extends Thread {
      * @throws IOException
      *             If the error can not be written
      */
-    private static void sendNotImplemented(Writer out) throws IOException {
-        sendHeader(out, "501 Not Implemented", "text/html", true);
-        out.write(String.format(
+    private void sendNotImplemented(Writer out) throws IOException {
+        sendResponse(out, "501 Not Implemented", "text/html", String.format(
                 RESPONSE_TEMPLATE,
                 "<title>Not Implemented</title>",
                 "<h1>HTTP Error 501: Not Implemented</h1>"
         ));
-        out.flush();
     }
 
     /**
@@ -321,15 +456,13 @@ public class RequestProcessor extends Thread {
      * @throws IOException
      *             If the error can not be written
      */
-    private static void sendForbidden(Writer out, String help) throws IOException {
-        sendHeader(out, "403 Forbidden", "text/html", true);
-        out.write(String.format(
+    private void sendForbidden(Writer out, String help) throws IOException {
+        sendResponse(out, "403 Forbidden", "text/html", String.format(
                 RESPONSE_TEMPLATE,
                 "<title>Forbidden</title>",
                 "<h1>HTTP Error 403: Forbidden</h1>" +
                 (help == null ? "" : "<p>"+Utils.escapeReservedCharactersHTML(help) + "</p>")
         ));
-        out.flush();
     }
 
     /**
@@ -339,19 +472,17 @@ public class RequestProcessor extends Thread {
      * @param help Optional help content to display, can be null
      * @throws IOException If the error can not be written
      */
-    private static void sendBadRequest(Writer out, String help) throws IOException {
-        sendHeader(out, "400 Bad Request", "text/html", true);
-        out.write(String.format(
+    private void sendBadRequest(Writer out, String help) throws IOException {
+        sendResponse(out, "400 Bad Request", "text/html", String.format(
                 RESPONSE_TEMPLATE,
                 "<title>Bad Request</title>",
                 "<h1>HTTP Error 400: Bad Request</h1>" +
                 (help == null ? "" : ("<p>" + Utils.escapeReservedCharactersHTML(help) + "</p>"))
         ));
-        out.flush();
     }
 
     /**
-     * Send common HTTP headers to the client.
+     * Send a response to the client.
      *
      * @param out
      *            The Writer
@@ -359,20 +490,22 @@ public class RequestProcessor extends Thread {
      *            The status string ("200 OK", "500", etc)
      * @param contentType
      *            The content type of the data sent
-     * @param endHeaders
-     *            If true, adds a new line, ending the headers.
+     * @param content
+     *            The content
      * @throws IOException
      *             When error
      */
-    private static void sendHeader(Writer out, String status, String contentType,
-            boolean endHeaders) throws IOException {
+    private void sendResponse(Writer out, String status, String contentType, String content) throws IOException {
         out.write("HTTP/1.1 " + status + "\r\n");
         out.write("Date: " + new Date() + "\r\n");
         out.write("Server: JOSM RemoteControl\r\n");
         out.write("Content-type: " + contentType + "; charset=" + RESPONSE_CHARSET.name().toLowerCase(Locale.ENGLISH) + "\r\n");
+        out.write("Content-length: " + content.getBytes(RESPONSE_CHARSET).length + "\r\n");
+        out.write("Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n");
         out.write("Access-Control-Allow-Origin: *\r\n");
-        if (endHeaders)
-            out.write("\r\n");
+        out.write("\r\n");
+        out.write(content);
+        out.flush();
     }
 
     public static String getHandlersInfoAsJSON() {
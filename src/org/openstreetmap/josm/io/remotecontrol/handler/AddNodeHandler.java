@@ -8,7 +8,6 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.actions.AutoScaleAction;
 import org.openstreetmap.josm.command.AddCommand;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Node;
@@ -94,15 +93,10 @@ public class AddNodeHandler extends RequestHandler {
         if (node == null) {
             node = new Node(ll);
             // Now execute the commands to add this node.
-            Main.main.undoRedo.add(new AddCommand(node));
+            executeCommand(new AddCommand(node));
         }
 
-        Main.getLayerManager().getEditDataSet().setSelected(node);
-        if (PermissionPrefWithDefault.CHANGE_VIEWPORT.isAllowed()) {
-            AutoScaleAction.autoScale("selection");
-        } else {
-            Main.map.mapView.repaint();
-        }
+        selectAndZoom(Collections.singleton(node));
         // parse parameter addtags=tag1=value1|tag2=vlaue2
         AddTagsDialog.addTags(args, sender, Collections.singleton(node));
     }
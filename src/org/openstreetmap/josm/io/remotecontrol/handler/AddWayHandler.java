@@ -14,7 +14,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.actions.AutoScaleAction;
 import org.openstreetmap.josm.command.AddCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.SequenceCommand;
@@ -165,13 +164,8 @@ public class AddWayHandler extends RequestHandler {
         }
         allCoordinates.clear();
         commands.add(new AddCommand(way));
-        Main.main.undoRedo.add(new SequenceCommand(tr("Add way"), commands));
-        Main.getLayerManager().getEditDataSet().setSelected(way);
-        if (PermissionPrefWithDefault.CHANGE_VIEWPORT.isAllowed()) {
-            AutoScaleAction.autoScale("selection");
-        } else {
-            Main.map.mapView.repaint();
-        }
+        executeCommand(new SequenceCommand(tr("Add way"), commands));
+        selectAndZoom(Collections.singleton(way));
         return way;
     }
 }
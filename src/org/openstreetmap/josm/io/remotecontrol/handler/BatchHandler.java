@@ -0,0 +1,185 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io.remotecontrol.handler;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.remotecontrol.PermissionPrefWithDefault;
+import org.openstreetmap.josm.io.remotecontrol.RequestProcessor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Handles several requests at once, given one per line in the body of a {@code POST /batch} request.
+ * For instance, a body with the lines {@code /add_node?lat=53.2&lon=13.3} and {@code /load_object?objects=w2}.
+ * <p>
+ * The changes made by the requests are undone as a single command, the selection and the viewport are
+ * changed once, and the objects of the {@code load_object} requests with the same options are downloaded
+ * at once. If a request fails, the requests before it are still applied.
+ * @since 12619
+ */
+public class BatchHandler extends RequestHandler {
+
+    /**
+     * The remote control command name used to handle several requests at once.
+     */
+    public static final String command = "batch";
+
+    private final List<RequestHandler> requests = new ArrayList<>();
+    private final List<Command> commands = new ArrayList<>();
+    private final Set<OsmPrimitive> selection = new LinkedHashSet<>();
+    private final Map<List<String>, List<LoadObjectHandler>> downloads = new LinkedHashMap<>();
+
+    @Override
+    public String[] getMandatoryParams() {
+        return new String[0];
+    }
+
+    @Override
+    public String getUsage() {
+        return "handles the requests given one per line in the body of a POST request, as a single undoable change";
+    }
+
+    @Override
+    public String getPermissionMessage() {
+        Set<String> messages = new LinkedHashSet<>();
+        for (RequestHandler handler : requests) {
+            messages.add(handler.getPermissionMessage());
+        }
+        return tr("Remote Control has been asked to handle {0} requests:", requests.size())
+                + "<br>" + Utils.join("<br>", messages);
+    }
+
+    @Override
+    public PermissionPrefWithDefault getPermissionPref() {
+        return null;
+    }
+
+    @Override
+    protected void validateRequest() throws RequestHandlerBadRequestException {
+        requests.clear();
+        if (body == null) {
+            throw new RequestHandlerBadRequestException(tr("The requests must be given one per line in the body of a POST request"));
+        }
+        for (String line : body.split("\\r?\\n")) {
+            String url = line.trim();
+            if (url.isEmpty()) {
+                continue;
+            }
+            if (url.charAt(0) != '/') {
+                url = '/' + url;
+            }
+            int questionPos = url.indexOf('?');
+            String cmd = questionPos < 0 ? url : url.substring(0, questionPos);
+            RequestHandler handler;
+            try {
+                handler = RequestProcessor.createRequestHandler(cmd);
+            } catch (ReflectiveOperationException e) {
+                throw new RequestHandlerBadRequestException(tr("Cannot handle command {0}", cmd), e);
+            }
+            if (handler == null || handler instanceof BatchHandler) {
+                throw new RequestHandlerBadRequestException(tr("Unknown command in batch: {0}", cmd));
+            }
+            handler.setCommand(cmd);
+            handler.setUrl(url);
+            handler.setSender(sender);
+            handler.batch = this;
+            handler.checkMandatoryParams();
+            handler.validateRequest();
+            requests.add(handler);
+        }
+        if (requests.isEmpty()) {
+            throw new RequestHandlerBadRequestException(tr("Empty batch"));
+        }
+    }
+
+    @Override
+    protected void handleRequest()
+            throws RequestHandlerErrorException, RequestHandlerBadRequestException, RequestHandlerForbiddenException {
+        for (RequestHandler handler : requests) {
+            handler.checkPermission();
+        }
+        try {
+            for (RequestHandler handler : requests) {
+                handler.handleRequest();
+            }
+        } finally {
+            GuiHelper.runInEDTAndWait(this::commit);
+            for (List<LoadObjectHandler> download : downloads.values()) {
+                LoadObjectHandler.download(download);
+            }
+            downloads.clear();
+        }
+    }
+
+    /**
+     * Adds the commands of the requests to the undo/redo history, and selects the objects of the requests.
+     */
+    private void commit() {
+        if (!commands.isEmpty()) {
+            Main.main.undoRedo.add(new BatchCommand(commands));
+            commands.clear();
+        }
+        if (!selection.isEmpty()) {
+            selectAndZoom(selection);
+            selection.clear();
+        }
+    }
+
+    /**
+     * Executes a command of a request of this batch.
+     * @param c the command
+     */
+    void addCommand(Command c) {
+        c.executeCommand();
+        commands.add(c);
+    }
+
+    /**
+     * Adds objects of a request of this batch to the selection made at the end of the batch.
+     * @param primitives the objects
+     */
+    void addToSelection(Collection<? extends OsmPrimitive> primitives) {
+        selection.addAll(primitives);
+    }
+
+    /**
+     * Adds a request of this batch to the downloads started at the end of the batch.
+     * @param handler the request
+     */
+    void addDownload(LoadObjectHandler handler) {
+        downloads.computeIfAbsent(handler.getDownloadOptions(), k -> new ArrayList<>()).add(handler);
+    }
+
+    /**
+     * The commands of a batch, which have already been executed when it is added to the undo/redo history.
+     */
+    private static class BatchCommand extends SequenceCommand {
+        private boolean alreadyExecuted = true;
+
+        BatchCommand(Collection<Command> sequence) {
+            super(tr("Remote Control batch"), sequence);
+            setSequenceComplete(true);
+        }
+
+        @Override
+        public boolean executeCommand() {
+            if (alreadyExecuted) {
+                alreadyExecuted = false;
+                return true;
+            }
+            return super.executeCommand();
+        }
+    }
+}
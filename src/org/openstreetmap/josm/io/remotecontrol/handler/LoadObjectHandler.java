@@ -3,10 +3,15 @@ package org.openstreetmap.josm.io.remotecontrol.handler;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -61,26 +66,61 @@ public class LoadObjectHandler extends RequestHandler {
             Main.info("RemoteControl: download forbidden by preferences");
         }
         if (!ps.isEmpty()) {
-            final boolean newLayer = isLoadInNewLayer();
-            final boolean relationMembers = Boolean.parseBoolean(args.get("relation_members"));
-            final boolean referrers = Boolean.parseBoolean(args.get("referrers"));
-            final DownloadPrimitivesWithReferrersTask task = new DownloadPrimitivesWithReferrersTask(
-                    newLayer, ps, referrers, relationMembers, args.get("layer_name"), null);
-            Main.worker.submit(task);
-            Main.worker.submit(() -> {
-                final List<PrimitiveId> downloaded = task.getDownloadedId();
-                final DataSet ds = Main.getLayerManager().getEditDataSet();
-                if (downloaded != null) {
-                    GuiHelper.runInEDT(() -> ds.setSelected(downloaded));
+            if (batch != null) {
+                batch.addDownload(this);
+            } else {
+                download(Collections.singletonList(this));
+            }
+        }
+    }
+
+    /**
+     * Returns the download options of this request. Requests with the same options can be downloaded together.
+     * @return the values of the optional parameters, but {@code addtags}
+     */
+    List<String> getDownloadOptions() {
+        return Arrays.asList(Boolean.toString(isLoadInNewLayer()), args.get("layer_name"),
+                Boolean.toString(Boolean.parseBoolean(args.get("relation_members"))),
+                Boolean.toString(Boolean.parseBoolean(args.get("referrers"))));
+    }
+
+    /**
+     * Downloads the objects of several requests having the same {@linkplain #getDownloadOptions() options}
+     * at once, then selects them and adds the tags of each request to its objects.
+     * @param requests the requests
+     */
+    static void download(List<LoadObjectHandler> requests) {
+        final LoadObjectHandler first = requests.get(0);
+        final Set<PrimitiveId> ids = new LinkedHashSet<>();
+        for (LoadObjectHandler request : requests) {
+            ids.addAll(request.ps);
+        }
+        final boolean newLayer = first.isLoadInNewLayer();
+        final boolean relationMembers = Boolean.parseBoolean(first.args.get("relation_members"));
+        final boolean referrers = Boolean.parseBoolean(first.args.get("referrers"));
+        final DownloadPrimitivesWithReferrersTask task = new DownloadPrimitivesWithReferrersTask(
+                newLayer, new ArrayList<>(ids), referrers, relationMembers, first.args.get("layer_name"), null);
+        Main.worker.submit(task);
+        Main.worker.submit(() -> {
+            final List<PrimitiveId> downloaded = task.getDownloadedId();
+            final DataSet ds = Main.getLayerManager().getEditDataSet();
+            if (downloaded != null) {
+                GuiHelper.runInEDT(() -> ds.setSelected(downloaded));
+                final Set<PrimitiveId> downloadedIds = new HashSet<>(downloaded);
+                for (LoadObjectHandler request : requests) {
                     Collection<OsmPrimitive> downlPrim = new HashSet<>();
-                    for (PrimitiveId id : downloaded) {
-                        downlPrim.add(ds.getPrimitiveById(id));
+                    for (PrimitiveId id : request.ps) {
+                        if (downloadedIds.contains(id)) {
+                            downlPrim.add(ds.getPrimitiveById(id));
+                        }
                     }
-                    AddTagsDialog.addTags(args, sender, downlPrim);
+                    AddTagsDialog.addTags(request.args, request.sender, downlPrim);
                 }
-                ps.clear();
-            });
-        }
+            }
+            for (LoadObjectHandler request : requests) {
+                request.ps.clear();
+            }
+        });
     }
 
     @Override
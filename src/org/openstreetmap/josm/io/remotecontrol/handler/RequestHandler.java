@@ -6,6 +6,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,6 +19,9 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.actions.AutoScaleAction;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.io.remotecontrol.PermissionPrefWithDefault;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -39,6 +43,12 @@ public abstract class RequestHandler {
     /** The request URL without "GET". */
     protected String request;
 
+    /**
+     * The body of a POST request, or {@code null}
+     * @since 12619
+     */
+    protected String body;
+
     /** default response */
     protected String content = "OK\r\n";
     /** default content type */
@@ -53,6 +63,11 @@ public abstract class RequestHandler {
      */
     protected String sender;
 
+    /**
+     * The batch this request is part of, or {@code null}
+     */
+    BatchHandler batch;
+
     /**
      * Check permission and parameters and handle request.
      *
@@ -81,8 +96,10 @@ public abstract class RequestHandler {
      *
      * @throws RequestHandlerErrorException if an error occurs while processing request
      * @throws RequestHandlerBadRequestException if request is invalid
+     * @throws RequestHandlerForbiddenException if a part of the request is forbidden by preferences
      */
-    protected abstract void handleRequest() throws RequestHandlerErrorException, RequestHandlerBadRequestException;
+    protected abstract void handleRequest()
+            throws RequestHandlerErrorException, RequestHandlerBadRequestException, RequestHandlerForbiddenException;
 
     /**
      * Get a specific message to ask the user for permission for the operation
@@ -153,8 +170,9 @@ public abstract class RequestHandler {
 
         /* Does the user want to confirm everything?
          * If yes, display specific confirmation message.
+         * The requests of a batch are confirmed all at once by the batch.
          */
-        if (Main.pref.getBoolean(globalConfirmationKey, globalConfirmationDefault)) {
+        if (batch == null && Main.pref.getBoolean(globalConfirmationKey, globalConfirmationDefault)) {
             // Ensure dialog box does not exceed main window size
             Integer maxWidth = (int) Math.max(200, Main.parent.getWidth()*0.6);
             String message = "<html><div>" + getPermissionMessage() +
@@ -281,6 +299,50 @@ public abstract class RequestHandler {
         this.sender = sender;
     }
 
+    /**
+     * Sets the body of the request.
+     * @param body the body of a POST request, or {@code null}
+     * @since 12619
+     */
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    /**
+     * Executes a command and makes it undoable. If this request is part of a batch, the command is
+     * undone together with the commands of the other requests of the batch.
+     * Must be called in the EDT.
+     * @param c the command to execute
+     * @since 12619
+     */
+    protected void executeCommand(Command c) {
+        if (batch != null) {
+            batch.addCommand(c);
+        } else {
+            Main.main.undoRedo.add(c);
+        }
+    }
+
+    /**
+     * Selects the given primitives, and zooms to them if allowed. If this request is part of a batch,
+     * this is done once for the primitives of all the requests of the batch.
+     * Must be called in the EDT.
+     * @param primitives the primitives to select
+     * @since 12619
+     */
+    protected void selectAndZoom(Collection<? extends OsmPrimitive> primitives) {
+        if (batch != null) {
+            batch.addToSelection(primitives);
+        } else {
+            Main.getLayerManager().getEditDataSet().setSelected(primitives);
+            if (PermissionPrefWithDefault.CHANGE_VIEWPORT.isAllowed()) {
+                AutoScaleAction.autoScale("selection");
+            } else if (Main.isDisplayingMapView()) {
+                Main.map.mapView.repaint();
+            }
+        }
+    }
+
     public static class RequestHandlerException extends Exception {
 
         /**
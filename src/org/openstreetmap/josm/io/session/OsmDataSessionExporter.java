@@ -2,14 +2,14 @@
 package org.openstreetmap.josm.io.session;
 
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
+import org.openstreetmap.josm.io.Utf8OutputStreamWriter;
 
 /**
  * Session exporter for {@link OsmDataLayer}.
@@ -27,14 +27,10 @@ public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer>
 
     @Override
     protected void addDataFile(OutputStream out) {
-        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-        OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion());
-        layer.data.getReadLock().lock();
-        try {
-            w.writeLayer(layer);
-            w.flush();
-        } finally {
-            layer.data.getReadLock().unlock();
-        }
+        Writer writer = new Utf8OutputStreamWriter(out);
+        DataSetSnapshot snapshot = layer.data.snapshot();
+        OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, snapshot.getVersion());
+        w.write(snapshot);
+        w.flush();
     }
 }
@@ -17,6 +17,7 @@ import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.PbfImporter;
 import org.openstreetmap.josm.io.session.SessionReader.ImportSupport;
 import org.w3c.dom.Element;
 
@@ -41,7 +42,7 @@ public class OsmDataSessionImporter implements SessionLayerImporter {
                 throw new IllegalDataException(tr("File name expected for layer no. {0}", support.getLayerIndex()));
             }
 
-            OsmImporter importer = new OsmImporter();
+            OsmImporter importer = PbfImporter.FILE_FILTER.acceptName(fileStr) ? new PbfImporter() : new OsmImporter();
             try (InputStream in = support.getInputStream(fileStr)) {
                 OsmImporter.OsmImporterData importData = importer.loadLayer(in, support.getFile(fileStr), support.getLayerName(),
                         progressMonitor);
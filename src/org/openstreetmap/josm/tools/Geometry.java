@@ -8,6 +8,7 @@ import java.awt.geom.Path2D;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -21,7 +22,6 @@ import org.openstreetmap.josm.command.AddCommand;
 import org.openstreetmap.josm.command.ChangeCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.coor.EastNorth;
-import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.MultipolygonBuilder;
 import org.openstreetmap.josm.data.osm.MultipolygonBuilder.JoinedPolygon;
@@ -84,162 +84,223 @@ public final class Geometry {
      * @return list of new nodes
      */
     public static Set<Node> addIntersections(List<Way> ways, boolean test, List<Command> cmds) {
-
-        int n = ways.size();
-        @SuppressWarnings("unchecked")
-        List<Node>[] newNodes = new ArrayList[n];
-        BBox[] wayBounds = new BBox[n];
-        boolean[] changedWays = new boolean[n];
-
-        Set<Node> intersectionNodes = new LinkedHashSet<>();
-
-        //copy node arrays for local usage.
-        for (int pos = 0; pos < n; pos++) {
-            newNodes[pos] = new ArrayList<>(ways.get(pos).getNodes());
-            wayBounds[pos] = getNodesBounds(newNodes[pos]);
-            changedWays[pos] = false;
+        IntersectionBuilder builder = new IntersectionBuilder(ways, test);
+        builder.finder.findPairs(builder);
+        if (!test) {
+            builder.build(cmds);
         }
+        return builder.intersectionNodes;
+    }
 
-        OsmDataLayer layer = Main.getLayerManager().getEditLayer();
-        DataSet dataset = ways.get(0).getDataSet();
-
-        //iterate over all way pairs and introduce the intersections
-        Comparator<Node> coordsComparator = new NodePositionComparator();
-        for (int seg1Way = 0; seg1Way < n; seg1Way++) {
-            for (int seg2Way = seg1Way; seg2Way < n; seg2Way++) {
+    /**
+     * Finds the intersections of ways for {@link #addIntersections}. The pairs of segments that may intersect are
+     * found by a {@link SegmentIntersectionFinder}, then examined in the order of the ways and segments, so that
+     * the same nodes are found every time.
+     */
+    private static final class IntersectionBuilder implements SegmentIntersectionFinder.PairConsumer {
+        private final List<Way> ways;
+        private final boolean test;
+        private final List<Node>[] wayNodes;
+        /** the segments of way w are firstSegment[w] to firstSegment[w + 1] - 1 */
+        private final int[] firstSegment;
+        private final SegmentIntersectionFinder finder = new SegmentIntersectionFinder();
+        private final Set<Node> intersectionNodes = new LinkedHashSet<>();
+        private final Comparator<Node> coordsComparator = new NodePositionComparator();
+        /** the pairs of segments, first segment in the upper half */
+        private long[] pairs = new long[64];
+        private int pairCount;
+        /** the nodes to insert in each segment, lazily created */
+        private final List<Node>[] segmentNodes;
+        private final List<Node> newNodes = new ArrayList<>();
 
-                //do not waste time on bounds that do not intersect
-                if (!wayBounds[seg1Way].intersects(wayBounds[seg2Way])) {
-                    continue;
+        @SuppressWarnings("unchecked")
+        IntersectionBuilder(List<Way> ways, boolean test) {
+            this.ways = ways;
+            this.test = test;
+            int n = ways.size();
+            wayNodes = new List[n];
+            firstSegment = new int[n + 1];
+            for (int pos = 0; pos < n; pos++) {
+                wayNodes[pos] = ways.get(pos).getNodes();
+                firstSegment[pos] = finder.size();
+                for (int i = 0; i + 1 < wayNodes[pos].size(); i++) {
+                    finder.add(wayNodes[pos].get(i).getEastNorth(), wayNodes[pos].get(i + 1).getEastNorth());
                 }
+            }
+            firstSegment[n] = finder.size();
+            segmentNodes = new List[finder.size()];
+        }
 
-                List<Node> way1Nodes = newNodes[seg1Way];
-                List<Node> way2Nodes = newNodes[seg2Way];
+        @Override
+        public boolean accept(int first, int second) {
+            if (test) {
+                // any intersection will do, stop at the first one
+                return !addIntersection(first, second);
+            }
+            if (pairCount == pairs.length) {
+                pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+            }
+            pairs[pairCount++] = ((long) first << 32) | second;
+            return true;
+        }
 
-                //iterate over primary segmemt
-                for (int seg1Pos = 0; seg1Pos + 1 < way1Nodes.size(); seg1Pos++) {
+        private int getWay(int segment) {
+            int pos = Arrays.binarySearch(firstSegment, segment);
+            if (pos < 0) {
+                return -pos - 2;
+            }
+            // skip the ways without segments
+            while (firstSegment[pos + 1] == segment) {
+                pos++;
+            }
+            return pos;
+        }
 
-                    //iterate over secondary segment
-                    int seg2Start = seg1Way != seg2Way ? 0 : seg1Pos + 2; //skip the adjacent segment
+        /**
+         * Examines a pair of segments, and notes where the segments must be split.
+         * @return true if an intersection has been found, in test mode
+         */
+        private boolean addIntersection(int seg1, int seg2) {
+            int seg1Way = getWay(seg1);
+            int seg2Way = getWay(seg2);
+            int seg1Pos = seg1 - firstSegment[seg1Way];
+            int seg2Pos = seg2 - firstSegment[seg2Way];
+            if (seg1Way == seg2Way && seg2Pos < seg1Pos + 2) {
+                //skip the adjacent segment
+                return false;
+            }
+            List<Node> way1Nodes = wayNodes[seg1Way];
+            List<Node> way2Nodes = wayNodes[seg2Way];
+            Node seg1Node1 = way1Nodes.get(seg1Pos);
+            Node seg1Node2 = way1Nodes.get(seg1Pos + 1);
+            Node seg2Node1 = way2Nodes.get(seg2Pos);
+            Node seg2Node2 = way2Nodes.get(seg2Pos + 1);
+
+            int commonCount = 0;
+            //test if we have common nodes to add.
+            if (seg1Node1 == seg2Node1 || seg1Node1 == seg2Node2) {
+                commonCount++;
+
+                if (seg1Way == seg2Way &&
+                        seg1Pos == 0 &&
+                        seg2Pos == way2Nodes.size() -2) {
+                    //do not add - this is first and last segment of the same way.
+                } else {
+                    intersectionNodes.add(seg1Node1);
+                }
+            }
 
-                    for (int seg2Pos = seg2Start; seg2Pos + 1 < way2Nodes.size(); seg2Pos++) {
+            if (seg1Node2 == seg2Node1 || seg1Node2 == seg2Node2) {
+                commonCount++;
 
-                        //need to get them again every time, because other segments may be changed
-                        Node seg1Node1 = way1Nodes.get(seg1Pos);
-                        Node seg1Node2 = way1Nodes.get(seg1Pos + 1);
-                        Node seg2Node1 = way2Nodes.get(seg2Pos);
-                        Node seg2Node2 = way2Nodes.get(seg2Pos + 1);
+                intersectionNodes.add(seg1Node2);
+            }
 
-                        int commonCount = 0;
-                        //test if we have common nodes to add.
-                        if (seg1Node1 == seg2Node1 || seg1Node1 == seg2Node2) {
-                            commonCount++;
+            if (commonCount != 0) {
+                return test && !intersectionNodes.isEmpty();
+            }
 
-                            if (seg1Way == seg2Way &&
-                                    seg1Pos == 0 &&
-                                    seg2Pos == way2Nodes.size() -2) {
-                                //do not add - this is first and last segment of the same way.
-                            } else {
-                                intersectionNodes.add(seg1Node1);
-                            }
-                        }
+            //no common nodes - find intersection
+            EastNorth intersection = getSegmentSegmentIntersection(
+                    seg1Node1.getEastNorth(), seg1Node2.getEastNorth(),
+                    seg2Node1.getEastNorth(), seg2Node2.getEastNorth());
+            if (intersection == null) {
+                return false;
+            }
+            if (test) {
+                intersectionNodes.add(seg2Node1);
+                return true;
+            }
 
-                        if (seg1Node2 == seg2Node1 || seg1Node2 == seg2Node2) {
-                            commonCount++;
+            Node newNode = new Node(Main.getProjection().eastNorth2latlon(intersection));
+            Node intNode = newNode;
+            //find if the intersection point is at end point of one of the segments, or at a point already added
+            //to one of them, if so use that point
+            Node seg1Existing = findNodeAt(newNode, seg1Node1, seg1Node2, segmentNodes[seg1]);
+            if (seg1Existing != null) {
+                intNode = seg1Existing;
+            }
+            Node seg2Existing = findNodeAt(newNode, seg2Node1, seg2Node2, segmentNodes[seg2]);
+            if (seg2Existing != null) {
+                intNode = seg2Existing;
+            }
 
-                            intersectionNodes.add(seg1Node2);
-                        }
+            if (seg1Existing == null) {
+                addSegmentNode(seg1, intNode);
+            }
+            if (seg2Existing == null) {
+                addSegmentNode(seg2, intNode);
+            }
+            intersectionNodes.add(intNode);
+            if (intNode == newNode) {
+                newNodes.add(newNode);
+            }
+            return false;
+        }
 
-                        //no common nodes - find intersection
-                        if (commonCount == 0) {
-                            EastNorth intersection = getSegmentSegmentIntersection(
-                                    seg1Node1.getEastNorth(), seg1Node2.getEastNorth(),
-                                    seg2Node1.getEastNorth(), seg2Node2.getEastNorth());
-
-                            if (intersection != null) {
-                                if (test) {
-                                    intersectionNodes.add(seg2Node1);
-                                    return intersectionNodes;
-                                }
-
-                                Node newNode = new Node(Main.getProjection().eastNorth2latlon(intersection));
-                                Node intNode = newNode;
-                                boolean insertInSeg1 = false;
-                                boolean insertInSeg2 = false;
-                                //find if the intersection point is at end point of one of the segments, if so use that point
-
-                                //segment 1
-                                if (coordsComparator.compare(newNode, seg1Node1) == 0) {
-                                    intNode = seg1Node1;
-                                } else if (coordsComparator.compare(newNode, seg1Node2) == 0) {
-                                    intNode = seg1Node2;
-                                } else {
-                                    insertInSeg1 = true;
-                                }
-
-                                //segment 2
-                                if (coordsComparator.compare(newNode, seg2Node1) == 0) {
-                                    intNode = seg2Node1;
-                                } else if (coordsComparator.compare(newNode, seg2Node2) == 0) {
-                                    intNode = seg2Node2;
-                                } else {
-                                    insertInSeg2 = true;
-                                }
-
-                                if (insertInSeg1) {
-                                    way1Nodes.add(seg1Pos +1, intNode);
-                                    changedWays[seg1Way] = true;
-
-                                    //fix seg2 position, as indexes have changed, seg2Pos is always bigger than seg1Pos on the same segment.
-                                    if (seg2Way == seg1Way) {
-                                        seg2Pos++;
-                                    }
-                                }
-
-                                if (insertInSeg2) {
-                                    way2Nodes.add(seg2Pos +1, intNode);
-                                    changedWays[seg2Way] = true;
-
-                                    //Do not need to compare again to already split segment
-                                    seg2Pos++;
-                                }
-
-                                intersectionNodes.add(intNode);
-
-                                if (intNode == newNode) {
-                                    cmds.add(layer != null ? new AddCommand(layer, intNode) : new AddCommand(dataset, intNode));
-                                }
-                            }
-                        } else if (test && !intersectionNodes.isEmpty())
-                            return intersectionNodes;
+        private Node findNodeAt(Node node, Node segNode1, Node segNode2, List<Node> segNodes) {
+            if (coordsComparator.compare(node, segNode1) == 0) {
+                return segNode1;
+            } else if (coordsComparator.compare(node, segNode2) == 0) {
+                return segNode2;
+            } else if (segNodes != null) {
+                for (Node segNode : segNodes) {
+                    if (coordsComparator.compare(node, segNode) == 0) {
+                        return segNode;
                     }
                 }
             }
+            return null;
         }
 
-
-        for (int pos = 0; pos < ways.size(); pos++) {
-            if (!changedWays[pos]) {
-                continue;
+        private void addSegmentNode(int segment, Node node) {
+            if (segmentNodes[segment] == null) {
+                segmentNodes[segment] = new ArrayList<>(2);
             }
-
-            Way way = ways.get(pos);
-            Way newWay = new Way(way);
-            newWay.setNodes(newNodes[pos]);
-
-            cmds.add(new ChangeCommand(way, newWay));
+            segmentNodes[segment].add(node);
         }
 
-        return intersectionNodes;
-    }
+        /**
+         * Finds the intersections and makes the commands to add them to the ways.
+         */
+        void build(List<Command> cmds) {
+            Arrays.sort(pairs, 0, pairCount);
+            for (int i = 0; i < pairCount; i++) {
+                addIntersection((int) (pairs[i] >>> 32), (int) pairs[i]);
+            }
 
-    private static BBox getNodesBounds(List<Node> nodes) {
+            OsmDataLayer layer = Main.getLayerManager().getEditLayer();
+            DataSet dataset = ways.get(0).getDataSet();
+            for (Node newNode : newNodes) {
+                cmds.add(layer != null ? new AddCommand(layer, newNode) : new AddCommand(dataset, newNode));
+            }
 
-        BBox bounds = new BBox(nodes.get(0));
-        for (Node n: nodes) {
-            bounds.add(n);
+            for (int pos = 0; pos < ways.size(); pos++) {
+                List<Node> nodes = wayNodes[pos];
+                List<Node> newWayNodes = null;
+                for (int segPos = 0; segPos + 1 < nodes.size(); segPos++) {
+                    List<Node> segNodes = segmentNodes[firstSegment[pos] + segPos];
+                    if (segNodes != null) {
+                        if (newWayNodes == null) {
+                            newWayNodes = new ArrayList<>(nodes.subList(0, segPos + 1));
+                        }
+                        EastNorth start = nodes.get(segPos).getEastNorth();
+                        segNodes.sort(Comparator.comparingDouble(node -> start.distanceSq(node.getEastNorth())));
+                        newWayNodes.addAll(segNodes);
+                    }
+                    if (newWayNodes != null) {
+                        newWayNodes.add(nodes.get(segPos + 1));
+                    }
+                }
+                if (newWayNodes != null) {
+                    Way way = ways.get(pos);
+                    Way newWay = new Way(way);
+                    newWay.setNodes(newWayNodes);
+
+                    cmds.add(new ChangeCommand(way, newWay));
+                }
+            }
         }
-        return bounds;
     }
 
     /**
@@ -33,16 +33,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -61,6 +61,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.Range;
 import org.openstreetmap.josm.gui.mappaint.StyleElementList;
@@ -280,15 +281,22 @@ public class ImageProvider {
 
     private static SVGUniverse svgUniverse;
 
+    /**
+     * The maximum size of the scaled and rotated images cached, in MiB.
+     * @since 12618
+     */
+    public static final IntegerProperty PROP_SCALED_CACHE_SIZE = new IntegerProperty("imagecache.scaled.size", 32);
+
     /**
      * The icon cache
      */
-    private static final Map<String, ImageResource> cache = new HashMap<>();
+    private static final LoadingCache<String, ImageResource> cache = new LoadingCache<>();
 
     /**
-     * Caches the image data for rotated versions of the same image.
+     * Caches the scaled versions of images, and the rotated versions of images, up to {@link #PROP_SCALED_CACHE_SIZE}.
      */
-    private static final Map<Image, Map<Long, ImageResource>> ROTATE_CACHE = new HashMap<>();
+    private static final LoadingCache<Object, BufferedImage> SCALED_CACHE = new LoadingCache<>(
+            img -> 4L * img.getWidth() * img.getHeight(), () -> PROP_SCALED_CACHE_SIZE.get() * 1024L * 1024L);
 
     private static final ExecutorService IMAGE_FETCHER =
             Executors.newSingleThreadExecutor(Utils.newThreadFactory("image-fetcher-%d", Thread.NORM_PRIORITY));
@@ -769,9 +777,36 @@ public class ImageProvider {
      * @since 11021
      */
     public static void clearCache() {
-        synchronized (cache) {
-            cache.clear();
-        }
+        cache.clear();
+        SCALED_CACHE.clear();
+    }
+
+    /**
+     * Returns the statistics of the icon cache.
+     * @return the statistics of the icon cache
+     * @since 12618
+     */
+    public static LoadingCache.Statistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Returns the statistics of the cache of scaled and rotated images. The weight is their size in bytes.
+     * @return the statistics of the cache of scaled and rotated images
+     * @since 12618
+     */
+    public static LoadingCache.Statistics getScaledCacheStatistics() {
+        return SCALED_CACHE.getStatistics();
+    }
+
+    /**
+     * Returns a scaled image from the cache, creating it if needed.
+     * @param key the key of the scaled image
+     * @param creator creates the scaled image
+     * @return the scaled image, or {@code null}
+     */
+    static BufferedImage getScaledImage(Object key, Supplier<BufferedImage> creator) {
+        return SCALED_CACHE.get(key, creator);
     }
 
     /**
@@ -781,116 +816,88 @@ public class ImageProvider {
      * @return the requested image or null if the request failed
      */
     private ImageResource getIfAvailableImpl(Collection<ClassLoader> additionalClassLoaders) {
-        synchronized (cache) {
-            // This method is called from different thread and modifying HashMap concurrently can result
-            // for example in loops in map entries (ie freeze when such entry is retrieved)
-            // Yes, it did happen to me :-)
-            if (name == null)
-                return null;
+        // The cache loads each image once, even if it is asked by several threads at the same time
+        if (name == null)
+            return null;
 
-            String prefix = isDisabled ? "dis:" : "";
-            if (name.startsWith("data:")) {
-                String url = name;
-                ImageResource ir = cache.get(prefix+url);
-                if (ir != null) return ir;
-                ir = getIfAvailableDataUrl(url);
-                if (ir != null) {
-                    cache.put(prefix+url, ir);
-                }
-                return ir;
-            }
+        String prefix = isDisabled ? "dis:" : "";
+        if (name.startsWith("data:")) {
+            String url = name;
+            return cache.get(prefix+url, () -> getIfAvailableDataUrl(url));
+        }
 
-            ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
+        ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
 
-            if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
-                String url = name;
-                ImageResource ir = cache.get(prefix+url);
-                if (ir != null) return ir;
-                ir = getIfAvailableHttp(url, type);
-                if (ir != null) {
-                    cache.put(prefix+url, ir);
-                }
-                return ir;
-            } else if (name.startsWith(WIKI_PROTOCOL)) {
-                ImageResource ir = cache.get(prefix+name);
-                if (ir != null) return ir;
-                ir = getIfAvailableWiki(name, type);
-                if (ir != null) {
-                    cache.put(prefix+name, ir);
-                }
-                return ir;
-            }
+        if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
+            String url = name;
+            ImageType urlType = type;
+            return cache.get(prefix+url, () -> getIfAvailableHttp(url, urlType));
+        } else if (name.startsWith(WIKI_PROTOCOL)) {
+            ImageType wikiType = type;
+            return cache.get(prefix+name, () -> getIfAvailableWiki(name, wikiType));
+        }
 
-            if (subdir == null) {
-                subdir = "";
-            } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
-                subdir += '/';
-            }
-            String[] extensions;
-            if (name.indexOf('.') != -1) {
-                extensions = new String[] {""};
-            } else {
-                extensions = new String[] {".png", ".svg"};
-            }
-            final int typeArchive = 0;
-            final int typeLocal = 1;
-            for (int place : new Integer[] {typeArchive, typeLocal}) {
-                for (String ext : extensions) {
-
-                    if (".svg".equals(ext)) {
-                        type = ImageType.SVG;
-                    } else if (".png".equals(ext)) {
-                        type = ImageType.OTHER;
-                    }
+        if (subdir == null) {
+            subdir = "";
+        } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
+            subdir += '/';
+        }
+        String[] extensions;
+        if (name.indexOf('.') != -1) {
+            extensions = new String[] {""};
+        } else {
+            extensions = new String[] {".png", ".svg"};
+        }
+        final int typeArchive = 0;
+        final int typeLocal = 1;
+        for (int place : new Integer[] {typeArchive, typeLocal}) {
+            for (String ext : extensions) {
+
+                if (".svg".equals(ext)) {
+                    type = ImageType.SVG;
+                } else if (".png".equals(ext)) {
+                    type = ImageType.OTHER;
+                }
 
-                    String fullName = subdir + name + ext;
-                    String cacheName = prefix + fullName;
-                    /* cache separately */
-                    if (dirs != null && !dirs.isEmpty()) {
-                        cacheName = "id:" + id + ':' + fullName;
-                        if (archive != null) {
-                            cacheName += ':' + archive.getName();
-                        }
+                final ImageType extType = type;
+                final String fullName = subdir + name + ext;
+                String cacheName = prefix + fullName;
+                /* cache separately */
+                if (dirs != null && !dirs.isEmpty()) {
+                    cacheName = "id:" + id + ':' + fullName;
+                    if (archive != null) {
+                        cacheName += ':' + archive.getName();
                     }
+                }
 
-                    switch (place) {
-                    case typeArchive:
-                        if (archive != null) {
-                            cacheName = "zip:"+archive.hashCode()+':'+cacheName;
-                            ImageResource ir = cache.get(cacheName);
-                            if (ir != null) return ir;
-
-                            ir = getIfAvailableZip(fullName, archive, inArchiveDir, type);
-                            if (ir != null) {
-                                cache.put(cacheName, ir);
-                                return ir;
-                            }
-                        }
-                        break;
-                    case typeLocal:
-                        ImageResource ir = cache.get(cacheName);
-                        if (ir != null) return ir;
-
-                        // getImageUrl() does a ton of "stat()" calls and gets expensive
-                        // and redundant when you have a whole ton of objects. So,
-                        // index the cache by the name of the icon we're looking for
-                        // and don't bother to create a URL unless we're actually
-                        // creating the image.
-                        URL path = getImageUrl(fullName, dirs, additionalClassLoaders);
-                        if (path == null) {
-                            continue;
-                        }
-                        ir = getIfAvailableLocalURL(path, type);
+                switch (place) {
+                case typeArchive:
+                    if (archive != null) {
+                        cacheName = "zip:"+archive.hashCode()+':'+cacheName;
+                        ImageResource ir = cache.get(cacheName, () -> getIfAvailableZip(fullName, archive, inArchiveDir, extType));
                         if (ir != null) {
-                            cache.put(cacheName, ir);
                             return ir;
                         }
-                        break;
                     }
+                    break;
+                case typeLocal:
+                    // getImageUrl() does a ton of "stat()" calls and gets expensive
+                    // and redundant when you have a whole ton of objects. So,
+                    // index the cache by the name of the icon we're looking for
+                    // and don't bother to create a URL unless we're actually
+                    // creating the image.
+                    ImageResource ir = cache.get(cacheName, () -> {
+                        URL path = getImageUrl(fullName, dirs, additionalClassLoaders);
+                        return path == null ? null : getIfAvailableLocalURL(path, extType);
+                    });
+                    if (ir != null) {
+                        return ir;
+                    }
+                    break;
                 }
             }
-            return null;
         }
+        return null;
     }
 
     /**
@@ -1298,63 +1305,83 @@ public class ImageProvider {
             originalAngle = 360L;
         }
 
-        ImageResource imageResource;
+        final long angle = originalAngle;
+        final Dimension dim = new Dimension(dimension);
+        return SCALED_CACHE.get(new RotatedImageKey(img, angle, dim), () -> {
+            BufferedImage rotated = SCALED_CACHE.get(new RotatedImageKey(img, angle, null), () -> rotate(img, angle));
+            return new ImageResource(rotated).createImage(dim);
+        });
+    }
 
-        synchronized (ROTATE_CACHE) {
-            Map<Long, ImageResource> cacheByAngle = ROTATE_CACHE.get(img);
-            if (cacheByAngle == null) {
-                cacheByAngle = new HashMap<>();
-                ROTATE_CACHE.put(img, cacheByAngle);
-            }
+    /**
+     * Key of a rotated image in the cache of scaled images.
+     */
+    private static final class RotatedImageKey {
+        private final Image img;
+        private final long angle;
+        private final Dimension dim;
 
-            imageResource = cacheByAngle.get(originalAngle);
+        RotatedImageKey(Image img, long angle, Dimension dim) {
+            this.img = img;
+            this.angle = angle;
+            this.dim = dim;
+        }
 
-            if (imageResource == null) {
-                // convert originalAngle to a value from 0 to 90
-                double angle = originalAngle % 90;
-                if (originalAngle != 0 && angle == 0) {
-                    angle = 90.0;
-                }
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            RotatedImageKey that = (RotatedImageKey) obj;
+            return img == that.img && angle == that.angle && Objects.equals(dim, that.dim);
+        }
 
-                double radian = Utils.toRadians(angle);
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(img) + Long.hashCode(angle)) + Objects.hashCode(dim);
+        }
+    }
 
-                new ImageIcon(img); // load completely
-                int iw = img.getWidth(null);
-                int ih = img.getHeight(null);
-                int w;
-                int h;
+    private static BufferedImage rotate(Image img, long originalAngle) {
+        // convert originalAngle to a value from 0 to 90
+        double angle = originalAngle % 90;
+        if (originalAngle != 0 && angle == 0) {
+            angle = 90.0;
+        }
 
-                if ((originalAngle >= 0 && originalAngle <= 90) || (originalAngle > 180 && originalAngle <= 270)) {
-                    w = (int) (iw * Math.sin(DEGREE_90 - radian) + ih * Math.sin(radian));
-                    h = (int) (iw * Math.sin(radian) + ih * Math.sin(DEGREE_90 - radian));
-                } else {
-                    w = (int) (ih * Math.sin(DEGREE_90 - radian) + iw * Math.sin(radian));
-                    h = (int) (ih * Math.sin(radian) + iw * Math.sin(DEGREE_90 - radian));
-                }
-                Image image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-                imageResource = new ImageResource(image);
-                cacheByAngle.put(originalAngle, imageResource);
-                Graphics g = image.getGraphics();
-                Graphics2D g2d = (Graphics2D) g.create();
+        double radian = Utils.toRadians(angle);
 
-                // calculate the center of the icon.
-                int cx = iw / 2;
-                int cy = ih / 2;
+        new ImageIcon(img); // load completely
+        int iw = img.getWidth(null);
+        int ih = img.getHeight(null);
+        int w;
+        int h;
 
-                // move the graphics center point to the center of the icon.
-                g2d.translate(w / 2, h / 2);
+        if ((originalAngle >= 0 && originalAngle <= 90) || (originalAngle > 180 && originalAngle <= 270)) {
+            w = (int) (iw * Math.sin(DEGREE_90 - radian) + ih * Math.sin(radian));
+            h = (int) (iw * Math.sin(radian) + ih * Math.sin(DEGREE_90 - radian));
+        } else {
+            w = (int) (ih * Math.sin(DEGREE_90 - radian) + iw * Math.sin(radian));
+            h = (int) (ih * Math.sin(radian) + iw * Math.sin(DEGREE_90 - radian));
+        }
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        Graphics2D g2d = (Graphics2D) g.create();
 
-                // rotate the graphics about the center point of the icon
-                g2d.rotate(Utils.toRadians(originalAngle));
+        // calculate the center of the icon.
+        int cx = iw / 2;
+        int cy = ih / 2;
 
-                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2d.drawImage(img, -cx, -cy, null);
+        // move the graphics center point to the center of the icon.
+        g2d.translate(w / 2, h / 2);
 
-                g2d.dispose();
-                new ImageIcon(image); // load completely
-            }
-            return imageResource.getImageIcon(dimension).getImage();
-        }
+        // rotate the graphics about the center point of the icon
+        g2d.rotate(Utils.toRadians(originalAngle));
+
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.drawImage(img, -cx, -cy, null);
+
+        g2d.dispose();
+        return image;
     }
 
     /**
@@ -4,9 +4,8 @@ package org.openstreetmap.josm.tools;
 import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -30,9 +29,38 @@ import com.kitfox.svg.SVGDiagram;
 public class ImageResource {
 
     /**
-     * Caches the image data for resized versions of the same image.
+     * Key of a scaled image in the {@link ImageProvider} cache. The source image is compared by identity, so that
+     * resources created from the same image share their scaled images.
      */
-    private final Map<Dimension, Image> imgCache = new HashMap<>();
+    private static final class ScaledImageKey {
+        private final Object source;
+        private final List<ImageOverlay> overlayInfo;
+        private final boolean disabled;
+        private final Dimension dim;
+
+        ScaledImageKey(Object source, List<ImageOverlay> overlayInfo, boolean disabled, Dimension dim) {
+            this.source = source;
+            this.overlayInfo = overlayInfo;
+            this.disabled = disabled;
+            this.dim = dim;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            ScaledImageKey that = (ScaledImageKey) obj;
+            return source == that.source && disabled == that.disabled && dim.equals(that.dim)
+                    && Objects.equals(overlayInfo, that.overlayInfo);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * System.identityHashCode(source) + Objects.hashCode(overlayInfo)) + Boolean.hashCode(disabled))
+                    + dim.hashCode();
+        }
+    }
+
     /**
      * SVG diagram information in case of SVG vector image.
      */
@@ -160,10 +188,19 @@ public class ImageResource {
     public ImageIcon getImageIcon(Dimension dim) {
         if (dim.width < -1 || dim.width == 0 || dim.height < -1 || dim.height == 0)
             throw new IllegalArgumentException(dim+" is invalid");
-        Image img = imgCache.get(dim);
-        if (img != null) {
-            return new ImageIcon(img);
-        }
+        final Dimension d = new Dimension(dim);
+        BufferedImage img = ImageProvider.getScaledImage(
+                new ScaledImageKey(svg != null ? svg : baseImage, overlayInfo, isDisabled, d), () -> createImage(d));
+        return img == null ? null : new ImageIcon(img);
+    }
+
+    /**
+     * Creates an image for this resource, without caching it.
+     * @param dim The requested dimensions, see {@link #getImageIcon(Dimension)}
+     * @return the image, scaled according to dim, or {@code null}
+     * @since 12618
+     */
+    BufferedImage createImage(Dimension dim) {
         BufferedImage bimg;
         if (svg != null) {
             Dimension realDim = GuiSizesHelper.getDimensionDpiAdjusted(dim);
@@ -205,8 +242,7 @@ public class ImageResource {
             bimg = new BufferedImage(bimg.getWidth(), bimg.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
             disabledIcon.paintIcon(new JPanel(), bimg.getGraphics(), 0, 0);
         }
-        imgCache.put(dim, bimg);
-        return new ImageIcon(bimg);
+        return bimg;
     }
 
     /**
@@ -0,0 +1,273 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A concurrent cache, where each value is loaded once: threads asking for a value being loaded wait for it
+ * instead of loading it again. Lookups of loaded values do not lock.
+ * <p>
+ * The cache can be bounded by the total weight of its values (for instance their size in bytes), in which case the
+ * least recently used values are evicted when a new value exceeds the maximum weight.
+ * {@code null} values and failed loads are not cached.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @since 12618
+ */
+public final class LoadingCache<K, V> {
+
+    /**
+     * Statistics of a cache, at the time they are taken.
+     */
+    public static final class Statistics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final long weight;
+
+        Statistics(long hits, long misses, long evictions, int size, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        /**
+         * Returns the number of lookups that found a loaded or loading value.
+         * @return the number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns the number of lookups that had to load the value.
+         * @return the number of misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of values evicted to stay below the maximum weight.
+         * @return the number of evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns the number of cached values.
+         * @return the number of cached values
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the total weight of the cached values.
+         * @return the total weight of the cached values
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + ", weight=" + weight;
+        }
+    }
+
+    private final class Entry {
+        private final FutureTask<V> task;
+        /** the value of {@link #clock} when the value was last used, to find the least recently used values */
+        private volatile long lastAccess;
+        /** guarded by {@code this} */
+        private long weight;
+        /** guarded by {@code this} */
+        private boolean removed;
+
+        Entry(Supplier<V> loader) {
+            task = new FutureTask<>(loader::get);
+            lastAccess = clock.get();
+        }
+
+        synchronized void setWeight(long w) {
+            if (!removed) {
+                weight = w;
+                totalWeight.addAndGet(w);
+            }
+        }
+
+        synchronized void remove() {
+            removed = true;
+            totalWeight.addAndGet(-weight);
+            weight = 0;
+        }
+    }
+
+    private final class EvictionCandidate {
+        private final K key;
+        private final Entry entry;
+        private final long lastAccess;
+
+        EvictionCandidate(K key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    private final Map<K, Entry> map = new ConcurrentHashMap<>();
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier maxWeight;
+    private final Object evictionLock = new Object();
+
+    /** incremented for each load, so that values used since the last load are considered as used at the same time */
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong totalWeight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new unbounded {@code LoadingCache}.
+     */
+    public LoadingCache() {
+        this(v -> 0, () -> -1);
+    }
+
+    /**
+     * Constructs a new {@code LoadingCache} bounded by the total weight of its values.
+     * @param weigher computes the weight of a value
+     * @param maxWeight returns the maximum total weight, or a negative value for no maximum
+     */
+    public LoadingCache(ToLongFunction<V> weigher, LongSupplier maxWeight) {
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the value of a key, loading it if it is not cached.
+     * If the value is being loaded by another thread, waits for it.
+     * @param key the key
+     * @param loader loads the value if it is not cached. It may return {@code null}, which is not cached.
+     * @return the value, or {@code null} if the loader returned {@code null} or the thread was interrupted while waiting
+     */
+    public V get(K key, Supplier<V> loader) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            Entry created = new Entry(loader);
+            entry = map.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.increment();
+                return load(key, created);
+            }
+        }
+        hits.increment();
+        long now = clock.get();
+        if (entry.lastAccess != now) {
+            entry.lastAccess = now;
+        }
+        return await(key, entry);
+    }
+
+    private V load(K key, Entry entry) {
+        entry.task.run();
+        V value = await(key, entry);
+        if (value != null) {
+            clock.incrementAndGet();
+            entry.setWeight(weigher.applyAsLong(value));
+            evictIfNeeded();
+        }
+        return value;
+    }
+
+    private V await(K key, Entry entry) {
+        try {
+            V value = entry.task.get();
+            if (value == null) {
+                remove(key, entry);
+            }
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            remove(key, entry);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+    }
+
+    private boolean remove(K key, Entry entry) {
+        if (map.remove(key, entry)) {
+            entry.remove();
+            return true;
+        }
+        return false;
+    }
+
+    private void evictIfNeeded() {
+        long max = maxWeight.getAsLong();
+        if (max < 0 || totalWeight.get() <= max) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (totalWeight.get() <= max) {
+                return;
+            }
+            // evict down to 3/4 of the maximum, so that the values are not sorted again for the next loads
+            long target = max / 4 * 3;
+            // sort a copy of the access times, they keep being updated by the lookups of other threads
+            List<EvictionCandidate> candidates = new ArrayList<>(map.size());
+            for (Map.Entry<K, Entry> e : map.entrySet()) {
+                candidates.add(new EvictionCandidate(e.getKey(), e.getValue()));
+            }
+            candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+            for (EvictionCandidate c : candidates) {
+                if (totalWeight.get() <= target) {
+                    break;
+                }
+                if (c.entry.task.isDone() && remove(c.key, c.entry)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached values. Values being loaded are returned to the threads waiting for them, but not cached.
+     */
+    public void clear() {
+        for (Map.Entry<K, Entry> e : map.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     * @return the statistics of this cache
+     */
+    public Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), map.size(), totalWeight.get());
+    }
+}
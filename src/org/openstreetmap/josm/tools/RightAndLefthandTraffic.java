@@ -54,11 +54,22 @@ public final class RightAndLefthandTraffic {
      * @return true if there is right-hand traffic, false if there is left-hand traffic
      */
     public static synchronized boolean isRightHandTraffic(LatLon ll) {
+        initializeIfNeeded();
         return !rlCache.get(ll);
     }
 
     /**
-     * Initializes Right and lefthand traffic data.
+     * Initializes Right and lefthand traffic data if not done yet.
+     * @since 12616
+     */
+    public static synchronized void initializeIfNeeded() {
+        if (rlCache == null) {
+            initialize();
+        }
+    }
+
+    /**
+     * Initializes Right and lefthand traffic data. Done on first use if not called before.
      * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      */
     public static synchronized void initialize() {
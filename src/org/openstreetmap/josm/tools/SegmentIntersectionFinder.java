@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+
+/**
+ * Finds the pairs of line segments that may intersect among many segments, using a sweep line.
+ * <p>
+ * The segments are sorted by their smallest x coordinate and swept from left to right. When the sweep line reaches
+ * a segment, the segments whose x range contains the sweep line are active, the others have been left behind or
+ * have not been reached yet. A segment is only compared to the active segments, and reported with those whose
+ * y range overlaps its own. This takes O(n log n + a) time for n segments, where a is the number of compared pairs,
+ * i.e. about the number of segments crossed by the sweep line times n, instead of O(n²) to compare every pair.
+ * <p>
+ * The reported pairs are the ones with intersecting bounding boxes, including boxes that only touch. The caller
+ * decides if the segments themselves intersect, e.g. with {@link Geometry#getSegmentSegmentIntersection}.
+ * @since 12625
+ */
+public final class SegmentIntersectionFinder {
+
+    /**
+     * Receives the pairs of segments found by {@link SegmentIntersectionFinder#findPairs}.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        /**
+         * Receives a pair of segments whose bounding boxes intersect.
+         * @param first the index of the first segment, as returned by {@link SegmentIntersectionFinder#add}
+         * @param second the index of the second segment, always greater than {@code first}
+         * @return {@code true} to continue the search, {@code false} to stop it
+         */
+        boolean accept(int first, int second);
+    }
+
+    /** the bounding boxes of the segments: smallest x, smallest y, largest x and largest y for each segment */
+    private double[] bounds = new double[64];
+    private int size;
+
+    /**
+     * Adds a segment.
+     * @param p1 the first point of the segment
+     * @param p2 the second point of the segment
+     * @return the index of the segment, i.e. the number of segments added before
+     */
+    public int add(EastNorth p1, EastNorth p2) {
+        return add(p1.east(), p1.north(), p2.east(), p2.north());
+    }
+
+    /**
+     * Adds a segment.
+     * @param x1 the x coordinate of the first point of the segment
+     * @param y1 the y coordinate of the first point of the segment
+     * @param x2 the x coordinate of the second point of the segment
+     * @param y2 the y coordinate of the second point of the segment
+     * @return the index of the segment, i.e. the number of segments added before
+     */
+    public int add(double x1, double y1, double x2, double y2) {
+        if (4 * size == bounds.length) {
+            bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+        }
+        bounds[4 * size] = Math.min(x1, x2);
+        bounds[4 * size + 1] = Math.min(y1, y2);
+        bounds[4 * size + 2] = Math.max(x1, x2);
+        bounds[4 * size + 3] = Math.max(y1, y2);
+        return size++;
+    }
+
+    /**
+     * Returns the number of segments added.
+     * @return the number of segments added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sweeps the segments and reports the pairs of segments whose bounding boxes intersect, each pair once,
+     * in no particular order.
+     * @param consumer receives the pairs of segments, and may stop the search
+     * @return {@code false} if the search has been stopped by the consumer, {@code true} otherwise
+     */
+    public boolean findPairs(PairConsumer consumer) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> bounds[4 * i]));
+
+        // the segments crossed by the sweep line, in no particular order
+        int[] active = new int[16];
+        int activeCount = 0;
+        for (int s : order) {
+            double minX = bounds[4 * s];
+            double minY = bounds[4 * s + 1];
+            double maxY = bounds[4 * s + 3];
+            for (int a = 0; a < activeCount;) {
+                int t = active[a];
+                if (bounds[4 * t + 2] < minX) {
+                    // the sweep line has left this segment behind
+                    active[a] = active[--activeCount];
+                } else {
+                    if (bounds[4 * t + 1] <= maxY && minY <= bounds[4 * t + 3]
+                            && !consumer.accept(Math.min(s, t), Math.max(s, t))) {
+                        return false;
+                    }
+                    a++;
+                }
+            }
+            if (activeCount == active.length) {
+                active = Arrays.copyOf(active, 2 * active.length);
+            }
+            active[activeCount++] = s;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.Main;
+
+/**
+ * Records the wall time and thread of the tasks run at startup, to measure startup time regressions.
+ * Enabled by the {@code --startup-profile} command line option, the timeline is then printed once JOSM is started.
+ * @since 12616
+ */
+public final class StartupProfiler {
+
+    /**
+     * A task run at startup.
+     */
+    private static final class Entry {
+        private final String name;
+        private final String thread;
+        private final long start;
+        private final long end;
+
+        Entry(String name, String thread, long start, long end) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final long ORIGIN = System.nanoTime();
+    private static final List<Entry> entries = new ArrayList<>();
+    private static volatile boolean enabled;
+
+    private StartupProfiler() {
+        // Hide implicit public constructor for utility classes
+    }
+
+    /**
+     * Enables or disables the recording of startup tasks.
+     * @param enable {@code true} to record startup tasks
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Determines if startup tasks are recorded.
+     * @return {@code true} if startup tasks are recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs a task, and records its wall time and thread if enabled.
+     * @param name the task name
+     * @param task the task
+     */
+    public static void measure(String name, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            record(name, start);
+        }
+    }
+
+    /**
+     * Records a task ending now in the current thread, if enabled.
+     * @param name the task name
+     * @param start the start time of the task, as given by {@link System#nanoTime()}
+     */
+    public static void record(String name, long start) {
+        if (enabled) {
+            long end = System.nanoTime();
+            synchronized (entries) {
+                entries.add(new Entry(name, Thread.currentThread().getName(), start, end));
+            }
+        }
+    }
+
+    /**
+     * Returns the recorded tasks, sorted by start time, with their start time since JOSM was started and duration.
+     * @return the recorded tasks, one per line
+     */
+    public static String getTimeline() {
+        List<Entry> sorted;
+        synchronized (entries) {
+            sorted = new ArrayList<>(entries);
+        }
+        sorted.sort(Comparator.comparingLong(e -> e.start));
+        StringBuilder sb = new StringBuilder(String.format(Locale.ENGLISH, "%8s %8s  %-16s %s%n", "start", "time", "thread", "task"));
+        for (Entry e : sorted) {
+            sb.append(String.format(Locale.ENGLISH, "%8d %8d  %-16s %s%n",
+                    TimeUnit.NANOSECONDS.toMillis(e.start - ORIGIN), TimeUnit.NANOSECONDS.toMillis(e.end - e.start),
+                    e.thread, e.name));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the recorded tasks to the log, if enabled.
+     */
+    public static void print() {
+        if (enabled) {
+            Main.info("Startup timeline (ms):\n" + getTimeline());
+        }
+    }
+}
@@ -47,6 +47,7 @@ public final class Territories {
      * @return the ISO3166-1 and ISO3166-2 codes for the given location
      */
     public static synchronized Set<String> getKnownIso3166Codes() {
+        initializeIfNeeded();
         return iso3166Cache.keySet();
     }
 
@@ -59,6 +60,7 @@ public final class Territories {
      * @return true, if the point is inside a territory with the given code
      */
     public static synchronized boolean isIso3166Code(String code, LatLon ll) {
+        initializeIfNeeded();
         GeoPropertyIndex<Boolean> gpi = iso3166Cache.get(code);
         if (gpi == null) {
             Main.warn(tr("Unknown territory id: {0}", code));
@@ -72,11 +74,27 @@ public final class Territories {
      * @return the territories dataset
      */
     public static synchronized DataSet getDataSet() {
+        initializeIfNeeded();
         return new DataSet(dataSet);
     }
 
     /**
-     * Initializes territories.
+     * Initializes territories if not done yet, without failing if they cannot be loaded.
+     * @since 12616
+     */
+    public static synchronized void initializeIfNeeded() {
+        if (iso3166Cache == null) {
+            try {
+                initialize();
+            } catch (JosmRuntimeException e) {
+                // Can happen if the current projection needs NTV2 grid which is not available
+                Main.error(e);
+            }
+        }
+    }
+
+    /**
+     * Initializes territories. Done on first use if not called before.
      * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      */
     public static synchronized void initialize() {
@@ -3,12 +3,15 @@ package org.openstreetmap.josm.tools;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -26,6 +29,7 @@ import javax.xml.validation.ValidatorHandler;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.PrecompiledSourceCache;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
@@ -33,6 +37,7 @@ import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLFilterImpl;
 
@@ -65,6 +70,90 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    private static final byte EVENT_END_DOCUMENT = 0;
+    private static final byte EVENT_START_ELEMENT = 1;
+    private static final byte EVENT_END_ELEMENT = 2;
+    private static final byte EVENT_CHARACTERS = 3;
+
+    /**
+     * Records the elements and text read by the parser, in the compact form read by {@link XmlObjectParser#replay}:
+     * a stream of events, where each distinct string is only written once.
+     */
+    private static class RecordingFilter extends XMLFilterImpl {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final StringBuilder characters = new StringBuilder();
+
+        RecordingFilter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                out.writeInt(-1);
+                PrecompiledSourceCache.writeString(out, s);
+                strings.put(s, strings.size());
+            }
+        }
+
+        private void writeCharacters() throws IOException {
+            if (characters.length() > 0) {
+                out.writeByte(EVENT_CHARACTERS);
+                writeString(characters.toString());
+                characters.setLength(0);
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            try {
+                writeCharacters();
+                out.writeByte(EVENT_START_ELEMENT);
+                writeString(qName);
+                out.writeInt(atts.getLength());
+                for (int i = 0; i < atts.getLength(); i++) {
+                    writeString(atts.getQName(i));
+                    writeString(atts.getValue(i));
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            try {
+                writeCharacters();
+                out.writeByte(EVENT_END_ELEMENT);
+                writeString(qName);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            super.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            characters.append(ch, start, length);
+            super.characters(ch, start, length);
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            try {
+                out.writeByte(EVENT_END_DOCUMENT);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            super.endDocument();
+        }
+    }
+
     private class Parser extends DefaultHandler {
         private final Stack<Object> current = new Stack<>();
         private StringBuilder characters = new StringBuilder(64);
@@ -277,6 +366,72 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Starts parsing from the given input reader, without validation, and records the parsed elements
+     * in a compact binary form, to be parsed again faster by {@link #replay}.
+     * @param in The input reader
+     * @param events The output stream where the parsed elements are written
+     * @return iterable collection of objects
+     * @throws SAXException if any XML or I/O error occurs
+     * @since 12617
+     */
+    public Iterable<Object> start(final Reader in, final DataOutputStream events) throws SAXException {
+        try {
+            RecordingFilter recorder = new RecordingFilter(events);
+            recorder.setContentHandler(parser);
+            return start(in, recorder);
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Starts parsing from elements recorded by {@link #start(Reader, DataOutputStream)}, without reading XML.
+     * @param events The input stream of recorded elements
+     * @return iterable collection of objects
+     * @throws SAXException if any error occurs when converting elements to objects
+     * @throws IOException if any I/O error occurs
+     * @since 12617
+     */
+    public Iterable<Object> replay(final DataInputStream events) throws SAXException, IOException {
+        List<String> strings = new ArrayList<>();
+        AttributesImpl atts = new AttributesImpl();
+        byte event;
+        while ((event = events.readByte()) != EVENT_END_DOCUMENT) {
+            switch (event) {
+            case EVENT_START_ELEMENT:
+                String qName = readString(events, strings);
+                atts.clear();
+                for (int i = events.readInt(); i > 0; i--) {
+                    atts.addAttribute("", "", readString(events, strings), "CDATA", readString(events, strings));
+                }
+                parser.startElement("", "", qName, atts);
+                break;
+            case EVENT_END_ELEMENT:
+                parser.endElement("", "", readString(events, strings));
+                break;
+            case EVENT_CHARACTERS:
+                char[] ch = readString(events, strings).toCharArray();
+                parser.characters(ch, 0, ch.length);
+                break;
+            default:
+                throw new IOException("Unknown event " + event);
+            }
+        }
+        queueIterator = queue.iterator();
+        return this;
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index >= 0) {
+            return strings.get(index);
+        }
+        String s = PrecompiledSourceCache.readString(in);
+        strings.add(s);
+        return s;
+    }
+
     /**
      * Starts parsing from the given input reader, with XSD validation.
      * @param in The input reader
@@ -1,14 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint;
 
-import static org.junit.Assert.assertEquals;
-
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -24,6 +24,7 @@ import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.OsmReader;
@@ -97,10 +98,10 @@ public class StyleCacheTest {
     }
 
     /**
-     * Verifies, that the intern pool is not growing when repeatedly rendering the
+     * Verifies, that the intern pool returns the same instances when repeatedly rendering the
      * same set of primitives (and clearing the calculated styles each time).
      *
-     * If it grows, this is an indication that the {@code equals} and {@code hashCode}
+     * If it does not, this is an indication that the {@code equals} and {@code hashCode}
      * implementation is broken and two identical objects are not recognized as equal
      * or produce different hash codes.
      *
@@ -110,30 +111,60 @@ public class StyleCacheTest {
      */
     @Test
     public void testStyleCacheInternPool() {
-        MapPaintStyles.getStyles().clearCached();
         StyleCache.clearStyleCachePool();
         Bounds bounds = new Bounds(53.56, 13.25, 53.57, 13.26);
         Rendering visitor = new StyledMapRenderer(g, nc, false);
         nc.zoomTo(bounds);
-        Integer internPoolSize = null;
+        Map<OsmPrimitive, StyleCache> styles = null;
         for (int i = 0; i < 10; i++) {
+            dsCity.allPrimitives().forEach(OsmPrimitive::clearCachedStyle);
             visitor.render(dsCity, true, bounds);
-            MapPaintStyles.getStyles().clearCached();
-            int newInternPoolSize = StyleCache.getInternPoolSize();
-            if (internPoolSize == null) {
-                internPoolSize = newInternPoolSize;
-            } else {
-                if (internPoolSize != newInternPoolSize) {
-                    System.err.println("style sources:");
-                    for (StyleSource s : MapPaintStyles.getStyles().getStyleSources()) {
-                        System.err.println(s.url + " active:" + s.active);
+            if (styles == null) {
+                styles = new HashMap<>();
+                for (OsmPrimitive osm : dsCity.allPrimitives()) {
+                    if (osm.mappaintStyle != null) {
+                        styles.put(osm, osm.mappaintStyle);
                     }
                 }
-                assertEquals("intern pool size", internPoolSize.intValue(), newInternPoolSize);
+                Assert.assertFalse(styles.isEmpty());
+            } else {
+                for (Map.Entry<OsmPrimitive, StyleCache> e : styles.entrySet()) {
+                    Assert.assertSame(e.getKey().toString(), e.getValue(), e.getKey().mappaintStyle);
+                }
             }
         }
     }
 
+    private static void renderCopyOfCity() {
+        Bounds bounds = new Bounds(53.56, 13.25, 53.57, 13.26);
+        nc.zoomTo(bounds);
+        OsmDataLayer layer = new OsmDataLayer(new DataSet(dsCity), "copy", null);
+        Main.getLayerManager().addLayer(layer);
+        new StyledMapRenderer(g, nc, false).render(layer.data, true, bounds);
+        Main.getLayerManager().removeLayer(layer);
+    }
+
+    /**
+     * Verifies, that style caches which are no longer used by any primitive are removed from the intern pool
+     * after the layer has been removed.
+     */
+    @Test
+    @SuppressFBWarnings(value = "DM_GC")
+    public void testStyleCacheInternPoolEviction() {
+        // the styles of the copy are shared with the original primitives
+        dsCity.allPrimitives().forEach(OsmPrimitive::clearCachedStyle);
+        dsCity2.allPrimitives().forEach(OsmPrimitive::clearCachedStyle);
+        StyleCache.clearStyleCachePool();
+        renderCopyOfCity();
+        int internPoolSize = StyleCache.getInternPoolSize();
+        Assert.assertTrue("intern pool size " + internPoolSize, internPoolSize > 10);
+        for (int i = 0; i < 10 && StyleCache.getInternPoolSize() >= internPoolSize / 2; i++) {
+            System.gc();
+        }
+        Assert.assertTrue("intern pool size " + StyleCache.getInternPoolSize() + " of " + internPoolSize,
+                StyleCache.getInternPoolSize() < internPoolSize / 2);
+    }
+
     /**
      * Verifies, that the number of {@code StyleElementList} instances stored
      * for all the rendered primitives is actually low (as intended).
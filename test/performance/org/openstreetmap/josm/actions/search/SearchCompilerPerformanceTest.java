@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.actions.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Performance test of {@link SearchCompiler#optimize}, compared to the compiled search expressions.
+ */
+public class SearchCompilerPerformanceTest {
+
+    private static final int RUNS = 20;
+
+    /**
+     * Representative search expressions, as used in filters.
+     */
+    private static final String[] EXPRESSIONS = {
+        "name:Ring type:way",
+        "building=* OR landuse=* OR (natural=* -natural=tree)",
+        "untagged -child type:way",
+        "highway=* -highway=footway -highway=path -highway=cycleway type:way",
+        "(source:bing OR source:survey) modified type:way",
+        "\"addr:street\"=* \"addr:housenumber\"=* type:node",
+        "nodes:20- closed building=*",
+    };
+
+    private static List<OsmPrimitive> primitives;
+
+    /**
+     * Loads the city of Neubrandenburg.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            DataSet ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            primitives = new ArrayList<>(ds.allPrimitives());
+        }
+    }
+
+    private static int count(Match match) {
+        int count = 0;
+        for (OsmPrimitive p : primitives) {
+            if (match.match(p)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void measure(String what, Match match) {
+        // warm up
+        int expected = count(match);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(what);
+        for (int i = 0; i < RUNS; i++) {
+            assertEquals(expected, count(match));
+        }
+        timer.done();
+    }
+
+    /**
+     * Measures the compiled and the optimized search expressions.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCompiledAndOptimized() throws Exception {
+        for (String expression : EXPRESSIONS) {
+            Match compiled = SearchCompiler.compile(expression);
+            Match optimized = SearchCompiler.optimize(compiled);
+            assertEquals(expression, count(compiled), count(optimized));
+            measure("compiled  " + expression, compiled);
+            measure("optimized " + optimized, optimized);
+        }
+    }
+}
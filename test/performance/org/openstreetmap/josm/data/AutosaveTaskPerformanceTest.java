@@ -0,0 +1,120 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmJournalWriter;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+import org.openstreetmap.josm.io.Utf8OutputStreamWriter;
+
+/**
+ * Performance test of {@link AutosaveTask}, reporting the bytes written per minute of editing, with a journal
+ * and with a complete .osm file written at each autosave.
+ */
+public class AutosaveTaskPerformanceTest {
+
+    /** The number of simulated minutes of editing */
+    private static final int MINUTES = 30;
+    /** The number of nodes changed per minute of editing */
+    private static final int CHANGES_PER_MINUTE = 60;
+
+    private static DataSet data;
+
+    /**
+     * Loads the city of Neubrandenburg.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            data = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * An output stream which only counts the written bytes.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static List<Node> edit(Random random, List<Node> nodes) {
+        List<Node> changed = new ArrayList<>(CHANGES_PER_MINUTE);
+        for (int i = 0; i < CHANGES_PER_MINUTE; i++) {
+            Node n = nodes.get(random.nextInt(nodes.size()));
+            LatLon coor = n.getCoor();
+            n.setCoor(new LatLon(coor.lat() + 1e-6, coor.lon()));
+            n.put("note", "edited " + i);
+            changed.add(n);
+        }
+        return changed;
+    }
+
+    /**
+     * Measures the bytes written per minute when editing, with an autosave each minute.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testBytesPerMinute() throws IOException {
+        List<Node> nodes = new ArrayList<>(data.getNodes());
+        Random random = new Random(42);
+        int compaction = AutosaveTask.PROP_JOURNAL_COMPACTION.get();
+
+        CountingOutputStream osm = new CountingOutputStream();
+        CountingOutputStream journal = new CountingOutputStream();
+        long checkpointSize = new OsmJournalWriter(journal).writeCheckpoint(data.snapshot());
+        long changesSize = 0;
+        journal.count = 0;
+
+        for (int minute = 0; minute < MINUTES; minute++) {
+            List<Node> changed = edit(random, nodes);
+
+            try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(new Utf8OutputStreamWriter(osm)), false,
+                    data.getVersion())) {
+                w.write(data.snapshot());
+            }
+
+            OsmJournalWriter writer = new OsmJournalWriter(journal);
+            if (changesSize * 100 > checkpointSize * compaction) {
+                checkpointSize = writer.writeCheckpoint(data.snapshot());
+                changesSize = 0;
+            } else {
+                writer.addChanges(changed, Collections.emptyList());
+                changesSize += writer.endBatch();
+            }
+        }
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("Autosave .osm (kB/min)", osm.count / 1e3 / MINUTES);
+        PerformanceTestUtils.measurementPlotsPluginOutput("Autosave journal (kB/min)", journal.count / 1e3 / MINUTES);
+    }
+}
@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+
+/**
+ * Performance test of {@link Preferences}, reporting the throughput of {@link Preferences#getBoolean(String, boolean)}
+ * with concurrent readers, and while a setting is changed at a high rate.
+ */
+public class PreferencesPerformanceTest {
+
+    private static final int CALLS = 2_000_000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init();
+    }
+
+    private static void measure(String name, int threads, boolean writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            // warm up
+            readBooleans(CALLS / 10);
+            long start = System.nanoTime();
+            Future<?> writing = !writer ? null : executor.submit(() -> {
+                for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    Main.pref.putInteger("test.performance.slider", i);
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                readers.add(executor.submit(() -> readBooleans(CALLS)));
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            long time = System.nanoTime() - start;
+            if (writing != null) {
+                writing.cancel(true);
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " (million calls/s)", 1e3 * threads * CALLS / time);
+        } finally {
+            executor.shutdownNow();
+            Main.pref.put("test.performance.slider", null);
+        }
+    }
+
+    private static int readBooleans(int calls) {
+        int count = 0;
+        for (int i = 0; i < calls; i++) {
+            if (Main.pref.getBoolean("test.performance.boolean", true)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Measures the throughput of {@link Preferences#getBoolean(String, boolean)}, from 1 and 4 threads,
+     * with and without a thread changing a setting at the same time.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testGetBooleanThroughput() throws Exception {
+        measure("getBoolean, 1 thread", 1, false);
+        measure("getBoolean, 4 threads", 4, false);
+        measure("getBoolean, 4 threads, 1 writer", 4, true);
+    }
+}
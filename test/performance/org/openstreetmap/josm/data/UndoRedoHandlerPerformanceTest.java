@@ -0,0 +1,127 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Performance test of {@link UndoRedoHandler}, reporting the heap used by the undo history of 10k commands.
+ */
+public class UndoRedoHandlerPerformanceTest {
+
+    private static final int COMMANDS = 10_000;
+
+    private static OsmDataLayer layer;
+    private static List<Node> nodes;
+    private static List<Way> ways;
+
+    /**
+     * Loads the city of Neubrandenburg.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            DataSet ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            layer = new OsmDataLayer(ds, "neubrandenburg", null);
+        }
+        Main.getLayerManager().addLayer(layer);
+        nodes = new ArrayList<>(layer.data.getNodes());
+        ways = new ArrayList<>(layer.data.getWays());
+        Main.pref.putInteger("undo.max", COMMANDS);
+    }
+
+    /**
+     * Removes the layer.
+     */
+    @AfterClass
+    public static void cleanUp() {
+        Main.getLayerManager().removeLayer(layer);
+        Main.pref.put("undo.max", null);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(20);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Creates a command of a typical bulk editing session: tagging ways, moving nodes, or both.
+     */
+    private static Command createCommand(Random random, int i) {
+        Way way = ways.get(random.nextInt(ways.size()));
+        Command tag = new ChangePropertyCommand(Collections.<OsmPrimitive>singleton(way), "note", "edit " + i);
+        switch (i % 3) {
+        case 0:
+            return tag;
+        case 1:
+            return new MoveCommand(nodes.get(random.nextInt(nodes.size())), 1, 1);
+        default:
+            return new SequenceCommand("test", tag, new MoveCommand(way, 1, 1));
+        }
+    }
+
+    private static void measure(String name, boolean compact, int budget) throws InterruptedException {
+        UndoRedoHandler.PROP_COMPACT.put(compact);
+        UndoRedoHandler.PROP_MEMORY_BUDGET.put(budget);
+        UndoRedoHandler handler = new UndoRedoHandler();
+        Random random = new Random(42);
+        for (int i = 0; i < COMMANDS; i++) {
+            handler.addNoRedraw(createCommand(random, i));
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + ", undo data in memory (MB)", handler.getUndoDataSize() / 1e6);
+        // the difference of heap with and without the history, the data set being the same
+        long withHistory = usedHeap();
+        handler.clean();
+        long withoutHistory = usedHeap();
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (MB)", (withHistory - withoutHistory) / 1e6);
+        Main.getLayerManager().removeLayerChangeListener(handler);
+    }
+
+    /**
+     * Measures the heap used by the undo history of 10k commands: full copies, compacted, and compacted with the
+     * oldest data written to a file.
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testHeapUsed() throws InterruptedException {
+        try {
+            measure("Undo history of 10k commands, full copies", false, -1);
+            measure("Undo history of 10k commands, compacted", true, -1);
+            measure("Undo history of 10k commands, compacted, 256 KiB budget", true, 256);
+        } finally {
+            UndoRedoHandler.PROP_COMPACT.put(null);
+            UndoRedoHandler.PROP_MEMORY_BUDGET.put(null);
+        }
+    }
+}
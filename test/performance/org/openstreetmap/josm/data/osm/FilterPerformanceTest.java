@@ -0,0 +1,105 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Timing test of the application of filters by {@link FilterWorker}: after each edit of a way, as done until now
+ * (all connected primitives) and incrementally, and to the whole data set when the filters change.
+ */
+public class FilterPerformanceTest {
+
+    /** number of edits */
+    private static final int EDITS = 200;
+
+    private static DataSet ds;
+    private static FilterMatcher filterMatcher;
+
+    /**
+     * Loads the data and sets up 10 filters.
+     * @throws Exception if the data cannot be loaded or a filter cannot be parsed
+     */
+    @BeforeClass
+    public static void setUp() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init();
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        List<Filter> filters = new ArrayList<>();
+        for (String text : Arrays.asList("building", "landuse", "natural", "power", "railway", "waterway", "barrier",
+                "amenity=bench", "highway=footway OR highway=path", "name~\"^[A-F]\"")) {
+            Filter f = new Filter();
+            f.text = text;
+            f.hiding = filters.size() % 2 == 0;
+            filters.add(f);
+        }
+        filterMatcher = new FilterMatcher();
+        filterMatcher.update(filters);
+    }
+
+    private static void edit(String name, boolean incremental) {
+        FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+        List<Way> ways = new ArrayList<>(ds.getWays());
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < EDITS; i++) {
+            Way way = ways.get(random.nextInt(ways.size()));
+            way.put("building", way.hasKey("building") ? null : "yes");
+            if (incremental) {
+                FilterWorker.executeFiltersIncrementally(Arrays.asList(way), filterMatcher);
+            } else {
+                // what the filter dialog did on each tag change
+                for (OsmPrimitive primitive : FilterModel.getAffectedPrimitives(Arrays.asList(way))) {
+                    FilterWorker.executeFilters(primitive, filterMatcher);
+                }
+            }
+        }
+        double time = (System.nanoTime() - start) / 1e6;
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (ms)", time);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (ms per edit)", time / EDITS);
+    }
+
+    /**
+     * Measures the time needed to update the filter state after an edit, with and without incremental evaluation.
+     */
+    @Test
+    public void testEdits() {
+        // warm up
+        edit("warm up", true);
+        edit("edits, connected primitives", false);
+        edit("edits, incremental", true);
+        long disabled = ds.allPrimitives().stream().filter(OsmPrimitive::isDisabled).count();
+        FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+        assertEquals(disabled, ds.allPrimitives().stream().filter(OsmPrimitive::isDisabled).count());
+    }
+
+    /**
+     * Measures the time needed to apply the filters to the whole data set.
+     */
+    @Test
+    public void testFullEvaluation() {
+        // warm up
+        FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            FilterWorker.clearFilterFlags(ds.allPrimitives());
+            FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("full evaluation (ms)", (System.nanoTime() - start) / 1e7);
+    }
+}
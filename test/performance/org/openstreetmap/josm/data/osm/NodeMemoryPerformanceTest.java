@@ -0,0 +1,102 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator.NodeDataGenerator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures how many bytes of heap a node costs, both in the {@link DataSet} (with and without
+ * the cache of projected coordinates) and in the id index the readers keep while a file is loaded.
+ */
+public class NodeMemoryPerformanceTest {
+    private static final int NODE_COUNT = 1_000_000;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Measures the heap used per node by a {@link DataSet}, with the projected coordinates cached
+     * and with compact nodes.
+     */
+    @Test
+    public void testDataSetBytesPerNode() {
+        try {
+            Main.pref.put("dataset.nodes.compact", false);
+            measureDataSet("DataSet");
+            Main.pref.put("dataset.nodes.compact", true);
+            measureDataSet("Compact DataSet");
+        } finally {
+            Main.pref.put("dataset.nodes.compact", null);
+        }
+    }
+
+    private static void measureDataSet(String name) {
+        long before = usedMemory();
+        DataSet ds = new NodeDataGenerator("nodes", NODE_COUNT).generateDataSet();
+        // project the nodes, as painting does
+        for (Node n : ds.getNodes()) {
+            n.getEastNorth();
+        }
+        long after = usedMemory();
+        assertEquals(NODE_COUNT, ds.getNodes().size());
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " bytes per node", (double) (after - before) / NODE_COUNT);
+    }
+
+    /**
+     * Compares the heap used per node by the external id index of the readers,
+     * using a {@link HashMap} and a {@link PrimitiveIdMap}.
+     */
+    @Test
+    public void testReaderIndexBytesPerNode() {
+        DataSet ds = new NodeDataGenerator("nodes", NODE_COUNT).generateDataSet();
+        measureIndex("HashMap", HashMap::new, ds);
+        measureIndex("PrimitiveIdMap", PrimitiveIdMap::new, ds);
+    }
+
+    private static void measureIndex(String name, Supplier<Map<PrimitiveId, OsmPrimitive>> factory, DataSet ds) {
+        long before = usedMemory();
+        Map<PrimitiveId, OsmPrimitive> index = factory.get();
+        for (Node n : ds.getNodes()) {
+            index.put(new SimplePrimitiveId(n.getUniqueId(), OsmPrimitiveType.NODE), n);
+        }
+        long after = usedMemory();
+        assertEquals(NODE_COUNT, index.size());
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " reader index bytes per node", (double) (after - before) / NODE_COUNT);
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
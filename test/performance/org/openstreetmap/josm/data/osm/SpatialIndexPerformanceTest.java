@@ -0,0 +1,96 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Performance test of {@link PackedRTree}, compared to {@link QuadBuckets}.
+ */
+public class SpatialIndexPerformanceTest {
+
+    private static final int[] SIZES = {1000000, 5000000, 10000000};
+    /**
+     * The largest size to measure. 10 million nodes and both indexes need several GB of heap, more than the
+     * performance tests get by default, so the last size is only measured with {@code -Djosm.perf.spatial-index.max=10000000}.
+     */
+    private static final int MAX_SIZE = Integer.getInteger("josm.perf.spatial-index.max", 5000000);
+    private static final int QUERIES = 10000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    private static List<Node> createNodes(int count) {
+        // about the size of a country, with denser clusters like cities
+        Random random = new Random(42);
+        List<Node> nodes = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Node n = new Node(i);
+            if (i % 2 == 0) {
+                n.setCoor(new LatLon(47 + random.nextDouble() * 8, 5 + random.nextDouble() * 10));
+            } else {
+                int city = random.nextInt(100);
+                n.setCoor(new LatLon(47 + (city % 10) * 0.8 + random.nextGaussian() * 0.05,
+                        5 + (city / 10) + random.nextGaussian() * 0.05));
+            }
+            nodes.add(n);
+        }
+        return nodes;
+    }
+
+    private static long query(SpatialIndex<Node> index) {
+        Random random = new Random(7);
+        long[] count = {0};
+        for (int i = 0; i < QUERIES; i++) {
+            // about the area of a screen at zoom 16
+            double lat = 47 + random.nextDouble() * 8;
+            double lon = 5 + random.nextDouble() * 10;
+            index.search(new BBox(lon, lat, lon + 0.02, lat + 0.01), n -> count[0]++);
+        }
+        return count[0];
+    }
+
+    private static long measure(String name, int size, List<Node> nodes, Supplier<SpatialIndex<Node>> factory) {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name + " build " + size);
+        SpatialIndex<Node> index = factory.get();
+        index.addAll(nodes);
+        index.flush();
+        timer.done();
+        assertEquals(size, index.size());
+        timer = PerformanceTestUtils.startTimer(name + " " + QUERIES + " queries " + size);
+        long found = query(index);
+        timer.done();
+        return found;
+    }
+
+    /**
+     * Measures the time to build the indexes and to query them.
+     */
+    @Test
+    public void testBuildAndQuery() {
+        for (int size : SIZES) {
+            if (size > MAX_SIZE) {
+                continue;
+            }
+            List<Node> nodes = createNodes(size);
+            long expected = measure("QuadBuckets", size, nodes, QuadBuckets::new);
+            assertEquals(expected, measure("PackedRTree", size, nodes, PackedRTree::new));
+        }
+    }
+}
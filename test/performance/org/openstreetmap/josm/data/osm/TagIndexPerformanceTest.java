@@ -0,0 +1,95 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Performance test of the tag index of {@link DataSet}, compared to scanning all primitives.
+ */
+public class TagIndexPerformanceTest {
+
+    private static final int RUNS = 100;
+
+    private static final String[][] TAGS = {
+        {"building", null}, {"highway", null}, {"highway", "residential"}, {"amenity", "bench"}, {"name", null},
+    };
+
+    private static DataSet ds;
+
+    /**
+     * Loads the city of Neubrandenburg.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    private static int scan(String key, String value) {
+        int count = 0;
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            String v = p.get(key);
+            if (v != null && (value == null || value.equals(v))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lookup(String key, String value) {
+        return (value == null ? ds.getPrimitivesWithKey(key) : ds.getPrimitivesWithTag(key, value)).size();
+    }
+
+    /**
+     * Measures the memory used by the index and the time of lookups compared to scans.
+     */
+    @Test
+    public void testIndexAndScan() {
+        long before = usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build tag index");
+        ds.getPrimitivesWithKey("building");
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag index memory (KiB)", (usedMemory() - before) / 1024);
+
+        for (String[] tag : TAGS) {
+            String what = tag[0] + '=' + (tag[1] == null ? "*" : tag[1]);
+            int expected = scan(tag[0], tag[1]);
+            assertEquals(what, expected, lookup(tag[0], tag[1]));
+            timer = PerformanceTestUtils.startTimer("scan " + what);
+            for (int i = 0; i < RUNS; i++) {
+                scan(tag[0], tag[1]);
+            }
+            timer.done();
+            timer = PerformanceTestUtils.startTimer("index " + what);
+            for (int i = 0; i < RUNS; i++) {
+                lookup(tag[0], tag[1]);
+            }
+            timer.done();
+        }
+    }
+}
@@ -3,11 +3,18 @@ package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 import javax.imageio.ImageIO;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -17,6 +24,9 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  */
 public class StyledMapRendererPerformanceTest extends AbstractMapRendererPerformanceTestParent {
 
+    private static final int FRAMES = 20;
+    private static final Bounds CITY_PART = new Bounds(53.55, 13.29, 53.57, 13.30);
+
     @BeforeClass
     public static void load() throws Exception {
         AbstractMapRendererPerformanceTestParent.load();
@@ -34,6 +44,54 @@ public class StyledMapRendererPerformanceTest extends AbstractMapRendererPerform
         return new StyledMapRenderer(g, nc, false);
     }
 
+    /**
+     * Compares repainting the city while the view is moved by a few pixels, with and without {@link StyledMapTileCache}.
+     */
+    @Test
+    public void testCityPan() {
+        measureFrames("pan", i -> nc.zoomTo(nc.getCenter().add(7 * nc.getScale(), -3 * nc.getScale())));
+    }
+
+    /**
+     * Compares repainting the city after the selection changed, with and without {@link StyledMapTileCache}.
+     */
+    @Test
+    public void testCitySelection() {
+        List<Way> ways = new ArrayList<>(dsCity.searchWays(CITY_PART.toBBox()));
+        try {
+            measureFrames("selection change", i -> dsCity.setSelected(ways.get(i * 31 % ways.size())));
+        } finally {
+            dsCity.clearSelection();
+        }
+    }
+
+    private static void measureFrames(String what, IntConsumer nextFrame) {
+        nc.zoomTo(CITY_PART);
+        // warm up the style cache
+        new StyledMapRenderer(g, nc, false).render(dsCity, true, nc.getRealBounds());
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            nextFrame.accept(i);
+            new StyledMapRenderer(g, nc, false).render(dsCity, true, nc.getRealBounds());
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput(what + " full redraw (ms)", (System.nanoTime() - start) / 1e6 / FRAMES);
+
+        nc.zoomTo(CITY_PART);
+        StyledMapTileCache cache = new StyledMapTileCache(dsCity);
+        try {
+            // paint the tiles of the initial view
+            cache.render(g, nc, false, true, nc.getRealBounds());
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                nextFrame.accept(i);
+                cache.render(g, nc, false, true, nc.getRealBounds());
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput(what + " with tile cache (ms)", (System.nanoTime() - start) / 1e6 / FRAMES);
+        } finally {
+            cache.destroy();
+        }
+    }
+
     /**
      * run this manually to verify that the rendering is set up properly
      * @throws IOException if any I/O error occurs
@@ -0,0 +1,96 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Timing test of the reprojection of many points, one by one and with the bulk API of {@link Projecting},
+ * sequentially and in parallel.
+ */
+public class ProjectionPerformanceTest {
+
+    private static final int POINTS = 10_000_000;
+
+    private static double[] latlon;
+
+    /**
+     * Prepares the points, in France, and the NTV2 grid shift file.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        System.setProperty("PROJ_LIB", new File("data_nodist/projection").getAbsolutePath());
+        Random random = new Random(42);
+        latlon = new double[2 * POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            latlon[2 * i] = 46 + 3 * random.nextDouble();
+            latlon[2 * i + 1] = 5 * random.nextDouble();
+        }
+    }
+
+    private static void measure(String code) {
+        Projection p = Projections.getProjectionByCode(code);
+        // warm up, and load the grid shift file if any
+        double[] warmUp = new double[20000];
+        System.arraycopy(latlon, 0, warmUp, 0, warmUp.length);
+        Projections.latlon2eastNorth(p, warmUp);
+
+        double[] single = new double[2 * POINTS];
+        long start = System.nanoTime();
+        for (int i = 0; i < POINTS; i++) {
+            EastNorth en = p.latlon2eastNorth(new LatLon(latlon[2 * i], latlon[2 * i + 1]));
+            single[2 * i] = en.east();
+            single[2 * i + 1] = en.north();
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput(code + " one by one (ms)", (System.nanoTime() - start) / 1e6);
+
+        double[] bulk = latlon.clone();
+        start = System.nanoTime();
+        p.latlon2eastNorth(bulk, 0, POINTS);
+        PerformanceTestUtils.measurementPlotsPluginOutput(code + " bulk, sequential (ms)", (System.nanoTime() - start) / 1e6);
+
+        double[] parallel = latlon.clone();
+        start = System.nanoTime();
+        Projections.latlon2eastNorth(p, parallel);
+        PerformanceTestUtils.measurementPlotsPluginOutput(code + " bulk, parallel (ms)", (System.nanoTime() - start) / 1e6);
+
+        for (int i = 0; i < 2 * POINTS; i += 9973) {
+            assertEquals(code, single[i], bulk[i], 1e-6);
+            assertEquals(code, single[i], parallel[i], 1e-6);
+        }
+    }
+
+    /**
+     * Reprojects the points with Mercator.
+     */
+    @Test
+    public void testMercator() {
+        measure("EPSG:3857");
+    }
+
+    /**
+     * Reprojects the points with Transverse Mercator (UTM zone 31N).
+     */
+    @Test
+    public void testTransverseMercator() {
+        measure("EPSG:32631");
+    }
+
+    /**
+     * Reprojects the points with Lambert Conformal Conic and the NTF to RGF93 NTV2 grid shift (Lambert zone II).
+     */
+    @Test
+    public void testLambertConformalConicNTV2() {
+        measure("EPSG:27562");
+    }
+}
@@ -0,0 +1,95 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
+
+/**
+ * Performance test of {@link ValidationRunner}.
+ */
+public class ValidatorPerformanceTest {
+
+    private static final int RUNS = 3;
+
+    private static DataSet dsCity;
+    private static OsmDataLayer layer;
+
+    /**
+     * Loads the city of Neubrandenburg and initializes the validator.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        RightAndLefthandTraffic.initialize();
+        try (InputStream fisC = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            dsCity = OsmReader.parseDataSet(fisC, NullProgressMonitor.INSTANCE);
+        }
+        layer = new OsmDataLayer(dsCity, null, null);
+        Main.getLayerManager().addLayer(layer);
+        OsmValidator.initializeGridDetail();
+        OsmValidator.initializeTests();
+    }
+
+    /**
+     * Removes the city.
+     */
+    @AfterClass
+    public static void clean() {
+        Main.getLayerManager().removeLayer(layer);
+        layer = null;
+        dsCity = null;
+    }
+
+    private static void measure(String what, ValidationRunner runner) {
+        Collection<org.openstreetmap.josm.data.validation.Test> tests = OsmValidator.getEnabledTests(false);
+        List<OsmPrimitive> primitives = new ArrayList<>(dsCity.allPrimitives());
+        // warm up
+        runner.run(tests, primitives, false, null);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            runner.run(tests, primitives, false, null);
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("validation " + what + " (ms)", (System.nanoTime() - start) / 1e6 / RUNS);
+    }
+
+    /**
+     * Measures the validation of the whole city with one thread.
+     */
+    @Test
+    public void testSequential() {
+        measure("1 thread", new ValidationRunner(null));
+    }
+
+    /**
+     * Measures the validation of the whole city with one thread per processor.
+     */
+    @Test
+    public void testConcurrent() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            measure(threads + " threads", new ValidationRunner(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Timing test of the hit-testing done by {@link NavigatableComponent} on mouse moves, with and without the pick index.
+ * A mouse trace is replayed over a dense city, asking on each move what the select and draw modes ask.
+ */
+public class NavigatableComponentPerformanceTest {
+
+    private static final int VIEW_WIDTH = 1400;
+    private static final int VIEW_HEIGHT = 1050;
+    /** number of mouse moves in the trace */
+    private static final int MOVES = 20_000;
+    /** number of mouse moves between two pans of the view */
+    private static final int MOVES_PER_VIEW = 2_000;
+
+    private static NavigatableComponent nc;
+    private static OsmDataLayer layer;
+    private static Point[] trace;
+
+    /**
+     * Loads the data and records the mouse trace.
+     * @throws Exception if the data cannot be loaded
+     */
+    @BeforeClass
+    public static void setUp() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        layer = new OsmDataLayer(ds, "", null);
+        Main.getLayerManager().addLayer(layer);
+
+        // a mouse moving with the speed and the hesitations of a hand: small steps, changing direction slowly
+        Random random = new Random(42);
+        trace = new Point[MOVES];
+        double x = VIEW_WIDTH / 2.0, y = VIEW_HEIGHT / 2.0, angle = 0;
+        for (int i = 0; i < MOVES; i++) {
+            angle += random.nextGaussian() * 0.3;
+            double step = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(6);
+            x = Math.min(VIEW_WIDTH - 1, Math.max(0, x + step * Math.cos(angle)));
+            y = Math.min(VIEW_HEIGHT - 1, Math.max(0, y + step * Math.sin(angle)));
+            trace[i] = new Point((int) x, (int) y);
+        }
+    }
+
+    /**
+     * Removes the data.
+     */
+    @AfterClass
+    public static void tearDown() {
+        Main.getLayerManager().removeLayer(layer);
+        NavigatableComponent.PROP_PICK_INDEX.remove();
+    }
+
+    /**
+     * Replays the trace, panning the view regularly.
+     * @return a checksum of the objects found. Equally distant objects may be found in any order, so that only
+     * the number of objects found is taken into account
+     */
+    private static long replay(String name, boolean pickIndex) {
+        NavigatableComponent.PROP_PICK_INDEX.put(pickIndex);
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MOVES; i++) {
+            if (i % MOVES_PER_VIEW == 0) {
+                double lat = 53.555 + 0.001 * (i / MOVES_PER_VIEW);
+                nc.zoomTo(new Bounds(lat, 13.255, lat + 0.01, 13.275));
+            }
+            Point p = trace[i];
+            // select mode
+            OsmPrimitive hover = nc.getNearestNodeOrWay(p, nc.isSelectablePredicate, true);
+            // draw mode
+            checksum += nc.getNearestNodes(p, OsmPrimitive::isSelectable).size();
+            checksum += nc.getNearestWaySegments(p, OsmPrimitive::isSelectable).size();
+            if (hover != null) {
+                checksum += 1_000_000;
+            }
+        }
+        double time = (System.nanoTime() - start) / 1e6;
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (ms)", time);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (us per move)", 1000 * time / MOVES);
+        return checksum;
+    }
+
+    /**
+     * Replays the trace with and without the pick index.
+     */
+    @Test
+    public void testMouseTrace() {
+        // warm up
+        replay("warm up", true);
+        replay("warm up", false);
+        long expected = replay("mouse trace, data set search", false);
+        long actual = replay("mouse trace, pick index", true);
+        assertEquals(expected, actual);
+    }
+}
@@ -31,6 +31,7 @@ import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
@@ -166,6 +167,7 @@ public class MapRendererPerformanceTest {
         public int noIterations = 7;
         public boolean dumpImage = DUMP_IMAGE;
         public boolean clearStyleCache = true;
+        public Runnable beforeRender;
         public String label = "";
         public boolean mpGenerate = false;
         public boolean mpSort = false;
@@ -203,6 +205,9 @@ public class MapRendererPerformanceTest {
                 if (clearStyleCache) {
                     MapPaintStyles.getStyles().clearCached();
                 }
+                if (beforeRender != null) {
+                    beforeRender.run();
+                }
                 System.gc();
                 System.runFinalization();
                 try {
@@ -270,6 +275,37 @@ public class MapRendererPerformanceTest {
         test.run();
     }
 
+    /**
+     * Test phase 1, the calculation of {@link StyleElement}s, when the tags of 1% of the primitives
+     * have been changed since the last frame.
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testPerformanceGenerateAfterTagEdit() throws IOException {
+        setFilterStyleActive(false);
+        List<OsmPrimitive> edited = new ArrayList<>();
+        int i = 0;
+        for (OsmPrimitive osm : dsCity.allPrimitives()) {
+            if (i++ % 100 == 0) {
+                edited.add(osm);
+            }
+        }
+        PerformanceTester test = new PerformanceTester();
+        test.bounds = BOUNDS_CITY_ALL;
+        test.label = "big tag edit 1%";
+        test.dumpImage = false;
+        test.noWarmup = 3;
+        test.noIterations = 10;
+        test.mpGenerate = true;
+        test.clearStyleCache = false;
+        test.beforeRender = () -> edited.forEach(osm -> osm.put("josm_benchmark", osm.hasKey("josm_benchmark") ? null : "yes"));
+        try {
+            test.run();
+        } finally {
+            edited.forEach(osm -> osm.remove("josm_benchmark"));
+        }
+    }
+
     private static void testDrawFeature(Feature feature) throws IOException {
         PerformanceTester test = new PerformanceTester();
         test.noWarmup = 3;
@@ -1,10 +1,19 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
 
 /**
@@ -12,6 +21,27 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
  * @author Michael Zangl
  */
 public class MapCSSConditionPerformanceTest {
+
+    /**
+     * A style where most of the work is done by function calls in {@code eval} expressions.
+     */
+    private static final String EXPRESSION_STYLE = "way[highway] {\n"
+            + "  width: eval(cond(tag(\"lanes\") > 2, tag(\"width\") * 1.5 + 2, max(tag(\"width\"), 3) / 2));\n"
+            + "  casing-width: eval(sqrt(tag(\"width\") * tag(\"width\") + 1) * (2 * 3.1415 / 180));\n"
+            + "  color: eval(rgb(0.5 * 2 - 0.5, tag(\"width\") / 10, min(tag(\"lanes\"), 4) / 4));\n"
+            + "  opacity: eval(cond(regexp_test(\"^[0-9]+$\", tag(\"ref\")), 0.5 + 0.25, 1 - 0.5 * 0.5));\n"
+            + "  text: eval(concat(upper(tag(\"name\")), \" \", tr(\"({0})\", tag(\"ref\")), \" \", round(tag(\"lanes\") * 10 / 10)));\n"
+            + "  z-index: eval(plus(tag(\"layer\"), 1, 2, 3) * (1 + 2 + 3) - minus(10, 4));\n"
+            + "  major-z-index: eval(cond(any(tag(\"tunnel\"), \"no\") == \"yes\", -1, 3 + 0.5));\n"
+            + "}";
+
+    /**
+     * Prepare the tests.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+    }
     /**
      * Test the performance of all OP entries.
      */
@@ -28,6 +58,28 @@ public class MapCSSConditionPerformanceTest {
         }
     }
 
+    /**
+     * Test the performance of a style whose declarations are {@code eval} expressions.
+     */
+    @Test
+    public void testExpressions() {
+        MapCSSStyleSource source = new MapCSSStyleSource(EXPRESSION_STYLE);
+        source.loadStyleSource();
+        assertEquals(0, source.getErrors().size());
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ways.add((Way) OsmUtils.createPrimitive("way highway=primary lanes=" + (i % 5) + " width=" + (i % 13)
+                    + " ref=" + (i % 3 == 0 ? "A" : "") + i + " name=road" + i + " layer=" + (i % 3 - 1)));
+        }
+        PerformanceTestUtils.runPerformanceTest("MapCSS eval expressions", () -> {
+            for (int run = 0; run < 20; run++) {
+                for (Way w : ways) {
+                    source.apply(new MultiCascade(), w, 1, false);
+                }
+            }
+        });
+    }
+
     private void runTest(Op op) {
         Runnable r = getRunner(op);
         PerformanceTestUtils.runPerformanceTest("Condition.Op." + op, r);
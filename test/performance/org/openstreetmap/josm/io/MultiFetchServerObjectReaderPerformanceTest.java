@@ -0,0 +1,168 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Timing and memory test of the {@link MultiFetchServerObjectReader}, downloading ways and their nodes
+ * from a local stub of the OSM API, with fixed and adaptive package sizes.
+ */
+public class MultiFetchServerObjectReaderPerformanceTest {
+
+    private static final int WAYS = 5000;
+    private static final int NODES_PER_WAY = 5;
+    /** The time spent by the stub server for each request, in milliseconds */
+    private static final int LATENCY = 20;
+
+    private static HttpServer server;
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final Set<Integer> connections = Collections.synchronizedSet(new HashSet<>());
+
+    /**
+     * Starts the stub server.
+     * @throws IOException if the server cannot be started
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        JOSMFixture.createPerformanceTestFixture().init();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/capabilities", exchange -> send(exchange, "<osm version=\"0.6\"><api>"
+                + "<version minimum=\"0.6\" maximum=\"0.6\"/><area maximum=\"0.25\"/><timeout seconds=\"300\"/>"
+                + "</api><policy><imagery/></policy></osm>"));
+        server.createContext("/api/0.6/", MultiFetchServerObjectReaderPerformanceTest::handleMultiGet);
+        server.start();
+        Main.pref.put("osm-server.url", "http://127.0.0.1:" + server.getAddress().getPort() + "/api");
+    }
+
+    /**
+     * Stops the stub server.
+     */
+    @AfterClass
+    public static void tearDown() {
+        server.stop(0);
+        MultiFetchServerObjectReader.PROP_ADAPTIVE.remove();
+    }
+
+    private static void send(HttpExchange exchange, String response) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Answers {@code nodes?nodes=...} and {@code ways?ways=...} requests. Way {@code w} refers to
+     * the nodes {@code w * NODES_PER_WAY} to {@code w * NODES_PER_WAY + NODES_PER_WAY - 1}.
+     * @param exchange the HTTP exchange
+     * @throws IOException if an I/O error occurs
+     */
+    private static void handleMultiGet(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String query = exchange.getRequestURI().getQuery();
+        StringBuilder sb = new StringBuilder("<osm version=\"0.6\">\n");
+        boolean ways = query.startsWith("ways=");
+        for (String id : query.substring(query.indexOf('=') + 1).split(",")) {
+            if (ways) {
+                sb.append("<way id=\"").append(id).append("\" version=\"1\" visible=\"true\">");
+                long first = Long.parseLong(id) * NODES_PER_WAY;
+                for (long n = first; n < first + NODES_PER_WAY; n++) {
+                    sb.append("<nd ref=\"").append(n).append("\"/>");
+                }
+                sb.append("<tag k=\"highway\" v=\"residential\"/></way>\n");
+            } else {
+                long n = Long.parseLong(id);
+                sb.append("<node id=\"").append(id).append("\" version=\"1\" visible=\"true\" lat=\"")
+                  .append(45 + (n % 1000) * 1e-4).append("\" lon=\"").append(5 + (n / 1000) * 1e-4).append("\"/>\n");
+            }
+        }
+        try {
+            Thread.sleep(LATENCY);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        send(exchange, sb.append("</osm>").toString());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void measure(String name, boolean adaptive) throws Exception {
+        MultiFetchServerObjectReader.PROP_ADAPTIVE.put(adaptive);
+        requests.set(0);
+        connections.clear();
+        DataSet ds = new DataSet();
+        for (long w = 1; w <= WAYS; w++) {
+            ds.addPrimitive(new Way(w));
+        }
+        MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        reader.append(ds.getWays());
+
+        System.gc();
+        long baseline = usedMemory();
+        long[] peak = {baseline};
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak[0] = Math.max(peak[0], usedMemory());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        long start = System.nanoTime();
+        DataSet out = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        long time = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+
+        assertEquals(WAYS, out.getWays().size());
+        assertEquals(WAYS * NODES_PER_WAY, out.getNodes().size());
+        assertTrue(out.getWays().stream().noneMatch(Way::hasIncompleteNodes));
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (objects/s)", 1e9 * WAYS * (1 + NODES_PER_WAY) / time);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (requests)", requests.get());
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (connections)", connections.size());
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (peak memory, MB)", (peak[0] - baseline) / 1e6);
+    }
+
+    /**
+     * Downloads the ways and their nodes, with packages of 200 ids and with adaptive package sizes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMultiFetch() throws Exception {
+        // warm up
+        measure("warm up", true);
+        measure("multi fetch, fixed packages", false);
+        measure("multi fetch, adaptive packages", true);
+    }
+}
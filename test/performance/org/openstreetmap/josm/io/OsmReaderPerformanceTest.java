@@ -65,6 +65,28 @@ public class OsmReaderPerformanceTest {
         runTest(".osm-file", true);
     }
 
+    /**
+     * Measures the throughput of reading a .osm file (from memory) with 1, 2, 4 and 8 threads.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testThreads() throws Exception {
+        ByteArrayInputStream is = loadFile(true);
+        int size = is.available();
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            DataSet ds = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                is.reset();
+                ds = OsmReader.parseDataSet(is, null, threads);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertNotNull(ds);
+            PerformanceTestUtils.measurementPlotsPluginOutput("load .osm-file with " + threads + " threads (MB/s)",
+                    size * (double) TIMES / seconds / 1024 / 1024);
+        }
+    }
+
     private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
@@ -79,7 +101,7 @@ public class OsmReaderPerformanceTest {
         assertNotNull(ds);
     }
 
-    private InputStream loadFile(boolean decompressBeforeRead) throws IOException {
+    private ByteArrayInputStream loadFile(boolean decompressBeforeRead) throws IOException {
         File file = new File(DATA_FILE);
         try (InputStream is = decompressBeforeRead ? Compression.getUncompressedFileInputStream(file) : new FileInputStream(file)) {
             ByteArrayOutputStream temporary = new ByteArrayOutputStream();
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Performance test of saving OSM data, reporting the throughput in MB/s of uncompressed data per format.
+ */
+public class OsmWriterPerformanceTest {
+
+    private static final int RUNS = 3;
+
+    private static OsmDataLayer layer;
+    private static long size;
+
+    /**
+     * Loads the city of Neubrandenburg.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            DataSet ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            layer = new OsmDataLayer(ds, "neubrandenburg", null);
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        write(new Utf8OutputStreamWriter(counter));
+        size = counter.count;
+    }
+
+    /**
+     * An output stream which only counts the written bytes.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static void write(Writer writer) throws IOException {
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())) {
+            w.writeLayer(layer);
+        }
+    }
+
+    private static void measure(String format, boolean legacyWriter, Compression compression, int threads) throws IOException {
+        String name = format + (legacyWriter ? " OutputStreamWriter" : " Utf8OutputStreamWriter") + ", " + threads + " threads";
+        // warm up
+        write(new Utf8OutputStreamWriter(compression.getCompressedOutputStream(new CountingOutputStream(), threads)));
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            OutputStream out = compression.getCompressedOutputStream(new CountingOutputStream(), threads);
+            write(legacyWriter ? new OutputStreamWriter(out, StandardCharsets.UTF_8) : new Utf8OutputStreamWriter(out));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (MB/s)", RUNS * size / 1e6 / seconds);
+    }
+
+    /**
+     * Measures the throughput of saving to .osm, .osm.gz and .osm.bz2.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testSave() throws IOException {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        measure(".osm", true, Compression.NONE, 1);
+        measure(".osm", false, Compression.NONE, 1);
+        measure(".osm.gz", true, Compression.GZIP, 1);
+        measure(".osm.gz", false, Compression.GZIP, 1);
+        measure(".osm.gz", false, Compression.GZIP, threads);
+        measure(".osm.bz2", true, Compression.BZIP2, 1);
+        measure(".osm.bz2", false, Compression.BZIP2, 1);
+        measure(".osm.bz2", false, Compression.BZIP2, threads);
+    }
+}
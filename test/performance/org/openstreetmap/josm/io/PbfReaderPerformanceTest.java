@@ -0,0 +1,132 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test compares how fast we are at reading the same data from an OSM file and from a PBF file,
+ * and how much memory is allocated while doing so.
+ * <p>
+ * For this, we use the neubrandenburg-file, written in both formats. We ignore disk access times.
+ */
+public class PbfReaderPerformanceTest {
+    private static final int TIMES = 4;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    private static byte[] xml;
+    private static byte[] pbf;
+    private static int primitives;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test: writes the data file in both formats, in memory.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        DataSet ds;
+        try (InputStream is = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            ds = OsmReader.parseDataSet(is, null);
+        }
+        primitives = ds.allPrimitives().size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmWriter writer = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+            writer.header();
+            writer.writeContent(ds);
+            writer.footer();
+        }
+        xml = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.writeData(ds);
+        }
+        pbf = out.toByteArray();
+        PerformanceTestUtils.measurementPlotsPluginOutput("size of .osm-file (bytes)", xml.length);
+        PerformanceTestUtils.measurementPlotsPluginOutput("size of .osm.pbf-file (bytes)", pbf.length);
+    }
+
+    /**
+     * Measures the time needed to load the .osm file.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testXml() throws Exception {
+        measure(".osm-file", () -> OsmReader.parseDataSet(new ByteArrayInputStream(xml), null));
+    }
+
+    /**
+     * Measures the time needed to load the .osm.pbf file, on the calling thread only.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPbf() throws Exception {
+        measure(".osm.pbf-file", () -> PbfReader.parseDataSet(new ByteArrayInputStream(pbf), null, 1));
+    }
+
+    /**
+     * Measures the time needed to load the .osm.pbf file, using all available processors.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPbfParallel() throws Exception {
+        measure(".osm.pbf-file in parallel", () -> PbfReader.parseDataSet(new ByteArrayInputStream(pbf), null));
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        DataSet load() throws IllegalDataException;
+    }
+
+    private static void measure(String what, Loader loader) throws IllegalDataException {
+        // warm up
+        assertEquals(primitives, loader.load().allPrimitives().size());
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMES; i++) {
+            assertEquals(primitives, loader.load().allPrimitives().size());
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / TIMES;
+        PerformanceTestUtils.measurementPlotsPluginOutput("load " + what + " (ms)", millis);
+        if (allocated >= 0) {
+            // only counts the allocations of the calling thread
+            PerformanceTestUtils.measurementPlotsPluginOutput("load " + what + " (allocated bytes per primitive)",
+                    (double) (allocatedBytes() - allocated) / TIMES / primitives);
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
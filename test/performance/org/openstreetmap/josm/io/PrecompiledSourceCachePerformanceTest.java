@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPreset;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPresetReader;
+
+/**
+ * Performance test of {@link PrecompiledSourceCache}, reporting the time to read the default presets and style
+ * without and with the cache. The first reading of a JVM (cold start) is reported separately.
+ */
+public class PrecompiledSourceCachePerformanceTest {
+
+    private static final String PRESETS = "resource://data/defaultpresets.xml";
+    private static final String STYLE = "resource://styles/standard/elemstyles.mapcss";
+    private static final int RUNS = 10;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(false);
+        TaggingPresetReader.setLoadIcons(false);
+    }
+
+    /**
+     * Restore the settings.
+     */
+    @AfterClass
+    public static void cleanUp() {
+        PrecompiledSourceCache.PROP_ENABLED.put(null);
+        TaggingPresetReader.setLoadIcons(true);
+    }
+
+    private static void readSources() throws Exception {
+        for (TaggingPreset preset : TaggingPresetReader.readAll(PRESETS, false)) {
+            // presets register themselves as listeners, which would slow down the next runs
+            Main.getLayerManager().removeActiveLayerChangeListener(preset);
+        }
+        new MapCSSStyleSource(STYLE, "standard", "standard").loadStyleSource();
+    }
+
+    private static double measure(boolean enabled, int runs) throws Exception {
+        PrecompiledSourceCache.PROP_ENABLED.put(enabled);
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            readSources();
+        }
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+
+    /**
+     * Measures the time to read the default presets and style, without and with the cache.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadDefaultSources() throws Exception {
+        // fills the cache, and measures the cold start without the cache if it did not exist
+        PerformanceTestUtils.measurementPlotsPluginOutput("Read default presets and style, cold start (ms)", measure(true, 1));
+        for (int i = 0; i < 3; i++) {
+            measure(false, RUNS);
+            measure(true, RUNS);
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("Read default presets and style, without cache (ms)", measure(false, RUNS));
+        PerformanceTestUtils.measurementPlotsPluginOutput("Read default presets and style, with cache (ms)", measure(true, RUNS));
+    }
+}
@@ -0,0 +1,149 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io.remotecontrol;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Load test of the remote control, reporting the requests per second handled for a local client,
+ * with and without keep-alive connections, and with and without {@code /batch} requests.
+ */
+public class RemoteControlPerformanceTest {
+
+    private static final int REQUESTS = 2000;
+
+    private static String base;
+
+    /**
+     * Starts the remote control.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        RemoteControl.start();
+        base = "http://127.0.0.1:" + Main.pref.getInteger("remote.control.port", 8111);
+    }
+
+    /**
+     * Stops the remote control.
+     */
+    @AfterClass
+    public static void tearDown() {
+        RemoteControl.stop();
+    }
+
+    private static void send(String path, String body, boolean keepAlive) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+        if (!keepAlive) {
+            connection.setRequestProperty("Connection", "close");
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // read the whole response, so that the connection can be reused
+            }
+        }
+    }
+
+    private static void measure(String name, int threads, boolean keepAlive) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> clients = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                clients.add(executor.submit(() -> {
+                    for (int i = 0; i < REQUESTS / threads; i++) {
+                        send("/version", null, keepAlive);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " (requests/s)", 1e9 * REQUESTS / (System.nanoTime() - start));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String addNode(int i) {
+        return String.format(Locale.ENGLISH, "/add_node?lat=%.5f&lon=%.5f", 53 + i * 1e-4, 13 + i * 1e-4);
+    }
+
+    /**
+     * Measures the requests per second of {@code /version}, from 1 and 4 client threads,
+     * opening a connection for each request or keeping it alive.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testVersionThroughput() throws Exception {
+        // warm up
+        measure("version", 4, true);
+        measure("version, new connections, 1 thread", 1, false);
+        measure("version, keep-alive, 1 thread", 1, true);
+        measure("version, new connections, 4 threads", 4, false);
+        measure("version, keep-alive, 4 threads", 4, true);
+    }
+
+    /**
+     * Measures the requests per second of {@code /add_node}, sent one by one or in a single {@code /batch} request.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testAddNodeThroughput() throws Exception {
+        int requests = REQUESTS / 4;
+        DataSet ds = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+        Main.getLayerManager().addLayer(layer);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                send(addNode(i), null, true);
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput("add_node, one by one (requests/s)",
+                    1e9 * requests / (System.nanoTime() - start));
+
+            StringBuilder batch = new StringBuilder();
+            for (int i = requests; i < 2 * requests; i++) {
+                batch.append(addNode(i)).append('\n');
+            }
+            start = System.nanoTime();
+            send("/batch", batch.toString(), true);
+            PerformanceTestUtils.measurementPlotsPluginOutput("add_node, batch (requests/s)",
+                    1e9 * requests / (System.nanoTime() - start));
+            assertEquals(2 * requests, ds.getNodes().size());
+        } finally {
+            Main.getLayerManager().removeLayer(layer);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.ChangeCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodePositionComparator;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Timing test of {@link Geometry#addIntersections}, as used to join areas, on generated sets of overlapping polygons,
+ * compared to the former implementation testing every pair of segments of ways whose bounding boxes intersect.
+ */
+public class GeometryPerformanceTest {
+
+    /**
+     * Prepares the test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init();
+    }
+
+    /**
+     * Generates overlapping polygons looking like landuse areas: irregular rings of similar sizes, in a square area.
+     * @param count the number of polygons
+     * @param vertices the number of vertices of each polygon
+     * @return the polygons
+     */
+    private static List<Way> generatePolygons(int count, int vertices) {
+        Random random = new Random(42);
+        DataSet ds = new DataSet();
+        List<Way> ways = new ArrayList<>();
+        double side = 1000 * Math.sqrt(count);
+        for (int p = 0; p < count; p++) {
+            double cx = side * random.nextDouble();
+            double cy = side * random.nextDouble();
+            double radius = 400 + 400 * random.nextDouble();
+            Way way = new Way();
+            for (int v = 0; v < vertices; v++) {
+                double angle = 2 * Math.PI * v / vertices;
+                double r = radius * (1 + 0.02 * random.nextGaussian());
+                Node node = new Node(new EastNorth(cx + r * Math.cos(angle), cy + r * Math.sin(angle)));
+                ds.addPrimitive(node);
+                way.addNode(node);
+            }
+            way.addNode(way.firstNode());
+            ds.addPrimitive(way);
+            ways.add(way);
+        }
+        return ways;
+    }
+
+    private static void measure(int count, int vertices) {
+        String name = count + " polygons of " + vertices + " vertices";
+        List<Way> ways = generatePolygons(count, vertices);
+        List<Command> pairwiseCmds = new ArrayList<>();
+        long start = System.nanoTime();
+        Set<Node> pairwise = addIntersectionsPairwise(ways, false, pairwiseCmds);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + ", pairwise (ms)", (System.nanoTime() - start) / 1e6);
+
+        List<Command> cmds = new ArrayList<>();
+        start = System.nanoTime();
+        Set<Node> swept = Geometry.addIntersections(ways, false, cmds);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + ", sweep line (ms)", (System.nanoTime() - start) / 1e6);
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " (intersections)", swept.size());
+        // the pairwise code splits segments as it goes, with nodes rounded to LatLon, so it may merge or miss a few
+        // crossings very close to another one, the sweep line tests the original segments
+        assertEquals(pairwise.size(), swept.size(), pairwise.size() / 1000.0);
+    }
+
+    /**
+     * Finds the intersections of polygon sets of increasing sizes.
+     */
+    @Test
+    public void testAddIntersections() {
+        // warm up
+        measure(20, 100);
+        measure(50, 200);
+        measure(100, 500);
+        measure(300, 500);
+    }
+
+    /**
+     * The implementation of {@link Geometry#addIntersections} before {@link SegmentIntersectionFinder} was used.
+     */
+    private static Set<Node> addIntersectionsPairwise(List<Way> ways, boolean test, List<Command> cmds) {
+
+        int n = ways.size();
+        @SuppressWarnings("unchecked")
+        List<Node>[] newNodes = new ArrayList[n];
+        BBox[] wayBounds = new BBox[n];
+        boolean[] changedWays = new boolean[n];
+
+        Set<Node> intersectionNodes = new LinkedHashSet<>();
+
+        //copy node arrays for local usage.
+        for (int pos = 0; pos < n; pos++) {
+            newNodes[pos] = new ArrayList<>(ways.get(pos).getNodes());
+            wayBounds[pos] = getNodesBounds(newNodes[pos]);
+            changedWays[pos] = false;
+        }
+
+        OsmDataLayer layer = Main.getLayerManager().getEditLayer();
+        DataSet dataset = ways.get(0).getDataSet();
+
+        //iterate over all way pairs and introduce the intersections
+        Comparator<Node> coordsComparator = new NodePositionComparator();
+        for (int seg1Way = 0; seg1Way < n; seg1Way++) {
+            for (int seg2Way = seg1Way; seg2Way < n; seg2Way++) {
+
+                //do not waste time on bounds that do not intersect
+                if (!wayBounds[seg1Way].intersects(wayBounds[seg2Way])) {
+                    continue;
+                }
+
+                List<Node> way1Nodes = newNodes[seg1Way];
+                List<Node> way2Nodes = newNodes[seg2Way];
+
+                //iterate over primary segmemt
+                for (int seg1Pos = 0; seg1Pos + 1 < way1Nodes.size(); seg1Pos++) {
+
+                    //iterate over secondary segment
+                    int seg2Start = seg1Way != seg2Way ? 0 : seg1Pos + 2; //skip the adjacent segment
+
+                    for (int seg2Pos = seg2Start; seg2Pos + 1 < way2Nodes.size(); seg2Pos++) {
+
+                        //need to get them again every time, because other segments may be changed
+                        Node seg1Node1 = way1Nodes.get(seg1Pos);
+                        Node seg1Node2 = way1Nodes.get(seg1Pos + 1);
+                        Node seg2Node1 = way2Nodes.get(seg2Pos);
+                        Node seg2Node2 = way2Nodes.get(seg2Pos + 1);
+
+                        int commonCount = 0;
+                        //test if we have common nodes to add.
+                        if (seg1Node1 == seg2Node1 || seg1Node1 == seg2Node2) {
+                            commonCount++;
+
+                            if (seg1Way == seg2Way &&
+                                    seg1Pos == 0 &&
+                                    seg2Pos == way2Nodes.size() -2) {
+                                //do not add - this is first and last segment of the same way.
+                            } else {
+                                intersectionNodes.add(seg1Node1);
+                            }
+                        }
+
+                        if (seg1Node2 == seg2Node1 || seg1Node2 == seg2Node2) {
+                            commonCount++;
+
+                            intersectionNodes.add(seg1Node2);
+                        }
+
+                        //no common nodes - find intersection
+                        if (commonCount == 0) {
+                            EastNorth intersection = Geometry.getSegmentSegmentIntersection(
+                                    seg1Node1.getEastNorth(), seg1Node2.getEastNorth(),
+                                    seg2Node1.getEastNorth(), seg2Node2.getEastNorth());
+
+                            if (intersection != null) {
+                                if (test) {
+                                    intersectionNodes.add(seg2Node1);
+                                    return intersectionNodes;
+                                }
+
+                                Node newNode = new Node(Main.getProjection().eastNorth2latlon(intersection));
+                                Node intNode = newNode;
+                                boolean insertInSeg1 = false;
+                                boolean insertInSeg2 = false;
+                                //find if the intersection point is at end point of one of the segments, if so use that point
+
+                                //segment 1
+                                if (coordsComparator.compare(newNode, seg1Node1) == 0) {
+                                    intNode = seg1Node1;
+                                } else if (coordsComparator.compare(newNode, seg1Node2) == 0) {
+                                    intNode = seg1Node2;
+                                } else {
+                                    insertInSeg1 = true;
+                                }
+
+                                //segment 2
+                                if (coordsComparator.compare(newNode, seg2Node1) == 0) {
+                                    intNode = seg2Node1;
+                                } else if (coordsComparator.compare(newNode, seg2Node2) == 0) {
+                                    intNode = seg2Node2;
+                                } else {
+                                    insertInSeg2 = true;
+                                }
+
+                                if (insertInSeg1) {
+                                    way1Nodes.add(seg1Pos +1, intNode);
+                                    changedWays[seg1Way] = true;
+
+                                    //fix seg2 position, as indexes have changed, seg2Pos is always bigger than seg1Pos on the same segment.
+                                    if (seg2Way == seg1Way) {
+                                        seg2Pos++;
+                                    }
+                                }
+
+                                if (insertInSeg2) {
+                                    way2Nodes.add(seg2Pos +1, intNode);
+                                    changedWays[seg2Way] = true;
+
+                                    //Do not need to compare again to already split segment
+                                    seg2Pos++;
+                                }
+
+                                intersectionNodes.add(intNode);
+
+                                if (intNode == newNode) {
+                                    cmds.add(layer != null ? new AddCommand(layer, intNode) : new AddCommand(dataset, intNode));
+                                }
+                            }
+                        } else if (test && !intersectionNodes.isEmpty())
+                            return intersectionNodes;
+                    }
+                }
+            }
+        }
+
+
+        for (int pos = 0; pos < ways.size(); pos++) {
+            if (!changedWays[pos]) {
+                continue;
+            }
+
+            Way way = ways.get(pos);
+            Way newWay = new Way(way);
+            newWay.setNodes(newNodes[pos]);
+
+            cmds.add(new ChangeCommand(way, newWay));
+        }
+
+        return intersectionNodes;
+    }
+
+    private static BBox getNodesBounds(List<Node> nodes) {
+
+        BBox bounds = new BBox(nodes.get(0));
+        for (Node n: nodes) {
+            bounds.add(n);
+        }
+        return bounds;
+    }
+}
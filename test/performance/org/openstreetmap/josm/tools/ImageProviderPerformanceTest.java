@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Image;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
+
+/**
+ * Performance test of {@link ImageProvider}, reporting the throughput of parallel icon lookups, as done by the threads
+ * computing the styles of the map: map-sized preset icons, some of them rotated.
+ */
+public class ImageProviderPerformanceTest {
+
+    private static final int LOOKUPS = 20_000;
+
+    private static final List<String> icons = new ArrayList<>();
+
+    /**
+     * Prepare the test, and lists the preset icons.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        listIcons(new File("images/presets"), "presets/");
+    }
+
+    private static void listIcons(File dir, String prefix) {
+        for (File f : dir.listFiles()) {
+            if (f.isDirectory()) {
+                listIcons(f, prefix + f.getName() + '/');
+            } else if (f.getName().endsWith(".svg") || f.getName().endsWith(".png")) {
+                icons.add(prefix + f.getName());
+            }
+        }
+    }
+
+    private static void lookupIcons(long seed, int lookups) {
+        Random random = new Random(seed);
+        for (int i = 0; i < lookups; i++) {
+            String icon = icons.get(random.nextInt(icons.size()));
+            Image img = new ImageProvider(icon).setMaxSize(ImageSizes.MAP).get().getImage();
+            if (i % 8 == 0) {
+                ImageProvider.createRotatedImage(img, random.nextInt(8) * 45);
+            }
+        }
+    }
+
+    private static void measure(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> lookupIcons(seed, LOOKUPS)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long time = System.nanoTime() - start;
+            PerformanceTestUtils.measurementPlotsPluginOutput("Icon lookups, " + threads + " threads (thousand lookups/s)",
+                    1e6 * threads * LOOKUPS / time);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures the throughput of icon lookups from 1 and 4 threads, once the icons are loaded.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallelLookups() throws Exception {
+        // load all icons
+        long start = System.nanoTime();
+        for (String icon : icons) {
+            new ImageProvider(icon).setMaxSize(ImageSizes.MAP).get();
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("Load " + icons.size() + " icons (ms)", (System.nanoTime() - start) / 1e6);
+        lookupIcons(-1, 4 * LOOKUPS);
+        measure(1);
+        measure(4);
+        LoadingCache.Statistics stats = ImageProvider.getScaledCacheStatistics();
+        PerformanceTestUtils.measurementPlotsPluginOutput("Scaled icons hit ratio (%)",
+                100.0 * stats.getHits() / (stats.getHits() + stats.getMisses()));
+        PerformanceTestUtils.measurementPlotsPluginOutput("Scaled icons cache size (MB)", stats.getWeight() / 1e6);
+    }
+}
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.actions.mapmode;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -136,10 +137,10 @@ public class SelectActionTest {
                 r1 = r2;
                 r2 = tmp;
             }
-            assertSame(String.format("East should be 0, found %f%n", r1.getEastNorth().east()),
-                       Double.compare(r1.getEastNorth().east(), 0), 0);
-            assertSame(String.format("East should be 100, found %f%n", r2.getEastNorth().east()),
-                       Double.compare(r2.getEastNorth().east(), 100), 0);
+            // nodes which are not in a data set do not cache their projected coordinates,
+            // so they are projected back from lat/lon when added to the data set
+            assertEquals("East should be 0", 0, r1.getEastNorth().east(), 1e-9);
+            assertEquals("East should be 100", 100, r2.getEastNorth().east(), 1e-9);
         } finally {
             // Ensure we clean the place before leaving, even if test fails.
             Main.getLayerManager().removeLayer(layer);
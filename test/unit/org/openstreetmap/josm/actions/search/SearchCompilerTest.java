@@ -14,6 +14,7 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -451,6 +452,90 @@ public class SearchCompilerTest {
         assertEquals("foo1 ^ (baz1 && baz2) ^ (bar || baz)", c6.toString());
     }
 
+    /**
+     * Tests {@link SearchCompiler#optimize}.
+     * @throws ParseError if an error has been encountered while compiling
+     */
+    @Test
+    public void testOptimize() throws ParseError {
+        assertEquals("type=way && highway=* && name=foo",
+                SearchCompiler.optimize(SearchCompiler.compile("name:foo highway=* type:way")).toString());
+        assertEquals("foo=bar || (type=relation && baz)",
+                SearchCompiler.optimize(SearchCompiler.compile("(baz type:relation) OR foo=bar")).toString());
+        assertEquals("foo=bar", SearchCompiler.optimize(SearchCompiler.compile("-(-foo=bar)")).toString());
+        assertEquals("foo", SearchCompiler.optimize(new SearchCompiler.And(SearchCompiler.Always.INSTANCE,
+                SearchCompiler.compile("foo"))).toString());
+        assertEquals(SearchCompiler.Never.INSTANCE, SearchCompiler.optimize(new SearchCompiler.And(SearchCompiler.compile("foo"),
+                new SearchCompiler.Not(SearchCompiler.Always.INSTANCE))));
+        assertEquals(SearchCompiler.Always.INSTANCE, SearchCompiler.optimize(new SearchCompiler.Or(SearchCompiler.compile("foo"),
+                SearchCompiler.Always.INSTANCE)));
+    }
+
+    /**
+     * Tests that {@link SearchCompiler#optimize} does not change the matched primitives.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testOptimizeSameResult() throws Exception {
+        final Node node = (Node) newPrimitive("highway", "residential");
+        node.put("name", "Foo Street");
+        final Way way = new Way();
+        way.put("highway", "primary");
+        way.put("oneway", "yes");
+        final Relation relation = new Relation();
+        relation.put("type", "route");
+        for (String search : Arrays.asList("name:foo highway=* type:way", "highway=primary OR type:node -oneway?",
+                "(oneway=* XOR name:Foo) type:relation OR -type:relation", "-(-highway=residential)", "type:node untagged OR tags:2-3")) {
+            final Match match = SearchCompiler.compile(search);
+            final Match optimized = SearchCompiler.optimize(match);
+            for (OsmPrimitive p : Arrays.asList(node, way, relation)) {
+                assertEquals(search + " / " + p, match.match(p), optimized.match(p));
+            }
+        }
+        assertNotNull(SearchCompiler.optimize(SearchCompiler.compile(new String(Files.readAllBytes(
+                Paths.get(TestUtils.getRegressionDataFile(14217, "filter.txt"))), StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Tests {@link SearchCompiler#dependsOnRelatives}.
+     * @throws ParseError if an error has been encountered while compiling
+     */
+    @Test
+    public void testDependsOnRelatives() throws ParseError {
+        for (String search : Arrays.asList("highway=residential", "type:way -building", "name:foo OR tags:2-3", "nodes:3-",
+                "closed", "selected XOR modified")) {
+            assertFalse(search, SearchCompiler.dependsOnRelatives(SearchCompiler.compile(search)));
+        }
+        for (String search : Arrays.asList("parent highway", "child building", "-(child building)", "type:way OR role:outer",
+                "nth:2", "ways:2-")) {
+            assertTrue(search, SearchCompiler.dependsOnRelatives(SearchCompiler.compile(search)));
+        }
+    }
+
+    /**
+     * Tests {@link SearchCompiler#getCandidates}.
+     * @throws ParseError if an error has been encountered while compiling
+     */
+    @Test
+    public void testGetCandidates() throws ParseError {
+        final DataSet ds = new DataSet();
+        final OsmPrimitive bench = newPrimitive("amenity", "bench");
+        final OsmPrimitive cafe = newPrimitive("amenity", "cafe");
+        final OsmPrimitive shop = newPrimitive("shop", "bakery");
+        final OsmPrimitive untagged = new Node();
+        for (OsmPrimitive p : Arrays.asList(bench, cafe, shop, untagged)) {
+            ((Node) p).setCoor(LatLon.ZERO);
+            ds.addPrimitive(p);
+        }
+        assertEquals(Collections.singletonList(cafe), SearchCompiler.getCandidates(SearchCompiler.compile("amenity=cafe"), ds));
+        assertEquals(new HashSet<>(Arrays.asList(bench, cafe)),
+                new HashSet<>(SearchCompiler.getCandidates(SearchCompiler.compile("amenity=* type:node"), ds)));
+        assertEquals(new HashSet<>(Arrays.asList(cafe, shop)),
+                new HashSet<>(SearchCompiler.getCandidates(SearchCompiler.compile("amenity=cafe OR shop?"), ds)));
+        assertEquals(4, SearchCompiler.getCandidates(SearchCompiler.compile("amenity=cafe OR untagged"), ds).size());
+        assertEquals(4, SearchCompiler.getCandidates(SearchCompiler.compile("-amenity=cafe"), ds).size());
+    }
+
     /**
      * Tests {@code buildSearchStringForTag}.
      * @throws ParseError if an error has been encountered while compiling
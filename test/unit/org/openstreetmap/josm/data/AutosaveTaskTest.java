@@ -13,10 +13,13 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -26,7 +29,11 @@ import org.openstreetmap.josm.data.AutosaveTask.AutosaveLayerInfo;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -142,7 +149,7 @@ public class AutosaveTaskTest {
     }
 
     private int countFiles() {
-        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm"));
+        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm") || name.endsWith(".journal"));
         return files != null ? files.length : 0;
     }
 
@@ -159,6 +166,16 @@ public class AutosaveTaskTest {
      */
     @Test
     public void testAutosaveSavesLayerMultipleTimes() {
+        AutosaveTask.PROP_JOURNAL.put(false);
+        AutosaveTask.PROP_FILES_PER_LAYER.put(3);
+        runAutosaveTaskSeveralTimes(5);
+    }
+
+    /**
+     * Tests that {@link AutosaveTask#run()} keeps a single journal per layer.
+     */
+    @Test
+    public void testAutosaveSavesJournalMultipleTimes() {
         AutosaveTask.PROP_FILES_PER_LAYER.put(3);
         runAutosaveTaskSeveralTimes(5);
     }
@@ -174,7 +191,7 @@ public class AutosaveTaskTest {
             for (int i = 0; i < times; i++) {
                 data.addPrimitive(new Node(new LatLon(10, 10)));
                 task.run();
-                assertEquals(Math.min(i + 1, 3), countFiles());
+                assertEquals(Math.min(i + 1, AutosaveTask.PROP_JOURNAL.get() ? 1 : 3), countFiles());
             }
 
         } finally {
@@ -243,4 +260,86 @@ public class AutosaveTaskTest {
 
         assertEquals(1, countFiles());
     }
+
+    /**
+     * Tests that a layer is recovered from its journal after a crash, with the changes made after its checkpoint.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testRecoverJournal() throws Exception {
+        AutosaveTask.PROP_JOURNAL_COMPACTION.put(10000);
+        DataSet data = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
+        Main.getLayerManager().addLayer(layer);
+        try {
+            task.schedule();
+            Node n1 = new Node(1, 1);
+            n1.setCoor(new LatLon(10, 10));
+            n1.put("name", "n1");
+            Node n2 = new Node(new LatLon(11, 11));
+            n2.put("name", "n2");
+            Node n4 = new Node(4, 1);
+            n4.setCoor(new LatLon(14, 14));
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", "road");
+            data.addPrimitive(n1);
+            data.addPrimitive(n2);
+            data.addPrimitive(n4);
+            data.addPrimitive(w);
+            task.run();
+            File journal = getJournal();
+            long checkpointSize = journal.length();
+
+            // changes after the checkpoint
+            n1.setCoor(new LatLon(12, 12));
+            n1.put("name", "n1b");
+            n1.setModified(true);
+            Node n3 = new Node(new LatLon(13, 13));
+            n3.put("name", "n3");
+            data.addPrimitive(n3);
+            w.setNodes(Arrays.asList(n1, n3));
+            data.removePrimitive(n2);
+            n4.setDeleted(true);
+            Relation r = new Relation();
+            r.addMember(new RelationMember("outer", w));
+            data.addPrimitive(r);
+            task.run();
+            assertEquals(1, countFiles());
+            assertTrue(journal.length() > checkpointSize);
+
+            // simulate a crash while writing the next batch, by another instance of JOSM
+            Files.write(journal.toPath(), new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+            Files.delete(task.getPidFile(journal).toPath());
+            task.recoverUnsavedLayers().get();
+            GuiHelper.runInEDTAndWait(() -> { });
+
+            OsmDataLayer recovered = Main.getLayerManager().getLayersOfType(OsmDataLayer.class).stream()
+                    .filter(l -> l != layer).findFirst().get();
+            DataSet ds = recovered.data;
+            assertEquals(data.allPrimitives().size(), ds.allPrimitives().size());
+            Node rn1 = (Node) ds.getPrimitiveById(n1);
+            assertEquals(new LatLon(12, 12), rn1.getCoor());
+            assertEquals("n1b", rn1.get("name"));
+            assertTrue(rn1.isModified());
+            assertTrue(ds.getPrimitiveById(n4).isDeleted());
+            Way rw = ds.getWays().iterator().next();
+            assertEquals("road", rw.get("highway"));
+            assertEquals(Arrays.asList("n1b", "n3"), rw.getNodes().stream().map(n -> n.get("name")).collect(Collectors.toList()));
+            assertTrue(rw.isNew());
+            Relation rr = ds.getRelations().iterator().next();
+            assertEquals("outer", rr.getRole(0));
+            assertEquals(rw, rr.getMember(0).getMember());
+            assertTrue(ds.getNodes().stream().noneMatch(n -> "n2".equals(n.get("name"))));
+        } finally {
+            task.cancel();
+        }
+    }
+
+    private File getJournal() {
+        File[] files = task.getAutosaveDir().toFile().listFiles((dir, name) -> name.endsWith(".journal"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
 }
@@ -2,9 +2,11 @@
 package org.openstreetmap.josm.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.io.File;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -67,4 +69,28 @@ public class PreferencesTest {
             "</preferences>%n", Version.getInstance().getVersion()),
                 Main.pref.toXML(true));
     }
+
+    /**
+     * Test that changes are saved in the background, and at once when flushed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSaveInBackground() throws Exception {
+        Preferences pref = new Preferences();
+        File file = pref.getPreferenceFile();
+        assertTrue(pref.put("test.save", "a"));
+        for (int i = 0; i < 100 && !file.exists(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(file.exists());
+
+        assertTrue(pref.put("test.save", "b"));
+        assertTrue(pref.put("test.save", "c"));
+        pref.enableSaveOnPut(false);
+        pref.flush();
+        Preferences saved = new Preferences();
+        saved.load();
+        assertEquals("c", saved.get("test.save"));
+        assertFalse(new File(file + "_tmp").exists());
+    }
 }
@@ -0,0 +1,172 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.command.ChangeCommand;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.CommandTest.CommandTestDataWithRelation;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link UndoRedoHandler} class.
+ */
+public class UndoRedoHandlerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().i18n().projection();
+
+    private CommandTestDataWithRelation testData;
+    private UndoRedoHandler handler;
+
+    /**
+     * Set up the test data.
+     */
+    @Before
+    public void setUp() {
+        testData = new CommandTestDataWithRelation();
+        handler = new UndoRedoHandler();
+    }
+
+    /**
+     * Tests that the compacted undo data only keeps the changed fields, and restores the primitives on undo.
+     */
+    @Test
+    public void testCompactUndo() {
+        Way way = testData.existingWay;
+        handler.add(new ChangePropertyCommand(way, "highway", "road"));
+        // the last command is not compacted
+        assertEquals(0, handler.getUndoDataSize());
+        assertEquals("road", way.get("highway"));
+        assertTrue(way.isModified());
+
+        handler.add(new ChangeNodesCommand(way, Arrays.asList(testData.existingNode2, testData.existingNode)));
+        long tagSize = handler.getUndoDataSize();
+        assertTrue(tagSize > 0);
+        handler.add(new ChangePropertyCommand(testData.existingNode, "name", "a"));
+        assertTrue(handler.getUndoDataSize() > tagSize);
+
+        handler.undo(3);
+        assertEquals(0, handler.getUndoDataSize());
+        assertNull(way.get("highway"));
+        assertEquals("existing", way.get("existing"));
+        assertEquals(Arrays.asList(testData.existingNode, testData.existingNode2), way.getNodes());
+        assertFalse(way.isModified());
+
+        handler.redo(3);
+        assertEquals("road", way.get("highway"));
+        assertEquals(testData.existingNode2, way.firstNode());
+        handler.undo(3);
+        assertNull(way.get("highway"));
+        assertEquals(testData.existingNode, way.firstNode());
+    }
+
+    /**
+     * Tests undoing a sequence whose commands change the same primitive, and revert a change of a previous command.
+     */
+    @Test
+    public void testCompactSequence() {
+        Node node = testData.existingNode;
+        Node reverted = new Node(node);
+        reverted.setCoor(new LatLon(1, 1));
+        handler.add(new SequenceCommand("test",
+                new ChangePropertyCommand(node, "existing", "changed"),
+                new ChangeCommand(node, reverted)));
+        assertEquals("existing", node.get("existing"));
+        assertEquals(new LatLon(1, 1), node.getCoor());
+        handler.add(new ChangePropertyCommand(testData.existingNode2, "name", "b"));
+
+        handler.undo(2);
+        assertEquals("existing", node.get("existing"));
+        assertEquals(LatLon.ZERO, node.getCoor());
+        assertFalse(node.isModified());
+
+        handler.add(new SequenceCommand("test",
+                new ChangePropertyCommand(node, "name", "a"),
+                new MoveCommand(node, 1, 1),
+                new ChangePropertyCommand(node, "existing", "changed")));
+        handler.add(new ChangePropertyCommand(testData.existingNode2, "name", "b"));
+        handler.undo(2);
+        assertNull(node.get("name"));
+        assertEquals("existing", node.get("existing"));
+        assertEquals(LatLon.ZERO, node.getCoor());
+        assertFalse(node.isModified());
+    }
+
+    /**
+     * Tests that moves are compacted, and can be moved again once executed again.
+     */
+    @Test
+    public void testCompactMove() {
+        Node node = testData.existingNode;
+        MoveCommand move = new MoveCommand(testData.existingWay, 1, 1);
+        handler.add(move);
+        handler.add(new ChangePropertyCommand(node, "name", "a"));
+        assertTrue(handler.getUndoDataSize() > 0);
+
+        handler.undo(2);
+        assertEquals(LatLon.ZERO, node.getCoor());
+        assertFalse(node.isModified());
+
+        handler.redo();
+        assertEquals(handler.getLastCommand(), move);
+        move.moveAgain(1, 1);
+        handler.undo();
+        assertEquals(LatLon.ZERO, node.getCoor());
+        assertEquals(LatLon.ZERO, testData.existingNode2.getCoor());
+    }
+
+    /**
+     * Tests that the undo data is written to a file above the memory budget, and read back on undo.
+     */
+    @Test
+    public void testSpill() {
+        UndoRedoHandler.PROP_MEMORY_BUDGET.put(0);
+        Way way = testData.existingWay;
+        for (int i = 0; i < 10; i++) {
+            handler.add(new ChangePropertyCommand(way, "test", Integer.toString(i)));
+            handler.add(new ChangeNodesCommand(way, Arrays.asList(way.lastNode(), way.firstNode())));
+        }
+        assertEquals(0, handler.getUndoDataSize());
+        assertEquals("9", way.get("test"));
+
+        handler.undo(20);
+        assertNull(way.get("test"));
+        assertEquals(Arrays.asList(testData.existingNode, testData.existingNode2), way.getNodes());
+        assertFalse(way.isModified());
+        handler.clean();
+    }
+
+    /**
+     * Tests that the undo data is kept as is when compaction is disabled.
+     */
+    @Test
+    public void testNoCompaction() {
+        UndoRedoHandler.PROP_COMPACT.put(false);
+        handler.add(new ChangePropertyCommand(testData.existingNode, "name", "a"));
+        assertEquals(0, handler.getUndoDataSize());
+        assertEquals("existing", handler.getLastCommand().getOrig(testData.existingNode).get("existing"));
+        handler.undo();
+        assertNull(testData.existingNode.get("name"));
+    }
+}
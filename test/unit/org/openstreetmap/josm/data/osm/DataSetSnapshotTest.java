@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link DataSetSnapshot}.
+ */
+public class DataSetSnapshotTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Tests that a snapshot keeps the state of the data set when it is taken.
+     */
+    @Test
+    public void testSnapshot() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 2));
+        Node n2 = new Node(new LatLon(3, 4));
+        n1.put("name", "foo");
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        Relation r = new Relation();
+        r.addMember(new RelationMember("outer", w));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        ds.addPrimitive(r);
+
+        DataSetSnapshot snapshot = ds.snapshot();
+        assertTrue(snapshot.isCurrent());
+        assertSame(snapshot, ds.snapshot());
+
+        n1.put("name", "bar");
+        n1.setCoor(new LatLon(5, 6));
+        w.addNode(n1);
+        r.setMember(0, new RelationMember("inner", w));
+        ds.addPrimitive(new Node(LatLon.ZERO));
+        assertFalse(snapshot.isCurrent());
+        assertNotSame(snapshot, ds.snapshot());
+
+        assertEquals(2, snapshot.getNodes().size());
+        INode n = snapshot.getNodes().stream().filter(x -> x.getUniqueId() == n1.getUniqueId()).findFirst().get();
+        assertEquals("foo", n.get("name"));
+        assertEquals(new LatLon(1, 2), n.getCoor());
+        IWay sw = snapshot.getWays().get(0);
+        assertEquals(2, sw.getNodesCount());
+        assertEquals(n2.getUniqueId(), sw.getNodeId(1));
+        IRelation sr = snapshot.getRelations().get(0);
+        assertEquals("outer", sr.getRole(0));
+        assertEquals(OsmPrimitiveType.WAY, sr.getMemberType(0));
+        assertEquals(w.getUniqueId(), sr.getMemberId(0));
+    }
+
+    /**
+     * Tests that the epoch changes with the data set.
+     */
+    @Test
+    public void testEpoch() {
+        DataSet ds = new DataSet();
+        long epoch = ds.getEpoch();
+        Node n = new Node(LatLon.ZERO);
+        ds.addPrimitive(n);
+        assertTrue(ds.getEpoch() > epoch);
+        epoch = ds.getEpoch();
+        ds.getReadLock().lock();
+        ds.getReadLock().unlock();
+        assertEquals(epoch, ds.getEpoch());
+        n.setModified(true);
+        assertTrue(ds.getEpoch() > epoch);
+        epoch = ds.getEpoch();
+        ds.setUploadPolicy(DataSet.UploadPolicy.BLOCKED);
+        assertTrue(ds.getEpoch() > epoch);
+    }
+
+    /**
+     * Tests that a new snapshot is taken after changes of the primitives which are not notified to the listeners.
+     */
+    @Test
+    public void testSilentChanges() {
+        DataSet ds = new DataSet();
+        Node n = new Node(1, 1);
+        n.setCoor(LatLon.ZERO);
+        ds.addPrimitive(n);
+
+        DataSetSnapshot snapshot = ds.snapshot();
+        n.setVisible(false);
+        assertFalse(snapshot.isCurrent());
+        snapshot = ds.snapshot();
+        assertFalse(snapshot.getNodes().get(0).isVisible());
+
+        n.setRawTimestamp(1000);
+        assertFalse(snapshot.isCurrent());
+        snapshot = ds.snapshot();
+        assertEquals(1000, snapshot.getNodes().get(0).getRawTimestamp());
+
+        n.setTimestamp(new Date(2000000));
+        assertFalse(snapshot.isCurrent());
+        snapshot = ds.snapshot();
+        assertEquals(2000, snapshot.getNodes().get(0).getRawTimestamp());
+
+        n.setUser(User.createOsmUser(1, "foo"));
+        assertFalse(snapshot.isCurrent());
+        assertEquals("foo", ds.snapshot().getNodes().get(0).getUser().getName());
+    }
+}
@@ -193,6 +193,42 @@ public class DataSetTest {
         assertEqualsDataSet(ds, new DataSet(ds));
     }
 
+    /**
+     * Unit test of methods {@link DataSet#getPrimitivesWithKey} and {@link DataSet#getPrimitivesWithTag}.
+     */
+    @Test
+    public void testTagIndex() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "bench");
+        Node n2 = new Node(LatLon.ZERO);
+        n2.put("amenity", "cafe");
+        n2.put("name", "Foo");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(ds.getPrimitivesWithKey("amenity")));
+        assertEquals(Arrays.asList(n2), ds.getPrimitivesWithTag("amenity", "cafe"));
+        assertTrue(ds.getPrimitivesWithKey("highway").isEmpty());
+
+        // the index is kept up to date
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "footway");
+        ds.addPrimitive(w);
+        assertEquals(Arrays.asList(w), ds.getPrimitivesWithKey("highway"));
+        n1.put("amenity", "cafe");
+        n2.remove("amenity");
+        assertEquals(Arrays.asList(n1), ds.getPrimitivesWithKey("amenity"));
+        assertEquals(Arrays.asList(n1), ds.getPrimitivesWithTag("amenity", "cafe"));
+        assertTrue(ds.getPrimitivesWithTag("amenity", "bench").isEmpty());
+        n2.setKeys(null);
+        assertTrue(ds.getPrimitivesWithKey("name").isEmpty());
+        ds.removePrimitive(w);
+        assertTrue(ds.getPrimitivesWithKey("highway").isEmpty());
+        ds.clear();
+        assertTrue(ds.getPrimitivesWithKey("amenity").isEmpty());
+    }
+
     private static void assertEqualsDataSet(DataSet ds1, DataSet ds2) {
         assertEquals(new ArrayList<>(ds1.getNodes()), new ArrayList<>(ds2.getNodes()));
         assertEquals(new ArrayList<>(ds1.getWays()), new ArrayList<>(ds2.getWays()));
@@ -5,13 +5,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -20,6 +25,7 @@ import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
@@ -37,7 +43,7 @@ public class FilterTest {
      */
     @Rule
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules();
+    public JOSMTestRules test = new JOSMTestRules().preferences().timeout(60000);
 
     @Test
     public void testBasic() throws ParseError {
@@ -190,6 +196,69 @@ public class FilterTest {
         }
     }
 
+    private static List<Filter> createFilters(String... texts) {
+        List<Filter> filters = new ArrayList<>();
+        for (String text : texts) {
+            Filter f = new Filter();
+            f.text = text;
+            f.hiding = filters.size() % 2 == 0;
+            f.inverted = text.startsWith("highway");
+            filters.add(f);
+        }
+        return filters;
+    }
+
+    private static List<String> describeFilterState(DataSet ds) {
+        return ds.allNonDeletedCompletePrimitives().stream()
+                .map(osm -> osm.getPrimitiveId() + filterCode(osm) + (osm.isDisabledAndHidden() ? osm.getHiddenType()
+                        : osm.isDisabled() && osm.getDisabledType()))
+                .sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that applying the filters incrementally to modified primitives gives the same result as applying them
+     * to the whole data set, which is large enough to be evaluated in parallel.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testIncrementalEqualsFull() throws Exception {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        for (List<Filter> filters : Arrays.asList(
+                createFilters("highway=residential OR highway=service", "building", "landuse", "type:node amenity"),
+                createFilters("highway", "child building"))) {
+            FilterMatcher filterMatcher = new FilterMatcher();
+            filterMatcher.update(filters);
+            FilterWorker.clearFilterFlags(ds.allPrimitives());
+            assertTrue(FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher));
+
+            List<Way> ways = new ArrayList<>(ds.getWays());
+            List<Node> nodes = new ArrayList<>(ds.getNodes());
+            List<Relation> relations = new ArrayList<>(ds.getRelations());
+            Random random = new Random(42);
+            for (int round = 0; round < 20; round++) {
+                Set<OsmPrimitive> modified = new HashSet<>();
+                for (int i = 0; i < 5; i++) {
+                    Way way = ways.get(random.nextInt(ways.size()));
+                    way.put("highway", random.nextBoolean() ? "residential" : null);
+                    way.put("building", random.nextBoolean() ? "yes" : null);
+                    Node node = nodes.get(random.nextInt(nodes.size()));
+                    node.put("amenity", random.nextBoolean() ? "bench" : null);
+                    Relation relation = relations.get(random.nextInt(relations.size()));
+                    relation.put("landuse", random.nextBoolean() ? "grass" : null);
+                    relation.put("type", random.nextBoolean() ? "multipolygon" : null);
+                    modified.addAll(Arrays.asList(way, node, relation));
+                }
+                FilterWorker.executeFiltersIncrementally(modified, filterMatcher);
+            }
+            List<String> incremental = describeFilterState(ds);
+            FilterWorker.executeFilters(ds.allNonDeletedCompletePrimitives(), filterMatcher);
+            assertEquals(describeFilterState(ds), incremental);
+        }
+    }
+
     /**
      * Unit tests of {@link Filter.FilterPreferenceEntry} class.
      */
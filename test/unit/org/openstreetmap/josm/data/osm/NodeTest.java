@@ -9,8 +9,10 @@ import static org.junit.Assert.assertTrue;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
@@ -26,7 +28,7 @@ public class NodeTest {
      */
     @Rule
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules();
+    public JOSMTestRules test = new JOSMTestRules().projection();
 
     /**
      * Non-regression test for ticket #12060.
@@ -80,6 +82,40 @@ public class NodeTest {
         assertEquals(box1.getCenter(), new LatLon(15, 15));
     }
 
+    /**
+     * Test that the projected coordinates of the nodes are cached by their data set, and follow their moves.
+     */
+    @Test
+    public void testProjectionCache() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        Node n2 = new Node(new LatLon(20, 20));
+        assertEquals(-1, n1.projectionCacheSlot);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        EastNorth en1 = Main.getProjection().latlon2eastNorth(new LatLon(10, 10));
+        assertEquals(en1, n1.getEastNorth());
+        assertEquals(en1, ds.getNodeProjectionCache().get(n1, Main.getProjection()));
+
+        EastNorth en2 = new EastNorth(en1.east() + 1000, en1.north());
+        n1.setEastNorth(en2);
+        assertEquals(en2, ds.getNodeProjectionCache().get(n1, Main.getProjection()));
+        n1.setCoor(new LatLon(30, 30));
+        assertNull(ds.getNodeProjectionCache().get(n1, Main.getProjection()));
+        assertEquals(Main.getProjection().latlon2eastNorth(new LatLon(30, 30)), n1.getEastNorth());
+
+        // the slot of a removed node is reused, without its coordinates
+        int slot = n1.projectionCacheSlot;
+        ds.removePrimitive(n1);
+        assertEquals(-1, n1.projectionCacheSlot);
+        Node n3 = new Node(new LatLon(40, 40));
+        ds.addPrimitive(n3);
+        assertEquals(slot, n3.projectionCacheSlot);
+        assertNull(ds.getNodeProjectionCache().get(n3, Main.getProjection()));
+        assertEquals(Main.getProjection().latlon2eastNorth(new LatLon(40, 40)), n3.getEastNorth());
+        assertEquals(Main.getProjection().latlon2eastNorth(new LatLon(20, 20)), n2.getEastNorth());
+    }
+
     /**
      * Test that {@link Node#cloneFrom} throws IAE for invalid arguments
      */
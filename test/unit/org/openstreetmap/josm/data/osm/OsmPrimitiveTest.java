@@ -3,6 +3,8 @@ package org.openstreetmap.josm.data.osm;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -11,6 +13,7 @@ import org.junit.Test;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.mappaint.StyleCache;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -150,6 +153,50 @@ public class OsmPrimitiveTest {
         Assert.assertEquals(n.getReferrers().get(0), w1);
     }
 
+    /**
+     * Test {@link OsmPrimitive#clearCachedStyleOfDependents} for different link depths.
+     */
+    @Test
+    public void testClearCachedStyleOfDependents() {
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.ZERO);
+        Node n3 = new Node(LatLon.ZERO);
+        Way w1 = new Way();
+        w1.setNodes(Arrays.asList(n1, n2));
+        Way w2 = new Way();
+        w2.setNodes(Arrays.asList(n2, n3));
+        Relation r1 = new Relation();
+        r1.addMember(new RelationMember("", w1));
+        for (OsmPrimitive osm : Arrays.asList(n1, n2, n3, w1, w2, r1)) {
+            dataSet.addPrimitive(osm);
+        }
+        List<OsmPrimitive> all = Arrays.asList(n1, n2, n3, w1, w2, r1);
+        try {
+            all.forEach(osm -> osm.mappaintStyle = StyleCache.EMPTY_STYLECACHE);
+            n1.put("name", "foo");
+            Assert.assertEquals(Arrays.asList(n1, w1), getUncachedStyles(all));
+
+            all.forEach(osm -> osm.mappaintStyle = StyleCache.EMPTY_STYLECACHE);
+            w1.put("name", "foo");
+            Assert.assertEquals(Arrays.asList(n1, n2, w1, r1), getUncachedStyles(all));
+
+            OsmPrimitive.setMappaintLinkDepth(2);
+            all.forEach(osm -> osm.mappaintStyle = StyleCache.EMPTY_STYLECACHE);
+            n1.put("name", "bar");
+            Assert.assertEquals(Arrays.asList(n1, n2, w1, r1), getUncachedStyles(all));
+
+            all.forEach(osm -> osm.mappaintStyle = StyleCache.EMPTY_STYLECACHE);
+            r1.put("name", "foo");
+            Assert.assertEquals(Arrays.asList(n1, n2, w1, r1), getUncachedStyles(all));
+        } finally {
+            OsmPrimitive.setMappaintLinkDepth(1);
+        }
+    }
+
+    private static List<OsmPrimitive> getUncachedStyles(List<OsmPrimitive> primitives) {
+        return primitives.stream().filter(osm -> osm.mappaintStyle == null).collect(Collectors.toList());
+    }
+
     @Test(expected = DataIntegrityProblemException.class)
     public void testCheckMustBeInDatasate() {
         Node n = new Node();
@@ -0,0 +1,134 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PackedRTree}.
+ */
+public class PackedRTreeTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static Node newNode(Random random, long id) {
+        Node n = new Node(id);
+        n.setCoor(new LatLon(random.nextDouble() * 2, random.nextDouble() * 2));
+        return n;
+    }
+
+    private static void assertSameSearch(Collection<Node> expected, PackedRTree<Node> tree, Random random) {
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextDouble() * 2;
+            double y = random.nextDouble() * 2;
+            BBox bbox = new BBox(x, y, x + random.nextDouble() * 0.5, y + random.nextDouble() * 0.5);
+            Set<Node> brute = new HashSet<>();
+            for (Node n : expected) {
+                if (n.getBBox().intersects(bbox)) {
+                    brute.add(n);
+                }
+            }
+            List<Node> found = tree.search(bbox);
+            assertEquals(brute.size(), found.size());
+            assertEquals(brute, new HashSet<>(found));
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(tree));
+    }
+
+    /**
+     * Compares searches after bulk loading, additions and removals to a brute force search.
+     */
+    @Test
+    public void testSearch() {
+        Random random = new Random(42);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 10000; i++) {
+            nodes.add(newNode(random, i));
+        }
+        PackedRTree<Node> tree = new PackedRTree<>(nodes);
+        assertSameSearch(nodes, tree, random);
+
+        // a few changes, kept out of the packed tree
+        for (int i = 0; i < 100; i++) {
+            Node n = newNode(random, 20000 + i);
+            nodes.add(n);
+            tree.add(n);
+            assertTrue(tree.remove(nodes.remove(random.nextInt(nodes.size()))));
+        }
+        assertSameSearch(nodes, tree, random);
+        tree.flush();
+        assertSameSearch(nodes, tree, random);
+
+        // many changes, which lead to a new packed tree
+        for (int i = 0; i < 5000; i++) {
+            Node n = newNode(random, 30000 + i);
+            nodes.add(n);
+            tree.add(n);
+        }
+        for (int i = 0; i < 3000; i++) {
+            assertTrue(tree.remove(nodes.remove(random.nextInt(nodes.size()))));
+        }
+        assertSameSearch(nodes, tree, random);
+        tree.flush();
+        assertSameSearch(nodes, tree, random);
+    }
+
+    /**
+     * Tests removal of absent primitives, primitives without coordinates and removal through the iterator.
+     */
+    @Test
+    public void testRemove() {
+        Random random = new Random(42);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            nodes.add(newNode(random, i));
+        }
+        PackedRTree<Node> tree = new PackedRTree<>(nodes);
+        Node incomplete = new Node(5000);
+        tree.add(incomplete);
+        assertTrue(tree.contains(incomplete));
+        assertFalse(tree.remove(newNode(random, 6000)));
+        assertEquals(2001, tree.size());
+
+        int count = 0;
+        for (Iterator<Node> it = tree.iterator(); it.hasNext();) {
+            Node n = it.next();
+            if (n.getUniqueId() % 2 == 0) {
+                it.remove();
+            } else {
+                count++;
+            }
+        }
+        assertEquals(count, tree.size());
+        assertFalse(tree.contains(incomplete));
+        for (Node n : tree) {
+            assertTrue(n.getUniqueId() % 2 != 0);
+        }
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertTrue(tree.search(new BBox(0, 0, 2, 2)).isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for class {@link PrimitiveIdMap}.
+ */
+public class PrimitiveIdMapTest {
+
+    /**
+     * Unit test of {@link PrimitiveIdMap#put} and {@link PrimitiveIdMap#get}.
+     */
+    @Test
+    public void testPutGet() {
+        PrimitiveIdMap<String> map = new PrimitiveIdMap<>();
+        assertNull(map.put(new SimplePrimitiveId(1, OsmPrimitiveType.NODE), "n1"));
+        assertNull(map.put(new SimplePrimitiveId(1, OsmPrimitiveType.WAY), "w1"));
+        assertNull(map.put(new SimplePrimitiveId(-1, OsmPrimitiveType.RELATION), "r-1"));
+        assertEquals("n1", map.put(new SimplePrimitiveId(1, OsmPrimitiveType.NODE), "n1b"));
+        assertEquals(3, map.size());
+        assertEquals("n1b", map.get(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertEquals("w1", map.get(1, OsmPrimitiveType.WAY));
+        assertEquals("r-1", map.get(new SimplePrimitiveId(-1, OsmPrimitiveType.RELATION)));
+        assertNull(map.get(new SimplePrimitiveId(1, OsmPrimitiveType.RELATION)));
+        assertNull(map.get("foo"));
+        Node n = new Node(1);
+        assertTrue(map.containsKey(n));
+        assertEquals("n1b", map.get(n));
+    }
+
+    /**
+     * Checks that {@link PrimitiveIdMap} behaves like a {@link HashMap} under random puts and removes.
+     */
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        PrimitiveIdMap<Integer> map = new PrimitiveIdMap<>();
+        Map<PrimitiveId, Integer> expected = new HashMap<>();
+        OsmPrimitiveType[] types = {OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+        for (int i = 0; i < 100_000; i++) {
+            PrimitiveId id = new SimplePrimitiveId(random.nextInt(5000) - 1000, types[random.nextInt(types.length)]);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), map.remove(id));
+            } else {
+                assertEquals(expected.put(id, i), map.put(id, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.keySet(), map.keySet());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        for (PrimitiveId id : expected.keySet()) {
+            assertEquals(expected.get(id), map.get(id));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+    }
+
+    /**
+     * Unit test of {@link PrimitiveIdMap#put} with a {@code null} value.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        new PrimitiveIdMap<String>().put(new SimplePrimitiveId(1, OsmPrimitiveType.NODE), null);
+    }
+}
@@ -42,8 +42,8 @@ public class QuadBucketsTest {
         List<Way> allWays = new ArrayList<>(ds.getWays());
         List<Relation> allRelations = new ArrayList<>(ds.getRelations());
 
-        QuadBuckets<Node> nodes = Reflection.field("nodes").ofType(new TypeRef<QuadBuckets<Node>>() {}).in(ds).get();
-        QuadBuckets<Way> ways = Reflection.field("ways").ofType(new TypeRef<QuadBuckets<Way>>() {}).in(ds).get();
+        SpatialIndex<Node> nodes = Reflection.field("nodes").ofType(new TypeRef<SpatialIndex<Node>>() {}).in(ds).get();
+        SpatialIndex<Way> ways = Reflection.field("ways").ofType(new TypeRef<SpatialIndex<Way>>() {}).in(ds).get();
         Collection<Relation> relations = Reflection.field("relations").ofType(new TypeRef<Collection<Relation>>() {}).in(ds).get();
 
         int expectedCount = allNodes.size();
@@ -0,0 +1,171 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link StyledMapTileCache} class.
+ */
+public class StyledMapTileCacheTest {
+
+    private static final int IMG_WIDTH = 700;
+    private static final int IMG_HEIGHT = 600;
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().mapStyles().projection().timeout(60000);
+
+    private NavigatableComponent nc;
+    private DataSet ds;
+    private Node moving;
+    private Way street;
+
+    /**
+     * Creates the map view and a grid of streets with a few labelled points.
+     */
+    @Before
+    public void setUp() {
+        nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, IMG_WIDTH, IMG_HEIGHT);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        ds = new DataSet();
+        for (int i = 0; i < 10; i++) {
+            street = addWay(new LatLon(0.001 * i, 0), new LatLon(0.001 * i, 0.01));
+            street.put("highway", i % 2 == 0 ? "residential" : "primary");
+            addWay(new LatLon(0, 0.001 * i), new LatLon(0.01, 0.001 * i)).put("highway", "service");
+            moving = new Node(new LatLon(0.001 * i + 0.0005, 0.001 * i + 0.0005));
+            moving.put("amenity", "bench");
+            moving.put("name", "bench " + i);
+            ds.addPrimitive(moving);
+        }
+        nc.zoomTo(new Bounds(0, 0, 0.01, 0.01));
+    }
+
+    private Way addWay(LatLon... coordinates) {
+        Way way = new Way();
+        for (LatLon ll : coordinates) {
+            Node node = new Node(ll);
+            ds.addPrimitive(node);
+            way.addNode(node);
+        }
+        ds.addPrimitive(way);
+        return way;
+    }
+
+    private static BufferedImage paint(Consumer<Graphics2D> painter) {
+        BufferedImage image = new BufferedImage(IMG_WIDTH, IMG_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, IMG_WIDTH, IMG_HEIGHT);
+        painter.accept(g);
+        g.dispose();
+        return image;
+    }
+
+    private void assertSamePainting(StyledMapTileCache cache, int maxDifferent) {
+        BufferedImage expected = paint(g -> new StyledMapRenderer(g, nc, false).render(ds, false, nc.getRealBounds()));
+        BufferedImage actual = paint(g -> cache.render(g, nc, false, false, nc.getRealBounds()));
+        int painted = 0;
+        int different = 0;
+        for (int y = 0; y < IMG_HEIGHT; y++) {
+            for (int x = 0; x < IMG_WIDTH; x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                if (e != 0) {
+                    painted++;
+                }
+                // ignore rounding differences when composing translucent pixels
+                if (IntStream.of(0, 8, 16, 24).anyMatch(shift -> Math.abs((e >>> shift & 0xff) - (a >>> shift & 0xff)) > 8)) {
+                    different++;
+                }
+            }
+        }
+        assertTrue("nothing painted", painted > IMG_WIDTH * IMG_HEIGHT / 50);
+        assertTrue(different + " of " + painted + " pixels are different", different <= maxDifferent);
+    }
+
+    /**
+     * Checks that the data is painted as without cache, also after the data, the selection or the view changed.
+     */
+    @Test
+    public void testPainting() {
+        StyledMapTileCache cache = new StyledMapTileCache(ds);
+        try {
+            assertSamePainting(cache, 0);
+            moving.setCoor(new LatLon(0.0008, 0.0012));
+            assertSamePainting(cache, 0);
+            street.put("highway", "motorway");
+            assertSamePainting(cache, 0);
+            // highlighted and selected primitives are painted on top of all others
+            ds.setSelected(street);
+            assertSamePainting(cache, 300);
+            street.setHighlighted(true);
+            ds.clearSelection();
+            assertSamePainting(cache, 300);
+            nc.zoomTo(nc.getCenter().add(123.4 * nc.getScale(), 56.7 * nc.getScale()));
+            assertSamePainting(cache, 300);
+            ds.removePrimitive(moving);
+            street.setHighlighted(false);
+            assertSamePainting(cache, 0);
+            nc.zoomTo(nc.getCenter().add(-300 * nc.getScale(), 200 * nc.getScale()));
+            assertSamePainting(cache, 0);
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    /**
+     * Checks that only the preferences which change the painting flush the tiles.
+     * @throws ReflectiveOperationException if the state of the cache cannot be read
+     */
+    @Test
+    public void testPreferenceChanged() throws ReflectiveOperationException {
+        StyledMapTileCache cache = new StyledMapTileCache(ds);
+        try {
+            Main.pref.put("remotecontrol.enabled", true);
+            Main.pref.put("imagery.layers.default", "foo");
+            assertFalse((boolean) TestUtils.getPrivateField(cache, "stylesChanged"));
+            Main.pref.put("mappaint.showicons", false);
+            assertTrue((boolean) TestUtils.getPrivateField(cache, "stylesChanged"));
+        } finally {
+            cache.destroy();
+        }
+    }
+}
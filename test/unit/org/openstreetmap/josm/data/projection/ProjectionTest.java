@@ -8,16 +8,27 @@ import java.util.HashSet;
 import java.util.Random;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Unit tests for class {@link Projection}.
  */
 public class ProjectionTest {
 
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
     private static Random rand = new SecureRandom();
 
     boolean error;
@@ -99,6 +110,33 @@ public class ProjectionTest {
         throw new RuntimeException();
     }
 
+    /**
+     * Checks that {@link Projections#latlon2eastNorth(Projecting, double[])} gives the same results
+     * as the conversion of each point, sequentially and in parallel.
+     */
+    @Test
+    public void testBulkLatlon2eastNorth() {
+        for (String code : Arrays.asList("EPSG:4326", "EPSG:3857", "EPSG:2154", "EPSG:3301", "EPSG:32631")) {
+            Projection p = Projections.getProjectionByCode(code);
+            Bounds b = p.getWorldBoundsLatLon();
+            for (int count : new int[] {10, 20000}) {
+                LatLon[] points = new LatLon[count];
+                double[] coordinates = new double[2 * count];
+                for (int i = 0; i < count; i++) {
+                    points[i] = random(b);
+                    coordinates[2 * i] = points[i].lat();
+                    coordinates[2 * i + 1] = points[i].lon();
+                }
+                Projections.latlon2eastNorth(p, coordinates);
+                for (int i = 0; i < count; i++) {
+                    EastNorth en = p.latlon2eastNorth(points[i]);
+                    Assert.assertEquals(code, en.east(), coordinates[2 * i], 1e-6);
+                    Assert.assertEquals(code, en.north(), coordinates[2 * i + 1], 1e-6);
+                }
+            }
+        }
+    }
+
     boolean error2;
     String text2;
     Collection<String> projIds;
@@ -0,0 +1,216 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link IncrementalValidator}.
+ */
+public class IncrementalValidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().platform().projection().presets().rlTraffic().timeout(600000);
+
+    private static final String[][] TAGS = {
+        {"highway", "residential"}, {"highway", "primary"}, {"highway", "footway"}, {"railway", "rail"},
+        {"building", "yes"}, {"waterway", "river"}, {"layer", "1"}, {"name", "Friedrich-Engels-Ring"},
+        {"name", "Friedrich-Engels-Rink"}, {"power", "line"}, {"amenity", "bench"}, {"area", "yes"}, {"barrier", "fence"},
+    };
+
+    private DataSet ds;
+    private OsmDataLayer layer;
+    private Random random;
+    private final List<Command> executed = new ArrayList<>();
+
+    private static List<String> describe(List<TestError> errors) {
+        // the order of the errors and their primitives depends on the order in which the primitives have been visited
+        return errors.stream()
+                .map(e -> e.getTester().getClass().getName() + ' ' + e.getCode() + ' ' + e.getMessage() + ' ' + e.getPrimitives().stream()
+                        .map(p -> p.getPrimitiveId().toString()).sorted().collect(Collectors.joining(",")))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes all primitives which are not completely inside the given area.
+     * @param area the area to keep
+     */
+    private void crop(BBox area) {
+        List<OsmPrimitive> removed = new ArrayList<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Relation r : ds.getRelations()) {
+                if (r.getMemberPrimitivesList().stream().anyMatch(m -> m.isIncomplete() || removed.contains(m)
+                        || (m instanceof Way && !area.bounds(m.getBBox())) || (m instanceof Node && !area.bounds(((Node) m).getCoor())))) {
+                    ds.removePrimitive(r);
+                    removed.add(r);
+                    changed = true;
+                }
+            }
+        }
+        for (Way w : ds.getWays()) {
+            if (w.getReferrers().isEmpty() && !area.bounds(w.getBBox())) {
+                ds.removePrimitive(w);
+            }
+        }
+        for (Node n : ds.getNodes()) {
+            if (n.getReferrers().isEmpty() && (!n.isLatLonKnown() || !area.bounds(n.getCoor()))) {
+                ds.removePrimitive(n);
+            }
+        }
+    }
+
+    private <T extends OsmPrimitive> T randomPrimitive(Collection<T> primitives) {
+        List<T> list = primitives.stream().filter(p -> !p.isDeleted() && !p.isIncomplete()).collect(Collectors.toList());
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private Command randomCommand() {
+        switch (random.nextInt(8)) {
+            case 0: {
+                Node node = randomPrimitive(ds.getNodes());
+                return new MoveCommand(node, (random.nextDouble() - 0.5) * 100, (random.nextDouble() - 0.5) * 100);
+            }
+            case 1: {
+                // move a node onto another node
+                Node node = randomPrimitive(ds.getNodes());
+                return new MoveCommand(node, randomPrimitive(ds.getNodes()).getCoor());
+            }
+            case 2: {
+                OsmPrimitive p = randomPrimitive(ds.allPrimitives());
+                String[] tag = TAGS[random.nextInt(TAGS.length)];
+                return new ChangePropertyCommand(p, tag[0], random.nextBoolean() ? tag[1] : null);
+            }
+            case 3: {
+                Way way = randomPrimitive(ds.getWays());
+                return new ChangePropertyCommand(way, way.keySet().isEmpty() ? "highway" : way.keySet().iterator().next(), null);
+            }
+            case 4:
+                return DeleteCommand.delete(layer, Collections.singleton(randomPrimitive(ds.allPrimitives())), true, true);
+            case 5: {
+                // add a way crossing or connecting existing ways
+                Node start = randomPrimitive(ds.getNodes());
+                Node end = new Node(new LatLon(start.getCoor().lat() + (random.nextDouble() - 0.5) / 1000,
+                        start.getCoor().lon() + (random.nextDouble() - 0.5) / 1000));
+                Way way = new Way();
+                way.setNodes(Arrays.asList(random.nextBoolean() ? start : new Node(start.getCoor()), end));
+                String[] tag = TAGS[random.nextInt(TAGS.length)];
+                way.put(tag[0], tag[1]);
+                List<Command> cmds = new ArrayList<>();
+                for (Node n : way.getNodes()) {
+                    if (n.getDataSet() == null) {
+                        cmds.add(new AddCommand(ds, n));
+                    }
+                }
+                cmds.add(new AddCommand(ds, way));
+                return new SequenceCommand("add way", cmds);
+            }
+            case 6: {
+                Way way = randomPrimitive(ds.getWays());
+                if (way.getNodesCount() < 3) {
+                    return null;
+                }
+                List<Node> nodes = way.getNodes();
+                nodes.remove(random.nextInt(nodes.size()));
+                return new ChangeNodesCommand(way, nodes);
+            }
+            default: {
+                if (executed.isEmpty()) {
+                    return null;
+                }
+                executed.remove(executed.size() - 1).undoCommand();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Checks that validating a changed data set incrementally finds the same errors as validating it completely.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testIncrementalEqualsFull() throws Exception {
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        // validate a part of the city to keep the test fast
+        BBox bounds = new BBox(ds.getNodes().iterator().next());
+        ds.getNodes().stream().filter(Node::isLatLonKnown).forEach(n -> bounds.add(n.getCoor()));
+        LatLon center = bounds.getCenter();
+        double dLat = (bounds.getTopLeftLat() - bounds.getBottomRightLat()) / 12;
+        double dLon = (bounds.getBottomRightLon() - bounds.getTopLeftLon()) / 12;
+        crop(new BBox(center.lon() - dLon, center.lat() - dLat, center.lon() + dLon, center.lat() + dLat));
+        layer = new OsmDataLayer(ds, null, null);
+        // some tests look at the edit data set
+        Main.getLayerManager().addLayer(layer);
+        OsmValidator.initializeGridDetail();
+        OsmValidator.initializeTests();
+        Collection<org.openstreetmap.josm.data.validation.Test> tests = OsmValidator.getTests();
+        ValidationRunner runner = new ValidationRunner(null);
+
+        IncrementalValidator validator = new IncrementalValidator(ds, runner);
+        try {
+            List<String> expected = describe(runner.run(tests, ds.allNonDeletedPrimitives(), false, null));
+            assertTrue(expected.size() > 100);
+            assertEquals(expected, describe(validator.validate(tests, null)));
+            random = new Random(42);
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 1 + round % 5; i++) {
+                    Command cmd = randomCommand();
+                    if (cmd != null && cmd.executeCommand()) {
+                        executed.add(cmd);
+                    }
+                }
+                // moved nodes keep their exact projected coordinates until some test projects them differently,
+                // which may change the result of tests for touching segments
+                ds.invalidateEastNorthCache();
+                List<String> actual = describe(validator.validate(tests, null));
+                expected = describe(runner.run(tests, ds.allNonDeletedPrimitives(), false, null));
+                assertEquals("round " + round, expected, actual);
+            }
+        } finally {
+            validator.destroy();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.tests.UnconnectedWays;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link ValidationRunner}.
+ */
+public class ValidationRunnerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().platform().projection().presets().rlTraffic().timeout(300000);
+
+    private static List<String> describe(List<TestError> errors) {
+        return errors.stream()
+                .map(e -> e.getTester().getClass().getName() + ' ' + e.getCode() + ' ' + e.getMessage() + ' ' + e.getPrimitives().stream()
+                        .map(p -> p.getPrimitiveId().toString()).collect(Collectors.joining(",")))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that running the tests concurrently finds the same errors in the same order as running them sequentially.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentEqualsSequential() throws Exception {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        // some tests look at the edit data set
+        Main.getLayerManager().addLayer(new OsmDataLayer(ds, null, null));
+        OsmValidator.initializeGridDetail();
+        OsmValidator.initializeTests();
+        // UnconnectedWays reports its errors in the iteration order of a HashSet, which may change from run to run
+        Collection<org.openstreetmap.josm.data.validation.Test> tests = OsmValidator.getTests().stream()
+                .filter(t -> !(t instanceof UnconnectedWays))
+                .collect(Collectors.toList());
+        assertTrue(tests.stream().anyMatch(t -> t.getThreadSafety() == org.openstreetmap.josm.data.validation.Test.ThreadSafety.NONE));
+        assertTrue(tests.stream().anyMatch(t -> t.getThreadSafety() == org.openstreetmap.josm.data.validation.Test.ThreadSafety.ISOLATED));
+        assertTrue(tests.stream().anyMatch(t -> t.getThreadSafety() == org.openstreetmap.josm.data.validation.Test.ThreadSafety.PER_PRIMITIVE));
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+
+        List<String> expected = describe(new ValidationRunner(null).run(tests, primitives, false, null));
+        assertTrue(expected.size() > 100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(expected, describe(new ValidationRunner(pool).run(tests, primitives, false, null)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
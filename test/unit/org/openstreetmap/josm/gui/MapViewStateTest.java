@@ -142,6 +142,23 @@ public class MapViewStateTest {
         }
     }
 
+    /**
+     * Test {@link MapViewState#usingViewRectangle}
+     */
+    @Test
+    public void testUsingViewRectangle() {
+        MapViewState part = state.usingViewRectangle(-10.5, 20, 50, 40);
+        assertEquals(50, part.getViewWidth(), 0.01);
+        assertEquals(40, part.getViewHeight(), 0.01);
+        assertEquals(state.getScale(), part.getScale(), 1e-10);
+        for (EastNorth en : Arrays.asList(new EastNorth(100, 100), new EastNorth(-1, -2.5))) {
+            MapViewPoint should = state.getPointFor(en);
+            MapViewPoint result = part.getPointFor(en);
+            assertEquals("x", should.getInViewX() + 10.5, result.getInViewX(), 0.01);
+            assertEquals("y", should.getInViewY() - 20, result.getInViewY(), 0.01);
+        }
+    }
+
     /**
      * Test {@link MapViewState#OUTSIDE_BOTTOM} and similar constants.
      */
@@ -2,12 +2,20 @@
 package org.openstreetmap.josm.gui;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
 
 import javax.swing.JPanel;
 
@@ -18,10 +26,16 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
@@ -208,6 +222,91 @@ public class NavigatableComponentTest {
         assertThat(bounds.getMax(), CustomMatchers.is(component.getLatLon(WIDTH, 0)));
     }
 
+    /**
+     * Checks that the objects found near a point with the pick index are the ones found without it,
+     * also after nodes have been moved and ways added.
+     */
+    @Test
+    public void testPickIndex() {
+        component.zoomTo(new Bounds(45, 5, 45.01, 5.015));
+        Random random = new Random(42);
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Node n = new Node(component.getLatLon(random.nextInt(WIDTH + 40) - 20, random.nextInt(HEIGHT + 40) - 20));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        for (int i = 0; i < 300; i++) {
+            addWay(ds, random, nodes);
+        }
+        OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+        Main.getLayerManager().addLayer(layer);
+        try {
+            assertSamePicks(random);
+            for (int i = 0; i < 50; i++) {
+                nodes.get(random.nextInt(nodes.size())).setCoor(component.getLatLon(random.nextInt(WIDTH), random.nextInt(HEIGHT)));
+                addWay(ds, random, nodes);
+            }
+            assertSamePicks(random);
+        } finally {
+            Main.getLayerManager().removeLayer(layer);
+            NavigatableComponent.PROP_PICK_INDEX.remove();
+        }
+    }
+
+    /**
+     * Checks that the pick index does not keep the data set of a removed edit layer.
+     * @throws ReflectiveOperationException if the index cannot be read
+     */
+    @Test
+    public void testPickIndexDestroyedWithEditLayer() throws ReflectiveOperationException {
+        component.zoomTo(new Bounds(45, 5, 45.01, 5.015));
+        component.addNotify();
+        DataSet ds = new DataSet();
+        ds.addPrimitive(new Node(component.getLatLon(WIDTH / 2, HEIGHT / 2)));
+        OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+        Main.getLayerManager().addLayer(layer);
+        try {
+            NavigatableComponent.PROP_PICK_INDEX.put(true);
+            assertEquals(1, component.getNearestNodes(new Point(WIDTH / 2, HEIGHT / 2), OsmPrimitive::isUsable).size());
+            assertNotNull(TestUtils.getPrivateField(NavigatableComponent.class, component, "pickIndex"));
+            Main.getLayerManager().removeLayer(layer);
+            assertNull(TestUtils.getPrivateField(NavigatableComponent.class, component, "pickIndex"));
+        } finally {
+            component.removeNotify();
+            NavigatableComponent.PROP_PICK_INDEX.remove();
+        }
+    }
+
+    private static void addWay(DataSet ds, Random random, List<Node> nodes) {
+        Way w = new Way();
+        w.setNodes(Arrays.asList(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())),
+                nodes.get(random.nextInt(nodes.size()))));
+        ds.addPrimitive(w);
+    }
+
+    private void assertSamePicks(Random random) {
+        for (int i = 0; i < 500; i++) {
+            Point p = new Point(random.nextInt(WIDTH + 20) - 10, random.nextInt(HEIGHT + 20) - 10);
+            assertSamePicks(() -> component.getNearestNodes(p, OsmPrimitive::isUsable));
+            assertSamePicks(() -> component.getNearestWaySegments(p, OsmPrimitive::isUsable));
+            assertSamePicks(() -> component.getAllNearest(p, OsmPrimitive::isUsable));
+        }
+    }
+
+    /**
+     * Compares the objects found with and without the pick index. The order of equally distant objects is not specified.
+     */
+    private static void assertSamePicks(Supplier<List<?>> search) {
+        NavigatableComponent.PROP_PICK_INDEX.put(false);
+        List<?> expected = search.get();
+        NavigatableComponent.PROP_PICK_INDEX.put(true);
+        List<?> actual = search.get();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
     /**
      * Check that EastNorth is the same as expected after zooming the NavigatableComponent.
      *
@@ -1,9 +1,25 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ConstantExpression;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.Functions;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.NullExpression;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ParameterFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -29,4 +45,62 @@ public class ExpressionFactoryTest {
     public void testUtilityClass() throws ReflectiveOperationException {
         UtilityClassTestUtil.assertUtilityClassWellDefined(Functions.class);
     }
+
+    private static Expression parse(String expression) throws ParseException {
+        return new MapCSSParser(new StringReader(expression)).expression();
+    }
+
+    private static Object evaluate(String expression, String primitive) throws ParseException {
+        return parse(expression).evaluate(new Environment(OsmUtils.createPrimitive(primitive)));
+    }
+
+    /**
+     * Tests that function calls with constant arguments are evaluated when the expression is created.
+     * @throws ParseException if the expression cannot be parsed
+     */
+    @Test
+    public void testConstantFolding() throws ParseException {
+        Expression e = parse("(1 + 2) * 3 - sqrt(16)");
+        assertTrue(e instanceof ConstantExpression);
+        assertEquals(5.0f, ((Number) e.evaluate(null)).floatValue(), 1e-6);
+        assertTrue(parse("concat(upper(\"a\"), \"b\")") instanceof ConstantExpression);
+        assertEquals("Ab", parse("concat(upper(\"a\"), \"b\")").evaluate(null));
+        assertTrue(parse("eval(\"x\")") instanceof ConstantExpression);
+        assertSame(NullExpression.INSTANCE, parse("1 / 0"));
+        // functions depending on the primitive, or giving a different result on each call
+        assertTrue(parse("tag(\"x\")") instanceof ParameterFunction);
+        assertTrue(parse("random()") instanceof ParameterFunction);
+        assertTrue(parse("2 * tag(\"x\")") instanceof ExpressionFactory.ArrayFunction);
+    }
+
+    /**
+     * Tests that a conditional with a constant condition is replaced by the selected option.
+     */
+    @Test
+    public void testConstantCondition() {
+        Expression tag = ExpressionFactory.createFunctionExpression("tag", Collections.singletonList(new LiteralExpression("x")));
+        Expression e = ExpressionFactory.createFunctionExpression("cond", Arrays.asList(new LiteralExpression(true), tag,
+                NullExpression.INSTANCE));
+        assertSame(tag, e);
+        e = ExpressionFactory.createFunctionExpression("cond", Arrays.asList(new LiteralExpression(false), tag,
+                new LiteralExpression("y")));
+        assertTrue(e instanceof ConstantExpression);
+        assertEquals("y", e.evaluate(null));
+    }
+
+    /**
+     * Tests the evaluation of functions through their method handles, with fixed and variable arguments.
+     * @throws ParseException if the expression cannot be parsed
+     */
+    @Test
+    public void testEvaluation() throws ParseException {
+        String way = "way width=2 name=foo ref=A1";
+        assertEquals(7.0f, ((Number) evaluate("tag(\"width\") * 3 + 1", way)).floatValue(), 1e-6);
+        assertEquals(2.0f, ((Number) evaluate("max(tag(\"width\"), 1)", way)).floatValue(), 1e-6);
+        assertEquals("FOO (A1)", evaluate("concat(upper(tag(\"name\")), \" \", tr(\"({0})\", tag(\"ref\")))", way));
+        assertEquals(Boolean.TRUE, evaluate("regexp_test(\"^A[0-9]+$\", tag(\"ref\"))", way));
+        assertEquals(4.0f, ((Number) evaluate("abs(-4)", way)).floatValue(), 1e-6);
+        assertNull(evaluate("tag(\"lanes\") + 1", way));
+        assertEquals("foo", evaluate("any(tag(\"lanes\"), tag(\"name\"))", way));
+    }
 }
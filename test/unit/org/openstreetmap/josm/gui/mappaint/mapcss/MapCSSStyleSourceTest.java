@@ -0,0 +1,78 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.io.PrecompiledSourceCache;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapCSSStyleSource}.
+ */
+public class MapCSSStyleSourceTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int getLinkDepth(String css) {
+        MapCSSStyleSource source = new MapCSSStyleSource(css);
+        source.loadStyleSource();
+        assertEquals(source.getErrors().toString(), 0, source.getErrors().size());
+        return source.getLinkDepth();
+    }
+
+    /**
+     * Test {@link MapCSSStyleSource#getLinkDepth()}.
+     */
+    @Test
+    public void testGetLinkDepth() {
+        assertEquals(0, getLinkDepth("node[amenity=bench] { color: red; }"));
+        assertEquals(0, getLinkDepth("area[building] ∈ area[landuse] { color: red; }"));
+        assertEquals(1, getLinkDepth("relation[type=route] > way { color: red; } node { color: blue; }"));
+        assertEquals(1, getLinkDepth("node[highway=traffic_signals] < way { color: red; }"));
+        assertEquals(2, getLinkDepth("way > node { color: red; } node[highway=stop] + node { color: blue; }"));
+    }
+
+    /**
+     * Test that a style loaded again uses the preprocessed style of the precompiled cache, with its warnings.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPrecompiled() throws IOException {
+        File style = folder.newFile("style.mapcss");
+        Files.write(style.toPath(), ("@supports (min-josm-version: 999999) { node { color: red; } }\n"
+                + "@media (user-agent: josm) { way { color: blue; } }").getBytes(StandardCharsets.UTF_8));
+        String url = style.toURI().toString();
+        File cacheFile = PrecompiledSourceCache.getCacheFile("styles", url);
+        for (int i = 0; i < 2; i++) {
+            MapCSSStyleSource source = new MapCSSStyleSource(url, "test", "test");
+            source.loadStyleSource();
+            assertTrue(cacheFile.isFile());
+            assertEquals(source.getErrors().toString(), 0, source.getErrors().size());
+            assertTrue(source.getWarnings().toString(), source.getWarnings().stream().anyMatch(w -> w.contains("@media")));
+            assertEquals(1, source.rules.size());
+            assertEquals("way", ((Selector.GeneralSelector) source.rules.get(0).selector).getBase());
+        }
+    }
+}
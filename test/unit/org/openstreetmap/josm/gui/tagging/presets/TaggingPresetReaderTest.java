@@ -6,6 +6,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
@@ -17,7 +18,9 @@ import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.gui.tagging.presets.items.Check;
 import org.openstreetmap.josm.gui.tagging.presets.items.Key;
+import org.openstreetmap.josm.io.PrecompiledSourceCache;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.SAXException;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -65,6 +68,27 @@ public class TaggingPresetReaderTest {
         assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", keys.toString());
     }
 
+    /**
+     * Test that presets read again from the precompiled cache are the same
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testPrecompiled() throws SAXException, IOException {
+        String presetfile = TestUtils.getTestDataRoot() + "preset_chunk.xml";
+        File cacheFile = PrecompiledSourceCache.getCacheFile("presets", presetfile);
+        Utils.deleteFile(cacheFile);
+        for (int i = 0; i < 2; i++) {
+            final Collection<TaggingPreset> presets = TaggingPresetReader.readAll(presetfile, false);
+            assertTrue(cacheFile.isFile());
+            assertThat(presets, hasSize(1));
+            final TaggingPreset abc = presets.iterator().next();
+            assertEquals("ABC", abc.getName());
+            final List<String> keys = abc.data.stream().map(x -> ((Key) x).key).collect(Collectors.toList());
+            assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", keys.toString());
+        }
+    }
+
     /**
      * Validate internal presets
      * See #9027
@@ -0,0 +1,85 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link Compression} and the parallel compressors.
+ */
+public class CompressionTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static byte[] createData(int size) {
+        // compressible, but not too much
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8) + (i / 1000) % 8);
+        }
+        return data;
+    }
+
+    private static byte[] roundTrip(Compression compression, OutputStream compressor, ByteArrayOutputStream out, byte[] data)
+            throws IOException {
+        try (OutputStream os = compressor) {
+            // write single bytes too
+            if (data.length > 0) {
+                os.write(data[0]);
+            }
+            os.write(data, Math.min(1, data.length), Math.max(0, data.length - 1));
+        }
+        try (InputStream in = compression.getUncompressedInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return Utils.readBytesFromStream(in);
+        }
+    }
+
+    /**
+     * Tests that data compressed in parallel blocks is decompressed to the original data.
+     * @throws IOException never
+     */
+    @Test
+    public void testParallelRoundTrip() throws IOException {
+        for (int size : new int[] {0, 1, 1000, 4096, 50000}) {
+            byte[] data = createData(size);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertArrayEquals(data, roundTrip(Compression.GZIP, new ParallelGzipOutputStream(out, 4096, 3), out, data));
+            out = new ByteArrayOutputStream();
+            assertArrayEquals(data, roundTrip(Compression.BZIP2, new ParallelBZip2OutputStream(out, 4096, 3), out, data));
+        }
+    }
+
+    /**
+     * Tests that parallel gzip compression keeps the compression ratio of a single stream.
+     * @throws IOException never
+     */
+    @Test
+    public void testParallelGzipRatio() throws IOException {
+        byte[] data = createData(1000000);
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        roundTrip(Compression.GZIP, Compression.GZIP.getCompressedOutputStream(serial, 1), serial, data);
+        assertArrayEquals(data, roundTrip(Compression.GZIP, Compression.GZIP.getCompressedOutputStream(parallel, 2), parallel, data));
+        assertTrue(parallel.size() + " vs " + serial.size(), parallel.size() < serial.size() * 1.01);
+    }
+}
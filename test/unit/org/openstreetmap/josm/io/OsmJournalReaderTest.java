@@ -0,0 +1,143 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmJournalReader} class.
+ */
+public class OsmJournalReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        ds.setUploadPolicy(DataSet.UploadPolicy.DISCOURAGED);
+        ds.addDataSource(new DataSource(new Bounds(1, 2, 3, 4), "test"));
+        Node n1 = new Node(1, 3);
+        n1.setCoor(new LatLon(1, 2));
+        n1.put("name", "n1");
+        Node n2 = new Node(new LatLon(3, 4));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "road");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        return ds;
+    }
+
+    /**
+     * Tests that a checkpoint followed by a batch of changes is read back.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        DataSet ds = createDataSet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OsmJournalWriter writer = new OsmJournalWriter(out);
+        writer.writeCheckpoint(ds.snapshot());
+
+        Node n1 = ds.getNodes().stream().filter(n -> !n.isNew()).findFirst().get();
+        Node n2 = ds.getNodes().stream().filter(Node::isNew).findFirst().get();
+        Way w = ds.getWays().iterator().next();
+        n1.setCoor(new LatLon(5, 6));
+        n1.setModified(true);
+        Node n3 = new Node(new LatLon(7, 8));
+        ds.addPrimitive(n3);
+        w.setNodes(Arrays.asList(n1, n3));
+        ds.removePrimitive(n2);
+        Relation r = new Relation();
+        r.addMember(new RelationMember("outer", w));
+        ds.addPrimitive(r);
+        writer.addChanges(Arrays.asList(n1, n3, w, r), Collections.singleton(n2.getPrimitiveId()));
+        writer.endBatch();
+
+        DataSet read = OsmJournalReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), NullProgressMonitor.INSTANCE);
+        assertEquals(DataSet.UploadPolicy.DISCOURAGED, read.getUploadPolicy());
+        assertEquals(1, read.getDataSources().size());
+        assertEquals("test", read.getDataSources().iterator().next().origin);
+        assertEquals(2, read.getNodes().size());
+        Node rn1 = (Node) read.getPrimitiveById(n1);
+        assertEquals(new LatLon(5, 6), rn1.getCoor());
+        assertEquals("n1", rn1.get("name"));
+        assertEquals(3, rn1.getVersion());
+        assertTrue(rn1.isModified());
+        assertTrue(read.getNodes().stream().noneMatch(n -> new LatLon(3, 4).equals(n.getCoor())));
+        // new primitives get new ids when read, like with OsmReader
+        Way rw = read.getWays().iterator().next();
+        assertEquals("road", rw.get("highway"));
+        assertEquals(rn1, rw.getNode(0));
+        assertEquals(new LatLon(7, 8), rw.getNode(1).getCoor());
+        Relation rr = read.getRelations().iterator().next();
+        assertEquals("outer", rr.getRole(0));
+        assertEquals(rw, rr.getMember(0).getMember());
+    }
+
+    /**
+     * Tests that a batch with an invalid checksum ends the journal.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCorruptBatch() throws Exception {
+        DataSet ds = createDataSet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OsmJournalWriter writer = new OsmJournalWriter(out);
+        writer.writeCheckpoint(ds.snapshot());
+        int checkpointSize = out.size();
+
+        Node n1 = ds.getNodes().stream().filter(n -> !n.isNew()).findFirst().get();
+        n1.put("name", "changed");
+        writer.addChanges(Collections.singleton(n1), Collections.emptyList());
+        writer.endBatch();
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length - 1]++;
+
+        DataSet read = OsmJournalReader.parseDataSet(new ByteArrayInputStream(bytes), NullProgressMonitor.INSTANCE);
+        assertEquals("n1", read.getPrimitiveById(n1).get("name"));
+        assertEquals(3, read.allPrimitives().size());
+
+        // a torn batch, the end of the frame is missing
+        read = OsmJournalReader.parseDataSet(new ByteArrayInputStream(Arrays.copyOf(bytes, checkpointSize + 12)),
+                NullProgressMonitor.INSTANCE);
+        assertEquals("n1", read.getPrimitiveById(n1).get("name"));
+        assertFalse(read.getPrimitiveById(n1).isModified());
+    }
+
+    /**
+     * Tests that a file which is not a journal is rejected.
+     * @throws Exception if any error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testNotAJournal() throws Exception {
+        OsmJournalReader.parseDataSet(new ByteArrayInputStream("<osm/>".getBytes(StandardCharsets.UTF_8)), NullProgressMonitor.INSTANCE);
+    }
+}
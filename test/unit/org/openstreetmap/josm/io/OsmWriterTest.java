@@ -2,20 +2,46 @@
 package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Unit tests of {@link OsmWriter} class.
  */
 public class OsmWriterTest {
 
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
     /**
      * Unit test of {@link OsmWriter#byIdComparator}.
      */
@@ -36,4 +62,92 @@ public class OsmWriterTest {
                 -3, -12, -20, -9223372036854775808L, 0, 2, 12, 65, 9223372036854775807L
         }, longIds);
     }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 2));
+        Node n2 = new Node(new LatLon(3, 4));
+        Node n3 = new Node(new LatLon(5, 6));
+        n1.put("name", "foo");
+        n3.setDeleted(true);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(w);
+        return ds;
+    }
+
+    private static String write(DataSet ds) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), false, ds.getVersion())) {
+            w.writeLayer(new OsmDataLayer(ds, "test", null));
+        }
+        return sw.toString();
+    }
+
+    private static String write(DataSetSnapshot snapshot) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), false, snapshot.getVersion())) {
+            w.write(snapshot);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Unit test of {@link OsmWriter#write(DataSetSnapshot)}.
+     * @throws IOException never
+     */
+    @Test
+    public void testWriteSnapshot() throws IOException {
+        DataSet ds = createDataSet();
+        String expected = write(ds);
+        DataSetSnapshot snapshot = ds.snapshot();
+        assertEquals(expected, write(snapshot));
+        ds.getNodes().forEach(n -> n.put("name", "bar"));
+        ds.addPrimitive(new Node(LatLon.ZERO));
+        assertEquals(expected, write(snapshot));
+    }
+
+    /**
+     * Tests that the data set can be modified while a snapshot is being written.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testEditWhileWritingSnapshot() throws Exception {
+        DataSet ds = createDataSet();
+        String expected = write(ds);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch edited = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                if (started.getCount() > 0) {
+                    started.countDown();
+                    try {
+                        edited.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                bytes.write(b);
+            }
+        };
+        Thread writer = new Thread(() -> {
+            try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(new Utf8OutputStreamWriter(out, 16)), false, null)) {
+                w.write(ds.snapshot());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // requires the write lock, the writer must not hold the read lock
+        ds.getNodes().forEach(n -> n.setCoor(LatLon.ZERO));
+        edited.countDown();
+        writer.join();
+        assertEquals(expected, bytes.toString("UTF-8"));
+    }
 }
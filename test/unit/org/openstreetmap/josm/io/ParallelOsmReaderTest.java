@@ -0,0 +1,156 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelOsmReader} class.
+ */
+public class ParallelOsmReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().timeout(60000);
+
+    static byte[] readFile(String file) throws Exception {
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Describes a primitive independently of ids generated while parsing (for negative ids).
+     */
+    private static String describe(OsmPrimitive p) {
+        StringBuilder sb = new StringBuilder(p.getType().getAPIName())
+                .append(p.isNew() ? "" : Long.toString(p.getId()))
+                .append(p.isModified()).append(p.isDeleted()).append(p.isIncomplete()).append(p.getVersion())
+                .append(new TreeMap<>(p.getKeys()));
+        if (p instanceof Node) {
+            sb.append(((Node) p).getCoor());
+        } else if (p instanceof Way) {
+            sb.append(((Way) p).getNodes().stream().map(ParallelOsmReaderTest::describe).collect(Collectors.toList()));
+        } else if (p instanceof Relation) {
+            sb.append(((Relation) p).getMembers().stream()
+                    .map(m -> m.getRole() + m.getType() + (m.getMember().isNew() ? "" : m.getMember().getId()))
+                    .collect(Collectors.toList()));
+        }
+        return sb.toString();
+    }
+
+    static List<String> describe(DataSet ds) {
+        return ds.allPrimitives().stream().map(ParallelOsmReaderTest::describe).sorted().collect(Collectors.toList());
+    }
+
+    private static void assertSameDataSet(byte[] data, int chunkSize) throws Exception {
+        DataSet serial = OsmReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+        DataSet parallel = new ParallelOsmReader(4, chunkSize).doParseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+        assertEquals(serial.getVersion(), parallel.getVersion());
+        assertEquals(serial.getUploadPolicy(), parallel.getUploadPolicy());
+        assertEquals(serial.getDataSourceBounds(), parallel.getDataSourceBounds());
+        assertEquals(serial.getChangeSetTags(), parallel.getChangeSetTags());
+        assertEquals(describe(serial), describe(parallel));
+    }
+
+    /**
+     * Checks that a file with negative ids and modified primitives is loaded as by {@link OsmReader}.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSameAsSerialNegativeIds() throws Exception {
+        byte[] data = readFile("data_nodist/multipolygon.osm");
+        assertSameDataSet(data, 1024);
+        assertSameDataSet(data, ParallelOsmReader.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Checks that a real-world file is loaded as by {@link OsmReader}.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSameAsSerialNeubrandenburg() throws Exception {
+        byte[] data = readFile("data_nodist/neubrandenburg.osm.bz2");
+        assertSameDataSet(data, 64 * 1024);
+    }
+
+    /**
+     * Checks that comments, byte order marks and elements split across chunks are handled.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCommentsAndBom() throws Exception {
+        StringBuilder sb = new StringBuilder("\uFEFF<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<osm version='0.6' generator='test'>\n"
+                + "<bounds minlat='0' minlon='0' maxlat='1' maxlon='1'/>\n");
+        for (int i = 1; i <= 200; i++) {
+            sb.append("<!-- <node id='").append(-i).append("'/> -->\n");
+            sb.append("<node id='").append(i).append("' version='1' lat='0.5' lon='0.5'><tag k='name' v='\u00e4").append(i)
+              .append("'/></node>\n");
+            sb.append("<way\tid='").append(i).append("' version='1'><nd ref='").append(i).append("'/><nd ref='")
+              .append(i % 200 + 1).append("'/></way>\n");
+        }
+        sb.append("<relation id='1' version='1'><member type='way' ref='1' role='outer'/></relation>\n</osm>\n");
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+        assertSameDataSet(data, 100);
+        DataSet ds = new ParallelOsmReader(2, 100).doParseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+        assertEquals(200, ds.getNodes().size());
+        assertEquals(200, ds.getWays().size());
+        assertEquals(1, ds.getDataSources().size());
+    }
+
+    /**
+     * Checks that files without elements, or with an unknown root, are handled.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testNoElements() throws Exception {
+        assertTrue(new ParallelOsmReader(2, 100).doParseDataSet(new ByteArrayInputStream(
+                "<?xml version='1.0' encoding='UTF-8'?><osm version='0.6'/>".getBytes(StandardCharsets.UTF_8)),
+                NullProgressMonitor.INSTANCE).allPrimitives().isEmpty());
+        assertTrue(new ParallelOsmReader(2, 100).doParseDataSet(new ByteArrayInputStream(
+                "<nonosm><node id='1' version='1' lat='0' lon='0'/></nonosm>".getBytes(StandardCharsets.UTF_8)),
+                NullProgressMonitor.INSTANCE).allPrimitives().isEmpty());
+    }
+
+    /**
+     * Checks that errors in a chunk are reported.
+     * @throws Exception if any error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testError() throws Exception {
+        new ParallelOsmReader(2, 10).doParseDataSet(new ByteArrayInputStream(
+                "<osm version='0.6'><node id='1' version='1' lat='0' lon='0'/><node id='0'/></osm>".getBytes(StandardCharsets.UTF_8)),
+                NullProgressMonitor.INSTANCE);
+    }
+}
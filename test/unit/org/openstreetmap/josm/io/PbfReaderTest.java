@@ -0,0 +1,260 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PbfReader} and {@link PbfWriter} classes.
+ */
+public class PbfReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().timeout(60000);
+
+    private static byte[] write(DataSet ds) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.writeData(ds);
+        }
+        return out.toByteArray();
+    }
+
+    private static DataSet read(byte[] data, int threads) throws Exception {
+        return PbfReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE, threads);
+    }
+
+    /**
+     * Checks that a real-world file written as PBF is read back as from XML, with one or several threads.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTripNeubrandenburg() throws Exception {
+        DataSet xml = OsmReader.parseDataSet(new ByteArrayInputStream(
+                ParallelOsmReaderTest.readFile("data_nodist/neubrandenburg.osm.bz2")), NullProgressMonitor.INSTANCE);
+        byte[] pbf = write(xml);
+        for (int threads : new int[] {1, 4}) {
+            DataSet ds = read(pbf, threads);
+            assertEquals(xml.getDataSourceBounds(), ds.getDataSourceBounds());
+            assertEquals(ParallelOsmReaderTest.describe(xml), ParallelOsmReaderTest.describe(ds));
+        }
+    }
+
+    /**
+     * Checks that new primitives, users, timestamps and members survive a round trip.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTripMetadata() throws Exception {
+        DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(-1.5, -2.25, 1.5, 2.25), "test"));
+        Node n1 = new Node(1, 3);
+        n1.setCoor(new LatLon(-1.2345678, 2.1234567));
+        n1.setUser(User.createOsmUser(42, "mäpper"));
+        n1.setRawTimestamp(1500000000);
+        n1.setChangesetId(123456);
+        n1.put("name", "東京");
+        ds.addPrimitive(n1);
+        Node n2 = new Node(new LatLon(1, 1));
+        n2.put("amenity", "bench");
+        ds.addPrimitive(n2);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "footway");
+        ds.addPrimitive(w);
+        Relation r = new Relation(7, 1);
+        r.setMembers(Arrays.asList(new RelationMember("from", w), new RelationMember("", n1)));
+        ds.addPrimitive(r);
+
+        DataSet result = read(write(ds), 2);
+        assertEquals(ds.getDataSourceBounds(), result.getDataSourceBounds());
+        assertEquals("test", result.getDataSources().iterator().next().origin);
+        assertEquals(ParallelOsmReaderTest.describe(ds), ParallelOsmReaderTest.describe(result));
+        Node n = (Node) result.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals(42, n.getUser().getId());
+        assertEquals("mäpper", n.getUser().getName());
+        assertEquals(1500000000, n.getRawTimestamp());
+        assertEquals(123456, n.getChangesetId());
+        Way way = result.getWays().iterator().next();
+        assertTrue(way.isNew());
+        assertTrue(way.getNode(1).isNew());
+        assertEquals("bench", way.getNode(1).get("amenity"));
+    }
+
+    /**
+     * Checks that deleted and incomplete primitives are not written.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testDeletedAndIncomplete() throws Exception {
+        DataSet ds = new DataSet();
+        Node deleted = new Node(1, 1);
+        deleted.setCoor(LatLon.ZERO);
+        ds.addPrimitive(deleted);
+        deleted.setDeleted(true);
+        ds.addPrimitive(new Node(2));
+        Relation r = new Relation(3, 1);
+        ds.addPrimitive(r);
+        r.setMembers(Arrays.asList(new RelationMember("", ds.getPrimitiveById(2, OsmPrimitiveType.NODE))));
+
+        DataSet result = read(write(ds), 1);
+        assertEquals(2, result.allPrimitives().size());
+        assertTrue(result.getPrimitiveById(2, OsmPrimitiveType.NODE).isIncomplete());
+        assertFalse(result.getPrimitiveById(3, OsmPrimitiveType.RELATION).isIncomplete());
+    }
+
+    private static byte[] file(ProtobufOutput... blocks) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < blocks.length; i++) {
+            ProtobufOutput blob = new ProtobufOutput();
+            blob.writeMessageField(1, blocks[i]);
+            ProtobufOutput header = new ProtobufOutput();
+            header.writeStringField(1, i == 0 ? "OSMHeader" : "OSMData");
+            header.writeVarintField(3, blob.size());
+            out.writeInt(header.size());
+            header.writeTo(out);
+            blob.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ProtobufOutput header(String... features) {
+        ProtobufOutput header = new ProtobufOutput();
+        for (String feature : features) {
+            header.writeStringField(4, feature);
+        }
+        return header;
+    }
+
+    /**
+     * Checks that nodes not using the dense format, and granularity and offsets, are read.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testNonDenseNodes() throws Exception {
+        ProtobufOutput strings = new ProtobufOutput();
+        strings.writeStringField(1, "");
+        strings.writeStringField(1, "name");
+        strings.writeStringField(1, "foo");
+        ProtobufOutput keys = new ProtobufOutput();
+        keys.writeVarint(1);
+        ProtobufOutput values = new ProtobufOutput();
+        values.writeVarint(2);
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeVarintField(1, 2);
+        ProtobufOutput node = new ProtobufOutput();
+        node.writeSignedVarintField(1, 17);
+        node.writeMessageField(2, keys);
+        node.writeMessageField(3, values);
+        node.writeMessageField(4, info);
+        node.writeSignedVarintField(8, 5);
+        node.writeSignedVarintField(9, -3);
+        ProtobufOutput group = new ProtobufOutput();
+        group.writeMessageField(1, node);
+        ProtobufOutput block = new ProtobufOutput();
+        block.writeMessageField(1, strings);
+        block.writeMessageField(2, group);
+        block.writeVarintField(17, 1000);
+        block.writeVarintField(19, 1_000_000_000L);
+        block.writeVarintField(20, 2_000_000_000L);
+
+        DataSet ds = read(file(header("OsmSchema-V0.6"), block), 1);
+        Node n = (Node) ds.getPrimitiveById(17, OsmPrimitiveType.NODE);
+        assertNotNull(n);
+        assertEquals(2, n.getVersion());
+        assertEquals("foo", n.get("name"));
+        assertEquals(new LatLon(1.000005, 1.999997), n.getCoor());
+    }
+
+    /**
+     * Checks that dense nodes without any tags are read, when the block has no keys_vals delimiters at all.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testUntaggedDenseNodes() throws Exception {
+        ProtobufOutput strings = new ProtobufOutput();
+        strings.writeStringField(1, "");
+        ProtobufOutput ids = new ProtobufOutput();
+        ProtobufOutput lats = new ProtobufOutput();
+        ProtobufOutput lons = new ProtobufOutput();
+        ProtobufOutput versions = new ProtobufOutput();
+        for (int i = 0; i < 3; i++) {
+            // delta coded, in units of 100 nanodegrees
+            ids.writeSignedVarint(1);
+            lats.writeSignedVarint(10_000_000);
+            lons.writeSignedVarint(-10_000_000);
+            versions.writeVarint(1);
+        }
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeMessageField(1, versions);
+        ProtobufOutput dense = new ProtobufOutput();
+        dense.writeMessageField(1, ids);
+        dense.writeMessageField(5, info);
+        dense.writeMessageField(8, lats);
+        dense.writeMessageField(9, lons);
+        ProtobufOutput group = new ProtobufOutput();
+        group.writeMessageField(2, dense);
+        ProtobufOutput block = new ProtobufOutput();
+        block.writeMessageField(1, strings);
+        block.writeMessageField(2, group);
+
+        DataSet ds = read(file(header("OsmSchema-V0.6", "DenseNodes"), block), 1);
+        assertEquals(3, ds.getNodes().size());
+        for (int i = 1; i <= 3; i++) {
+            Node n = (Node) ds.getPrimitiveById(i, OsmPrimitiveType.NODE);
+            assertNotNull(n);
+            assertFalse(n.hasKeys());
+            assertEquals(new LatLon(i, -i), n.getCoor());
+        }
+    }
+
+    /**
+     * Checks that unsupported required features are reported.
+     * @throws Exception if any error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testUnsupportedFeature() throws Exception {
+        read(file(header("OsmSchema-V0.6", "LocationsOnWays")), 1);
+    }
+
+    /**
+     * Checks that truncated files are reported.
+     * @throws Exception if any error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testTruncated() throws Exception {
+        DataSet ds = new DataSet();
+        ds.addPrimitive(new Node(new LatLon(1, 2)));
+        byte[] data = write(ds);
+        read(Arrays.copyOf(data, data.length - 3), 2);
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import net.trajano.commons.testing.UtilityClassTestUtil;
+
+/**
+ * Unit tests of {@link PrecompiledSourceCache} class.
+ */
+public class PrecompiledSourceCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Tests that {@code PrecompiledSourceCache} satisfies utility class criterias.
+     * @throws ReflectiveOperationException if an error occurs
+     */
+    @Test
+    public void testUtilityClass() throws ReflectiveOperationException {
+        UtilityClassTestUtil.assertUtilityClassWellDefined(PrecompiledSourceCache.class);
+    }
+
+    /**
+     * Tests that a stored source is only read back for the same content and format.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testStoreAndOpen() throws IOException {
+        String url = "resource://test/precompiled";
+        byte[] hash = PrecompiledSourceCache.hash("content".getBytes(StandardCharsets.UTF_8));
+        PrecompiledSourceCache.store("test", url, 1, hash, out -> PrecompiledSourceCache.writeString(out, "parsed"));
+        try (DataInputStream in = PrecompiledSourceCache.open("test", url, 1, hash)) {
+            assertEquals("parsed", PrecompiledSourceCache.readString(in));
+        }
+        assertNull(PrecompiledSourceCache.open("test", url, 2, hash));
+        assertNull(PrecompiledSourceCache.open("test", url, 1,
+                PrecompiledSourceCache.hash("changed".getBytes(StandardCharsets.UTF_8))));
+        assertNull(PrecompiledSourceCache.open("test", "resource://test/other", 1, hash));
+        PrecompiledSourceCache.PROP_ENABLED.put(false);
+        assertNull(PrecompiledSourceCache.open("test", url, 1, hash));
+    }
+}
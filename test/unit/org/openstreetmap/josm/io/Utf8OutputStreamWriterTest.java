@@ -0,0 +1,66 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link Utf8OutputStreamWriter}.
+ */
+public class Utf8OutputStreamWriterTest {
+
+    private static final String TEXT = "Straße город 東京 😀 <tag k='name' v=\"x\"/>\n";
+
+    private static byte[] write(Writer writer, ByteArrayOutputStream out, String... parts) throws IOException {
+        try (Writer w = writer) {
+            for (String part : parts) {
+                w.write(part);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertSameAsOutputStreamWriter(int bufferSize, String... parts) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        assertArrayEquals(
+                write(new OutputStreamWriter(expected, StandardCharsets.UTF_8), expected, parts),
+                write(new Utf8OutputStreamWriter(actual, bufferSize), actual, parts));
+    }
+
+    /**
+     * Tests that the output is the one of an {@link OutputStreamWriter}, whatever the buffer size.
+     * @throws IOException never
+     */
+    @Test
+    public void testEncoding() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(TEXT);
+        }
+        for (int bufferSize : new int[] {4, 5, 7, 64, 1000, 65536}) {
+            assertSameAsOutputStreamWriter(bufferSize, TEXT);
+            assertSameAsOutputStreamWriter(bufferSize, sb.toString());
+        }
+    }
+
+    /**
+     * Tests surrogate pairs split across writes, and malformed surrogates.
+     * @throws IOException never
+     */
+    @Test
+    public void testSurrogates() throws IOException {
+        assertSameAsOutputStreamWriter(16, "a\ud83d", "\ude00b");
+        assertSameAsOutputStreamWriter(16, "a\ud83d", "b");
+        assertSameAsOutputStreamWriter(16, "a\ude00b");
+        assertSameAsOutputStreamWriter(16, "a\ud83d😀");
+        assertSameAsOutputStreamWriter(4, "\ud83d東");
+    }
+}
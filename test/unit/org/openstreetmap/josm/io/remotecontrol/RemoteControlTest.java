@@ -2,12 +2,15 @@
 package org.openstreetmap.josm.io.remotecontrol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -149,4 +152,43 @@ public class RemoteControlTest {
             assert responseBody.toString().contains(RequestProcessor.getUsageAsHtml());
         }
     }
+
+    /**
+     * Tests that several requests can be sent through one connection, and that the connection is closed when asked.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testKeepAlive() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", Main.pref.getInteger("remote.control.port", 8111))) {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out.write("GET /version HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(RequestProcessor.PROTOCOLVERSION, readResponse(in, "keep-alive"));
+            out.write("GET /version HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(RequestProcessor.PROTOCOLVERSION, readResponse(in, "close"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static String readResponse(BufferedReader in, String connection) throws IOException {
+        assertEquals("HTTP/1.1 200 OK", in.readLine());
+        int length = -1;
+        boolean connectionHeader = false;
+        String header;
+        while (!(header = in.readLine()).isEmpty()) {
+            if (header.startsWith("Content-length: ")) {
+                length = Integer.parseInt(header.substring("Content-length: ".length()));
+            } else if (header.equals("Connection: " + connection)) {
+                connectionHeader = true;
+            }
+        }
+        assertTrue(connectionHeader);
+        char[] content = new char[length];
+        for (int n = 0; n < length;) {
+            n += in.read(content, n, length - n);
+        }
+        return new String(content);
+    }
 }
@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io.remotecontrol.handler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.remotecontrol.handler.RequestHandler.RequestHandlerBadRequestException;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link BatchHandler} class.
+ */
+public class BatchHandlerTest {
+
+    /**
+     * Rule used for tests throwing exceptions.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().commands();
+
+    private static BatchHandler newHandler(String body) throws RequestHandlerBadRequestException {
+        BatchHandler req = new BatchHandler();
+        req.setCommand("/batch");
+        req.setUrl("/batch");
+        req.setBody(body);
+        return req;
+    }
+
+    /**
+     * Unit test for bad request - no body.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBadRequestNoBody() throws Exception {
+        thrown.expect(RequestHandlerBadRequestException.class);
+        thrown.expectMessage("The requests must be given one per line in the body of a POST request");
+        newHandler(null).handle();
+    }
+
+    /**
+     * Unit test for bad request - empty body.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBadRequestEmptyBody() throws Exception {
+        thrown.expect(RequestHandlerBadRequestException.class);
+        thrown.expectMessage("Empty batch");
+        newHandler("\r\n\n").handle();
+    }
+
+    /**
+     * Unit test for bad request - nested batch.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBadRequestNestedBatch() throws Exception {
+        thrown.expect(RequestHandlerBadRequestException.class);
+        thrown.expectMessage("Unknown command in batch: /batch");
+        newHandler("/version\n/batch").handle();
+    }
+
+    /**
+     * Unit test for bad request - invalid request in the batch.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBadRequestInvalidRequest() throws Exception {
+        thrown.expect(RequestHandlerBadRequestException.class);
+        thrown.expectMessage("The following keys are mandatory, but have not been provided: lat, lon");
+        newHandler("/version\n/add_node").handle();
+    }
+
+    /**
+     * Unit test for nominal request - the requests are undone at once.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testNominalRequest() throws Exception {
+        DataSet ds = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+        try {
+            Main.getLayerManager().addLayer(layer);
+            int commands = Main.main.undoRedo.commands.size();
+            newHandler("/add_node?lat=0&lon=0\r\nadd_node?lat=1&lon=1\r\n/add_way?way=2,2;3,3\r\n").handle();
+            assertEquals(4, ds.getNodes().size());
+            assertEquals(1, ds.getWays().size());
+            assertEquals(commands + 1, Main.main.undoRedo.commands.size());
+            assertEquals(3, ds.getAllSelected().size());
+            Main.main.undoRedo.undo();
+            assertEquals(0, ds.allPrimitives().size());
+            Main.main.undoRedo.redo();
+            assertEquals(5, ds.allPrimitives().size());
+        } finally {
+            Main.getLayerManager().removeLayer(layer);
+        }
+    }
+}
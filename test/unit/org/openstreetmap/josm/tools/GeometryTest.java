@@ -2,15 +2,21 @@
 package org.openstreetmap.josm.tools;
 
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.actions.search.SearchCompiler;
+import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.io.OsmReader;
@@ -108,4 +114,51 @@ public class GeometryTest {
             Assert.assertEquals(15093.201209424187, areaAndPerimeter.getPerimeter(), 1e-3);
         }
     }
+
+    private static Way newWay(DataSet ds, double... coordinates) {
+        Way w = new Way();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            Node n = new Node(new EastNorth(coordinates[i], coordinates[i + 1]));
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Test of {@link Geometry#addIntersections} method.
+     */
+    @Test
+    public void testAddIntersections() {
+        DataSet ds = new DataSet();
+        Way a = newWay(ds, 0, 0, 0, 200, 200, 200, 200, 0);
+        a.addNode(a.firstNode());
+        Way b = newWay(ds, 100, 100, 100, 300, 300, 300, 300, 100);
+        b.addNode(b.firstNode());
+        // crosses a and b where they cross each other
+        Way c = newWay(ds, 50, 250, 150, 150);
+        Way d = newWay(ds, 500, 500, 600, 600);
+        List<Command> cmds = new ArrayList<>();
+
+        Assert.assertTrue(Geometry.addIntersections(Arrays.asList(a, d), false, cmds).isEmpty());
+        Assert.assertEquals(1, Geometry.addIntersections(Arrays.asList(a, b, c), true, cmds).size());
+        Assert.assertTrue(cmds.isEmpty());
+
+        Set<Node> nodes = Geometry.addIntersections(Arrays.asList(a, b, c, d), false, cmds);
+        Assert.assertEquals(2, nodes.size());
+        // the 2 new nodes, then the 3 crossing ways
+        Assert.assertEquals(5, cmds.size());
+        cmds.forEach(Command::executeCommand);
+        Assert.assertEquals(7, a.getNodesCount());
+        Assert.assertEquals(7, b.getNodesCount());
+        Assert.assertEquals(3, c.getNodesCount());
+        Assert.assertEquals(2, d.getNodesCount());
+        Assert.assertSame(a.getNode(2), b.getNode(1));
+        Assert.assertSame(a.getNode(2), c.getNode(1));
+        Assert.assertSame(a.getNode(4), b.getNode(5));
+        Assert.assertEquals(nodes, new HashSet<>(Arrays.asList(a.getNode(2), a.getNode(4))));
+        Assert.assertTrue(a.getNode(2).getEastNorth().equalsEpsilon(new EastNorth(100, 200), 1e-6));
+        Assert.assertTrue(a.getNode(4).getEastNorth().equalsEpsilon(new EastNorth(200, 100), 1e-6));
+    }
 }
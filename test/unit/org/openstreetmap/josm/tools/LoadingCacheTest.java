@@ -0,0 +1,120 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LoadingCache} class.
+ */
+public class LoadingCacheTest {
+
+    /**
+     * Tests that a value is loaded once and counted in the statistics, and that {@code null} is not cached.
+     */
+    @Test
+    public void testGet() {
+        LoadingCache<String, String> cache = new LoadingCache<>();
+        assertEquals("a", cache.get("a", () -> "a"));
+        assertEquals("a", cache.get("a", () -> "b"));
+        assertNull(cache.get("b", () -> null));
+        assertEquals("b", cache.get("b", () -> "b"));
+        LoadingCache.Statistics stats = cache.getStatistics();
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(2, stats.getSize());
+        cache.clear();
+        assertEquals(0, cache.getStatistics().getSize());
+        assertEquals("c", cache.get("a", () -> "c"));
+    }
+
+    /**
+     * Tests that a failed load is not cached.
+     */
+    @Test
+    public void testFailedLoad() {
+        LoadingCache<String, String> cache = new LoadingCache<>();
+        try {
+            cache.get("a", () -> {
+                throw new IllegalStateException("test");
+            });
+            fail("exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("test", e.getMessage());
+        }
+        assertEquals("a", cache.get("a", () -> "a"));
+    }
+
+    /**
+     * Tests that threads asking for the same value at the same time wait for a single load.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSingleLoad() throws Exception {
+        LoadingCache<String, Object> cache = new LoadingCache<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("a", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new JosmRuntimeException(e);
+                }
+                return new Object();
+            })));
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get("a", () -> {
+                    loads.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            release.countDown();
+            Object value = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(value, result.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that the least recently used values are evicted above the maximum weight.
+     */
+    @Test
+    public void testEviction() {
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>(v -> 10, () -> 40);
+        for (int i = 0; i < 4; i++) {
+            cache.get(i, () -> 1);
+        }
+        assertEquals(40, cache.getStatistics().getWeight());
+        // use the first value, so that the second one is the least recently used
+        cache.get(0, () -> 2);
+        cache.get(4, () -> 1);
+        LoadingCache.Statistics stats = cache.getStatistics();
+        assertEquals(30, stats.getWeight());
+        assertEquals(2, stats.getEvictions());
+        assertEquals(Integer.valueOf(1), cache.get(0, () -> 2));
+        assertEquals(Integer.valueOf(2), cache.get(1, () -> 2));
+    }
+}
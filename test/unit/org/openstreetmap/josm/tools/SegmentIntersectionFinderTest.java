@@ -0,0 +1,67 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+
+/**
+ * Unit tests of {@link SegmentIntersectionFinder} class.
+ */
+public class SegmentIntersectionFinderTest {
+
+    private static boolean overlap(double a1, double a2, double b1, double b2) {
+        return Math.min(a1, a2) <= Math.max(b1, b2) && Math.min(b1, b2) <= Math.max(a1, a2);
+    }
+
+    /**
+     * Checks that the pairs found by the sweep line are the pairs of segments whose bounding boxes intersect.
+     */
+    @Test
+    public void testFindPairs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 10; round++) {
+            int n = 100 + random.nextInt(400);
+            double[][] segments = new double[n][];
+            SegmentIntersectionFinder finder = new SegmentIntersectionFinder();
+            for (int i = 0; i < n; i++) {
+                double x = random.nextInt(1000);
+                double y = random.nextInt(1000);
+                // some long, some horizontal or vertical segments, on a grid so that some boxes only touch
+                int length = random.nextInt(10) == 0 ? 500 : 20;
+                double[] s = {x, y, x + random.nextInt(length) - length / 2, y + (round % 3 == 0 ? 0 : random.nextInt(length))};
+                segments[i] = s;
+                assertEquals(i, finder.add(new EastNorth(s[0], s[1]), new EastNorth(s[2], s[3])));
+            }
+            assertEquals(n, finder.size());
+
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (overlap(segments[i][0], segments[i][2], segments[j][0], segments[j][2])
+                            && overlap(segments[i][1], segments[i][3], segments[j][1], segments[j][3])) {
+                        expected.add(((long) i << 32) | j);
+                    }
+                }
+            }
+            Set<Long> actual = new HashSet<>();
+            assertTrue(finder.findPairs((first, second) -> {
+                assertTrue(first < second);
+                assertTrue(actual.add(((long) first << 32) | second));
+                return true;
+            }));
+            assertEquals(expected, actual);
+
+            // stop the search
+            int[] count = {0};
+            assertEquals(expected.size() < 3, finder.findPairs((first, second) -> ++count[0] < 3));
+            assertEquals(Math.min(3, expected.size()), count[0]);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.trajano.commons.testing.UtilityClassTestUtil;
+
+/**
+ * Unit tests of {@link StartupProfiler} class.
+ */
+public class StartupProfilerTest {
+
+    /**
+     * Tests that {@code StartupProfiler} satisfies utility class criterias.
+     * @throws ReflectiveOperationException if an error occurs
+     */
+    @Test
+    public void testUtilityClass() throws ReflectiveOperationException {
+        UtilityClassTestUtil.assertUtilityClassWellDefined(StartupProfiler.class);
+    }
+
+    /**
+     * Tests that tasks are only recorded when enabled, with their thread.
+     */
+    @Test
+    public void testTimeline() {
+        StartupProfiler.measure("disabled task", () -> { });
+        assertFalse(StartupProfiler.getTimeline().contains("disabled task"));
+        try {
+            StartupProfiler.setEnabled(true);
+            StartupProfiler.measure("enabled task", () -> { });
+            String timeline = StartupProfiler.getTimeline();
+            assertTrue(timeline, timeline.contains("enabled task"));
+            assertTrue(timeline, timeline.contains(Thread.currentThread().getName()));
+        } finally {
+            StartupProfiler.setEnabled(false);
+        }
+    }
+}